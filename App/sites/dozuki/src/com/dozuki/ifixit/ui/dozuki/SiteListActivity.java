@@ -3,6 +3,7 @@ package com.dozuki.ifixit.ui.dozuki;
 import android.app.SearchManager;
 import android.content.Intent;
 import android.graphics.Typeface;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.v4.app.DialogFragment;
 import android.support.v4.app.FragmentTransaction;
@@ -16,6 +17,7 @@ import com.dozuki.ifixit.R;
 import com.dozuki.ifixit.model.dozuki.Site;
 import com.dozuki.ifixit.model.user.LoginEvent;
 import com.dozuki.ifixit.ui.BaseActivity;
+import com.dozuki.ifixit.util.SiteMatcher;
 import com.dozuki.ifixit.util.api.ApiCall;
 import com.dozuki.ifixit.util.api.ApiEvent;
 import com.dozuki.ifixit.util.api.Api;
@@ -33,6 +35,8 @@ public class SiteListActivity extends BaseActivity
    private Button mSiteListButton;
    private SiteListDialogFragment mSiteListDialog;
    private ArrayList<Site> mSiteList;
+   private SiteMatcher mSiteMatcher;
+   private AsyncTask<String, Void, ArrayList<Site>> mSearchTask;
 
    @Override
    public void onCreate(Bundle savedInstanceState) {
@@ -41,11 +45,13 @@ public class SiteListActivity extends BaseActivity
       super.onCreate(savedInstanceState);
 
       if (savedInstanceState != null) {
-         mSiteList = (ArrayList<Site>)savedInstanceState.getSerializable(SITE_LIST);
+         mSiteList = savedInstanceState.getParcelableArrayList(SITE_LIST);
       }
 
       if (mSiteList == null) {
          Api.call(this, ApiCall.sites());
+      } else {
+         mSiteMatcher = new SiteMatcher(mSiteList);
       }
 
       setTheme(R.style.Theme_Sherlock_Light);
@@ -78,7 +84,7 @@ public class SiteListActivity extends BaseActivity
    public void onSaveInstanceState(Bundle outState) {
       super.onSaveInstanceState(outState);
 
-      outState.putSerializable(SITE_LIST, mSiteList);
+      outState.putParcelableArrayList(SITE_LIST, mSiteList);
    }
 
    @Override
@@ -111,6 +117,7 @@ public class SiteListActivity extends BaseActivity
    public void onSites(ApiEvent.Sites event) {
       if (!event.hasError()) {
          mSiteList = event.getResult();
+         mSiteMatcher = new SiteMatcher(mSiteList);
          if (mSiteListDialog != null) {
             mSiteListDialog.setSites(mSiteList, true);
          }
@@ -130,6 +137,7 @@ public class SiteListActivity extends BaseActivity
    public boolean onQueryTextChange(String newText) {
       if (mSiteListDialog != null) {
          if (newText.length() == 0) {
+            cancelSearch();
             mSiteListDialog.setSites(mSiteList, true);
          } else {
             // Perform search on every key press.
@@ -145,17 +153,49 @@ public class SiteListActivity extends BaseActivity
       return false;
    }
 
+   @Override
+   public void onDestroy() {
+      cancelSearch();
+
+      super.onDestroy();
+   }
+
+   /**
+    * Matches sites in the background. The previous search is cancelled because its
+    * results are out of date as soon as the query changes.
+    */
    private void search(String query) {
-      String lowerQuery = query.toLowerCase();
-      ArrayList<Site> matchedSites = new ArrayList<Site>();
+      cancelSearch();
 
-      for (Site site : mSiteList) {
-         if (site.search(lowerQuery)) {
-            matchedSites.add(site);
-         }
+      if (mSiteMatcher == null) {
+         // Sites haven't been loaded yet.
+         return;
       }
 
-      mSiteListDialog.setSites(matchedSites, true);
+      final SiteMatcher siteMatcher = mSiteMatcher;
+      mSearchTask = new AsyncTask<String, Void, ArrayList<Site>>() {
+         @Override
+         protected ArrayList<Site> doInBackground(String... query) {
+            return siteMatcher.search(query[0]);
+         }
+
+         @Override
+         protected void onPostExecute(ArrayList<Site> matchedSites) {
+            if (matchedSites == null || mSiteListDialog == null) {
+               return;
+            }
+
+            mSiteListDialog.setSites(matchedSites, true);
+         }
+      };
+      mSearchTask.execute(query);
+   }
+
+   private void cancelSearch() {
+      if (mSearchTask != null) {
+         mSearchTask.cancel(true);
+         mSearchTask = null;
+      }
    }
 
    @Override
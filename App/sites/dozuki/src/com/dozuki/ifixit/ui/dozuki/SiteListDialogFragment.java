@@ -43,7 +43,7 @@ public class SiteListDialogFragment extends BaseDialogFragment {
    @Override
    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
       if (savedInstanceState != null) {
-         mSiteList = (ArrayList<Site>)savedInstanceState.getSerializable(SITE_LIST);
+         mSiteList = savedInstanceState.getParcelableArrayList(SITE_LIST);
       }
 
       View view = inflater.inflate(R.layout.site_dialog_list, container, false);
@@ -149,7 +149,7 @@ public class SiteListDialogFragment extends BaseDialogFragment {
    public void onSaveInstanceState(Bundle outState) {
       super.onSaveInstanceState(outState);
 
-      outState.putSerializable(SITE_LIST, mSiteList);
+      outState.putParcelableArrayList(SITE_LIST, mSiteList);
    }
 
    public void setSites(ArrayList<Site> sites, boolean initDialog) {
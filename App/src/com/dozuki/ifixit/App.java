@@ -22,9 +22,9 @@ import com.dozuki.ifixit.model.dozuki.Site;
 import com.dozuki.ifixit.model.dozuki.SiteChangedEvent;
 import com.dozuki.ifixit.model.user.LoginEvent;
 import com.dozuki.ifixit.model.user.User;
+import com.dozuki.ifixit.util.HttpTransport;
 import com.dozuki.ifixit.util.ImageSizes;
 import com.dozuki.ifixit.util.OkConnectionFactory;
-import com.dozuki.ifixit.util.Utils;
 import com.dozuki.ifixit.util.api.Api;
 import com.dozuki.ifixit.util.api.ApiCall;
 import com.dozuki.ifixit.util.api.ApiContentProvider;
@@ -58,6 +58,8 @@ public class App extends Application {
    private static final String FIRST_TIME_GALLERY_USER =
     "FIRST_TIME_GALLERY_USER";
    private static final String LAST_SYNC_TIME = "LAST_SYNC_TIME";
+   private static final String LAST_FULL_SYNC_TIME = "LAST_FULL_SYNC_TIME";
+   private static final String FAVORITES_MODIFIED_MARK = "FAVORITES_MODIFIED_MARK";
    public static final long NEVER_SYNCED_VALUE = -1;
    private static final String TAG = "App";
 
@@ -107,7 +109,7 @@ public class App extends Application {
       // client, which OkHttp doesn't handle well.
       // https://github.com/square/okhttp/issues/184
       if (!mUrlStreamFactorySet) {
-         URL.setURLStreamHandlerFactory(Utils.createOkHttpClient());
+         URL.setURLStreamHandlerFactory(HttpTransport.get().getClient());
          mUrlStreamFactorySet = true;
       }
 
@@ -146,6 +148,11 @@ public class App extends Application {
       mGaTracker.send(MapBuilder.createEvent(category, action, label, value).build());
    }
 
+   public static void sendTiming(String category, long intervalMs, String name,
+    String label) {
+      mGaTracker.send(MapBuilder.createTiming(category, intervalMs, name, label).build());
+   }
+
    public static void sendScreenView(String screenName) {
       mGaTracker.send(MapBuilder.createAppView().set(Fields.SCREEN_NAME, screenName).build());
    }
@@ -205,6 +212,9 @@ public class App extends Application {
       setupLoggedInUser(site);
 
       getBus().post(new SiteChangedEvent(mSite, mUser));
+
+      // Get a connection to the new site's API ready for the requests that follow.
+      HttpTransport.get().prewarm(site.getAPIDomain());
    }
 
    public String getTopicName() {
@@ -430,6 +440,24 @@ public class App extends Application {
       }
    }
 
+   /**
+    * Requests a sync that checks every one of the user's favorites rather than just
+    * the most recent ones. Removed favorites are only noticed by these syncs.
+    */
+   public void requestFullSync() {
+      if (!isUserLoggedIn()) {
+         return;
+      }
+
+      SharedPreferences preferenceFile = getSharedPreferences(PREFERENCE_FILE,
+       MODE_PRIVATE | MODE_MULTI_PROCESS);
+      Editor editor = preferenceFile.edit();
+      editor.remove(getSyncKey(LAST_FULL_SYNC_TIME, mSite, mUser));
+      editor.commit();
+
+      requestSync(/* force */ true);
+   }
+
    public void cancelSync() {
       if (!isUserLoggedIn()) {
          return;
@@ -482,8 +510,56 @@ public class App extends Application {
       return preferenceFile.getLong(lastSyncTimeKey, NEVER_SYNCED_VALUE);
    }
 
+   /**
+    * Returns the newest modified date of the user's favorites as of the last sync or
+    * NEVER_SYNCED_VALUE.
+    */
+   public double getFavoritesModifiedMark(Site site, User user) {
+      SharedPreferences preferenceFile = getSharedPreferences(PREFERENCE_FILE,
+       MODE_PRIVATE | MODE_MULTI_PROCESS);
+
+      return Double.longBitsToDouble(preferenceFile.getLong(
+       getSyncKey(FAVORITES_MODIFIED_MARK, site, user),
+       Double.doubleToLongBits(NEVER_SYNCED_VALUE)));
+   }
+
+   /**
+    * Returns the last time every one of the user's favorites was checked or
+    * NEVER_SYNCED_VALUE.
+    */
+   public long getLastFullSyncTime(Site site, User user) {
+      SharedPreferences preferenceFile = getSharedPreferences(PREFERENCE_FILE,
+       MODE_PRIVATE | MODE_MULTI_PROCESS);
+
+      return preferenceFile.getLong(getSyncKey(LAST_FULL_SYNC_TIME, site, user),
+       NEVER_SYNCED_VALUE);
+   }
+
+   /**
+    * Records that the user's favorites were synced up to the given modified date.
+    */
+   public void setFavoritesSynced(Site site, User user, double modifiedMark,
+    boolean fullSync) {
+      SharedPreferences preferenceFile = getSharedPreferences(PREFERENCE_FILE,
+       MODE_PRIVATE | MODE_MULTI_PROCESS);
+      Editor editor = preferenceFile.edit();
+      editor.putLong(getSyncKey(FAVORITES_MODIFIED_MARK, site, user),
+       Double.doubleToLongBits(modifiedMark));
+
+      if (fullSync) {
+         editor.putLong(getSyncKey(LAST_FULL_SYNC_TIME, site, user),
+          System.currentTimeMillis());
+      }
+
+      editor.commit();
+   }
+
    private String getLastSyncTimeKey(Site site, User user) {
-      return LAST_SYNC_TIME + "_" + site.mSiteid + "_" + user.getUserid();
+      return getSyncKey(LAST_SYNC_TIME, site, user);
+   }
+
+   private String getSyncKey(String key, Site site, User user) {
+      return key + "_" + site.mSiteid + "_" + user.getUserid();
    }
 
    public boolean isScreenLarge() {
@@ -1,21 +1,19 @@
 package com.dozuki.ifixit.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import com.dozuki.ifixit.model.user.User;
-import com.dozuki.ifixit.util.JSONHelper;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Date;
 
-public class Comment implements Serializable {
+public class Comment implements Serializable, Parcelable {
    private static final long serialVersionUID = -1333520488223961692L;
 
    private static final int NO_PARENT_ID = -1;
    public int mContextid;
-   public String mCommentSource;
    public int mCommentid;
    public String mLocale;
    public int mParentid;
@@ -31,37 +29,27 @@ public class Comment implements Serializable {
    public String mStatus;
    public ArrayList<Comment> mReplies;
 
+   /**
+    * Comments are parsed by JSONStreamParser.
+    */
    public Comment() { }
 
-   public Comment(String json) throws JSONException {
-      this(new JSONObject(json));
-   }
-
-   public Comment(JSONObject object) throws JSONException {
-      mCommentSource = object.toString(4);
-      mCommentid = object.getInt("commentid");
-      mLocale = object.getString("locale");
-      mParentid = object.isNull("parentid") ? NO_PARENT_ID : object.getInt("parentid");
-      mUser = JSONHelper.parseUserLight(object.getJSONObject("author"));
-      mTitle = object.getString("title");
-      mContext = object.getString("context");
-      mContextid = object.getInt("contextid");
-      mTextRaw = object.getString("text_raw");
-      mTextRendered = object.getString("text_rendered");
-      mRating = object.getInt("rating");
-      mDate = new Date(object.getLong("date") * 1000);
-      mModifiedDate = new Date(object.getLong("modified_date") * 1000);
-      mRepliedDate = new Date(object.getLong("replied_date") * 1000);
-      mStatus = object.getString("status");
-      mReplies = new ArrayList<Comment>();
-      JSONArray replies = object.optJSONArray("replies");
-
-      if (replies != null) {
-         int numReplies = replies.length();
-         for (int i = 0; i < numReplies; i++) {
-            mReplies.add(new Comment(replies.getJSONObject(i)));
-         }
-      }
+   private Comment(Parcel in) {
+      mContextid = in.readInt();
+      mCommentid = in.readInt();
+      mLocale = in.readString();
+      mParentid = in.readInt();
+      mContext = in.readString();
+      mUser = in.readParcelable(User.class.getClassLoader());
+      mTitle = in.readString();
+      mTextRaw = in.readString();
+      mTextRendered = in.readString();
+      mRating = in.readInt();
+      mDate = readDate(in);
+      mModifiedDate = readDate(in);
+      mRepliedDate = readDate(in);
+      mStatus = in.readString();
+      mReplies = in.createTypedArrayList(CREATOR);
    }
 
    public boolean isReply() {
@@ -70,6 +58,51 @@ public class Comment implements Serializable {
 
    @Override
    public String toString() {
-      return mCommentSource;
+      return "{Comment: " + mCommentid + ", " + mContext + ", " + mContextid +
+       ", " + mReplies + "}";
    }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeInt(mContextid);
+      dest.writeInt(mCommentid);
+      dest.writeString(mLocale);
+      dest.writeInt(mParentid);
+      dest.writeString(mContext);
+      dest.writeParcelable(mUser, flags);
+      dest.writeString(mTitle);
+      dest.writeString(mTextRaw);
+      dest.writeString(mTextRendered);
+      dest.writeInt(mRating);
+      writeDate(dest, mDate);
+      writeDate(dest, mModifiedDate);
+      writeDate(dest, mRepliedDate);
+      dest.writeString(mStatus);
+      dest.writeTypedList(mReplies);
+   }
+
+   private static void writeDate(Parcel dest, Date date) {
+      dest.writeValue(date == null ? null : date.getTime());
+   }
+
+   private static Date readDate(Parcel in) {
+      Long time = (Long)in.readValue(null);
+      return time == null ? null : new Date(time);
+   }
+
+   public static final Parcelable.Creator<Comment> CREATOR =
+    new Parcelable.Creator<Comment>() {
+      public Comment createFromParcel(Parcel in) {
+         return new Comment(in);
+      }
+
+      public Comment[] newArray(int size) {
+         return new Comment[size];
+      }
+   };
 }
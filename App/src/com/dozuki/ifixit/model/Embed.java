@@ -1,5 +1,8 @@
 package com.dozuki.ifixit.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.jsoup.Jsoup;
@@ -7,7 +10,7 @@ import org.jsoup.nodes.Document;
 
 import java.io.Serializable;
 
-public class Embed implements Serializable {
+public class Embed implements Serializable, Parcelable {
 
    private static final long serialVersionUID = 1L;
    public String mSourceUrl;
@@ -47,9 +50,59 @@ public class Embed implements Serializable {
       }
    }
 
+   private Embed(Parcel in) {
+      mSourceUrl = in.readString();
+      mEmbedid = in.readInt();
+      mUrl = in.readString();
+      mTitle = in.readString();
+      mType = in.readString();
+      mProviderUrl = in.readString();
+      mHtml = in.readString();
+      mProviderName = in.readString();
+      mAuthorUrl = in.readString();
+      mAuthorName = in.readString();
+      mCacheAge = in.readString();
+      mVersion = in.readString();
+      mWidth = in.readInt();
+      mHeight = in.readInt();
+   }
+
    private String getSourceUrl(String html) {
       Document doc = Jsoup.parse(html);
 
       return doc.getElementsByAttribute("src").get(0).attr("src");
    }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeString(mSourceUrl);
+      dest.writeInt(mEmbedid);
+      dest.writeString(mUrl);
+      dest.writeString(mTitle);
+      dest.writeString(mType);
+      dest.writeString(mProviderUrl);
+      dest.writeString(mHtml);
+      dest.writeString(mProviderName);
+      dest.writeString(mAuthorUrl);
+      dest.writeString(mAuthorName);
+      dest.writeString(mCacheAge);
+      dest.writeString(mVersion);
+      dest.writeInt(mWidth);
+      dest.writeInt(mHeight);
+   }
+
+   public static final Parcelable.Creator<Embed> CREATOR = new Parcelable.Creator<Embed>() {
+      public Embed createFromParcel(Parcel in) {
+         return new Embed(in);
+      }
+
+      public Embed[] newArray(int size) {
+         return new Embed[size];
+      }
+   };
 }
@@ -1,6 +1,9 @@
 package com.dozuki.ifixit.model;
 
-public class Flag {
+import android.os.Parcel;
+import android.os.Parcelable;
+
+public class Flag implements Parcelable {
    private String mTitle;
    private int mId;
    private String mText;
@@ -21,6 +24,13 @@ public class Flag {
       mText = text;
    }
 
+   private Flag(Parcel in) {
+      mTitle = in.readString();
+      mId = in.readInt();
+      mText = in.readString();
+      mThumbnail = in.readParcelable(Image.class.getClassLoader());
+   }
+
    public String getTitle() {
       return mTitle;
    }
@@ -32,4 +42,28 @@ public class Flag {
    public int getId() {
       return mId;
    }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeString(mTitle);
+      dest.writeInt(mId);
+      dest.writeString(mText);
+      dest.writeParcelable(mThumbnail, flags);
+   }
+
+   public static final Parcelable.Creator<Flag> CREATOR = new Parcelable.Creator<Flag>() {
+
+      public Flag createFromParcel(Parcel in) {
+         return new Flag(in);
+      }
+
+      public Flag[] newArray(int size) {
+         return new Flag[size];
+      }
+   };
 }
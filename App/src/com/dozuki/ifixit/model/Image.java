@@ -1,10 +1,13 @@
 package com.dozuki.ifixit.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import com.google.gson.annotations.SerializedName;
 
 import java.io.Serializable;
 
-public class Image implements Serializable {
+public class Image implements Serializable, Parcelable {
    private static final long serialVersionUID = 772113480839309007L;
 
    /**
@@ -32,6 +35,12 @@ public class Image implements Serializable {
       mLocalPath = "";
    }
 
+   protected Image(Parcel in) {
+      mId = in.readInt();
+      mPath = in.readString();
+      mLocalPath = in.readString();
+   }
+
    public void setLocalImage(String path) {
       mId = LOCAL_IMAGE_ID;
       mPath = path;
@@ -100,4 +109,27 @@ public class Image implements Serializable {
 
       return ((Image)obj).getId() == mId && ((Image)obj).getPath().equals(mPath);
    }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeInt(mId);
+      dest.writeString(mPath);
+      dest.writeString(mLocalPath);
+   }
+
+   public static final Parcelable.Creator<Image> CREATOR = new Parcelable.Creator<Image>() {
+
+      public Image createFromParcel(Parcel in) {
+         return new Image(in);
+      }
+
+      public Image[] newArray(int size) {
+         return new Image[size];
+      }
+   };
 }
@@ -1,9 +1,11 @@
 package com.dozuki.ifixit.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 
 import java.io.Serializable;
 
-public class Item implements Serializable {
+public class Item implements Serializable, Parcelable {
    private static final long serialVersionUID = 2884598684003517264L;
 
    public enum ItemType {
@@ -28,6 +30,15 @@ public class Item implements Serializable {
       mThumb = thumb;
    }
 
+   private Item(Parcel in) {
+      mType = ItemType.values()[in.readInt()];
+      mNote = in.readString();
+      mTitle = in.readString();
+      mQuantity = in.readString();
+      mUrl = in.readString();
+      mThumb = in.readString();
+   }
+
    public ItemType getType() {
       return mType;
    }
@@ -72,4 +83,30 @@ public class Item implements Serializable {
       return "{Item: " + mTitle + ", " + mThumb + ", " + mUrl +
        ", " + mNote + "}";
    }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeInt(mType.ordinal());
+      dest.writeString(mNote);
+      dest.writeString(mTitle);
+      dest.writeString(mQuantity);
+      dest.writeString(mUrl);
+      dest.writeString(mThumb);
+   }
+
+   public static final Parcelable.Creator<Item> CREATOR = new Parcelable.Creator<Item>() {
+
+      public Item createFromParcel(Parcel in) {
+         return new Item(in);
+      }
+
+      public Item[] newArray(int size) {
+         return new Item[size];
+      }
+   };
 }
@@ -1,9 +1,12 @@
 package com.dozuki.ifixit.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import java.io.Serializable;
 import java.util.ArrayList;
 
-public class Video implements Serializable {
+public class Video implements Serializable, Parcelable {
 
    private static final long serialVersionUID = 2L;
    protected ArrayList<VideoEncoding> mEncodings = new ArrayList<VideoEncoding>();
@@ -18,10 +21,24 @@ public class Video implements Serializable {
       mEncodings = new ArrayList<VideoEncoding>();
    }
 
+   private Video(Parcel in) {
+      mEncodings = in.createTypedArrayList(VideoEncoding.CREATOR);
+      mThumbnail = in.readParcelable(VideoThumbnail.class.getClassLoader());
+      id = in.readInt();
+      filename = in.readString();
+      width = in.readInt();
+      height = in.readInt();
+      duration = in.readInt();
+   }
+
    public void addEncoding(VideoEncoding parseVideoEncoding) {
       mEncodings.add(parseVideoEncoding);
    }
 
+   public ArrayList<VideoEncoding> getEncodings() {
+      return mEncodings;
+   }
+
    public void setThumbnail(VideoThumbnail thumb) {
       mThumbnail = thumb;
    }
@@ -70,4 +87,34 @@ public class Video implements Serializable {
    public void setDuration(int duration) {
       this.duration = duration;
    }
+
+   public int getDuration() {
+      return duration;
+   }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeTypedList(mEncodings);
+      dest.writeParcelable(mThumbnail, flags);
+      dest.writeInt(id);
+      dest.writeString(filename);
+      dest.writeInt(width);
+      dest.writeInt(height);
+      dest.writeInt(duration);
+   }
+
+   public static final Parcelable.Creator<Video> CREATOR = new Parcelable.Creator<Video>() {
+      public Video createFromParcel(Parcel in) {
+         return new Video(in);
+      }
+
+      public Video[] newArray(int size) {
+         return new Video[size];
+      }
+   };
 }
@@ -1,8 +1,11 @@
 package com.dozuki.ifixit.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import java.io.Serializable;
 
-public class VideoEncoding implements Serializable {
+public class VideoEncoding implements Serializable, Parcelable {
 
    private static final long serialVersionUID = -6244973891206389939L;
    protected int mWidth;
@@ -17,7 +20,50 @@ public class VideoEncoding implements Serializable {
       mURL = url;
    }
 
+   private VideoEncoding(Parcel in) {
+      mWidth = in.readInt();
+      mHeight = in.readInt();
+      mFormat = in.readString();
+      mURL = in.readString();
+   }
+
    public String getURL() {
       return mURL;
    }
+
+   public int getWidth() {
+      return mWidth;
+   }
+
+   public int getHeight() {
+      return mHeight;
+   }
+
+   public String getFormat() {
+      return mFormat;
+   }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeInt(mWidth);
+      dest.writeInt(mHeight);
+      dest.writeString(mFormat);
+      dest.writeString(mURL);
+   }
+
+   public static final Parcelable.Creator<VideoEncoding> CREATOR =
+    new Parcelable.Creator<VideoEncoding>() {
+      public VideoEncoding createFromParcel(Parcel in) {
+         return new VideoEncoding(in);
+      }
+
+      public VideoEncoding[] newArray(int size) {
+         return new VideoEncoding[size];
+      }
+   };
 }
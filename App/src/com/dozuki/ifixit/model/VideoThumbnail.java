@@ -1,5 +1,8 @@
 package com.dozuki.ifixit.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import java.io.Serializable;
 
 public class VideoThumbnail extends Image implements Serializable {
@@ -14,6 +17,12 @@ public class VideoThumbnail extends Image implements Serializable {
       mHeight = height;
    }
 
+   protected VideoThumbnail(Parcel in) {
+      super(in);
+      mWidth = in.readInt();
+      mHeight = in.readInt();
+   }
+
    public int getWidth() {
       return mWidth;
    }
@@ -21,4 +30,22 @@ public class VideoThumbnail extends Image implements Serializable {
    public int getHeight() {
       return mHeight;
    }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      super.writeToParcel(dest, flags);
+      dest.writeInt(mWidth);
+      dest.writeInt(mHeight);
+   }
+
+   public static final Parcelable.Creator<VideoThumbnail> CREATOR =
+    new Parcelable.Creator<VideoThumbnail>() {
+      public VideoThumbnail createFromParcel(Parcel in) {
+         return new VideoThumbnail(in);
+      }
+
+      public VideoThumbnail[] newArray(int size) {
+         return new VideoThumbnail[size];
+      }
+   };
 }
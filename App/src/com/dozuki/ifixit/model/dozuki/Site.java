@@ -2,6 +2,8 @@ package com.dozuki.ifixit.model.dozuki;
 
 import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
+import android.os.Parcel;
+import android.os.Parcelable;
 
 import com.dozuki.ifixit.App;
 import com.dozuki.ifixit.BuildConfig;
@@ -14,7 +16,7 @@ import com.dozuki.ifixit.util.Utils;
 import java.io.Serializable;
 import java.util.ArrayList;
 
-public class Site implements Serializable {
+public class Site implements Serializable, Parcelable {
    private static final long serialVersionUID = -2998341267277845644L;
 
    public int mSiteid;
@@ -46,6 +48,30 @@ public class Site implements Serializable {
       mSiteid = siteid;
    }
 
+   private Site(Parcel in) {
+      mSiteid = in.readInt();
+      mName = in.readString();
+      mDomain = in.readString();
+      mTitle = in.readString();
+      mTheme = in.readString();
+      mPublic = in.readInt() != 0;
+      mAnswers = in.readInt() != 0;
+      mDescription = in.readString();
+      mStandardAuth = in.readInt() != 0;
+      mSsoUrl = in.readString();
+      mPublicRegistration = in.readInt() != 0;
+      mCustomDomain = in.readString();
+      mStoreUrl = in.readString();
+      mLogo = in.readParcelable(Image.class.getClassLoader());
+      mObjectNameSingular = in.readString();
+      mObjectNamePlural = in.readString();
+      mGoogleOAuth2Clientid = in.readString();
+      hasSubject = in.createStringArray();
+      noSubject = in.createStringArray();
+      mGuideTypes = in.createTypedArrayList(GuideType.CREATOR);
+      mBarcodeScanner = in.readInt() != 0;
+   }
+
    public boolean search(String query) {
       if (mTitle.toLowerCase().contains(query)) {
          // Query is somewhere in title or name.
@@ -57,7 +83,8 @@ public class Site implements Serializable {
        * arbitrary but makes sense because we want more room for error the
        * longer the string and less room for error the shorter the string.
        */
-      return EditDistance.editDistance(mName, query) <= (mName.length() / 2);
+      int maxDistance = mName.length() / 2;
+      return EditDistance.editDistance(mName, query, maxDistance) <= maxDistance;
    }
 
    public String getOpenIdLoginUrl() {
@@ -358,4 +385,45 @@ public class Site implements Serializable {
    public boolean isMagnolia() {
       return mName.equals("magnoliamedical");
    }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeInt(mSiteid);
+      dest.writeString(mName);
+      dest.writeString(mDomain);
+      dest.writeString(mTitle);
+      dest.writeString(mTheme);
+      dest.writeInt(mPublic ? 1 : 0);
+      dest.writeInt(mAnswers ? 1 : 0);
+      dest.writeString(mDescription);
+      dest.writeInt(mStandardAuth ? 1 : 0);
+      dest.writeString(mSsoUrl);
+      dest.writeInt(mPublicRegistration ? 1 : 0);
+      dest.writeString(mCustomDomain);
+      dest.writeString(mStoreUrl);
+      dest.writeParcelable(mLogo, flags);
+      dest.writeString(mObjectNameSingular);
+      dest.writeString(mObjectNamePlural);
+      dest.writeString(mGoogleOAuth2Clientid);
+      dest.writeStringArray(hasSubject);
+      dest.writeStringArray(noSubject);
+      dest.writeTypedList(mGuideTypes);
+      dest.writeInt(mBarcodeScanner ? 1 : 0);
+   }
+
+   public static final Parcelable.Creator<Site> CREATOR = new Parcelable.Creator<Site>() {
+
+      public Site createFromParcel(Parcel in) {
+         return new Site(in);
+      }
+
+      public Site[] newArray(int size) {
+         return new Site[size];
+      }
+   };
 }
@@ -1,5 +1,8 @@
 package com.dozuki.ifixit.model.gallery;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import com.dozuki.ifixit.model.user.UserImage;
 
 import java.io.Serializable;
@@ -27,6 +30,11 @@ public class GalleryImage extends UserImage implements Serializable {
       mSelected = false;
    }
 
+   private GalleryImage(Parcel in) {
+      super(in);
+      mSelected = in.readInt() != 0;
+   }
+
    public void setSelected(boolean selected) {
       mSelected = selected;
    }
@@ -42,4 +50,21 @@ public class GalleryImage extends UserImage implements Serializable {
    public boolean fromMediaStore() {
       return !getPath().contains(".jpg");
    }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      super.writeToParcel(dest, flags);
+      dest.writeInt(mSelected ? 1 : 0);
+   }
+
+   public static final Parcelable.Creator<GalleryImage> CREATOR =
+    new Parcelable.Creator<GalleryImage>() {
+      public GalleryImage createFromParcel(Parcel in) {
+         return new GalleryImage(in);
+      }
+
+      public GalleryImage[] newArray(int size) {
+         return new GalleryImage[size];
+      }
+   };
 }
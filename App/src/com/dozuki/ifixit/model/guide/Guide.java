@@ -1,5 +1,7 @@
 package com.dozuki.ifixit.model.guide;
 
+import android.os.Parcel;
+
 import com.dozuki.ifixit.model.Comment;
 import com.dozuki.ifixit.model.Image;
 import com.dozuki.ifixit.model.Item;
@@ -7,7 +9,7 @@ import com.dozuki.ifixit.model.Item;
 import java.io.Serializable;
 import java.util.ArrayList;
 
-public class Guide implements Serializable {
+public class Guide implements Serializable, Cloneable {
    private static final long serialVersionUID = -1965203088124961396L;
    private static final int NEW_GUIDE_ID = -1;
 
@@ -56,6 +58,68 @@ public class Guide implements Serializable {
       mComments = new ArrayList<Comment>();
    }
 
+   /**
+    * Guide isn't Parcelable because it is put in Intents as a Serializable and being
+    * both makes putExtra() ambiguous. These write and read it the same way instead.
+    */
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeInt(mGuideid);
+      dest.writeValue(mRevisionid);
+      dest.writeString(mTitle);
+      dest.writeInt(mPublic ? 1 : 0);
+      dest.writeString(mTopic);
+      dest.writeString(mAuthor);
+      dest.writeString(mType);
+      dest.writeString(mTimeRequired);
+      dest.writeString(mDifficulty);
+      dest.writeString(mIntroductionRendered);
+      dest.writeString(mIntroductionRaw);
+      dest.writeString(mSubject);
+      dest.writeParcelable(mIntroImage, flags);
+      dest.writeString(mSummary);
+      dest.writeTypedList(mSteps);
+      dest.writeTypedList(mTools);
+      dest.writeTypedList(mParts);
+      dest.writeInt(mCompleted ? 1 : 0);
+      dest.writeString(mConclusion);
+      dest.writeInt(mCanEdit ? 1 : 0);
+      dest.writeInt(mPatrolThreshold);
+      dest.writeInt(mFavorited ? 1 : 0);
+      dest.writeDouble(mModifiedDate);
+      dest.writeDouble(mPrereqModifiedDate);
+      dest.writeTypedList(mComments);
+   }
+
+   public static Guide readFromParcel(Parcel in) {
+      Guide guide = new Guide(in.readInt());
+      guide.mRevisionid = (Integer)in.readValue(null);
+      guide.mTitle = in.readString();
+      guide.mPublic = in.readInt() != 0;
+      guide.mTopic = in.readString();
+      guide.mAuthor = in.readString();
+      guide.mType = in.readString();
+      guide.mTimeRequired = in.readString();
+      guide.mDifficulty = in.readString();
+      guide.mIntroductionRendered = in.readString();
+      guide.mIntroductionRaw = in.readString();
+      guide.mSubject = in.readString();
+      guide.mIntroImage = in.readParcelable(Image.class.getClassLoader());
+      guide.mSummary = in.readString();
+      guide.mSteps = in.createTypedArrayList(GuideStep.CREATOR);
+      guide.mTools = in.createTypedArrayList(Item.CREATOR);
+      guide.mParts = in.createTypedArrayList(Item.CREATOR);
+      guide.mCompleted = in.readInt() != 0;
+      guide.mConclusion = in.readString();
+      guide.mCanEdit = in.readInt() != 0;
+      guide.mPatrolThreshold = in.readInt();
+      guide.mFavorited = in.readInt() != 0;
+      guide.mModifiedDate = in.readDouble();
+      guide.mPrereqModifiedDate = in.readDouble();
+      guide.mComments = in.createTypedArrayList(Comment.CREATOR);
+
+      return guide;
+   }
+
    public ArrayList<Comment> getComments() {
       return mComments;
    }
@@ -83,6 +147,10 @@ public class Guide implements Serializable {
       mPatrolThreshold = threshold;
    }
 
+   public int getPatrolThreshold() {
+      return mPatrolThreshold;
+   }
+
    public void addTool(Item tool) {
       mTools.add(tool);
    }
@@ -103,6 +171,10 @@ public class Guide implements Serializable {
       mCanEdit = canEdit;
    }
 
+   public boolean canEdit() {
+      return mCanEdit;
+   }
+
    public void setType(String type) {
       mType = type;
    }
@@ -121,6 +193,19 @@ public class Guide implements Serializable {
       return mParts.size();
    }
 
+   /**
+    * Returns a shallow copy of the guide with no steps.
+    */
+   public Guide copyWithoutSteps() {
+      try {
+         Guide guide = (Guide)clone();
+         guide.mSteps = new ArrayList<GuideStep>();
+         return guide;
+      } catch (CloneNotSupportedException e) {
+         throw new AssertionError(e);
+      }
+   }
+
    public void setStepList(ArrayList<GuideStep> steps) {
       mSteps = steps;
    }
@@ -212,6 +297,10 @@ public class Guide implements Serializable {
       mTimeRequired = timeRequired;
    }
 
+   public String getTimeRequired() {
+      return mTimeRequired;
+   }
+
    public void setDifficulty(String difficulty) {
       mDifficulty = difficulty;
    }
@@ -280,10 +369,18 @@ public class Guide implements Serializable {
       mModifiedDate = modifiedDate;
    }
 
+   public double getModifiedDate() {
+      return mModifiedDate;
+   }
+
    public void setPrereqModifiedDate(double prereqModifiedDate) {
       mPrereqModifiedDate = prereqModifiedDate;
    }
 
+   public double getPrereqModifiedDate() {
+      return mPrereqModifiedDate;
+   }
+
    /**
     * Returns the guide's modified date including prereq modifications.
     */
@@ -1,5 +1,8 @@
 package com.dozuki.ifixit.model.guide;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import com.dozuki.ifixit.model.Image;
 import com.google.gson.annotations.SerializedName;
 
@@ -7,7 +10,7 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
 
-public class GuideInfo implements Serializable {
+public class GuideInfo implements Serializable, Parcelable {
    private static final long serialVersionUID = 3L;
 
    @SerializedName("guideid")
@@ -48,6 +51,24 @@ public class GuideInfo implements Serializable {
       mGuideid = guideid;
    }
 
+   private GuideInfo(Parcel in) {
+      mGuideid = in.readInt();
+      mRevisionid = in.readInt();
+      mModifiedDate = in.readDouble();
+      mPrereqModifiedDate = in.readDouble();
+      mType = in.readString();
+      mTopic = in.readString();
+      mSubject = in.readString();
+      mTitle = in.readString();
+      mPublic = in.readInt() != 0;
+      mFlags = in.createStringArray();
+      mImage = in.readParcelable(Image.class.getClassLoader());
+      mUrl = in.readString();
+      mAuthorName = in.readString();
+      mUserid = in.readInt();
+      mLocale = in.readString();
+   }
+
    public boolean hasSubject() {
       List<String> hasSubject = Arrays.asList("repair", "replacement", "installation", "disassembly");
       //List<String> noSubject = Arrays.asList("technique", "maintenance", "teardown");
@@ -79,4 +100,39 @@ public class GuideInfo implements Serializable {
       return mGuideid + ", " + mSubject + ", " + mImage + ", " + mTitle +
        ", " + mType + ", " + Arrays.toString(mFlags);
    }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeInt(mGuideid);
+      dest.writeInt(mRevisionid);
+      dest.writeDouble(mModifiedDate);
+      dest.writeDouble(mPrereqModifiedDate);
+      dest.writeString(mType);
+      dest.writeString(mTopic);
+      dest.writeString(mSubject);
+      dest.writeString(mTitle);
+      dest.writeInt(mPublic ? 1 : 0);
+      dest.writeStringArray(mFlags);
+      dest.writeParcelable(mImage, flags);
+      dest.writeString(mUrl);
+      dest.writeString(mAuthorName);
+      dest.writeInt(mUserid);
+      dest.writeString(mLocale);
+   }
+
+   public static final Parcelable.Creator<GuideInfo> CREATOR =
+    new Parcelable.Creator<GuideInfo>() {
+      public GuideInfo createFromParcel(Parcel in) {
+         return new GuideInfo(in);
+      }
+
+      public GuideInfo[] newArray(int size) {
+         return new GuideInfo[size];
+      }
+   };
 }
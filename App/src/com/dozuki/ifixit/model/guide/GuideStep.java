@@ -1,5 +1,8 @@
 package com.dozuki.ifixit.model.guide;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import com.dozuki.ifixit.model.Comment;
 import com.dozuki.ifixit.model.Embed;
 import com.dozuki.ifixit.model.Image;
@@ -8,7 +11,7 @@ import com.dozuki.ifixit.model.Video;
 import java.io.Serializable;
 import java.util.ArrayList;
 
-public class GuideStep implements Serializable {
+public class GuideStep implements Serializable, Parcelable {
    private static final long serialVersionUID = 2884598684003517267L;
    private static final int DEFAULT_STEP_NUMBER = 1;
    private static final String DEFAULT_TITLE = "";
@@ -68,6 +71,22 @@ public class GuideStep implements Serializable {
       mRevisionid = null;
    }
 
+   private GuideStep(Parcel in) {
+      mGuideid = in.readInt();
+      mStepid = in.readInt();
+      mRevisionid = (Integer)in.readValue(null);
+      mOrderby = in.readInt();
+      mStepNum = in.readInt();
+      mComments = in.createTypedArrayList(Comment.CREATOR);
+      mTitle = in.readString();
+      mImages = new ArrayList<Image>();
+      in.readList(mImages, Image.class.getClassLoader());
+      mLines = in.createTypedArrayList(StepLine.CREATOR);
+      mVideo = in.readParcelable(Video.class.getClassLoader());
+      mEmbed = in.readParcelable(Embed.class.getClassLoader());
+      mEditMode = in.readInt() != 0;
+   }
+
    public int getCommentCount() {
       int count = mComments.size();
 
@@ -227,4 +246,37 @@ public class GuideStep implements Serializable {
       return "{GuideStep: " + mGuideid + ", " + mStepid + ", " + mRevisionid + ", " +
        mOrderby + ", " + mStepNum + ", " + mTitle + ", " + mLines.toString() + ", " + mImages.toString() + "}";
    }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeInt(mGuideid);
+      dest.writeInt(mStepid);
+      dest.writeValue(mRevisionid);
+      dest.writeInt(mOrderby);
+      dest.writeInt(mStepNum);
+      dest.writeTypedList(mComments);
+      dest.writeString(mTitle);
+      // Images are written with their class so subclasses keep their type.
+      dest.writeList(mImages);
+      dest.writeTypedList(mLines);
+      dest.writeParcelable(mVideo, flags);
+      dest.writeParcelable(mEmbed, flags);
+      dest.writeInt(mEditMode ? 1 : 0);
+   }
+
+   public static final Parcelable.Creator<GuideStep> CREATOR =
+    new Parcelable.Creator<GuideStep>() {
+      public GuideStep createFromParcel(Parcel in) {
+         return new GuideStep(in);
+      }
+
+      public GuideStep[] newArray(int size) {
+         return new GuideStep[size];
+      }
+   };
 }
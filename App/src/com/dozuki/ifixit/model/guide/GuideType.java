@@ -1,8 +1,11 @@
 package com.dozuki.ifixit.model.guide;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import java.io.Serializable;
 
-public class GuideType implements Serializable {
+public class GuideType implements Serializable, Parcelable {
    private static final long serialVersionUID = -8948485049734934973L;
 
    public String mTitle;
@@ -14,4 +17,33 @@ public class GuideType implements Serializable {
       mType = type;
       mPrompt = prompt;
    }
+
+   private GuideType(Parcel in) {
+      mTitle = in.readString();
+      mType = in.readString();
+      mPrompt = in.readString();
+   }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeString(mTitle);
+      dest.writeString(mType);
+      dest.writeString(mPrompt);
+   }
+
+   public static final Parcelable.Creator<GuideType> CREATOR =
+    new Parcelable.Creator<GuideType>() {
+      public GuideType createFromParcel(Parcel in) {
+         return new GuideType(in);
+      }
+
+      public GuideType[] newArray(int size) {
+         return new GuideType[size];
+      }
+   };
 }
@@ -1,8 +1,11 @@
 package com.dozuki.ifixit.model.guide;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import java.io.Serializable;
 
-public class StepLine implements Serializable {
+public class StepLine implements Serializable, Parcelable {
    private static final long serialVersionUID = 8535265363779393297L;
    /**
     * Lineid that identifies this stepline. Can be null if this line hasn't been
@@ -14,6 +17,12 @@ public class StepLine implements Serializable {
    protected String mTextRendered;
    protected String mTextRaw;
    protected boolean hasIcon = false;
+   /**
+    * mTextRendered already rendered and encoded by SpannedCodec. Only set for lines of
+    * offline guides. It is kept in Parcels but not serialized since it can always be
+    * rendered again.
+    */
+   protected transient byte[] mTextSpans;
 
    public StepLine() {
       this(null, "black", 0, "", "");
@@ -31,6 +40,16 @@ public class StepLine implements Serializable {
       mTextRendered = textRendered;
    }
 
+   private StepLine(Parcel in) {
+      mLineid = (Integer)in.readValue(null);
+      mColor = in.readString();
+      mLevel = in.readInt();
+      mTextRendered = in.readString();
+      mTextRaw = in.readString();
+      hasIcon = in.readInt() != 0;
+      mTextSpans = in.createByteArray();
+   }
+
    public void setColor(String color) {
       mColor = color;
    }
@@ -43,6 +62,14 @@ public class StepLine implements Serializable {
       return mTextRendered;
    }
 
+   public byte[] getTextSpans() {
+      return mTextSpans;
+   }
+
+   public void setTextSpans(byte[] textSpans) {
+      mTextSpans = textSpans;
+   }
+
    public String getTextRaw() {
       return mTextRaw;
    }
@@ -70,4 +97,31 @@ public class StepLine implements Serializable {
    public Integer getLineId() {
       return mLineid;
    }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeValue(mLineid);
+      dest.writeString(mColor);
+      dest.writeInt(mLevel);
+      dest.writeString(mTextRendered);
+      dest.writeString(mTextRaw);
+      dest.writeInt(hasIcon ? 1 : 0);
+      dest.writeByteArray(mTextSpans);
+   }
+
+   public static final Parcelable.Creator<StepLine> CREATOR =
+    new Parcelable.Creator<StepLine>() {
+      public StepLine createFromParcel(Parcel in) {
+         return new StepLine(in);
+      }
+
+      public StepLine[] newArray(int size) {
+         return new StepLine[size];
+      }
+   };
 }
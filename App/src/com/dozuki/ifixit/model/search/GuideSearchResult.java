@@ -28,6 +28,10 @@ public class GuideSearchResult implements SearchResult, Serializable {
       mGuideInfo = guideInfo;
    }
 
+   public GuideInfo getGuideInfo() {
+      return mGuideInfo;
+   }
+
    @Override
    public View buildView(View v, LayoutInflater inflater, ViewGroup container) {
       final Context context = container.getContext();
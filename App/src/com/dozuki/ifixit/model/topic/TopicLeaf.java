@@ -1,5 +1,8 @@
 package com.dozuki.ifixit.model.topic;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import com.dozuki.ifixit.model.Flag;
 import com.dozuki.ifixit.model.Image;
 import com.dozuki.ifixit.model.Item;
@@ -9,7 +12,7 @@ import org.json.JSONArray;
 import java.io.Serializable;
 import java.util.ArrayList;
 
-public class TopicLeaf implements Serializable {
+public class TopicLeaf implements Serializable, Parcelable {
    private static final long serialVersionUID = 1L;
 
    private String mName;
@@ -34,6 +37,22 @@ public class TopicLeaf implements Serializable {
       mFlags = new ArrayList<Flag>();
    }
 
+   private TopicLeaf(Parcel in) {
+      mName = in.readString();
+      mTitle = in.readString();
+      mLocale = in.readString();
+      mImage = in.readParcelable(Image.class.getClassLoader());
+      mDescription = in.readString();
+      mFlags = in.createTypedArrayList(Flag.CREATOR);
+      mGuides = in.createTypedArrayList(GuideInfo.CREATOR);
+      mSolutions = in.readInt();
+      mSolutionsUrl = in.readString();
+      mParts = in.createTypedArrayList(Item.CREATOR);
+      mTools = in.createTypedArrayList(Item.CREATOR);
+      mContentsRaw = in.readString();
+      mContentsRendered = in.readString();
+   }
+
    public void addGuide(GuideInfo guideInfo) {
       mGuides.add(guideInfo);
    }
@@ -130,4 +149,37 @@ public class TopicLeaf implements Serializable {
    public Image getImage() {
       return mImage;
    }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeString(mName);
+      dest.writeString(mTitle);
+      dest.writeString(mLocale);
+      dest.writeParcelable(mImage, flags);
+      dest.writeString(mDescription);
+      dest.writeTypedList(mFlags);
+      dest.writeTypedList(mGuides);
+      dest.writeInt(mSolutions);
+      dest.writeString(mSolutionsUrl);
+      dest.writeTypedList(mParts);
+      dest.writeTypedList(mTools);
+      dest.writeString(mContentsRaw);
+      dest.writeString(mContentsRendered);
+   }
+
+   public static final Parcelable.Creator<TopicLeaf> CREATOR =
+    new Parcelable.Creator<TopicLeaf>() {
+      public TopicLeaf createFromParcel(Parcel in) {
+         return new TopicLeaf(in);
+      }
+
+      public TopicLeaf[] newArray(int size) {
+         return new TopicLeaf[size];
+      }
+   };
 }
@@ -1,9 +1,12 @@
 package com.dozuki.ifixit.model.topic;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import java.io.Serializable;
 import java.util.ArrayList;
 
-public class TopicNode implements Serializable {
+public class TopicNode implements Serializable, Parcelable {
    private static final long serialVersionUID = 1L;
    protected static final String ROOT_NAME = "ROOT";
 
@@ -20,6 +23,12 @@ public class TopicNode implements Serializable {
       mDisplayName = name;
    }
 
+   private TopicNode(Parcel in) {
+      mName = in.readString();
+      mDisplayName = in.readString();
+      mChildren = in.createTypedArrayList(CREATOR);
+   }
+
    public String getName() {
       return mName;
    }
@@ -56,4 +65,28 @@ public class TopicNode implements Serializable {
    public static boolean isRootName(String name) {
       return ROOT_NAME.equals(name);
    }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeString(mName);
+      dest.writeString(mDisplayName);
+      // Leaves have no children so this writes null for them.
+      dest.writeTypedList(mChildren);
+   }
+
+   public static final Parcelable.Creator<TopicNode> CREATOR =
+    new Parcelable.Creator<TopicNode>() {
+      public TopicNode createFromParcel(Parcel in) {
+         return new TopicNode(in);
+      }
+
+      public TopicNode[] newArray(int size) {
+         return new TopicNode[size];
+      }
+   };
 }
@@ -1,5 +1,8 @@
 package com.dozuki.ifixit.model.user;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import com.dozuki.ifixit.model.Badges;
 import com.dozuki.ifixit.model.Image;
 import com.dozuki.ifixit.util.LatLon;
@@ -7,7 +10,7 @@ import com.google.gson.annotations.SerializedName;
 
 import java.io.Serializable;
 
-public class User implements Serializable {
+public class User implements Serializable, Parcelable {
    private static final long serialVersionUID = 6209686573278334361L;
 
    @SerializedName("userid") private int mUserid;
@@ -36,6 +39,31 @@ public class User implements Serializable {
 
    public User() {}
 
+   private User(Parcel in) {
+      mUserid = in.readInt();
+      mUsername = in.readString();
+      mAvatar = in.readParcelable(Image.class.getClassLoader());
+      mReputation = in.readInt();
+      mDate = in.readInt();
+
+      if (in.readInt() != 0) {
+         mLocation = new LatLon(in.readDouble(), in.readDouble());
+      }
+
+      mCertificationCount = in.readInt();
+
+      if (in.readInt() != 0) {
+         mBadges = new Badges(in.readInt(), in.readInt(), in.readInt());
+      }
+
+      mSummary = in.readString();
+      mAboutRaw = in.readString();
+      mAboutRendered = in.readString();
+      mAuthToken = in.readString();
+      mEmail = in.readString();
+      mSiteName = in.readString();
+   }
+
    public int getUserid() {
       return mUserid;
    }
@@ -135,4 +163,50 @@ public class User implements Serializable {
    public void setAuthToken(String mAuthToken) {
       this.mAuthToken = mAuthToken;
    }
+
+   @Override
+   public int describeContents() {
+      return 0;
+   }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      dest.writeInt(mUserid);
+      dest.writeString(mUsername);
+      dest.writeParcelable(mAvatar, flags);
+      dest.writeInt(mReputation);
+      dest.writeInt(mDate);
+
+      dest.writeInt(mLocation != null ? 1 : 0);
+      if (mLocation != null) {
+         dest.writeDouble(mLocation.getLatitude());
+         dest.writeDouble(mLocation.getLongitude());
+      }
+
+      dest.writeInt(mCertificationCount);
+
+      dest.writeInt(mBadges != null ? 1 : 0);
+      if (mBadges != null) {
+         dest.writeInt(mBadges.getBronze());
+         dest.writeInt(mBadges.getSilver());
+         dest.writeInt(mBadges.getGold());
+      }
+
+      dest.writeString(mSummary);
+      dest.writeString(mAboutRaw);
+      dest.writeString(mAboutRendered);
+      dest.writeString(mAuthToken);
+      dest.writeString(mEmail);
+      dest.writeString(mSiteName);
+   }
+
+   public static final Parcelable.Creator<User> CREATOR = new Parcelable.Creator<User>() {
+      public User createFromParcel(Parcel in) {
+         return new User(in);
+      }
+
+      public User[] newArray(int size) {
+         return new User[size];
+      }
+   };
 }
@@ -1,5 +1,8 @@
 package com.dozuki.ifixit.model.user;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import com.dozuki.ifixit.model.Image;
 
 import java.io.Serializable;
@@ -32,6 +35,15 @@ public class UserImage extends Image implements Serializable {
       mExif = exif;
    }
 
+   protected UserImage(Parcel in) {
+      super(in);
+      mWidth = in.readInt();
+      mHeight = in.readInt();
+      mRatio = in.readString();
+      mMarkup = in.readString();
+      mExif = in.readString();
+   }
+
    public void setMarkup(String markup) {
       mMarkup = markup;
    }
@@ -63,4 +75,25 @@ public class UserImage extends Image implements Serializable {
    public String getRatio() {
       return mRatio;
    }
+
+   @Override
+   public void writeToParcel(Parcel dest, int flags) {
+      super.writeToParcel(dest, flags);
+      dest.writeInt(mWidth);
+      dest.writeInt(mHeight);
+      dest.writeString(mRatio);
+      dest.writeString(mMarkup);
+      dest.writeString(mExif);
+   }
+
+   public static final Parcelable.Creator<UserImage> CREATOR =
+    new Parcelable.Creator<UserImage>() {
+      public UserImage createFromParcel(Parcel in) {
+         return new UserImage(in);
+      }
+
+      public UserImage[] newArray(int size) {
+         return new UserImage[size];
+      }
+   };
 }
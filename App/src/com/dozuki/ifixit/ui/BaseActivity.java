@@ -4,6 +4,7 @@ import android.content.Intent;
 import android.graphics.drawable.ColorDrawable;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Parcelable;
 import android.support.v4.app.Fragment;
 import android.util.TypedValue;
 import android.view.View;
@@ -132,7 +133,7 @@ public abstract class BaseActivity extends SherlockFragmentActivity {
       if (savedState != null) {
          mActivityid = savedState.getInt(ACTIVITY_ID);
          mUserid = savedState.getInt(USERID);
-         mSite = (Site)savedState.getSerializable(SITE);
+         mSite = savedState.getParcelable(SITE);
 
          // If the site associated with this Activity is different than the current site,
          // set it to the one this Activity wants. Don't always do this because of the
@@ -144,7 +145,7 @@ public abstract class BaseActivity extends SherlockFragmentActivity {
          mActivityid = generateActivityid();
          setUserid();
 
-         Site siteArgument = (Site)getIntent().getSerializableExtra(SITE_ARGUMENT);
+         Site siteArgument = getIntent().getParcelableExtra(SITE_ARGUMENT);
          if (siteArgument != null && siteArgument.mSiteid != currentSite.mSiteid) {
             mSite = siteArgument;
             app.setSite(mSite);
@@ -269,7 +270,7 @@ public abstract class BaseActivity extends SherlockFragmentActivity {
 
       outState.putInt(ACTIVITY_ID, mActivityid);
       outState.putInt(USERID, mUserid);
-      outState.putSerializable(SITE, mSite);
+      outState.putParcelable(SITE, mSite);
    }
 
    /**
@@ -329,6 +330,11 @@ public abstract class BaseActivity extends SherlockFragmentActivity {
    public void onDestroy() {
       super.onDestroy();
 
+      if (isFinishing()) {
+         // Nothing is left to show the results to.
+         Api.cancel(mActivityid);
+      }
+
       if (App.inDebug()) {
          ViewServer.get(this).removeWindow(this);
       }
@@ -449,7 +455,7 @@ public abstract class BaseActivity extends SherlockFragmentActivity {
    }
 
    public static Intent addSite(Intent intent, Site site) {
-      intent.putExtra(SITE_ARGUMENT, site);
+      intent.putExtra(SITE_ARGUMENT, (Parcelable)site);
       return intent;
    }
 }
@@ -67,7 +67,7 @@ public class GalleryActivity extends BaseMenuDrawerActivity {
 
       if (bundle != null) {
          int returnValue = bundle.getInt(ACTIVITY_RETURN_MODE, -1);
-         ArrayList<Image> alreadyAttachedImages = (ArrayList<Image>)bundle.getSerializable(ATTACHED_MEDIA_IDS);
+         ArrayList<Image> alreadyAttachedImages = bundle.getParcelableArrayList(ATTACHED_MEDIA_IDS);
          mCurrentMediaFragment.setAlreadyAttachedImages(alreadyAttachedImages);
          if (returnValue != -1) {
             getMediaItemForReturn = true;
@@ -7,6 +7,7 @@ import android.content.Intent;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Parcelable;
 import android.provider.MediaStore;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -211,7 +212,7 @@ public abstract class MediaFragment extends BaseFragment
          }
 
          Intent selectResult = new Intent();
-         selectResult.putExtra(GalleryActivity.MEDIA_RETURN_KEY, mMediaList.get(position));
+         selectResult.putExtra(GalleryActivity.MEDIA_RETURN_KEY, (Parcelable)mMediaList.get(position));
          getSherlockActivity().setResult(Activity.RESULT_OK, selectResult);
          getSherlockActivity().finish();
       } else if (mMode != null) {
@@ -0,0 +1,146 @@
+package com.dozuki.ifixit.ui.guide;
+
+import android.content.Context;
+import android.text.Html;
+import android.text.Spanned;
+
+import com.dozuki.ifixit.R;
+import com.dozuki.ifixit.model.Comment;
+import com.dozuki.ifixit.util.Utils;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+
+/**
+ * Comments and their replies flattened into the rows of a list so every comment gets its
+ * own recycled view rather than replies being built inside their parent's view.
+ *
+ * Top level comments are added a page at a time. Comments all come with the guide so
+ * pages are taken from the comments that are already loaded, which keeps opening a
+ * popular guide's comments from flattening and rendering the whole thread up front.
+ */
+class CommentThread {
+   static final int PAGE_SIZE = 30;
+
+   private static final SimpleDateFormat sDateFormat = new SimpleDateFormat("MMM d, yyyy");
+
+   private ArrayList<Comment> mComments;
+   private final ArrayList<Row> mRows = new ArrayList<Row>();
+
+   /**
+    * Number of top level comments that have been added to mRows.
+    */
+   private int mLoadedComments;
+
+   CommentThread(ArrayList<Comment> comments) {
+      setComments(comments);
+   }
+
+   /**
+    * Replaces the comments. At least as many comments as were previously loaded stay
+    * loaded so the list doesn't jump back when a comment is added or edited.
+    */
+   void setComments(ArrayList<Comment> comments) {
+      mComments = comments == null ? new ArrayList<Comment>() : comments;
+
+      int loadedComments = Math.max(mLoadedComments, PAGE_SIZE);
+      mLoadedComments = 0;
+      mRows.clear();
+
+      loadComments(loadedComments);
+   }
+
+   boolean hasMore() {
+      return mLoadedComments < mComments.size();
+   }
+
+   void loadNextPage() {
+      loadComments(mLoadedComments + PAGE_SIZE);
+   }
+
+   int getRowCount() {
+      return mRows.size();
+   }
+
+   Row getRow(int position) {
+      return mRows.get(position);
+   }
+
+   /**
+    * Returns the position of the comment's row, loading pages until it is found, or -1
+    * if the comment isn't in the thread.
+    */
+   int findComment(int commentid) {
+      while (true) {
+         for (int i = 0; i < mRows.size(); i++) {
+            if (mRows.get(i).mComment.mCommentid == commentid) {
+               return i;
+            }
+         }
+
+         if (!hasMore()) {
+            return -1;
+         }
+
+         loadNextPage();
+      }
+   }
+
+   private void loadComments(int count) {
+      int end = Math.min(count, mComments.size());
+
+      for (; mLoadedComments < end; mLoadedComments++) {
+         addRows(mComments.get(mLoadedComments), 0);
+      }
+   }
+
+   private void addRows(Comment comment, int depth) {
+      mRows.add(new Row(comment, depth));
+
+      if (comment.mReplies != null) {
+         for (Comment reply : comment.mReplies) {
+            addRows(reply, depth + 1);
+         }
+      }
+   }
+
+   /**
+    * A comment or a reply along with its rendered text. The text is rendered the first
+    * time the row is shown and again only if the comment is edited.
+    */
+   static class Row {
+      final Comment mComment;
+      final int mDepth;
+
+      private String mTextSource;
+      private CharSequence mText;
+      private Spanned mDetails;
+
+      private Row(Comment comment, int depth) {
+         mComment = comment;
+         mDepth = depth;
+      }
+
+      CharSequence getText() {
+         // Edits replace the rendered text rather than changing it.
+         if (mText == null || mTextSource != mComment.mTextRendered) {
+            mTextSource = mComment.mTextRendered;
+
+            Spanned html = Html.fromHtml(mTextSource);
+            mText = Utils.trim(html, 0, html.length());
+         }
+
+         return mText;
+      }
+
+      Spanned getDetails(Context context) {
+         if (mDetails == null) {
+            mDetails = Html.fromHtml(context.getString(R.string.by_on_comment_details,
+             "<b>" + mComment.mUser.getUsername() + "</b>",
+             sDateFormat.format(mComment.mDate)));
+         }
+
+         return mDetails;
+      }
+   }
+}
@@ -3,9 +3,8 @@ package com.dozuki.ifixit.ui.guide;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.content.res.Resources;
 import android.os.Build;
-import android.text.Html;
-import android.text.Spanned;
 import android.text.method.LinkMovementMethod;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -16,6 +15,7 @@ import android.widget.ImageView;
 import android.widget.PopupMenu;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
+import android.widget.ViewSwitcher;
 import com.dozuki.ifixit.App;
 import com.dozuki.ifixit.R;
 import com.dozuki.ifixit.model.Comment;
@@ -23,11 +23,8 @@ import com.dozuki.ifixit.model.Image;
 import com.dozuki.ifixit.model.user.User;
 import com.dozuki.ifixit.util.PicassoUtils;
 import com.dozuki.ifixit.util.ImageSizes;
-import com.dozuki.ifixit.util.Utils;
 import com.dozuki.ifixit.util.transformations.CircleTransformation;
 
-import java.text.SimpleDateFormat;
-
 public class CommentView extends RelativeLayout {
    private static final int NO_PARENT_ID = -1;
    private static final int REPLY_OPTION = 0;
@@ -35,19 +32,42 @@ public class CommentView extends RelativeLayout {
    private static final int DELETE_OPTION = 2;
    private RelativeLayout mContainer;
    private Context mContext;
-   static final SimpleDateFormat mDateFormat = new SimpleDateFormat("MMM d, yyyy");
-
+   private TextView mText;
+   private TextView mDetails;
+   private ImageView mAvatar;
+   private ViewSwitcher mEditSwitcher;
+   private int mDepth = -1;
 
    public CommentView(Context context) {
+      this(context, false);
+   }
+
+   /**
+    * Replies are styled when the view is created because rows are only ever recycled
+    * for rows of the same type.
+    */
+   public CommentView(Context context, boolean reply) {
       super(context);
 
       LayoutInflater.from(context).inflate(R.layout.comment_row, this, true);
 
       mContext = context;
       mContainer = (RelativeLayout) findViewById(R.id.comment_row_wrap);
+      mText = (TextView) findViewById(R.id.comment_text);
+      mDetails = (TextView) findViewById(R.id.comment_details);
+      mAvatar = (ImageView) findViewById(R.id.comment_author);
+      mEditSwitcher = (ViewSwitcher) findViewById(R.id.edit_comment_switcher);
+
+      mText.setMovementMethod(LinkMovementMethod.getInstance());
+
+      if (reply) {
+         mContainer.setBackgroundResource(R.color.subtle_gray);
+      }
    }
 
-   public void buildView(final Comment comment) {
+   void buildView(CommentThread.Row row) {
+      final Comment comment = row.mComment;
+
       // Set the root view id as the commentid so we can easily reference the correct comment when editing a comment.
       setId(comment.mCommentid);
 
@@ -58,23 +78,16 @@ public class CommentView extends RelativeLayout {
       final boolean commentOwner = currentUser != null &&
        comment.mUser.getUserid() == currentUser.getUserid();
 
-      if (reply) {
-         mContainer.setBackgroundResource(R.color.subtle_gray);
-         mContainer.setLayoutParams(getReplyLayoutParams());
-      }
-
-      String commentDetails =
-       App.get().getString(R.string.by_on_comment_details, "<b>" + comment.mUser.getUsername() +
-        "</b>", mDateFormat.format(comment.mDate));
+      setDepth(row.mDepth);
 
-      TextView commentText = (TextView) findViewById(R.id.comment_text);
-      Spanned commentHtml = Html.fromHtml(comment.mTextRendered);
-      commentText.setText(Utils.trim(commentHtml, 0, commentHtml.length()));
-      commentText.setMovementMethod(LinkMovementMethod.getInstance());
-
-      ((TextView) findViewById(R.id.comment_details)).setText(Html.fromHtml(commentDetails));
+      // This view may have been editing a different comment before it was recycled.
+      if (mEditSwitcher.getDisplayedChild() != 0) {
+         mEditSwitcher.setDisplayedChild(0);
+         findViewById(R.id.edit_comment_container).setVisibility(View.GONE);
+      }
 
-      ImageView avatar = (ImageView) findViewById(R.id.comment_author);
+      mText.setText(row.getText());
+      mDetails.setText(row.getDetails(mContext));
 
       Image avatarImage = comment.mUser.getAvatar();
 
@@ -85,7 +98,7 @@ public class CommentView extends RelativeLayout {
           .fit()
           .centerInside()
           .transform(new CircleTransformation())
-          .into(avatar);
+          .into(mAvatar);
       }
 
       final View menuButton = findViewById(R.id.comment_menu);
@@ -173,11 +186,20 @@ public class CommentView extends RelativeLayout {
       App.sendEvent("ui_action", "button_press", "comment_reply", null);
    }
 
-   private RelativeLayout.LayoutParams getReplyLayoutParams() {
-      RelativeLayout.LayoutParams lp = new RelativeLayout.LayoutParams(RelativeLayout.LayoutParams.MATCH_PARENT,
-       RelativeLayout.LayoutParams.WRAP_CONTENT);
-      lp.setMargins(0, 0, 0, 0);
+   /**
+    * Indents replies under the comment they reply to.
+    */
+   private void setDepth(int depth) {
+      if (depth == mDepth) {
+         return;
+      }
+
+      mDepth = depth;
 
-      return lp;
+      Resources res = getResources();
+      RelativeLayout.LayoutParams lp = (RelativeLayout.LayoutParams) mContainer.getLayoutParams();
+      lp.leftMargin = res.getDimensionPixelSize(R.dimen.list_item_horizontal_margin) +
+       depth * res.getDimensionPixelSize(R.dimen.comment_reply_indent);
+      mContainer.setLayoutParams(lp);
    }
 }
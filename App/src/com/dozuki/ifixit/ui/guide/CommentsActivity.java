@@ -7,6 +7,7 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.view.View;
 import android.view.inputmethod.InputMethodManager;
+import android.widget.AbsListView;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageButton;
@@ -26,6 +27,7 @@ import com.dozuki.ifixit.ui.guide.view.GuideViewActivity;
 import com.dozuki.ifixit.util.api.Api;
 import com.dozuki.ifixit.util.api.ApiCall;
 import com.dozuki.ifixit.util.api.ApiEvent;
+import com.dozuki.ifixit.util.api.ApiExecutor;
 import com.squareup.otto.Subscribe;
 
 import java.util.ArrayList;
@@ -40,6 +42,11 @@ public class CommentsActivity extends BaseActivity {
    private static final String GUIDEID_KEY = "GUIDEID_KEY";
    private static final String PARENTID_KEY = "PARENTID_KEY";
 
+   /**
+    * Number of rows from the end of the list at which more comments are loaded.
+    */
+   private static final int LOAD_MORE_THRESHOLD = 10;
+
    private ArrayList<Comment> mComments = new ArrayList<Comment>();
    private String mTitle;
    private CommentsAdapter mAdapter;
@@ -131,12 +138,26 @@ public class CommentsActivity extends BaseActivity {
 
       mAdapter = new CommentsAdapter(this, mComments);
       mCommentsList.setAdapter(mAdapter);
+      mCommentsList.setOnScrollListener(new AbsListView.OnScrollListener() {
+         @Override
+         public void onScrollStateChanged(AbsListView view, int scrollState) { }
+
+         @Override
+         public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount,
+          int totalItemCount) {
+            if (firstVisibleItem + visibleItemCount >= totalItemCount - LOAD_MORE_THRESHOLD &&
+             mAdapter.hasMoreComments()) {
+               mAdapter.loadMoreComments();
+            }
+         }
+      });
 
       setTitle(mTitle);
 
       if (App.get().isUserLoggedIn()) {
          if (mCommentContext.equalsIgnoreCase("guide") || mCommentContext.equalsIgnoreCase("step")) {
-            Api.call(this, ApiCall.guide(mGuideid));
+            // The comments are already showing so this only refreshes them.
+            Api.call(this, ApiCall.guide(mGuideid).setLane(ApiExecutor.Lane.PREFETCH));
          } else {
             // TODO: Get wiki comments once we add those endpoints.
          }
@@ -332,7 +353,6 @@ public class CommentsActivity extends BaseActivity {
    @Subscribe
    public void onCommentAdd(ApiEvent.AddComment event) {
       if (!event.hasError()) {
-         int position = 0;
          Comment comment = event.getResult();
          if (comment.isReply()) {
             for (Comment c : mComments) {
@@ -340,17 +360,18 @@ public class CommentsActivity extends BaseActivity {
                   c.mReplies.add(c.mReplies.size(), comment);
                   break;
                }
-
-               position++;
             }
          } else {
             mComments.add(mComments.size(), comment);
-            position = mComments.size();
          }
 
          mAdapter.setComments(mComments);
-         mAdapter.notifyDataSetChanged();
-         scrollCommentsToPosition(position);
+
+         int position = mAdapter.getCommentPosition(comment.mCommentid);
+         if (position != -1) {
+            scrollCommentsToPosition(position);
+         }
+
          resetCommentField(false);
       } else {
          Toast.makeText(this, event.getError().mMessage, Toast.LENGTH_SHORT).show();
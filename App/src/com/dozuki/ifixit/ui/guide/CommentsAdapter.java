@@ -4,34 +4,54 @@ import android.content.Context;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
-import android.widget.LinearLayout;
-import com.dozuki.ifixit.R;
 import com.dozuki.ifixit.model.Comment;
 
 import java.util.ArrayList;
 
+/**
+ * Shows comments and their replies as separate rows of a CommentThread so replies are
+ * recycled like any other row.
+ */
 public class CommentsAdapter extends BaseAdapter {
+   private static final int COMMENT_VIEW_TYPE = 0;
+   private static final int REPLY_VIEW_TYPE = 1;
+
    private Context mContext;
-   private ArrayList<Comment> mComments;
+   private CommentThread mThread;
 
    public CommentsAdapter(Context context, ArrayList<Comment> comments) {
-      mComments = comments;
+      mThread = new CommentThread(comments);
       mContext = context;
    }
 
    @Override
    public int getCount() {
-      return mComments.size();
+      return mThread.getRowCount();
    }
 
    @Override
    public Comment getItem(int position) {
-      return mComments.get(position);
+      return mThread.getRow(position).mComment;
    }
 
    @Override
    public long getItemId(int position) {
-      return position;
+      return getItem(position).mCommentid;
+   }
+
+   @Override
+   public boolean hasStableIds() {
+      return true;
+   }
+
+   @Override
+   public int getViewTypeCount() {
+      return 2;
+   }
+
+   @Override
+   public int getItemViewType(int position) {
+      return mThread.getRow(position).mDepth == 0 ? COMMENT_VIEW_TYPE : REPLY_VIEW_TYPE;
    }
 
    @Override
@@ -39,33 +59,37 @@ public class CommentsAdapter extends BaseAdapter {
       CommentView v;
 
       if (convertView == null) {
-         v = new CommentView(mContext);
+         v = new CommentView(mContext, getItemViewType(position) == REPLY_VIEW_TYPE);
       } else {
          v = (CommentView) convertView;
       }
 
-      Comment comment = getItem(position);
-
-      v.buildView(comment);
+      v.buildView(mThread.getRow(position));
 
-      LinearLayout replyContainer = (LinearLayout) v.findViewById(R.id.comment_replies);
-
-      // Clear out all old replies from the container to prevent leaking of replies to other comments
-      replyContainer.removeAllViews();
+      return v;
+   }
 
-      for (Comment reply : comment.mReplies) {
-         CommentView replyView = new CommentView(mContext);
-         replyView.buildView(reply);
-         replyView.setPadding(0, 0, 0, 0);
-         replyContainer.addView(replyView);
-      }
+   public void setComments(ArrayList<Comment> comments) {
+      mThread.setComments(comments);
+   }
 
-      replyContainer.setVisibility(replyContainer.getChildCount() != 0 ? View.VISIBLE : View.GONE);
+   public boolean hasMoreComments() {
+      return mThread.hasMore();
+   }
 
-      return v;
+   public void loadMoreComments() {
+      mThread.loadNextPage();
+      notifyDataSetChanged();
    }
 
-   public void setComments(ArrayList<Comment> comments) {
-      mComments = comments;
+   /**
+    * Returns the position of the comment, loading more comments if needed, or -1 if it
+    * isn't in the list.
+    */
+   public int getCommentPosition(int commentid) {
+      int position = mThread.findComment(commentid);
+      notifyDataSetChanged();
+
+      return position;
    }
 }
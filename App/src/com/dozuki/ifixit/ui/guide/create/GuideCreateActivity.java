@@ -59,9 +59,9 @@ public class GuideCreateActivity extends BaseMenuDrawerActivity {
       setContentView(R.layout.guide_create);
 
       if (savedInstanceState != null) {
-         mUserGuideList = (ArrayList<GuideInfo>)savedInstanceState.getSerializable(GUIDE_OBJECT_KEY);
+         mUserGuideList = savedInstanceState.getParcelableArrayList(GUIDE_OBJECT_KEY);
          mShowingHelp = savedInstanceState.getBoolean(SHOWING_HELP);
-         mGuideForDelete = (GuideInfo) savedInstanceState.getSerializable(GUIDE_FOR_DELETE);
+         mGuideForDelete = savedInstanceState.getParcelable(GUIDE_FOR_DELETE);
 
          if (mShowingHelp) {
             createHelpDialog().show();
@@ -141,8 +141,8 @@ public class GuideCreateActivity extends BaseMenuDrawerActivity {
    public void onSaveInstanceState(Bundle savedInstanceState) {
       super.onSaveInstanceState(savedInstanceState);
 
-      savedInstanceState.putSerializable(GUIDE_OBJECT_KEY, mUserGuideList);
-      savedInstanceState.putSerializable(GUIDE_FOR_DELETE, mGuideForDelete);
+      savedInstanceState.putParcelableArrayList(GUIDE_OBJECT_KEY, mUserGuideList);
+      savedInstanceState.putParcelable(GUIDE_FOR_DELETE, mGuideForDelete);
       savedInstanceState.putBoolean(SHOWING_HELP, mShowingHelp);
    }
 
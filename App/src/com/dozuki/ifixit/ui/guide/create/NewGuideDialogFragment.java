@@ -23,21 +23,18 @@ import com.dozuki.ifixit.util.api.Api;
 import com.squareup.otto.Subscribe;
 import com.dozuki.ifixit.ui.BaseDialogFragment;
 
-import java.util.ArrayList;
 import java.util.regex.Pattern;
 
 public class NewGuideDialogFragment extends BaseDialogFragment {
    private static final String INVALID_DEVICE_NAME_PATTERN = "[^#<>\\[\\]\\|\\{\\},\\+\\?&\\/\\\\\\%:;]+";
 
    private static final String GUIDE_KEY = "GUIDE_KEY";
-   private static final String TOPIC_LIST_KEY = "TOPIC_LIST_KEY";
    private Guide mGuide;
    private Spinner mType;
    private EditText mSubject;
    private AutoCompleteTextView mTopic;
    private TextView mSubjectLabel;
-   private ArrayList<String> mTopics;
-   private ArrayAdapter<String> mAdapter;
+   private TopicNameAdapter mAdapter;
 
    public static NewGuideDialogFragment newInstance(Guide guide) {
       NewGuideDialogFragment frag = new NewGuideDialogFragment();
@@ -57,7 +54,6 @@ public class NewGuideDialogFragment extends BaseDialogFragment {
 
       if (savedInstanceState != null) {
          mGuide = (Guide) savedInstanceState.getSerializable(GUIDE_KEY);
-         mTopics = (ArrayList<String>) savedInstanceState.getSerializable(TOPIC_LIST_KEY);
       } else {
          mGuide = (Guide) getArguments().getSerializable(GUIDE_KEY);
       }
@@ -92,9 +88,10 @@ public class NewGuideDialogFragment extends BaseDialogFragment {
          mTopic.setText(topic);
       }
 
-      if (mTopics != null) {
-         setTopicArrayAdapter();
-      } else {
+      mAdapter = new TopicNameAdapter(getActivity(), App.get().getSite());
+      mTopic.setAdapter(mAdapter);
+
+      if (mAdapter.needsTopics()) {
          Api.call(getActivity(), ApiCall.allTopics());
       }
 
@@ -204,24 +201,13 @@ public class NewGuideDialogFragment extends BaseDialogFragment {
       }
 
       outState.putSerializable(GUIDE_KEY, mGuide);
-      outState.putStringArrayList(TOPIC_LIST_KEY, mTopics);
    }
 
    @Subscribe
    public void onTopicList(ApiEvent.TopicList event) {
       if (!event.hasError()) {
-         mTopics = new ArrayList<String>(event.getResult());
-
-         setTopicArrayAdapter();
+         mAdapter.setTopics(event.getResult());
       } else {
          Api.getErrorDialog(getActivity(), event).show();
       }
-   }
-
-   private void setTopicArrayAdapter() {
-      mAdapter = new ArrayAdapter<String>(getActivity(), R.layout.topic_name_autocomplete_dropdown_item,
-       mTopics);
-
-      mTopic.setAdapter(mAdapter);
-   }
-}
+   }}
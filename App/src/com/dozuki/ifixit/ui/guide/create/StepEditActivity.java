@@ -290,7 +290,7 @@ public class StepEditActivity extends BaseMenuDrawerActivity implements OnClickL
       switch (requestCode) {
          case GALLERY_REQUEST_CODE:
             if (data != null) {
-               newThumb = (Image) data.getSerializableExtra(GalleryActivity.MEDIA_RETURN_KEY);
+               newThumb = data.getParcelableExtra(GalleryActivity.MEDIA_RETURN_KEY);
                mGuide.getStep(mPagePosition).addImage(newThumb);
                refreshView(mPagePosition);
 
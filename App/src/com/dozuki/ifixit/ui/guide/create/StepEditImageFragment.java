@@ -72,7 +72,7 @@ public class StepEditImageFragment extends BaseFragment {
       }
 
       if (savedInstanceState != null) {
-         mImages = (ArrayList<Image>) savedInstanceState.getSerializable(IMAGES_KEY);
+         mImages = savedInstanceState.getParcelableArrayList(IMAGES_KEY);
       }
 
       mContext.getWindowManager().getDefaultDisplay().getMetrics(metrics);
@@ -135,7 +135,7 @@ public class StepEditImageFragment extends BaseFragment {
                          App.sendEvent("ui_action", "add_image", "add_from_gallery", null);
                          intent = new Intent(mContext, GalleryActivity.class);
                          intent.putExtra(GalleryActivity.ACTIVITY_RETURN_MODE, 1);
-                         intent.putExtra(GalleryActivity.ATTACHED_MEDIA_IDS, mImages);
+                         intent.putParcelableArrayListExtra(GalleryActivity.ATTACHED_MEDIA_IDS, mImages);
                          mContext.startActivityForResult(intent, StepEditActivity.GALLERY_REQUEST_CODE);
                          break;
                    }
@@ -191,7 +191,7 @@ public class StepEditImageFragment extends BaseFragment {
    public void onSaveInstanceState(Bundle savedInstanceState) {
       super.onSaveInstanceState(savedInstanceState);
 
-      savedInstanceState.putSerializable(IMAGES_KEY, mImages);
+      savedInstanceState.putParcelableArrayList(IMAGES_KEY, mImages);
    }
 
    @Override
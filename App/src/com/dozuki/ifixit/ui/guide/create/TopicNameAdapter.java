@@ -0,0 +1,140 @@
+package com.dozuki.ifixit.ui.guide.create;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Filter;
+import android.widget.Filterable;
+import android.widget.TextView;
+
+import com.dozuki.ifixit.R;
+import com.dozuki.ifixit.model.dozuki.Site;
+import com.dozuki.ifixit.util.TopicIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Suggests topic names for an AutoCompleteTextView from the site's TopicIndex.
+ * Suggestions are looked up on the Filter's worker thread and capped so the dropdown
+ * never has to hold or lay out every topic.
+ */
+public class TopicNameAdapter extends BaseAdapter implements Filterable {
+   private static final int MAX_SUGGESTIONS = 50;
+
+   private final Context mContext;
+   private final Site mSite;
+   private volatile TopicIndex mIndex;
+   private List<String> mSuggestions;
+   private Filter mFilter;
+
+   public TopicNameAdapter(Context context, Site site) {
+      mContext = context.getApplicationContext();
+      mSite = site;
+      mSuggestions = new ArrayList<String>();
+   }
+
+   /**
+    * Returns true if the list of all topics should be fetched and passed to
+    * setTopics().
+    */
+   public boolean needsTopics() {
+      return TopicIndex.needsRefresh(mContext, mSite);
+   }
+
+   /**
+    * Updates the index with the list of all of the site's topics in the background.
+    */
+   public void setTopics(final List<String> topics) {
+      new AsyncTask<Void, Void, TopicIndex>() {
+         @Override
+         protected TopicIndex doInBackground(Void... params) {
+            return TopicIndex.build(mContext, mSite, topics);
+         }
+
+         @Override
+         protected void onPostExecute(TopicIndex index) {
+            mIndex = index;
+         }
+      }.execute();
+   }
+
+   @Override
+   public int getCount() {
+      return mSuggestions.size();
+   }
+
+   @Override
+   public String getItem(int position) {
+      return mSuggestions.get(position);
+   }
+
+   @Override
+   public long getItemId(int position) {
+      return position;
+   }
+
+   @Override
+   public View getView(int position, View convertView, ViewGroup parent) {
+      TextView view = (TextView)convertView;
+
+      if (view == null) {
+         view = (TextView)LayoutInflater.from(parent.getContext()).inflate(
+          R.layout.topic_name_autocomplete_dropdown_item, parent, false);
+      }
+
+      view.setText(getItem(position));
+
+      return view;
+   }
+
+   @Override
+   public Filter getFilter() {
+      if (mFilter == null) {
+         mFilter = new TopicNameFilter();
+      }
+
+      return mFilter;
+   }
+
+   private class TopicNameFilter extends Filter {
+      @Override
+      protected FilterResults performFiltering(CharSequence constraint) {
+         FilterResults results = new FilterResults();
+         List<String> suggestions;
+
+         if (mIndex == null) {
+            // Opening the index reads from disk so it is done here on the worker thread.
+            mIndex = TopicIndex.open(mContext, mSite);
+         }
+
+         TopicIndex index = mIndex;
+
+         if (constraint == null || index == null) {
+            suggestions = new ArrayList<String>();
+         } else {
+            suggestions = index.find(constraint.toString(), MAX_SUGGESTIONS);
+         }
+
+         results.values = suggestions;
+         results.count = suggestions.size();
+
+         return results;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      protected void publishResults(CharSequence constraint, FilterResults results) {
+         mSuggestions = (List<String>)results.values;
+
+         if (results.count > 0) {
+            notifyDataSetChanged();
+         } else {
+            notifyDataSetInvalidated();
+         }
+      }
+   }
+}
@@ -25,24 +25,23 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.inputmethod.InputMethodManager;
-import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
 import android.widget.TextView;
 
+import com.dozuki.ifixit.App;
 import com.dozuki.ifixit.R;
 import com.dozuki.ifixit.model.guide.wizard.TopicNamePage;
 import com.dozuki.ifixit.ui.BaseFragment;
+import com.dozuki.ifixit.ui.guide.create.TopicNameAdapter;
 import com.dozuki.ifixit.util.api.ApiCall;
 import com.dozuki.ifixit.util.api.ApiEvent;
 import com.dozuki.ifixit.util.api.Api;
 import com.squareup.otto.Subscribe;
 
-import java.util.ArrayList;
 import java.util.regex.Pattern;
 
 public class TopicNameFragment extends BaseFragment {
    private static final String ARG_KEY = "key";
-   public static final String TOPIC_LIST_KEY = "TOPIC_LIST_KEY";
 
    private static final String INVALID_DEVICE_NAME_PATTERN = "[^#<>\\[\\]\\|\\{\\},\\+\\?&\\/\\\\\\%:;]+";
 
@@ -51,8 +50,7 @@ public class TopicNameFragment extends BaseFragment {
    private String mKey;
    private TopicNamePage mPage;
    private AutoCompleteTextView mTopicNameView;
-   private ArrayAdapter<String> mAdapter;
-   private ArrayList<String> mTopics;
+   private TopicNameAdapter mAdapter;
 
    public static TopicNameFragment create(String key) {
       Bundle args = new Bundle();
@@ -75,10 +73,6 @@ public class TopicNameFragment extends BaseFragment {
 
    @Override
    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
-
-      if (savedInstanceState != null) {
-         mTopics = savedInstanceState.getStringArrayList(TOPIC_LIST_KEY);
-      }
       mPage = (TopicNamePage) mCallbacks.onGetPage(mKey);
 
       View rootView = inflater.inflate(R.layout.guide_create_intro_topic_name, container, false);
@@ -91,9 +85,10 @@ public class TopicNameFragment extends BaseFragment {
 
       mTopicNameView = (AutoCompleteTextView) rootView.findViewById(R.id.topic_name);
 
-      if (mTopics != null) {
-         setTopicArrayAdapter();
-      } else {
+      mAdapter = new TopicNameAdapter(getActivity(), App.get().getSite());
+      mTopicNameView.setAdapter(mAdapter);
+
+      if (mAdapter.needsTopics()) {
          Api.call(getActivity(), ApiCall.allTopics());
       }
 
@@ -140,13 +135,6 @@ public class TopicNameFragment extends BaseFragment {
       mCallbacks = null;
    }
 
-   @Override
-   public void onSaveInstanceState(Bundle outState) {
-      super.onSaveInstanceState(outState);
-
-      outState.putStringArrayList(TOPIC_LIST_KEY, mTopics);
-   }
-
    @Override
    public void setMenuVisibility(boolean menuVisible) {
       super.setMenuVisibility(menuVisible);
@@ -162,19 +150,10 @@ public class TopicNameFragment extends BaseFragment {
       }
    }
 
-   private void setTopicArrayAdapter() {
-      mAdapter = new ArrayAdapter<String>((Activity) mCallbacks, R.layout.topic_name_autocomplete_dropdown_item,
-       mTopics);
-
-      mTopicNameView.setAdapter(mAdapter);
-   }
-
    @Subscribe
    public void onTopicList(ApiEvent.TopicList event) {
       if (!event.hasError()) {
-         mTopics = new ArrayList<String>(event.getResult());
-
-         setTopicArrayAdapter();
+         mAdapter.setTopics(event.getResult());
       } else {
          Api.getErrorDialog(getActivity(), event).show();
       }
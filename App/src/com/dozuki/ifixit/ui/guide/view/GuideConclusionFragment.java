@@ -19,14 +19,14 @@ import com.dozuki.ifixit.util.api.ApiEvent;
 import com.squareup.otto.Subscribe;
 
 public class GuideConclusionFragment extends BaseFragment {
-   private static final String SAVED_GUIDE = "SAVED_GUIDE";
+   private static final String SESSION_KEY = "SESSION_KEY";
    private Guide mGuide;
    private Button mButton;
 
-   public static GuideConclusionFragment newInstance(Guide guide) {
+   public static GuideConclusionFragment newInstance(GuideSession session) {
       GuideConclusionFragment frag = new GuideConclusionFragment();
       Bundle args = new Bundle();
-      args.putSerializable(SAVED_GUIDE, guide);
+      args.putString(SESSION_KEY, session.getHandle());
       frag.setArguments(args);
       return frag;
    }
@@ -35,10 +35,11 @@ public class GuideConclusionFragment extends BaseFragment {
    public void onCreate(Bundle savedInstanceState) {
       super.onCreate(savedInstanceState);
 
-      if (getArguments() != null) {
-         mGuide = (Guide) getArguments().getSerializable(SAVED_GUIDE);
-      } else if (savedInstanceState != null && mGuide == null) {
-         mGuide = (Guide) savedInstanceState.getSerializable(SAVED_GUIDE);
+      GuideSession session = GuideSession.restore(getActivity(),
+       getArguments().getString(SESSION_KEY));
+
+      if (session != null) {
+         mGuide = session.getGuide();
       }
    }
 
@@ -47,6 +48,11 @@ public class GuideConclusionFragment extends BaseFragment {
     Bundle savedInstanceState) {
       View view = inflater.inflate(R.layout.guide_conclusion, container, false);
 
+      if (mGuide == null) {
+         // The session is gone. GuideViewActivity fetches the guide again.
+         return view;
+      }
+
       ((TextView) view.findViewById(R.id.guide_conclusion_text)).setText(Html.fromHtml(mGuide.getConclusion()));
 
       mButton = (Button) view.findViewById(R.id.guide_completed_button);
@@ -66,13 +72,6 @@ public class GuideConclusionFragment extends BaseFragment {
       return view;
    }
 
-   @Override
-   public void onSaveInstanceState(Bundle state) {
-      super.onSaveInstanceState(state);
-
-      state.putSerializable(SAVED_GUIDE, mGuide);
-   }
-
    @Subscribe
    public void onGuideComplete(ApiEvent.CompleteGuide event) {
       if (!event.hasError()) {
@@ -92,6 +91,10 @@ public class GuideConclusionFragment extends BaseFragment {
    }
 
    private void setCompletedStatus(boolean completed) {
+      if (mButton == null) {
+         return;
+      }
+
       mButton.setEnabled(!completed);
       mButton.setText(completed ? R.string.completed :
        (App.get().getSite().isIfixit() ? R.string.i_did_it_success : R.string.complete_this_guide));
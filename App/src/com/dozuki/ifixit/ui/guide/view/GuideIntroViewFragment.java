@@ -3,9 +3,11 @@ package com.dozuki.ifixit.ui.guide.view;
 import android.app.Activity;
 import android.content.Intent;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
 import android.text.Html;
+import android.text.Spanned;
 import android.text.method.LinkMovementMethod;
 import android.text.method.MovementMethod;
 import android.util.Log;
@@ -24,14 +26,14 @@ import android.widget.TextView;
 import com.dozuki.ifixit.R;
 import com.dozuki.ifixit.model.guide.Guide;
 import com.dozuki.ifixit.ui.BaseFragment;
+import com.dozuki.ifixit.util.HtmlRenderer;
 import com.dozuki.ifixit.util.Utils;
-import com.dozuki.ifixit.util.WikiHtmlTagHandler;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class GuideIntroViewFragment extends BaseFragment {
-   private static final String SAVED_GUIDE = "SAVED_GUIDE";
+   private static final String SESSION_KEY = "SESSION_KEY";
 
    private TextView mTitle;
    private TextView mIntro;
@@ -39,26 +41,24 @@ public class GuideIntroViewFragment extends BaseFragment {
    private TextView mAuthor;
    private Guide mGuide;
 
-   public GuideIntroViewFragment() { }
-
-   public GuideIntroViewFragment(Guide guide) {
-      mGuide = guide;
+   public static GuideIntroViewFragment newInstance(GuideSession session) {
+      GuideIntroViewFragment frag = new GuideIntroViewFragment();
+      Bundle args = new Bundle();
+      args.putString(SESSION_KEY, session.getHandle());
+      frag.setArguments(args);
+      return frag;
    }
 
    @Override
    public void onCreate(Bundle savedInstanceState) {
       super.onCreate(savedInstanceState);
 
-      if (savedInstanceState != null && mGuide == null) {
-         mGuide = (Guide) savedInstanceState.getSerializable(SAVED_GUIDE);
-      }
-   }
-
-   @Override
-   public void onSaveInstanceState(Bundle state) {
-      super.onSaveInstanceState(state);
+      GuideSession session = GuideSession.restore(getActivity(),
+       getArguments().getString(SESSION_KEY));
 
-      state.putSerializable(SAVED_GUIDE, mGuide);
+      if (session != null) {
+         mGuide = session.getGuide();
+      }
    }
 
    @Override
@@ -160,7 +160,7 @@ public class GuideIntroViewFragment extends BaseFragment {
          }
 
          if (introductionText.length() > 0) {
-            mIntro.setText(Utils.correctLinkPaths(Html.fromHtml(introductionText, null, new WikiHtmlTagHandler())));
+            setIntroduction();
          } else {
             mIntro.setText(introductionText);
          }
@@ -182,4 +182,33 @@ public class GuideIntroViewFragment extends BaseFragment {
       }
       return view;
    }
+
+   /**
+    * Sets the introduction text, rendering it in the background if it isn't cached.
+    */
+   private void setIntroduction() {
+      Spanned introduction = HtmlRenderer.getCachedIntroduction(mGuide);
+
+      if (introduction != null) {
+         mIntro.setText(introduction);
+         return;
+      }
+
+      final Guide guide = mGuide;
+      final TextView intro = mIntro;
+      new AsyncTask<Void, Void, Spanned>() {
+         @Override
+         protected Spanned doInBackground(Void... params) {
+            return HtmlRenderer.getIntroduction(guide);
+         }
+
+         @Override
+         protected void onPostExecute(Spanned introduction) {
+            // The view may have been recreated in the meantime.
+            if (intro == mIntro) {
+               intro.setText(introduction);
+            }
+         }
+      }.execute();
+   }
 }
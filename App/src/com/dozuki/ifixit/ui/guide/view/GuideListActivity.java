@@ -45,7 +45,7 @@ public abstract class GuideListActivity extends BaseMenuDrawerActivity {
       Parcelable gridState = null;
 
       if (savedInstanceState != null) {
-         mGuides = (ArrayList<GuideInfo>)savedInstanceState.getSerializable(GUIDES_KEY);
+         mGuides = savedInstanceState.getParcelableArrayList(GUIDES_KEY);
          gridState = savedInstanceState.getParcelable(GRID_STATE);
       }
 
@@ -123,6 +123,6 @@ public abstract class GuideListActivity extends BaseMenuDrawerActivity {
          state.putParcelable(GRID_STATE, mGridView.onSaveInstanceState());
 
       if (mGuides != null)
-         state.putSerializable(GUIDES_KEY, mGuides);
+         state.putParcelableArrayList(GUIDES_KEY, mGuides);
    }
 }
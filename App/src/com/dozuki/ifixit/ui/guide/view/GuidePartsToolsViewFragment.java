@@ -19,14 +19,14 @@ public class GuidePartsToolsViewFragment extends BaseListFragment {
    public static GuidePartsToolsViewFragment newInstance(ArrayList<Item> items) {
       GuidePartsToolsViewFragment fragment = new GuidePartsToolsViewFragment();
       Bundle args = new Bundle();
-      args.putSerializable(ITEMS, items);
+      args.putParcelableArrayList(ITEMS, items);
       fragment.setArguments(args);
       return fragment;
    }
 
    @Override
    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
-      mItems = (ArrayList<Item>)getArguments().getSerializable(ITEMS);
+      mItems = getArguments().getParcelableArrayList(ITEMS);
       View view = inflater.inflate(R.layout.guide_parts_tools, container, false);
 
       setListAdapter(new PartsToolsAdapter(getSherlockActivity(), mItems));
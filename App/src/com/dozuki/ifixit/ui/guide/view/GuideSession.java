@@ -0,0 +1,673 @@
+package com.dozuki.ifixit.ui.guide.view;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.util.Log;
+
+import com.dozuki.ifixit.BuildConfig;
+import com.dozuki.ifixit.model.guide.Guide;
+import com.dozuki.ifixit.model.guide.GuideStep;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A guide being viewed in GuideViewActivity.
+ *
+ * Guides can be too big to put in a Bundle so the activity and its fragments only keep
+ * the session's handle and get the guide from here. Sessions are written to the cache
+ * directory in the background as marshalled Parcels, the guide without its steps in one
+ * file and each step in its own file, so they survive the process being killed. Only the
+ * current step and the ones next to it are kept in memory and the rest are read back on
+ * a background thread when they are needed.
+ *
+ * The Guide returned by getGuide() never has any steps. Use getNumSteps() and getStep()
+ * instead. Everything but restore() must be called on the main thread.
+ */
+class GuideSession {
+   private static final String TAG = "GuideSession";
+
+   private static final String DIRECTORY = "guide_sessions";
+   private static final String GUIDE_FILE = "guide";
+   private static final String TMP_SUFFIX = ".tmp";
+
+   /**
+    * Written at the start of every file. Parcels aren't meant to be stored so files from
+    * another version of the app or of Android are ignored too.
+    */
+   private static final int FORMAT_VERSION = 1;
+
+   /**
+    * Steps this far from the current step are kept in memory. The pager keeps the pages
+    * next to the visible one.
+    */
+   private static final int ADJACENT_STEPS = 1;
+
+   /**
+    * Sessions left behind by killed processes are deleted once they are this old.
+    */
+   private static final long MAX_SESSION_AGE_MS = 24 * 60 * 60 * 1000;
+
+   interface StepCallback {
+      /**
+       * Called on the main thread with the step or null if it can't be read.
+       */
+      void onStep(GuideStep step);
+   }
+
+   /**
+    * Supplies the steps of a new session. Each step is read once on the executor and
+    * then written to the session.
+    */
+   interface StepSource {
+      /**
+       * Returns the step at the index or null if it can't be read.
+       */
+      GuideStep readStep(int index);
+   }
+
+   interface GuideCallback {
+      /**
+       * Called on the main thread with a copy of the guide and all of its steps. Steps
+       * that can't be read are null.
+       */
+      void onGuide(Guide guide);
+   }
+
+   private static final Map<String, GuideSession> sSessions =
+    new HashMap<String, GuideSession>();
+
+   /**
+    * Reads, writes and deletes sessions in order on a background thread. It is only
+    * given marshalled copies and steps the main thread never sees so nothing it works
+    * on changes underneath it.
+    */
+   private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+   private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+   private static boolean sDeletedOldSessions;
+
+   private final String mHandle;
+   private final File mDirectory;
+   private final Guide mGuide;
+   private final int mNumSteps;
+
+   /**
+    * The current step and the ones next to it. Only used on the main thread.
+    */
+   private final Map<Integer, GuideStep> mSteps = new HashMap<Integer, GuideStep>();
+   private final Map<Integer, List<StepCallback>> mCallbacks =
+    new HashMap<Integer, List<StepCallback>>();
+   private int mCurrentStep;
+   private volatile boolean mClosed;
+
+   /**
+    * Where steps that haven't been written yet are read from and their indices. Only
+    * used on the executor.
+    */
+   private StepSource mSource;
+   private final Set<Integer> mUnreadSteps = new HashSet<Integer>();
+
+   /**
+    * Steps that failed to be written. They are kept in memory instead. Only used on the
+    * executor.
+    */
+   private final Map<Integer, byte[]> mUnwrittenBytes = new HashMap<Integer, byte[]>();
+
+   /**
+    * Starts a session for the guide. The guide and its steps must not be modified
+    * afterwards since they are written in the background.
+    */
+   static GuideSession create(Context context, Guide guide) {
+      final ArrayList<GuideStep> steps = guide.getSteps();
+
+      return create(context, guide, steps.size(), new StepSource() {
+         @Override
+         public GuideStep readStep(int index) {
+            return steps.get(index);
+         }
+      });
+   }
+
+   /**
+    * Starts a session for the guide whose steps are read from the source. Any steps of
+    * the guide itself are ignored.
+    */
+   static synchronized GuideSession create(Context context, Guide guide, int numSteps,
+    StepSource source) {
+      String handle = guide.getGuideid() + "-" + System.currentTimeMillis();
+      File directory = new File(getSessionsDirectory(context), handle);
+      GuideSession session = new GuideSession(handle, directory, guide.copyWithoutSteps(),
+       numSteps);
+
+      session.mSource = source;
+
+      for (int i = 0; i < numSteps; i++) {
+         session.mUnreadSteps.add(i);
+      }
+
+      sSessions.put(handle, session);
+
+      if (!sDeletedOldSessions) {
+         sDeletedOldSessions = true;
+         deleteOldSessions(getSessionsDirectory(context));
+      }
+
+      session.saveGuide();
+      session.writeSteps(0);
+
+      return session;
+   }
+
+   /**
+    * Returns the session with the handle or null if it no longer exists. This reads the
+    * guide without its steps from disk if the process was killed.
+    */
+   static synchronized GuideSession restore(Context context, String handle) {
+      if (handle == null) {
+         return null;
+      }
+
+      GuideSession session = sSessions.get(handle);
+
+      if (session == null) {
+         File directory = new File(getSessionsDirectory(context), handle);
+         byte[] bytes = read(new File(directory, GUIDE_FILE));
+         GuideHeader header = bytes == null ? null : unmarshallHeader(bytes);
+
+         if (header != null) {
+            session = new GuideSession(handle, directory, header.mGuide, header.mNumSteps);
+            sSessions.put(handle, session);
+         }
+      }
+
+      return session;
+   }
+
+   private GuideSession(String handle, File directory, Guide guide, int numSteps) {
+      mHandle = handle;
+      mDirectory = directory;
+      mGuide = guide;
+      mNumSteps = numSteps;
+   }
+
+   String getHandle() {
+      return mHandle;
+   }
+
+   Guide getGuide() {
+      return mGuide;
+   }
+
+   int getNumSteps() {
+      return mNumSteps;
+   }
+
+   /**
+    * Passes the step at the index to the callback. It is called right away if the step
+    * is in memory and once it has been read otherwise.
+    */
+   void getStep(final int index, StepCallback callback) {
+      GuideStep step = mSteps.get(index);
+
+      if (step != null) {
+         callback.onStep(step);
+         return;
+      }
+
+      List<StepCallback> callbacks = mCallbacks.get(index);
+
+      if (callbacks != null) {
+         // Already being read.
+         callbacks.add(callback);
+         return;
+      }
+
+      callbacks = new ArrayList<StepCallback>();
+      callbacks.add(callback);
+      mCallbacks.put(index, callbacks);
+
+      sExecutor.execute(new Runnable() {
+         @Override
+         public void run() {
+            final GuideStep step = loadStep(index);
+
+            sMainHandler.post(new Runnable() {
+               @Override
+               public void run() {
+                  onStepLoaded(index, step);
+               }
+            });
+         }
+      });
+   }
+
+   /**
+    * Returns the step at the index if it is in memory and null otherwise.
+    */
+   GuideStep peekStep(int index) {
+      return mSteps.get(index);
+   }
+
+   /**
+    * Sets the step the user is on and drops the steps that are no longer next to it.
+    */
+   void setCurrentStep(int index) {
+      mCurrentStep = index;
+
+      Iterator<Integer> indices = mSteps.keySet().iterator();
+
+      while (indices.hasNext()) {
+         if (!isNearCurrentStep(indices.next())) {
+            indices.remove();
+         }
+      }
+   }
+
+   /**
+    * Passes a copy of the guide with all of its steps to the callback. This reads every
+    * step so it is only meant for handing the whole guide to something else.
+    */
+   void loadGuide(final GuideCallback callback) {
+      final byte[] header = marshallHeader(mGuide, mNumSteps);
+
+      sExecutor.execute(new Runnable() {
+         @Override
+         public void run() {
+            final Guide guide = unmarshallHeader(header).mGuide;
+            ArrayList<GuideStep> steps = new ArrayList<GuideStep>(mNumSteps);
+
+            for (int i = 0; i < mNumSteps; i++) {
+               steps.add(loadStep(i));
+            }
+
+            guide.setStepList(steps);
+
+            sMainHandler.post(new Runnable() {
+               @Override
+               public void run() {
+                  if (!mClosed) {
+                     callback.onGuide(guide);
+                  }
+               }
+            });
+         }
+      });
+   }
+
+   /**
+    * Writes changes made to the guide returned by getGuide().
+    */
+   void saveGuide() {
+      final byte[] bytes = marshallHeader(mGuide, mNumSteps);
+
+      sExecutor.execute(new Runnable() {
+         @Override
+         public void run() {
+            if (!mClosed) {
+               write(new File(mDirectory, GUIDE_FILE), bytes);
+            }
+         }
+      });
+   }
+
+   /**
+    * Writes changes made to the step at the index.
+    */
+   void saveStep(final int index, GuideStep step) {
+      if (isNearCurrentStep(index)) {
+         mSteps.put(index, step);
+      }
+
+      final byte[] bytes = marshallStep(step);
+
+      sExecutor.execute(new Runnable() {
+         @Override
+         public void run() {
+            // Don't let the source overwrite it.
+            markRead(index);
+            writeStep(index, bytes);
+         }
+      });
+   }
+
+   /**
+    * Ends the session and deletes it.
+    */
+   void close() {
+      synchronized (GuideSession.class) {
+         sSessions.remove(mHandle);
+      }
+
+      mClosed = true;
+      mCallbacks.clear();
+      mSteps.clear();
+
+      sExecutor.execute(new Runnable() {
+         @Override
+         public void run() {
+            deleteDirectory(mDirectory);
+         }
+      });
+   }
+
+   private void onStepLoaded(int index, GuideStep step) {
+      List<StepCallback> callbacks = mCallbacks.remove(index);
+
+      if (mClosed || callbacks == null) {
+         return;
+      }
+
+      if (step != null && isNearCurrentStep(index)) {
+         mSteps.put(index, step);
+      }
+
+      for (StepCallback callback : callbacks) {
+         callback.onStep(step);
+      }
+   }
+
+   private boolean isNearCurrentStep(int index) {
+      return Math.abs(index - mCurrentStep) <= ADJACENT_STEPS;
+   }
+
+   /**
+    * Writes the steps from the source one at a time starting at the index. Each step is
+    * its own task so steps being read don't wait on the whole guide.
+    */
+   private void writeSteps(final int index) {
+      sExecutor.execute(new Runnable() {
+         @Override
+         public void run() {
+            if (mClosed || index >= mNumSteps) {
+               return;
+            }
+
+            GuideStep step = readFromSource(index);
+
+            if (step != null) {
+               writeStep(index, marshallStep(step));
+            }
+
+            writeSteps(index + 1);
+         }
+      });
+   }
+
+   /**
+    * Returns a new copy of the step at the index. Must be called on the executor.
+    */
+   private GuideStep loadStep(int index) {
+      byte[] bytes = mUnwrittenBytes.get(index);
+
+      if (bytes == null) {
+         GuideStep step = readFromSource(index);
+
+         if (step != null) {
+            bytes = marshallStep(step);
+            writeStep(index, bytes);
+         } else {
+            bytes = read(getStepFile(index));
+         }
+      }
+
+      return bytes == null ? null : unmarshallStep(bytes);
+   }
+
+   /**
+    * Returns the step from the source if it hasn't been read yet and null otherwise.
+    * Must be called on the executor.
+    */
+   private GuideStep readFromSource(int index) {
+      if (!mUnreadSteps.contains(index)) {
+         return null;
+      }
+
+      StepSource source = mSource;
+      markRead(index);
+
+      return source.readStep(index);
+   }
+
+   /**
+    * Must be called on the executor.
+    */
+   private void markRead(int index) {
+      mUnreadSteps.remove(index);
+
+      if (mUnreadSteps.isEmpty()) {
+         // Let go of the guide.
+         mSource = null;
+      }
+   }
+
+   /**
+    * Must be called on the executor.
+    */
+   private void writeStep(int index, byte[] bytes) {
+      if (mClosed) {
+         return;
+      }
+
+      if (write(getStepFile(index), bytes)) {
+         mUnwrittenBytes.remove(index);
+      } else {
+         mUnwrittenBytes.put(index, bytes);
+      }
+   }
+
+   private File getStepFile(int index) {
+      return new File(mDirectory, String.valueOf(index));
+   }
+
+   private static Parcel newParcel() {
+      Parcel parcel = Parcel.obtain();
+      parcel.writeInt(FORMAT_VERSION);
+      parcel.writeInt(BuildConfig.VERSION_CODE);
+      parcel.writeInt(Build.VERSION.SDK_INT);
+
+      return parcel;
+   }
+
+   private static byte[] marshall(Parcel parcel) {
+      try {
+         return parcel.marshall();
+      } finally {
+         parcel.recycle();
+      }
+   }
+
+   /**
+    * Returns a Parcel positioned after the file's header or null if the file was written
+    * by another format or version.
+    */
+   private static Parcel unmarshall(byte[] bytes) {
+      Parcel parcel = Parcel.obtain();
+      parcel.unmarshall(bytes, 0, bytes.length);
+      parcel.setDataPosition(0);
+
+      if (parcel.readInt() != FORMAT_VERSION ||
+       parcel.readInt() != BuildConfig.VERSION_CODE ||
+       parcel.readInt() != Build.VERSION.SDK_INT) {
+         parcel.recycle();
+         return null;
+      }
+
+      return parcel;
+   }
+
+   private static byte[] marshallStep(GuideStep step) {
+      Parcel parcel = newParcel();
+      step.writeToParcel(parcel, 0);
+
+      return marshall(parcel);
+   }
+
+   private static GuideStep unmarshallStep(byte[] bytes) {
+      Parcel parcel = unmarshall(bytes);
+
+      if (parcel == null) {
+         return null;
+      }
+
+      try {
+         return GuideStep.CREATOR.createFromParcel(parcel);
+      } catch (RuntimeException e) {
+         Log.e(TAG, "Failed to read step", e);
+         return null;
+      } finally {
+         parcel.recycle();
+      }
+   }
+
+   private static byte[] marshallHeader(Guide guide, int numSteps) {
+      Parcel parcel = newParcel();
+      parcel.writeInt(numSteps);
+      guide.writeToParcel(parcel, 0);
+
+      return marshall(parcel);
+   }
+
+   private static GuideHeader unmarshallHeader(byte[] bytes) {
+      Parcel parcel = unmarshall(bytes);
+
+      if (parcel == null) {
+         return null;
+      }
+
+      try {
+         int numSteps = parcel.readInt();
+
+         return new GuideHeader(Guide.readFromParcel(parcel), numSteps);
+      } catch (RuntimeException e) {
+         Log.e(TAG, "Failed to read guide", e);
+         return null;
+      } finally {
+         parcel.recycle();
+      }
+   }
+
+   private static boolean write(File file, byte[] bytes) {
+      File tmpFile = new File(file.getPath() + TMP_SUFFIX);
+      FileOutputStream out = null;
+
+      try {
+         file.getParentFile().mkdirs();
+
+         out = new FileOutputStream(tmpFile);
+         out.write(bytes);
+         out.close();
+         out = null;
+
+         if (!tmpFile.renameTo(file)) {
+            throw new IOException("Failed to rename " + tmpFile);
+         }
+
+         return true;
+      } catch (IOException e) {
+         Log.e(TAG, "Failed to write " + file, e);
+         tmpFile.delete();
+         return false;
+      } finally {
+         if (out != null) {
+            try {
+               out.close();
+            } catch (IOException e) {
+               // Already failed.
+            }
+         }
+      }
+   }
+
+   private static byte[] read(File file) {
+      if (!file.exists()) {
+         return null;
+      }
+
+      DataInputStream in = null;
+
+      try {
+         in = new DataInputStream(new FileInputStream(file));
+         byte[] bytes = new byte[(int)file.length()];
+         in.readFully(bytes);
+
+         return bytes;
+      } catch (IOException e) {
+         Log.e(TAG, "Failed to read " + file, e);
+         return null;
+      } finally {
+         if (in != null) {
+            try {
+               in.close();
+            } catch (IOException e) {
+               // Nothing left to read.
+            }
+         }
+      }
+   }
+
+   private static File getSessionsDirectory(Context context) {
+      return new File(context.getCacheDir(), DIRECTORY);
+   }
+
+   private static void deleteOldSessions(final File sessionsDirectory) {
+      sExecutor.execute(new Runnable() {
+         @Override
+         public void run() {
+            File[] directories = sessionsDirectory.listFiles();
+
+            if (directories == null) {
+               return;
+            }
+
+            long cutoff = System.currentTimeMillis() - MAX_SESSION_AGE_MS;
+
+            for (File directory : directories) {
+               if (directory.lastModified() < cutoff) {
+                  deleteDirectory(directory);
+               }
+            }
+         }
+      });
+   }
+
+   private static void deleteDirectory(File directory) {
+      File[] files = directory.listFiles();
+
+      if (files != null) {
+         for (File file : files) {
+            file.delete();
+         }
+      }
+
+      directory.delete();
+   }
+
+   /**
+    * Contents of GUIDE_FILE.
+    */
+   private static class GuideHeader {
+      private final Guide mGuide;
+      private final int mNumSteps;
+
+      private GuideHeader(Guide guide, int numSteps) {
+         mGuide = guide;
+         mNumSteps = numSteps;
+      }
+   }
+}
@@ -1,7 +1,6 @@
 package com.dozuki.ifixit.ui.guide.view;
 
 import android.content.Context;
-import android.text.Html;
 import android.text.method.LinkMovementMethod;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -9,9 +8,9 @@ import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import com.dozuki.ifixit.R;
+import com.dozuki.ifixit.model.guide.GuideStep;
 import com.dozuki.ifixit.model.guide.StepLine;
-import com.dozuki.ifixit.util.Utils;
-import com.dozuki.ifixit.util.WikiHtmlTagHandler;
+import com.dozuki.ifixit.util.HtmlRenderer;
 
 public class GuideStepLineView extends LinearLayout {
    private static final int LINE_INDENT = 50;
@@ -26,15 +25,14 @@ public class GuideStepLineView extends LinearLayout {
       LayoutInflater.from(context).inflate(R.layout.guide_step_row, this, true);
    }
 
-   public void setLine(StepLine line) {
+   public void setLine(GuideStep step, StepLine line) {
       int iconRes, bulletRes;
 
       setPadding(LINE_INDENT * line.getLevel(), MARGIN, 0, MARGIN);
 
       TextView stepText = (TextView) findViewById(R.id.step_text);
-      stepText.setText(Utils.correctLinkPaths(
-       Html.fromHtml(line.getTextRendered(), null, new WikiHtmlTagHandler())));
       stepText.setMovementMethod(LinkMovementMethod.getInstance());
+      stepText.setText(HtmlRenderer.getStepLine(step, line));
 
       ImageView bullet = (ImageView)findViewById(R.id.bullet);
       bulletRes = getBulletResource(line.getColor());
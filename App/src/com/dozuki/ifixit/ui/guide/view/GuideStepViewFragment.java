@@ -1,6 +1,7 @@
 package com.dozuki.ifixit.ui.guide.view;
 
 import android.os.Bundle;
+import android.support.v4.app.FragmentManager;
 import android.support.v4.app.FragmentTransaction;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -13,7 +14,9 @@ import com.dozuki.ifixit.ui.guide.StepVideoFragment;
 
 public class GuideStepViewFragment extends BaseFragment {
 
-   private static final String GUIDE_STEP_KEY = "GUIDE_STEP_KEY";
+   private static final String SESSION_KEY = "SESSION_KEY";
+   private static final String STEP_INDEX_KEY = "STEP_INDEX_KEY";
+   private static final String IS_OFFLINE_GUIDE_KEY = "IS_OFFLINE_GUIDE_KEY";
    private static final int MEDIA_CONTAINER = R.id.guide_step_media;
    private static final String STEP_IMAGE_FRAGMENT_TAG = "STEP_IMAGE_FRAGMENT_TAG";
    private static final String STEP_VIDEO_FRAGMENT_TAG = "STEP_VIDEO_FRAGMENT_TAG";
@@ -31,67 +34,92 @@ public class GuideStepViewFragment extends BaseFragment {
    private StepEmbedFragment mEmbedFrag;
    private StepImageFragment mImageFrag;
 
-   public GuideStepViewFragment() { }
-
-   public GuideStepViewFragment(GuideStep step, boolean isOfflineGuide) {
-      mStep = step;
-      mIsOfflineGuide = isOfflineGuide;
+   public static GuideStepViewFragment newInstance(GuideSession session, int stepIndex,
+    boolean isOfflineGuide) {
+      GuideStepViewFragment frag = new GuideStepViewFragment();
+      Bundle args = new Bundle();
+      args.putString(SESSION_KEY, session.getHandle());
+      args.putInt(STEP_INDEX_KEY, stepIndex);
+      args.putBoolean(IS_OFFLINE_GUIDE_KEY, isOfflineGuide);
+      frag.setArguments(args);
+      return frag;
    }
 
    @Override
    public View onCreateView(LayoutInflater inflater, ViewGroup container,
     Bundle savedInstanceState) {
-      View view = inflater.inflate(R.layout.guide_step, container, false);
-
-      if (savedInstanceState != null) {
-         mStep = (GuideStep) savedInstanceState.getSerializable(GUIDE_STEP_KEY);
-         String stepType = mStep.type();
-
-         if (stepType.equals(VIDEO_TYPE)) {
-            mVideoFrag = (StepVideoFragment) getChildFragmentManager().findFragmentByTag(STEP_VIDEO_FRAGMENT_TAG);
-         } else if (stepType.equals(EMBED_TYPE)) {
-            mEmbedFrag = (StepEmbedFragment) getChildFragmentManager().findFragmentByTag(STEP_EMBED_FRAGMENT_TAG);
-         } else if (stepType.equals(IMAGE_TYPE)) {
-            mImageFrag = (StepImageFragment) getChildFragmentManager().findFragmentByTag(STEP_IMAGE_FRAGMENT_TAG);
-         }
-
-         mLinesFrag = (StepLinesFragment) getChildFragmentManager().findFragmentById(R.id.guide_step_lines);
+      return inflater.inflate(R.layout.guide_step, container, false);
+   }
 
-      } else {
-         String stepType = mStep.type();
-         mLinesFrag = new StepLinesFragment();
-         mLinesFrag.setRetainInstance(true);
-         Bundle linesArgs = new Bundle();
+   @Override
+   public void onViewCreated(View view, Bundle savedInstanceState) {
+      super.onViewCreated(view, savedInstanceState);
 
-         linesArgs.putSerializable(StepLinesFragment.GUIDE_STEP, mStep);
+      final Bundle args = getArguments();
+      GuideSession session = GuideSession.restore(getActivity(),
+       args.getString(SESSION_KEY));
+      mIsOfflineGuide = args.getBoolean(IS_OFFLINE_GUIDE_KEY);
 
-         mLinesFrag.setArguments(linesArgs);
+      if (session == null) {
+         // The session is gone. GuideViewActivity fetches the guide again.
+         return;
+      }
 
-         FragmentTransaction ft = getChildFragmentManager()
-          .beginTransaction()
-          .add(R.id.guide_step_lines, mLinesFrag);
+      if (savedInstanceState != null) {
+         FragmentManager fm = getChildFragmentManager();
 
-         if (stepType.equals(VIDEO_TYPE)) {
-            mVideoFrag = StepVideoFragment.newInstance(mStep.getVideo(), mIsOfflineGuide);
-            ft.add(MEDIA_CONTAINER, mVideoFrag, STEP_VIDEO_FRAGMENT_TAG);
-         } else if (stepType.equals(EMBED_TYPE)) {
-            mEmbedFrag = StepEmbedFragment.newInstance(mStep.getEmbed(), mIsOfflineGuide);
-            ft.add(MEDIA_CONTAINER, mEmbedFrag, STEP_EMBED_FRAGMENT_TAG);
-         } else if (stepType.equals(IMAGE_TYPE)) {
-            mImageFrag = StepImageFragment.newInstance(mStep.getImages(), mIsOfflineGuide);
-            ft.add(MEDIA_CONTAINER, mImageFrag, STEP_IMAGE_FRAGMENT_TAG);
-         }
+         mVideoFrag = (StepVideoFragment) fm.findFragmentByTag(STEP_VIDEO_FRAGMENT_TAG);
+         mEmbedFrag = (StepEmbedFragment) fm.findFragmentByTag(STEP_EMBED_FRAGMENT_TAG);
+         mImageFrag = (StepImageFragment) fm.findFragmentByTag(STEP_IMAGE_FRAGMENT_TAG);
+         mLinesFrag = (StepLinesFragment) fm.findFragmentById(R.id.guide_step_lines);
+      }
 
-         ft.commit();
+      if (mLinesFrag != null) {
+         // The child fragments were restored.
+         return;
       }
 
-      return view;
+      session.getStep(args.getInt(STEP_INDEX_KEY), new GuideSession.StepCallback() {
+         @Override
+         public void onStep(GuideStep step) {
+            // The view may have been destroyed while the step was read.
+            if (step != null && getView() != null && mLinesFrag == null) {
+               addStepFragments(args, step);
+            }
+         }
+      });
    }
 
-   @Override
-   public void onSaveInstanceState(Bundle outState) {
-      super.onSaveInstanceState(outState);
+   private void addStepFragments(Bundle args, GuideStep step) {
+      mStep = step;
+
+      String stepType = mStep.type();
+      mLinesFrag = new StepLinesFragment();
+      mLinesFrag.setRetainInstance(true);
+      Bundle linesArgs = new Bundle();
+
+      linesArgs.putString(StepLinesFragment.SESSION_KEY, args.getString(SESSION_KEY));
+      linesArgs.putInt(StepLinesFragment.STEP_INDEX_KEY, args.getInt(STEP_INDEX_KEY));
+
+      mLinesFrag.setArguments(linesArgs);
+
+      FragmentTransaction ft = getChildFragmentManager()
+       .beginTransaction()
+       .add(R.id.guide_step_lines, mLinesFrag);
+
+      if (stepType.equals(VIDEO_TYPE)) {
+         mVideoFrag = StepVideoFragment.newInstance(mStep.getVideo(), mIsOfflineGuide);
+         ft.add(MEDIA_CONTAINER, mVideoFrag, STEP_VIDEO_FRAGMENT_TAG);
+      } else if (stepType.equals(EMBED_TYPE)) {
+         mEmbedFrag = StepEmbedFragment.newInstance(mStep.getEmbed(), mIsOfflineGuide);
+         ft.add(MEDIA_CONTAINER, mEmbedFrag, STEP_EMBED_FRAGMENT_TAG);
+      } else if (stepType.equals(IMAGE_TYPE)) {
+         mImageFrag = StepImageFragment.newInstance(mStep.getImages(), mIsOfflineGuide);
+         ft.add(MEDIA_CONTAINER, mImageFrag, STEP_IMAGE_FRAGMENT_TAG);
+      }
 
-      outState.putSerializable(GUIDE_STEP_KEY, mStep);
+      // The step may arrive after the state was saved. The children are added again
+      // when the fragment is restored without them.
+      ft.commitAllowingStateLoss();
    }
 }
@@ -15,6 +15,7 @@ import com.dozuki.ifixit.App;
 import com.dozuki.ifixit.R;
 import com.dozuki.ifixit.model.Comment;
 import com.dozuki.ifixit.model.guide.Guide;
+import com.dozuki.ifixit.model.guide.GuideStep;
 import com.dozuki.ifixit.model.user.LoginEvent;
 import com.dozuki.ifixit.model.user.User;
 import com.dozuki.ifixit.ui.BaseMenuDrawerActivity;
@@ -23,14 +24,17 @@ import com.dozuki.ifixit.ui.guide.create.GuideIntroActivity;
 import com.dozuki.ifixit.ui.guide.create.StepEditActivity;
 import com.dozuki.ifixit.ui.guide.create.StepsActivity;
 import com.dozuki.ifixit.util.CheatSheet;
+import com.dozuki.ifixit.util.HtmlRenderer;
 import com.dozuki.ifixit.util.api.Api;
 import com.dozuki.ifixit.util.api.ApiCall;
 import com.dozuki.ifixit.util.api.ApiDatabase;
 import com.dozuki.ifixit.util.api.ApiEvent;
+import com.dozuki.ifixit.util.api.OfflineGuide;
 import com.squareup.otto.Subscribe;
 import com.viewpagerindicator.TitlePageIndicator;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class GuideViewActivity extends BaseMenuDrawerActivity implements
  ViewPager.OnPageChangeListener {
@@ -41,7 +45,7 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
    private static final String FAVORITING = "FAVORITING";
    private static final String IS_OFFLINE_GUIDE = "IS_OFFLINE_GUIDE";
    public static final String CURRENT_PAGE = "CURRENT_PAGE";
-   public static final String SAVED_GUIDE = "SAVED_GUIDE";
+   private static final String GUIDE_SESSION = "GUIDE_SESSION";
    public static final String GUIDEID = "GUIDEID";
    public static final String TOPIC_NAME_KEY = "TOPIC_NAME_KEY";
    public static final String FROM_EDIT = "FROM_EDIT_KEY";
@@ -49,8 +53,17 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
    public static final String COMMENTS_TAG = "COMMENTS_TAG";
    private static final int COMMENT_REQUEST = 0;
 
+   /**
+    * Steps this far from the current page are rendered ahead of time.
+    */
+   private static final int PRERENDER_STEPS = 1;
+
    private int mGuideid;
+   /**
+    * The guide without its steps. Steps are read from mSession.
+    */
    private Guide mGuide;
+   private GuideSession mSession;
    private int mCurrentPage = -1;
    private int mStepOffset = 1;
    private ViewPager mPager;
@@ -59,6 +72,7 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
    private GuideViewAdapter mAdapter;
    private boolean mFavoriting = false;
    private boolean mIsOfflineGuide;
+   private boolean mDisplayingStaleGuide;
    private Toast mToast;
 
    /////////////////////////////////////////////////////
@@ -85,38 +99,37 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
          mFavoriting = savedInstanceState.getBoolean(FAVORITING);
          mIsOfflineGuide = savedInstanceState.getBoolean(IS_OFFLINE_GUIDE);
 
-         if (savedInstanceState.containsKey(SAVED_GUIDE)) {
-            mGuide = (Guide) savedInstanceState.getSerializable(SAVED_GUIDE);
-         }
+         mSession = GuideSession.restore(this, savedInstanceState.getString(GUIDE_SESSION));
 
-         if (mGuide != null) {
+         if (mSession != null) {
             mCurrentPage = savedInstanceState.getInt(CURRENT_PAGE);
 
-            setGuide(mGuide, mCurrentPage);
-            mIndicator.setCurrentItem(mCurrentPage);
-            mPager.setCurrentItem(mCurrentPage);
+            setSession(mSession, mCurrentPage);
          }
       } else {
          extractExtras(getIntent().getExtras());
       }
 
-      if (mGuide != null) {
-         setGuide(mGuide, mCurrentPage);
-      } else {
+      if (mSession == null) {
          fetchGuideFromApi(mGuideid);
       }
    }
 
+   @Override
+   public void onDestroy() {
+      super.onDestroy();
+
+      if (isFinishing() && mSession != null) {
+         mSession.close();
+      }
+   }
+
    private void extractExtras(Bundle extras) {
       if (extras != null) {
          if (extras.containsKey(GUIDEID)) {
             mGuideid = extras.getInt(GUIDEID);
          }
 
-         if (extras.containsKey(GuideViewActivity.SAVED_GUIDE)) {
-            mGuide = (Guide) extras.getSerializable(GuideViewActivity.SAVED_GUIDE);
-         }
-
          mInboundStepId = extras.getInt(INBOUND_STEP_ID, DEFAULT_INBOUND_STEPID);
          mCurrentPage = extras.getInt(GuideViewActivity.CURRENT_PAGE, 0);
       }
@@ -127,7 +140,7 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
       super.onNewIntent(intent);
 
       // Reset everything to default values since we're getting a new intent - forces the view to refresh.
-      mGuide = null;
+      closeSession();
       mCurrentPage = -1;
       mInboundStepId = -1;
 
@@ -140,7 +153,9 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
       super.onSaveInstanceState(state);
 
       state.putInt(GUIDEID, mGuideid);
-      state.putSerializable(SAVED_GUIDE, mGuide);
+      if (mSession != null) {
+         state.putString(GUIDE_SESSION, mSession.getHandle());
+      }
       state.putInt(CURRENT_PAGE, mCurrentPage);
       state.putBoolean(FAVORITING, mFavoriting);
       state.putBoolean(IS_OFFLINE_GUIDE, mIsOfflineGuide);
@@ -154,27 +169,32 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
       item.getActionView().setOnClickListener(new View.OnClickListener() {
          @Override
          public void onClick(View v) {
-            if (mGuide != null) {
-               ArrayList<Comment> comments;
-               int stepIndex = getStepIndex(), contextid;
-               String title, context;
-
-               // If we're in one of the introduction pages, show guide comments.
-               if (GuideViewActivity.this.notOnStep(stepIndex)) {
-                  comments = mGuide.getComments();
-                  title = getString(R.string.guide_comments);
-                  context = "guide";
-                  contextid = mGuide.getGuideid();
-               } else {
-                  comments = mGuide.getStep(stepIndex).getComments();
-                  contextid = mGuide.getStep(stepIndex).getStepid();
-                  context = "step";
-                  title = getString(R.string.step_number_comments, stepIndex + 1);
-               }
+            if (mGuide == null) {
+               return;
+            }
+
+            final int stepIndex = getStepIndex();
 
-               startActivityForResult(CommentsActivity.viewGuideComments(getApplicationContext(), comments, title,
-                context, contextid, mGuide.getGuideid()), COMMENT_REQUEST);
+            // If we're in one of the introduction pages, show guide comments.
+            if (GuideViewActivity.this.notOnStep(stepIndex)) {
+               startActivityForResult(CommentsActivity.viewGuideComments(
+                getApplicationContext(), mGuide.getComments(),
+                getString(R.string.guide_comments), "guide", mGuide.getGuideid(),
+                mGuide.getGuideid()), COMMENT_REQUEST);
+               return;
             }
+
+            mSession.getStep(stepIndex, new GuideSession.StepCallback() {
+               @Override
+               public void onStep(GuideStep step) {
+                  if (step != null) {
+                     startActivityForResult(CommentsActivity.viewGuideComments(
+                      getApplicationContext(), step.getComments(),
+                      getString(R.string.step_number_comments, stepIndex + 1), "step",
+                      step.getStepid(), mGuide.getGuideid()), COMMENT_REQUEST);
+                  }
+               }
+            });
          }
       });
 
@@ -188,16 +208,28 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
       if (requestCode == COMMENT_REQUEST) {
          Bundle extras = data.getExtras();
          if (resultCode == RESULT_OK && extras != null) {
-            ArrayList<Comment> comments = (ArrayList<Comment>)extras.getSerializable(COMMENTS_TAG);
-            int stepIndex = getStepIndex();
+            final ArrayList<Comment> comments =
+             (ArrayList<Comment>)extras.getSerializable(COMMENTS_TAG);
+            final int stepIndex = getStepIndex();
 
             if (notOnStep(stepIndex)) {
                mGuide.setComments(comments);
+               mSession.saveGuide();
+               updateCommentCounts();
             } else {
-               mGuide.getStep(stepIndex).setComments(comments);
+               final GuideSession session = mSession;
+
+               session.getStep(stepIndex, new GuideSession.StepCallback() {
+                  @Override
+                  public void onStep(GuideStep step) {
+                     if (step != null) {
+                        step.setComments(comments);
+                        session.saveStep(stepIndex, step);
+                        updateCommentCounts();
+                     }
+                  }
+               });
             }
-
-            updateCommentCounts();
          }
       } else {
          super.onActivityResult(requestCode, resultCode, data);
@@ -219,8 +251,13 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
          int commentCount = 0;
          if (notOnStep(stepIndex)) {
             commentCount = mGuide.getCommentCount();
-         } else if (mGuide.getNumSteps() < stepIndex) {
-            commentCount = mGuide.getStep(stepIndex).getCommentCount();
+         } else {
+            // The menu is invalidated again once the step has been read.
+            GuideStep step = mSession.peekStep(stepIndex);
+
+            if (step != null) {
+               commentCount = step.getCommentCount();
+            }
          }
 
          if (countView != null) {
@@ -255,13 +292,19 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
 
                // If the user is on the introduction, take them to edit the introduction fields.
                if (mCurrentPage < mAdapter.getStepOffset() ||
-                (mCurrentPage - mAdapter.getStepOffset()) >= mGuide.getNumSteps()) {
-                  Intent intent = new Intent(this, GuideIntroActivity.class);
-                  intent.putExtra(StepsActivity.GUIDE_KEY, mGuide);
-                  intent.putExtra(GuideIntroActivity.STATE_KEY, true);
-                  startActivity(intent);
+                (mCurrentPage - mAdapter.getStepOffset()) >= mSession.getNumSteps()) {
+                  mSession.loadGuide(new GuideSession.GuideCallback() {
+                     @Override
+                     public void onGuide(Guide guide) {
+                        Intent intent = new Intent(GuideViewActivity.this,
+                         GuideIntroActivity.class);
+                        intent.putExtra(StepsActivity.GUIDE_KEY, guide);
+                        intent.putExtra(GuideIntroActivity.STATE_KEY, true);
+                        startActivity(intent);
+                     }
+                  });
                } else {
-                  Intent intent = new Intent(this, StepEditActivity.class);
+                  final Intent intent = new Intent(this, StepEditActivity.class);
                   int stepNum = 0;
 
                   // Take into account the introduction, parts and tools page.
@@ -271,47 +314,58 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
                      intent.putExtra(StepEditActivity.GUIDE_STEP_NUM_KEY, stepNum + 1);
                   }
 
-                  int stepGuideid = mGuide.getStep(stepNum).getGuideid();
-                  // If the step is part of a prerequisite guide, store the parents
-                  // guideid so that we can get back from editing this prerequisite.
-                  if (stepGuideid != mGuide.getGuideid()) {
-                     intent.putExtra(StepEditActivity.PARENT_GUIDE_ID_KEY, mGuide.getGuideid());
-                  }
-                  // We have to pass along the steps guideid to account for prerequisite guides.
-                  intent.putExtra(StepEditActivity.GUIDE_ID_KEY, stepGuideid);
-                  intent.putExtra(StepEditActivity.GUIDE_PUBLIC_KEY, mGuide.isPublic());
-                  intent.putExtra(StepEditActivity.GUIDE_STEP_ID, mGuide.getStep(stepNum).getStepid());
-                  startActivity(intent);
+                  mSession.getStep(stepNum, new GuideSession.StepCallback() {
+                     @Override
+                     public void onStep(GuideStep step) {
+                        if (step == null) {
+                           return;
+                        }
+
+                        int stepGuideid = step.getGuideid();
+                        // If the step is part of a prerequisite guide, store the parents
+                        // guideid so that we can get back from editing this prerequisite.
+                        if (stepGuideid != mGuide.getGuideid()) {
+                           intent.putExtra(StepEditActivity.PARENT_GUIDE_ID_KEY,
+                            mGuide.getGuideid());
+                        }
+                        // We have to pass along the steps guideid to account for
+                        // prerequisite guides.
+                        intent.putExtra(StepEditActivity.GUIDE_ID_KEY, stepGuideid);
+                        intent.putExtra(StepEditActivity.GUIDE_PUBLIC_KEY, mGuide.isPublic());
+                        intent.putExtra(StepEditActivity.GUIDE_STEP_ID, step.getStepid());
+                        startActivity(intent);
+                     }
+                  });
                }
             }
             return true;
          case R.id.reload_guide:
-            // Set guide to null to force a refresh of the guide object.
-            mGuide = null;
+            // Close the session to force a refresh of the guide object.
+            closeSession();
             supportInvalidateOptionsMenu();
             fetchGuideFromApi(mGuideid);
             return true;
          case R.id.comments:
-            ArrayList<Comment> comments;
-            int stepIndex = getStepIndex(), contextid;
-            String title, context;
+            final int stepIndex = getStepIndex();
 
             // If we're in one of the introduction pages, show guide comments.
             if (notOnStep(stepIndex)) {
-               comments = mGuide.getComments();
-               title = getString(R.string.guide_comments);
-               context = "guide";
-               contextid = mGuide.getGuideid();
+               startActivity(CommentsActivity.viewComments(this, mGuide.getComments(),
+                getString(R.string.guide_comments), "guide", mGuide.getGuideid()));
             } else {
-               comments = mGuide.getStep(stepIndex).getComments();
-               title = getString(R.string.step_number_comments, stepIndex + 1);
-               context = "step";
-               contextid = mGuide.getStep(stepIndex).getStepid();
+               mSession.getStep(stepIndex, new GuideSession.StepCallback() {
+                  @Override
+                  public void onStep(GuideStep step) {
+                     if (step != null) {
+                        startActivity(CommentsActivity.viewComments(GuideViewActivity.this,
+                         step.getComments(),
+                         getString(R.string.step_number_comments, stepIndex + 1), "step",
+                         step.getStepid()));
+                     }
+                  }
+               });
             }
 
-            startActivity(CommentsActivity.viewComments(this, comments, title, context,
-             contextid));
-
          case R.id.favorite_guide:
             // Current favorite state.
             boolean favorited = mGuide == null ? false : mGuide.isFavorited();
@@ -342,7 +396,7 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
 
    @Subscribe
    public void onGuide(ApiEvent.ViewGuide event) {
-      if (App.get().isUserLoggedIn() &&
+      if (App.get().isUserLoggedIn() && !event.isStale() &&
        (event.mStoredResponse || event.hasError())) {
          // Attempt to use an offline guide if it isn't a live response.
          fetchOfflineGuide(mGuideid, event);
@@ -357,16 +411,34 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
             Guide guide = event.getResult();
             mCurrentPage = calculateInitialPage(guide);
             setGuide(guide, mCurrentPage);
+         } else if (mDisplayingStaleGuide && !event.isStale()) {
+            // The guide changed since it was stored. Swap in the new one in place.
+            setGuide(event.getResult(), mCurrentPage);
          }
+
+         mDisplayingStaleGuide = event.isStale();
       } else {
          Api.getErrorDialog(this, event).show();
       }
    }
 
    private int calculateInitialPage(Guide guide) {
+      int[] stepids = new int[guide.getNumSteps()];
+
+      for (int i = 0; i < stepids.length; i++) {
+         stepids[i] = guide.getStep(i).getStepid();
+      }
+
+      return calculateInitialPage(guide, stepids);
+   }
+
+   /**
+    * Returns the page of the inbound step given the stepids of the guide's steps.
+    */
+   private int calculateInitialPage(Guide guide, int[] stepids) {
       if (mInboundStepId != DEFAULT_INBOUND_STEPID) {
-         for (int i = 0; i < guide.getSteps().size(); i++) {
-            if (mInboundStepId == guide.getStep(i).getStepid()) {
+         for (int i = 0; i < stepids.length; i++) {
+            if (mInboundStepId == stepids[i]) {
                int stepOffset = 1;
                if (guide.getNumTools() != 0) stepOffset++;
                if (guide.getNumParts() != 0) stepOffset++;
@@ -392,13 +464,18 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
 
          if (mGuide != null) {
             mGuide.setFavorited(favorited);
+            mSession.saveGuide();
          }
 
          toast(favorited ? R.string.favorited : R.string.unfavorited,
           Toast.LENGTH_SHORT);
 
          // Force a sync to make it show up in the offline guides list immediately.
-         App.get().requestSync(/* force */ true);
+         if (favorited) {
+            App.get().requestSync(/* force */ true);
+         } else {
+            App.get().requestFullSync();
+         }
       } else {
          Api.getErrorDialog(this, event).show();
       }
@@ -427,21 +504,28 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
    /////////////////////////////////////////////////////
 
    private void setGuide(Guide guide, int currentPage) {
-      hideLoading();
-
       if (guide == null) {
+         hideLoading();
          Log.wtf("GuideViewActivity", "Guide is not set.  This should be impossible");
          return;
       }
 
-      mGuide = guide;
+      closeSession();
+      setSession(GuideSession.create(this, guide), currentPage);
+   }
+
+   private void setSession(GuideSession session, int currentPage) {
+      hideLoading();
+
+      mSession = session;
+      mGuide = session.getGuide();
 
       App.sendScreenView("/guide/view/" + mGuide.getGuideid());
 
       String guideTitle = mGuide.getTitle();
       setTitle(guideTitle);
 
-      mAdapter = new GuideViewAdapter(getSupportFragmentManager(), mGuide,
+      mAdapter = new GuideViewAdapter(getSupportFragmentManager(), mSession,
        mIsOfflineGuide);
 
       mPager.setAdapter(mAdapter);
@@ -454,10 +538,22 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
       mIndicator.setOnPageChangeListener(this);
       mIndicator.setCurrentItem(currentPage);
 
+      mSession.setCurrentStep(currentPage - mAdapter.getStepOffset());
+      prerenderSteps(currentPage);
+
       // Enable menu items and update comment count.
       supportInvalidateOptionsMenu();
    }
 
+   private void closeSession() {
+      if (mSession != null) {
+         mSession.close();
+         mSession = null;
+      }
+
+      mGuide = null;
+   }
+
    private void fetchGuideFromApi(int guideid) {
       showLoading(R.id.loading_container);
       Api.call(this, ApiCall.guide(guideid));
@@ -478,19 +574,29 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
          throw new IllegalStateException("Can't fetch offline guide for logged out user.");
       }
 
-      new AsyncTask<String, Void, Guide>() {
+      new AsyncTask<String, Void, OfflineGuide>() {
          @Override
-         protected Guide doInBackground(String... params) {
+         protected OfflineGuide doInBackground(String... params) {
             return ApiDatabase.get(app).getOfflineGuide(app.getSite(), user, guideid);
          }
 
          @Override
-         protected void onPostExecute(Guide guide) {
-            if (guide != null) {
+         protected void onPostExecute(final OfflineGuide offlineGuide) {
+            if (offlineGuide != null) {
                App.sendEvent("ui_action", "button_press", "offline_guide_view", null);
                mIsOfflineGuide = true;
-               mCurrentPage = calculateInitialPage(guide);
-               setGuide(guide, mCurrentPage);
+               Guide guide = offlineGuide.getGuide();
+               mCurrentPage = calculateInitialPage(guide, offlineGuide.getStepids());
+
+               // Steps are read from the database as they are viewed.
+               closeSession();
+               setSession(GuideSession.create(GuideViewActivity.this, guide,
+                offlineGuide.getNumSteps(), new GuideSession.StepSource() {
+                  @Override
+                  public GuideStep readStep(int index) {
+                     return ApiDatabase.get(app).getOfflineGuideStep(offlineGuide, index);
+                  }
+               }), mCurrentPage);
             } else {
                App.sendEvent("ui_action", "button_press", "offline_guide_not_found", null);
                displayApiEvent(event);
@@ -521,7 +627,9 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
    public void onPageSelected(int currentPage) {
       mCurrentPage = currentPage;
 
+      mSession.setCurrentStep(getStepIndex());
       updateCommentCounts();
+      prerenderSteps(currentPage);
       App.sendScreenView(mAdapter.getFragmentScreenLabel(currentPage));
    }
 
@@ -545,6 +653,65 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
       }
    }
 
+   /**
+    * Renders the text of the steps next to the page so swiping to them doesn't have to
+    * wait on Html.fromHtml(). The steps are rendered together once they have all been
+    * read since each call to HtmlRenderer.prerenderSteps() cancels the previous one.
+    */
+   private void prerenderSteps(final int page) {
+      final int stepIndex = page - mAdapter.getStepOffset();
+      final List<Integer> indices = new ArrayList<Integer>();
+
+      // The current step first and then the ones next to it.
+      for (int offset = 0; offset <= PRERENDER_STEPS; offset++) {
+         addStepIndex(indices, stepIndex + offset);
+
+         if (offset > 0) {
+            addStepIndex(indices, stepIndex - offset);
+         }
+      }
+
+      final GuideSession session = mSession;
+      final GuideStep[] steps = new GuideStep[indices.size()];
+      final int[] remaining = {indices.size()};
+
+      for (int i = 0; i < indices.size(); i++) {
+         final int position = i;
+         final int index = indices.get(i);
+
+         session.getStep(index, new GuideSession.StepCallback() {
+            @Override
+            public void onStep(GuideStep step) {
+               steps[position] = step;
+
+               if (index == stepIndex) {
+                  // The comment count can be shown now.
+                  updateCommentCounts();
+               }
+
+               // Don't cancel the steps of a newer page.
+               if (--remaining[0] == 0 && session == mSession && page == mCurrentPage) {
+                  List<GuideStep> readSteps = new ArrayList<GuideStep>();
+
+                  for (GuideStep readStep : steps) {
+                     if (readStep != null) {
+                        readSteps.add(readStep);
+                     }
+                  }
+
+                  HtmlRenderer.prerenderSteps(readSteps);
+               }
+            }
+         });
+      }
+   }
+
+   private void addStepIndex(List<Integer> indices, int stepIndex) {
+      if (!notOnStep(stepIndex)) {
+         indices.add(stepIndex);
+      }
+   }
+
    /**
     * Invalidates the menu to update the comment count.
     */
@@ -553,6 +720,6 @@ public class GuideViewActivity extends BaseMenuDrawerActivity implements
    }
 
    private boolean notOnStep(int stepIndex) {
-      return stepIndex < 0 || stepIndex >= mGuide.getNumSteps();
+      return stepIndex < 0 || stepIndex >= mSession.getNumSteps();
    }
 }
@@ -24,12 +24,14 @@ public class GuideViewAdapter extends FixedFragmentStatePagerAdapter {
    private int mPartsPosition = -1;
    private int mConclusionPosition = -1;
 
+   private GuideSession mSession;
    private Guide mGuide;
    private boolean mIsOfflineGuide;
 
-   public GuideViewAdapter(FragmentManager fm, Guide guide, boolean isOfflineGuide) {
+   public GuideViewAdapter(FragmentManager fm, GuideSession session, boolean isOfflineGuide) {
       super(fm);
-      mGuide = guide;
+      mSession = session;
+      mGuide = session.getGuide();
       mIsOfflineGuide = isOfflineGuide;
 
       mPageLabelMap = new HashMap<Integer, String>();
@@ -52,7 +54,7 @@ public class GuideViewAdapter extends FixedFragmentStatePagerAdapter {
    @Override
    public int getCount() {
       if (mGuide != null) {
-         int count = mGuide.getNumSteps() + mStepOffset;
+         int count = mSession.getNumSteps() + mStepOffset;
          if (!mGuide.isTeardown()) {
             count +=  GUIDE_CONCLUSION_OFFSET;
          }
@@ -69,7 +71,7 @@ public class GuideViewAdapter extends FixedFragmentStatePagerAdapter {
 
       if (position == GUIDE_INTRO_POSITION) {
          label += "/intro";
-         fragment = new GuideIntroViewFragment(mGuide);
+         fragment = GuideIntroViewFragment.newInstance(mSession);
       } else if (position == mToolsPosition) {
          label += "/tools";
          fragment = GuidePartsToolsViewFragment.newInstance(mGuide.getTools());
@@ -78,12 +80,13 @@ public class GuideViewAdapter extends FixedFragmentStatePagerAdapter {
          fragment = GuidePartsToolsViewFragment.newInstance(mGuide.getParts());
       } else if (position == mConclusionPosition) {
          label += "/conclusion";
-         fragment = GuideConclusionFragment.newInstance(mGuide);
+         fragment = GuideConclusionFragment.newInstance(mSession);
       } else {
          int stepNumber = (position - mStepOffset);
          label += "/" + (stepNumber + 1); // Step title # should be 1 indexed.
 
-         fragment = new GuideStepViewFragment(mGuide.getStep(stepNumber), mIsOfflineGuide);
+         // Steps are only read from the session when the fragment needs them.
+         fragment = GuideStepViewFragment.newInstance(mSession, stepNumber, mIsOfflineGuide);
       }
 
       mPageLabelMap.put(position, label);
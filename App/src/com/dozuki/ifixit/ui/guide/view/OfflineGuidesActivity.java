@@ -459,7 +459,7 @@ public class OfflineGuidesActivity extends BaseMenuDrawerActivity implements
             if (guide.mGuideInfo.mGuideid == guideid) {
                // Remove the guide from the list and request a sync to actually remove it.
                itr.remove();
-               App.get().requestSync(/* force */ true);
+               App.get().requestFullSync();
                mAdapter.notifyDataSetChanged();
                return;
             }
@@ -27,7 +27,7 @@ public class StepImageFragment extends BaseFragment {
    public static StepImageFragment newInstance(ArrayList<Image> images,
     boolean isOfflineGuide) {
       Bundle args = new Bundle();
-      args.putSerializable(IMAGES_KEY, images);
+      args.putParcelableArrayList(IMAGES_KEY, images);
       args.putBoolean(IS_OFFLINE_GUIDE, isOfflineGuide);
       StepImageFragment frag = new StepImageFragment();
       frag.setArguments(args);
@@ -45,7 +45,7 @@ public class StepImageFragment extends BaseFragment {
    @SuppressWarnings("unchecked")
    public View onCreateView(LayoutInflater inflater, ViewGroup container,
     Bundle savedInstanceState) {
-      mImages = (ArrayList<Image>)getArguments().getSerializable(IMAGES_KEY);
+      mImages = getArguments().getParcelableArrayList(IMAGES_KEY);
       mIsOfflineGuide = getArguments().getBoolean(IS_OFFLINE_GUIDE);
 
       // Inflate the layout for this fragment
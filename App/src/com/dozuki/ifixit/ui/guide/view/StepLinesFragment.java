@@ -18,7 +18,8 @@ import java.util.ArrayList;
 
 public class StepLinesFragment extends BaseFragment {
 
-   public static final String GUIDE_STEP = "GUIDE_STEP_KEY";
+   public static final String SESSION_KEY = "SESSION_KEY";
+   public static final String STEP_INDEX_KEY = "STEP_INDEX_KEY";
 
    private Context mContext;
    private TextView mTitle;
@@ -40,11 +41,36 @@ public class StepLinesFragment extends BaseFragment {
       mLineList = (ListView) view.findViewById(R.id.step_text_list);
       mTitle = (TextView) view.findViewById(R.id.step_title);
 
+      return view;
+   }
+
+   @Override
+   public void onViewCreated(View view, Bundle savedInstanceState) {
+      super.onViewCreated(view, savedInstanceState);
+
       Bundle extras = getArguments();
-      if (extras != null) {
-         mStep = (GuideStep)extras.getSerializable(GUIDE_STEP);
+      GuideSession session = extras == null ? null :
+       GuideSession.restore(mContext, extras.getString(SESSION_KEY));
+
+      if (session == null) {
+         // The session is gone. GuideViewActivity fetches the guide again.
+         return;
       }
 
+      session.getStep(extras.getInt(STEP_INDEX_KEY), new GuideSession.StepCallback() {
+         @Override
+         public void onStep(GuideStep step) {
+            // The view may have been destroyed while the step was read.
+            if (step != null && getView() != null) {
+               setStep(step);
+            }
+         }
+      });
+   }
+
+   private void setStep(GuideStep step) {
+      mStep = step;
+
       String title = mStep.getTitle().length() == 0
        ? getString(R.string.step_number, mStep.getStepNum())
        : mStep.getTitle();
@@ -55,8 +81,6 @@ public class StepLinesFragment extends BaseFragment {
       // Initialize the step instructions text and bullets
       mTextAdapter = new StepTextArrayAdapter(mContext, R.id.step_text_list, mStep.getLines());
       mLineList.setAdapter(mTextAdapter);
-
-      return view;
    }
 
    public class StepTextArrayAdapter extends ArrayAdapter<StepLine> {
@@ -78,7 +102,7 @@ public class StepLinesFragment extends BaseFragment {
          if (stepLine == null) {
             stepLine = new GuideStepLineView(mContext);
          }
-         stepLine.setLine(mLines.get(position));
+         stepLine.setLine(mStep, mLines.get(position));
          return stepLine;
       }
    }
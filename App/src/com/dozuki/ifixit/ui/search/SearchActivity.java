@@ -3,6 +3,7 @@ package com.dozuki.ifixit.ui.search;
 import android.app.SearchManager;
 import android.content.Context;
 import android.content.Intent;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.provider.SearchRecentSuggestions;
 import android.support.v4.app.Fragment;
@@ -18,9 +19,15 @@ import com.actionbarsherlock.view.Menu;
 import com.actionbarsherlock.view.MenuItem;
 import com.dozuki.ifixit.App;
 import com.dozuki.ifixit.R;
+import com.dozuki.ifixit.model.dozuki.Site;
+import com.dozuki.ifixit.model.guide.GuideInfo;
+import com.dozuki.ifixit.model.search.GuideSearchResult;
+import com.dozuki.ifixit.model.search.SearchResult;
 import com.dozuki.ifixit.model.search.SearchResults;
+import com.dozuki.ifixit.model.user.User;
 import com.dozuki.ifixit.ui.BaseSearchMenuDrawerActivity;
 import com.dozuki.ifixit.util.api.ApiCall;
+import com.dozuki.ifixit.util.api.ApiDatabase;
 import com.dozuki.ifixit.util.api.ApiEvent;
 import com.dozuki.ifixit.util.api.Api;
 import com.squareup.otto.Subscribe;
@@ -28,6 +35,9 @@ import com.squareup.otto.Subscribe;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
 
 public class SearchActivity extends BaseSearchMenuDrawerActivity {
    private static final int GUIDES_POSITION = 0;
@@ -35,6 +45,7 @@ public class SearchActivity extends BaseSearchMenuDrawerActivity {
    private static final String TOPIC_SEARCH_FRAGMENT = "TOPIC_SEARCH_FRAGMENT";
    private static final String GUIDE_SEARCH_FRAGMENT = "GUIDE_SEARCH_FRAGMENT";
    private static final String SEARCH_QUERY = "SEARCH_QUERY";
+   private static final int MAX_OFFLINE_RESULTS = 20;
 
    private String mQuery = "";
    private Spinner mSpinner;
@@ -43,6 +54,12 @@ public class SearchActivity extends BaseSearchMenuDrawerActivity {
    private TextView mResultCount;
    private boolean mFocusSearch = false;
 
+   /**
+    * Offline guides matching mQuery. These are listed before the results from the API
+    * and are all there is to show without a connection.
+    */
+   private ArrayList<GuideInfo> mOfflineResults;
+
    public static Intent viewSearch(Context context, String query) {
       Intent intent = new Intent(context, SearchActivity.class);
       intent.putExtra(SEARCH_QUERY, query);
@@ -111,22 +128,79 @@ public class SearchActivity extends BaseSearchMenuDrawerActivity {
       if (!event.hasError()) {
          SearchResults search = event.getResult();
 
-         mResultCount.setText(getString(R.string.result_count, search.mTotalResults));
+         mergeOfflineResults(search);
+         showSearchResults(search);
+      } else if (mOfflineResults != null && !mOfflineResults.isEmpty()) {
+         showSearchResults(getOfflineSearchResults());
+      } else {
+         Api.getErrorDialog(this, event).show();
+      }
+   }
+
+   private void showSearchResults(SearchResults search) {
+      mResultCount.setText(getString(R.string.result_count, search.mTotalResults));
 
-         FragmentManager fm = getSupportFragmentManager();
-         FragmentTransaction ft = fm.beginTransaction();
+      FragmentManager fm = getSupportFragmentManager();
+      FragmentTransaction ft = fm.beginTransaction();
 
-         Fragment frag = fm.findFragmentByTag(mCurrentTag);
+      Fragment frag = fm.findFragmentByTag(mCurrentTag);
 
-         if (frag == null) {
-            frag = SearchFragment.newInstance(search);
-            ft.replace(R.id.search_results_container, frag, mCurrentTag).commit();
-         } else {
-            ((SearchFragment) frag).setSearchResults(search);
-         }
+      if (frag == null) {
+         frag = SearchFragment.newInstance(search);
+         ft.replace(R.id.search_results_container, frag, mCurrentTag).commit();
       } else {
-         Api.getErrorDialog(this, event).show();
+         ((SearchFragment) frag).setSearchResults(search);
+      }
+   }
+
+   /**
+    * Lists the offline results at the start of the first page of API results and
+    * removes the guides that are already listed from every page.
+    */
+   private void mergeOfflineResults(SearchResults search) {
+      if (mOfflineResults == null || mOfflineResults.isEmpty()) {
+         return;
+      }
+
+      Set<Integer> offlineGuideids = new HashSet<Integer>();
+      for (GuideInfo guideInfo : mOfflineResults) {
+         offlineGuideids.add(guideInfo.mGuideid);
+      }
+
+      int duplicates = 0;
+      for (Iterator<SearchResult> itr = search.mResults.iterator(); itr.hasNext();) {
+         SearchResult result = itr.next();
+
+         if (result instanceof GuideSearchResult && offlineGuideids.contains(
+          ((GuideSearchResult) result).getGuideInfo().mGuideid)) {
+            itr.remove();
+            duplicates++;
+         }
+      }
+
+      if (search.mOffset == 0) {
+         ArrayList<SearchResult> results = new ArrayList<SearchResult>();
+         for (GuideInfo guideInfo : mOfflineResults) {
+            results.add(new GuideSearchResult(guideInfo));
+         }
+         results.addAll(search.mResults);
+
+         search.mResults = results;
+         search.mTotalResults += mOfflineResults.size() - duplicates;
+      }
+   }
+
+   private SearchResults getOfflineSearchResults() {
+      SearchResults search = new SearchResults();
+      search.mQuery = mQuery;
+      search.mTotalResults = mOfflineResults.size();
+      search.mHasMoreResults = false;
+
+      for (GuideInfo guideInfo : mOfflineResults) {
+         search.mResults.add(new GuideSearchResult(guideInfo));
       }
+
+      return search;
    }
 
    @Override
@@ -172,7 +246,47 @@ public class SearchActivity extends BaseSearchMenuDrawerActivity {
       }
 
       showLoading(R.id.search_results_container);
-      Api.call(this, ApiCall.search(query));
+
+      if (mSpinnerPosition == GUIDES_POSITION && App.get().isUserLoggedIn()) {
+         searchOfflineGuides(query);
+      } else {
+         mOfflineResults = null;
+         Api.call(this, ApiCall.search(query));
+      }
+   }
+
+   /**
+    * Searches the user's offline guides and then the API with apiQuery unless there is
+    * no connection and there are offline results to show instead.
+    */
+   private void searchOfflineGuides(final String apiQuery) {
+      final String query = mQuery;
+      final Site site = App.get().getSite();
+      final User user = App.get().getUser();
+
+      new AsyncTask<Void, Void, ArrayList<GuideInfo>>() {
+         @Override
+         protected ArrayList<GuideInfo> doInBackground(Void... params) {
+            return ApiDatabase.get(SearchActivity.this).searchOfflineGuides(site, user,
+             query, MAX_OFFLINE_RESULTS);
+         }
+
+         @Override
+         protected void onPostExecute(ArrayList<GuideInfo> results) {
+            if (isFinishing() || !query.equals(mQuery)) {
+               return;
+            }
+
+            mOfflineResults = results;
+
+            if (!App.get().isConnected() && !results.isEmpty()) {
+               hideLoading();
+               showSearchResults(getOfflineSearchResults());
+            } else {
+               Api.call(SearchActivity.this, ApiCall.search(apiQuery));
+            }
+         }
+      }.execute();
    }
 
    private void focusSearch() {
@@ -47,7 +47,7 @@ public class TopicActivity extends BaseSearchMenuDrawerActivity
       mHideTopicList = mTopicViewOverlay != null;
 
       if (savedInstanceState != null) {
-         mRootTopic = (TopicNode) savedInstanceState.getSerializable(ROOT_TOPIC);
+         mRootTopic = savedInstanceState.getParcelable(ROOT_TOPIC);
          mTopicListVisible = savedInstanceState.getBoolean(TOPIC_LIST_VISIBLE);
       } else {
          mTopicListVisible = true;
@@ -101,7 +101,8 @@ public class TopicActivity extends BaseSearchMenuDrawerActivity
    public void onCategories(ApiEvent.Categories event) {
       hideLoading();
       if (!event.hasError()) {
-         if (mRootTopic == null) {
+         // Refresh the list with a revalidated hierarchy if the user hasn't moved on.
+         if (mRootTopic == null || (!event.isStale() && mBackStackSize == 0)) {
             mRootTopic = event.getResult();
             onTopicSelected(mRootTopic);
          }
@@ -119,7 +120,7 @@ public class TopicActivity extends BaseSearchMenuDrawerActivity
    public void onSaveInstanceState(Bundle outState) {
       super.onSaveInstanceState(outState);
 
-      outState.putSerializable(ROOT_TOPIC, mRootTopic);
+      outState.putParcelable(ROOT_TOPIC, mRootTopic);
       outState.putBoolean(TOPIC_LIST_VISIBLE, mTopicListVisible);
    }
 
@@ -148,7 +149,7 @@ public class TopicActivity extends BaseSearchMenuDrawerActivity
             Intent intent = new Intent(this, TopicViewActivity.class);
             Bundle bundle = new Bundle();
 
-            bundle.putSerializable(TopicViewActivity.TOPIC_KEY, topic);
+            bundle.putParcelable(TopicViewActivity.TOPIC_KEY, topic);
             intent.putExtras(bundle);
             startActivity(intent);
          }
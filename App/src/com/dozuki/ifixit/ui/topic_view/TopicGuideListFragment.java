@@ -36,7 +36,7 @@ public class TopicGuideListFragment extends BaseFragment {
       super.onCreate(savedState);
 
       if (savedState != null && mTopicLeaf == null) {
-         mTopicLeaf = (TopicLeaf)savedState.getSerializable(SAVED_TOPIC);
+         mTopicLeaf = savedState.getParcelable(SAVED_TOPIC);
       }
    }
 
@@ -70,6 +70,6 @@ public class TopicGuideListFragment extends BaseFragment {
    public void onSaveInstanceState(Bundle state) {
       super.onSaveInstanceState(state);
 
-      state.putSerializable(SAVED_TOPIC, mTopicLeaf);
+      state.putParcelable(SAVED_TOPIC, mTopicLeaf);
    }
 }
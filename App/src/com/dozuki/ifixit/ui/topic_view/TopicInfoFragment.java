@@ -1,6 +1,7 @@
 package com.dozuki.ifixit.ui.topic_view;
 
 import android.graphics.drawable.Drawable;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.text.Html;
 import android.text.SpannableStringBuilder;
@@ -48,9 +49,9 @@ public class TopicInfoFragment extends BaseFragment {
       Bundle b = getArguments();
 
       if (savedInstanceState != null) {
-         mTopic = (TopicLeaf) savedInstanceState.getSerializable(TOPIC_KEY);
+         mTopic = savedInstanceState.getParcelable(TOPIC_KEY);
       } else if (b != null) {
-         mTopic = (TopicLeaf) b.getSerializable(TOPIC_KEY);
+         mTopic = b.getParcelable(TOPIC_KEY);
       }
    }
 
@@ -63,7 +64,7 @@ public class TopicInfoFragment extends BaseFragment {
       ((TextView) v.findViewById(R.id.topic_info_summary)).setText(mTopic.getDescription());
       mContent = ((TextView) v.findViewById(R.id.topic_info_content));
       mContent.setMovementMethod(LinkMovementMethod.getInstance());
-      mContent.setText(getStyledContent());
+      setStyledContent();
 
       String url = mTopic.getImage().getPath(ImageSizes.topicMain);
 
@@ -94,19 +95,41 @@ public class TopicInfoFragment extends BaseFragment {
    public void onSaveInstanceState(Bundle outState) {
       super.onSaveInstanceState(outState);
 
-      outState.putSerializable(TOPIC_KEY, mTopic);
+      outState.putParcelable(TOPIC_KEY, mTopic);
    }
 
-   private Spanned getStyledContent() {
-      String topicContent = mTopic.getContentRendered();
+   /**
+    * Wiki content can be long so it is rendered in the background.
+    */
+   private void setStyledContent() {
+      final TextView content = mContent;
+      final String topicContent = mTopic.getContentRendered();
+      final UrlImageGetter imageGetter = new UrlImageGetter(content, getActivity());
+
+      new AsyncTask<Void, Void, Spanned>() {
+         @Override
+         protected Spanned doInBackground(Void... params) {
+            return getStyledContent(topicContent, imageGetter);
+         }
+
+         @Override
+         protected void onPostExecute(Spanned styledContent) {
+            // The view may have been recreated in the meantime.
+            if (content == mContent) {
+               content.setText(styledContent);
+            }
+         }
+      }.execute();
+   }
 
+   private static Spanned getStyledContent(String topicContent, UrlImageGetter imageGetter) {
       // Remove anchor elements from html
       topicContent = topicContent.replaceAll("<a class=\\\"anchor\\\".+?<\\/a>", "");
       topicContent = topicContent.replaceAll("<span class=\\\"editLink headerLink\\\".+?<\\/span>", "");
 
       Spanned topicHtml = Html.fromHtml(topicContent,
        // Handle images in the wiki text
-       new UrlImageGetter(mContent, getActivity()),
+       imageGetter,
        // Handle list items, videos, and other html elements that Html.fromHtml does not handle and parse them into
        // styled android views
        new WikiHtmlTagHandler());
@@ -46,7 +46,7 @@ public class TopicListFragment extends BaseFragment
       super.onCreate(savedInstanceState);
 
       if (savedInstanceState != null) {
-         mTopic = (TopicNode)savedInstanceState.getSerializable(CURRENT_TOPIC);
+         mTopic = savedInstanceState.getParcelable(CURRENT_TOPIC);
       }
    }
 
@@ -125,7 +125,7 @@ public class TopicListFragment extends BaseFragment
    public void onSaveInstanceState(Bundle outState) {
       super.onSaveInstanceState(outState);
 
-      outState.putSerializable(CURRENT_TOPIC, mTopic);
+      outState.putParcelable(CURRENT_TOPIC, mTopic);
    }
 
    @Override
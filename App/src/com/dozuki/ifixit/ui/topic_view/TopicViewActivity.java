@@ -54,7 +54,7 @@ public class TopicViewActivity extends BaseSearchMenuDrawerActivity {
           .findFragmentById(R.id.topic_view_fragment);
       }
 
-      mTopicNode = (TopicNode)getIntent().getSerializableExtra(TOPIC_KEY);
+      mTopicNode = getIntent().getParcelableExtra(TOPIC_KEY);
 
       if (mTopicNode != null) {
          setTitle(mTopicNode.getDisplayName());
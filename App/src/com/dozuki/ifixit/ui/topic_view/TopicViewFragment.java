@@ -69,8 +69,8 @@ public class TopicViewFragment extends BaseFragment implements ViewPager.OnPageC
 
       if (savedInstanceState != null) {
          mSelectedTab = savedInstanceState.getInt(CURRENT_PAGE, 0); // Default to Guide page
-         mTopicNode = (TopicNode) savedInstanceState.getSerializable(CURRENT_TOPIC_NODE);
-         TopicLeaf topicLeaf = (TopicLeaf) savedInstanceState.getSerializable(CURRENT_TOPIC_LEAF);
+         mTopicNode = savedInstanceState.getParcelable(CURRENT_TOPIC_NODE);
+         TopicLeaf topicLeaf = savedInstanceState.getParcelable(CURRENT_TOPIC_LEAF);
 
          if (topicLeaf != null) {
             setTopicLeaf(topicLeaf);
@@ -90,13 +90,18 @@ public class TopicViewFragment extends BaseFragment implements ViewPager.OnPageC
       super.onSaveInstanceState(outState);
 
       outState.putInt(CURRENT_PAGE, mSelectedTab);
-      outState.putSerializable(CURRENT_TOPIC_LEAF, mTopicLeaf);
-      outState.putSerializable(CURRENT_TOPIC_NODE, mTopicNode);
+      outState.putParcelable(CURRENT_TOPIC_LEAF, mTopicLeaf);
+      outState.putParcelable(CURRENT_TOPIC_NODE, mTopicNode);
    }
 
    @Subscribe
    public void onTopic(ApiEvent.Topic event) {
       if (!event.hasError()) {
+         if (!event.isStale() && mTopicLeaf != null && mTopicLeaf.equals(event.getResult())) {
+            // A revalidated version of the topic being displayed. Force it to be redrawn.
+            mTopicLeaf = null;
+         }
+
          setTopicLeaf(event.getResult());
       } else {
          Api.getErrorDialog(getActivity(), event).show();
@@ -4,37 +4,87 @@ package com.dozuki.ifixit.util;
 /**
  * Helper class to compute the edit distance for two Strings.
  *
- * Taken from: http://professorjava.weebly.com/edit-distance.html
+ * Only two rows of the distance matrix are kept so a comparison allocates O(n) rather
+ * than O(m * n) ints.
+ *
+ * Based on: http://professorjava.weebly.com/edit-distance.html
  */
 public class EditDistance {
    public static int editDistance(String s, String t) {
+      return editDistance(s, t, Integer.MAX_VALUE - 1);
+   }
+
+   /**
+    * Returns the edit distance between s and t if it is at most max and max + 1
+    * otherwise. Only the band of the matrix within max of the diagonal is computed and
+    * the computation stops as soon as every entry of a row exceeds max.
+    */
+   public static int editDistance(String s, String t, int max) {
       int m = s.length();
       int n = t.length();
-      int[][] d = new int[m + 1][n + 1];
 
-      for (int i = 0; i <= m; i++) {
-         d[i][0] = i;
+      if (Math.abs(m - n) > max) {
+         // Every edit changes the length by at most one.
+         return max + 1;
+      }
+
+      if (m == 0 || n == 0) {
+         return Math.max(m, n);
       }
 
-      for (int j = 0; j <= n; j++) {
-         d[0][j] = j;
+      // Entries outside of the band are treated as max + 1 which is enough to never
+      // pick them.
+      final int outside = max + 1;
+      int[] previous = new int[m + 1];
+      int[] current = new int[m + 1];
+
+      for (int i = 0; i <= m; i++) {
+         previous[i] = i <= max ? i : outside;
       }
 
       for (int j = 1; j <= n; j++) {
-         for (int i = 1; i <= m; i++) {
-            if (s.charAt(i - 1) == t.charAt(j - 1)) {
-               d[i][j] = d[i - 1][j - 1];
+         int start = Math.max(1, j - max);
+         int end = Math.min(m, (int)Math.min((long)j + max, m));
+         int rowMin = outside;
+
+         current[0] = j <= max ? j : outside;
+         if (start > 1) {
+            current[start - 1] = outside;
+         }
+
+         char tChar = t.charAt(j - 1);
+
+         for (int i = start; i <= end; i++) {
+            int distance;
+
+            if (s.charAt(i - 1) == tChar) {
+               distance = previous[i - 1];
             } else {
-               d[i][j] = min(
-                  d[i - 1][j],
-                  d[i][j - 1],
-                  d[i - 1][j - 1]
+               distance = min(
+                  previous[i],
+                  current[i - 1],
+                  previous[i - 1]
                ) + 1;
             }
+
+            current[i] = Math.min(distance, outside);
+            rowMin = Math.min(rowMin, current[i]);
          }
+
+         if (end < m) {
+            current[end + 1] = outside;
+         }
+
+         if (rowMin > max && current[0] > max) {
+            return max + 1;
+         }
+
+         int[] swap = previous;
+         previous = current;
+         current = swap;
       }
 
-      return d[m][n];
+      return Math.min(previous[m], max + 1);
    }
 
    public static int min(int a, int b ,int c) {
@@ -0,0 +1,193 @@
+package com.dozuki.ifixit.util;
+
+import android.os.Process;
+import android.support.v4.util.LruCache;
+import android.text.Html;
+import android.text.Spanned;
+import android.text.SpannedString;
+import android.util.Log;
+
+import com.dozuki.ifixit.App;
+import com.dozuki.ifixit.model.guide.Guide;
+import com.dozuki.ifixit.model.guide.GuideStep;
+import com.dozuki.ifixit.model.guide.StepLine;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Converts rendered wiki HTML from guides into Spanned text and caches the result.
+ *
+ * Html.fromHtml() is slow enough on long lines that doing it every time a view is bound
+ * makes swiping through guides stutter. Results are cached by lineid and step revision,
+ * or guideid and revision for introductions, so they are only rendered again once the
+ * content has changed. Neighbouring steps can be rendered ahead of time on a background
+ * thread with prerenderSteps().
+ *
+ * Cached text is immutable so it can be shared between views and threads. TextViews
+ * copy it into their own buffers when they need to add spans.
+ */
+public class HtmlRenderer {
+   private static final String TAG = "HtmlRenderer";
+
+   /**
+    * Size of the cache in chars. Spans add some overhead on top of the text itself but
+    * it is roughly proportional to the length of the text.
+    */
+   private static final int MAX_CACHE_CHARS = 256 * 1024;
+
+   private static final LruCache<String, Spanned> sCache =
+    new LruCache<String, Spanned>(MAX_CACHE_CHARS) {
+      @Override
+      protected int sizeOf(String key, Spanned value) {
+         // Empty strings still take an entry.
+         return Math.max(value.length(), 1);
+      }
+   };
+
+   private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(
+    new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable runnable) {
+         return new Thread(new Runnable() {
+            @Override
+            public void run() {
+               Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+               runnable.run();
+            }
+         }, TAG);
+      }
+   });
+
+   /**
+    * Incremented for every call to prerenderSteps() so work queued for steps the user
+    * has already swiped past can be skipped.
+    */
+   private static final AtomicInteger sPrerenderGeneration = new AtomicInteger();
+
+   /**
+    * Returns the rendered text of the line, rendering it now if it isn't cached.
+    * Safe to call from any thread.
+    */
+   public static Spanned getStepLine(GuideStep step, StepLine line) {
+      return get(getLineKey(step, line), line.getTextRendered(), line.getTextSpans());
+   }
+
+   /**
+    * Returns the cached text of the guide's introduction or null if it hasn't been
+    * rendered yet.
+    */
+   public static Spanned getCachedIntroduction(Guide guide) {
+      String key = getIntroductionKey(guide);
+
+      return key == null ? null : sCache.get(key);
+   }
+
+   /**
+    * Returns the rendered text of the guide's introduction, rendering it now if it
+    * isn't cached. Safe to call from any thread.
+    */
+   public static Spanned getIntroduction(Guide guide) {
+      return get(getIntroductionKey(guide), guide.getIntroductionRendered(), null);
+   }
+
+   /**
+    * Renders the lines of the steps in order in the background so they are ready by the
+    * time the user swipes to them. Any steps still queued from previous calls are
+    * dropped.
+    */
+   public static void prerenderSteps(final List<GuideStep> steps) {
+      final int generation = sPrerenderGeneration.incrementAndGet();
+
+      sExecutor.execute(new Runnable() {
+         @Override
+         public void run() {
+            for (GuideStep step : steps) {
+               for (StepLine line : step.getLines()) {
+                  if (generation != sPrerenderGeneration.get()) {
+                     // The user has moved on.
+                     return;
+                  }
+
+                  getStepLine(step, line);
+               }
+            }
+         }
+      });
+   }
+
+   /**
+    * Returns the HTML as Spanned text before links are corrected. This doesn't depend on
+    * the current site so it can be stored with setTextSpans().
+    */
+   public static Spanned fromHtml(String html) {
+      return Html.fromHtml(html, null, new WikiHtmlTagHandler());
+   }
+
+   private static Spanned get(String key, String html, byte[] textSpans) {
+      Spanned text = key == null ? null : sCache.get(key);
+
+      if (text == null) {
+         text = render(html, textSpans);
+
+         if (key != null) {
+            sCache.put(key, text);
+         }
+      }
+
+      return text;
+   }
+
+   /**
+    * Renders the HTML unless textSpans has it already rendered.
+    */
+   private static Spanned render(String html, byte[] textSpans) {
+      long startTime = 0;
+
+      if (App.inDebug()) {
+         startTime = System.currentTimeMillis();
+      }
+
+      Spanned text = textSpans == null ? null : SpannedCodec.decode(textSpans);
+      boolean decoded = text != null;
+
+      if (!decoded) {
+         text = fromHtml(html);
+      }
+
+      text = new SpannedString(Utils.correctLinkPaths(text));
+
+      if (App.inDebug()) {
+         Log.d(TAG, (decoded ? "Decoded " : "Rendered ") + html.length() + " chars in " +
+          (System.currentTimeMillis() - startTime) + "ms");
+      }
+
+      return text;
+   }
+
+   /**
+    * Returns the cache key for the line or null if it can't be cached because the line
+    * or step hasn't been saved.
+    */
+   private static String getLineKey(GuideStep step, StepLine line) {
+      if (line.getLineId() == null || step.getRevisionid() == null) {
+         return null;
+      }
+
+      // Links are made absolute using the site's domain.
+      return App.get().getSite().mName + "/line/" + line.getLineId() + "/" +
+       step.getRevisionid();
+   }
+
+   private static String getIntroductionKey(Guide guide) {
+      if (guide.getRevisionid() == null) {
+         return null;
+      }
+
+      return App.get().getSite().mName + "/intro/" + guide.getGuideid() + "/" +
+       guide.getRevisionid();
+   }
+}
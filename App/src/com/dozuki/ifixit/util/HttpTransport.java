@@ -0,0 +1,447 @@
+package com.dozuki.ifixit.util;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.dozuki.ifixit.App;
+import com.dozuki.ifixit.BuildConfig;
+import com.dozuki.ifixit.util.api.ApiExecutor;
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.OkHttpClient;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * Owns the OkHttp clients used for every HTTP request: API calls made through
+ * HttpRequest, offline media downloads, inline images and Picasso.
+ *
+ * OkHttp only reuses a pooled connection for a request to the same host with the same
+ * SSLSocketFactory, so clients that each set up their own SSLContext never shared
+ * connections or TLS sessions. Every client here shares one SSLContext and one
+ * ConnectionPool, which keeps idle connections per host, so a connection opened by any
+ * of them can be reused by the next request to that host.
+ *
+ * prewarm() connects to a host ahead of time so the first request after picking a site
+ * doesn't wait on DNS and a TLS handshake. Requests and TLS handshakes are counted per
+ * host and can be read with getStats().
+ */
+public class HttpTransport {
+   private static final String TAG = "HttpTransport";
+
+   private static final int MAX_IDLE_CONNECTIONS = 8;
+   private static final long KEEP_ALIVE_DURATION_MS = 5 * 60 * 1000;
+
+   private static HttpTransport sTransport;
+
+   private final SSLSocketFactory mSslSocketFactory;
+   private final HostnameVerifier mHostnameVerifier;
+   private final ConnectionPool mConnectionPool;
+   private final OkHttpClient mClient;
+
+   private final Map<String, HostStats> mStats = new HashMap<String, HostStats>();
+
+   /**
+    * Host of the last prewarm() so sites that are set again don't connect again.
+    */
+   private String mPrewarmedHost;
+
+   public static synchronized HttpTransport get() {
+      if (sTransport == null) {
+         sTransport = new HttpTransport();
+      }
+
+      return sTransport;
+   }
+
+   private HttpTransport() {
+      HostnameVerifier hostnameVerifier = null;
+
+      try {
+         // Working around the libssl crash: https://github.com/square/okhttp/issues/184
+         SSLContext sslContext = SSLContext.getInstance("TLS");
+
+         if (BuildConfig.DEBUG || Build.VERSION.SDK_INT <= Build.VERSION_CODES.FROYO) {
+            // Trust all certificates and hosts in debug mode.
+            sslContext.init(null, new TrustManager[] {
+             new X509TrustManager() {
+                @Override
+                public void checkClientTrusted(X509Certificate[] chain, String authType)
+                 throws CertificateException {
+                   // Do nothing.
+                }
+
+                @Override
+                public void checkServerTrusted(X509Certificate[] chain, String authType)
+                 throws CertificateException {
+                   // Do nothing.
+                }
+
+                @Override
+                public X509Certificate[] getAcceptedIssuers() {
+                   return null;
+                }
+             }
+            }, new SecureRandom());
+
+            hostnameVerifier = new HostnameVerifier() {
+               @Override
+               public boolean verify(String hostname, SSLSession session) {
+                  // Trust all hosts.
+                  return true;
+               }
+            };
+         } else {
+            sslContext.init(null, null, null);
+         }
+
+         mSslSocketFactory = new TimedSSLSocketFactory(sslContext.getSocketFactory());
+      } catch (GeneralSecurityException e) {
+         throw new AssertionError(); // The system has no TLS. Just give up.
+      }
+
+      mHostnameVerifier = hostnameVerifier;
+      // ConnectionPool takes the keep alive in ms and converts it to ns itself.
+      mConnectionPool = new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION_MS);
+      mClient = newClient();
+   }
+
+   /**
+    * Returns the client shared by everything that doesn't need its own configuration.
+    * Don't change its settings; use newClient() instead.
+    */
+   public OkHttpClient getClient() {
+      return mClient;
+   }
+
+   /**
+    * Returns a new client that shares connections with every other client. Use this for
+    * clients that need their own settings such as a response cache.
+    */
+   public OkHttpClient newClient() {
+      OkHttpClient client = new OkHttpClient();
+
+      client.setSslSocketFactory(mSslSocketFactory);
+      client.setConnectionPool(mConnectionPool);
+
+      if (mHostnameVerifier != null) {
+         client.setHostnameVerifier(mHostnameVerifier);
+      }
+
+      return client;
+   }
+
+   /**
+    * Opens a connection to the URL with the shared client.
+    */
+   public HttpURLConnection open(URL url) throws IOException {
+      return open(mClient, url);
+   }
+
+   /**
+    * Opens a connection to the URL with the client and counts the request.
+    */
+   public HttpURLConnection open(OkHttpClient client, URL url) throws IOException {
+      recordRequest(url.getHost());
+
+      return client.open(url);
+   }
+
+   /**
+    * Counts a request to the host made without going through open().
+    */
+   public void recordRequest(String host) {
+      synchronized (mStats) {
+         getHostStats(host).mRequests++;
+      }
+   }
+
+   /**
+    * Resolves the host and opens a connection to it in the background so it is waiting
+    * in the pool for the next request. Does nothing if the host was the last one
+    * prewarmed.
+    */
+   public void prewarm(final String host) {
+      synchronized (this) {
+         if (host == null || host.equals(mPrewarmedHost)) {
+            return;
+         }
+
+         mPrewarmedHost = host;
+      }
+
+      try {
+         ApiExecutor.submit(ApiExecutor.Lane.PREFETCH, new Callable<Void>() {
+            @Override
+            public Void call() {
+               if (!App.get().isConnected()) {
+                  return null;
+               }
+
+               long startTime = SystemClock.elapsedRealtime();
+               HttpURLConnection connection = null;
+
+               try {
+                  InetAddress.getAllByName(host);
+                  long resolvedTime = SystemClock.elapsedRealtime();
+
+                  connection = open(new URL("https://" + host + "/"));
+                  connection.setRequestMethod("HEAD");
+                  connection.setInstanceFollowRedirects(false);
+                  connection.getResponseCode();
+
+                  if (App.inDebug()) {
+                     long endTime = SystemClock.elapsedRealtime();
+                     Log.i(TAG, "Prewarmed " + host + ": DNS " + (resolvedTime - startTime) +
+                      "ms, connect " + (endTime - resolvedTime) + "ms");
+                  }
+               } catch (IOException e) {
+                  // The next request will connect on its own and report the error.
+                  Log.w(TAG, "Failed to prewarm " + host, e);
+
+                  synchronized (HttpTransport.this) {
+                     if (host.equals(mPrewarmedHost)) {
+                        mPrewarmedHost = null;
+                     }
+                  }
+               } finally {
+                  closeQuietly(connection);
+               }
+
+               return null;
+            }
+         });
+      } catch (RejectedExecutionException e) {
+         synchronized (this) {
+            mPrewarmedHost = null;
+         }
+      }
+   }
+
+   /**
+    * Returns a copy of the request and handshake counts for each host.
+    */
+   public Map<String, HostStats> getStats() {
+      Map<String, HostStats> stats = new HashMap<String, HostStats>();
+
+      synchronized (mStats) {
+         for (Map.Entry<String, HostStats> entry : mStats.entrySet()) {
+            stats.put(entry.getKey(), new HostStats(entry.getValue()));
+         }
+      }
+
+      return stats;
+   }
+
+   /**
+    * Returns the number of open connections in the pool, idle or in use.
+    */
+   public int getPooledConnectionCount() {
+      return mConnectionPool.getConnectionCount();
+   }
+
+   private HostStats getHostStats(String host) {
+      HostStats stats = mStats.get(host);
+
+      if (stats == null) {
+         stats = new HostStats();
+         mStats.put(host, stats);
+      }
+
+      return stats;
+   }
+
+   private void recordHandshake(String host, long handshakeMs, boolean resumed) {
+      HostStats stats;
+
+      synchronized (mStats) {
+         stats = getHostStats(host);
+         stats.mHandshakes++;
+         stats.mTotalHandshakeMs += handshakeMs;
+
+         if (resumed) {
+            stats.mResumedHandshakes++;
+         }
+
+         stats = new HostStats(stats);
+      }
+
+      if (App.inDebug()) {
+         Log.d(TAG, (resumed ? "Resumed" : "New") + " TLS session with " + host + " in " +
+          handshakeMs + "ms: " + stats);
+      }
+   }
+
+   /**
+    * Reads the response and closes it so the connection goes back to the pool.
+    */
+   private static void closeQuietly(HttpURLConnection connection) {
+      if (connection == null) {
+         return;
+      }
+
+      try {
+         connection.getInputStream().close();
+      } catch (IOException e) {
+         // The connection can't be reused anyway.
+      }
+   }
+
+   /**
+    * Requests and TLS handshakes made to a host. Every TLS handshake is a new
+    * connection so requests without one reused a pooled connection.
+    */
+   public static class HostStats {
+      private int mRequests;
+      private int mHandshakes;
+      private int mResumedHandshakes;
+      private long mTotalHandshakeMs;
+
+      private HostStats() {}
+
+      private HostStats(HostStats stats) {
+         mRequests = stats.mRequests;
+         mHandshakes = stats.mHandshakes;
+         mResumedHandshakes = stats.mResumedHandshakes;
+         mTotalHandshakeMs = stats.mTotalHandshakeMs;
+      }
+
+      public int getRequestCount() {
+         return mRequests;
+      }
+
+      public int getHandshakeCount() {
+         return mHandshakes;
+      }
+
+      /**
+       * Returns the number of handshakes that resumed a previous TLS session rather
+       * than negotiating a new one.
+       */
+      public int getResumedHandshakeCount() {
+         return mResumedHandshakes;
+      }
+
+      public long getAverageHandshakeMs() {
+         return mHandshakes == 0 ? 0 : mTotalHandshakeMs / mHandshakes;
+      }
+
+      /**
+       * Returns the fraction of requests that used a pooled connection.
+       */
+      public float getReuseRate() {
+         if (mRequests == 0) {
+            return 0;
+         }
+
+         return Math.max(0, 1 - (float)mHandshakes / mRequests);
+      }
+
+      @Override
+      public String toString() {
+         return "{requests: " + mRequests + ", handshakes: " + mHandshakes +
+          ", resumed: " + mResumedHandshakes + ", avg handshake: " +
+          getAverageHandshakeMs() + "ms, reuse: " + Math.round(getReuseRate() * 100) + "%}";
+      }
+   }
+
+   /**
+    * Times the handshake of every TLS socket it creates. OkHttp creates the socket and
+    * starts the handshake right away so the time from one to the end of the other is
+    * the handshake.
+    */
+   private class TimedSSLSocketFactory extends SSLSocketFactory {
+      private final SSLSocketFactory mDelegate;
+
+      private TimedSSLSocketFactory(SSLSocketFactory delegate) {
+         mDelegate = delegate;
+      }
+
+      @Override
+      public String[] getDefaultCipherSuites() {
+         return mDelegate.getDefaultCipherSuites();
+      }
+
+      @Override
+      public String[] getSupportedCipherSuites() {
+         return mDelegate.getSupportedCipherSuites();
+      }
+
+      @Override
+      public Socket createSocket() throws IOException {
+         return mDelegate.createSocket();
+      }
+
+      @Override
+      public Socket createSocket(Socket socket, String host, int port, boolean autoClose)
+       throws IOException {
+         return timed(mDelegate.createSocket(socket, host, port, autoClose), host);
+      }
+
+      @Override
+      public Socket createSocket(String host, int port) throws IOException {
+         return timed(mDelegate.createSocket(host, port), host);
+      }
+
+      @Override
+      public Socket createSocket(String host, int port, InetAddress localHost,
+       int localPort) throws IOException {
+         return timed(mDelegate.createSocket(host, port, localHost, localPort), host);
+      }
+
+      @Override
+      public Socket createSocket(InetAddress host, int port) throws IOException {
+         return timed(mDelegate.createSocket(host, port), host.getHostAddress());
+      }
+
+      @Override
+      public Socket createSocket(InetAddress address, int port, InetAddress localAddress,
+       int localPort) throws IOException {
+         return timed(mDelegate.createSocket(address, port, localAddress, localPort),
+          address.getHostAddress());
+      }
+
+      private Socket timed(Socket socket, final String host) {
+         if (!(socket instanceof SSLSocket)) {
+            return socket;
+         }
+
+         final long startTime = SystemClock.elapsedRealtime();
+         final long createdAt = System.currentTimeMillis();
+
+         ((SSLSocket)socket).addHandshakeCompletedListener(new HandshakeCompletedListener() {
+            @Override
+            public void handshakeCompleted(HandshakeCompletedEvent event) {
+               // Resumed sessions were created by an earlier connection.
+               boolean resumed = event.getSession().getCreationTime() < createdAt;
+
+               recordHandshake(host, SystemClock.elapsedRealtime() - startTime, resumed);
+            }
+         });
+
+         return socket;
+      }
+   }
+}
@@ -7,7 +7,6 @@ import com.dozuki.ifixit.model.Badges;
 import com.dozuki.ifixit.model.Comment;
 import com.dozuki.ifixit.model.Embed;
 import com.dozuki.ifixit.model.Image;
-import com.dozuki.ifixit.model.Item;
 import com.dozuki.ifixit.model.Video;
 import com.dozuki.ifixit.model.VideoEncoding;
 import com.dozuki.ifixit.model.VideoThumbnail;
@@ -19,23 +18,18 @@ import com.dozuki.ifixit.model.guide.GuideInfo;
 import com.dozuki.ifixit.model.guide.GuideStep;
 import com.dozuki.ifixit.model.guide.GuideType;
 import com.dozuki.ifixit.model.guide.StepLine;
-import com.dozuki.ifixit.model.search.GuideSearchResult;
 import com.dozuki.ifixit.model.search.SearchResults;
-import com.dozuki.ifixit.model.search.TopicSearchResult;
 import com.dozuki.ifixit.model.topic.TopicLeaf;
 import com.dozuki.ifixit.model.topic.TopicNode;
 import com.dozuki.ifixit.model.user.User;
 import com.dozuki.ifixit.model.user.UserImage;
 import com.dozuki.ifixit.util.api.ApiError;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.lang.reflect.Type;
+import java.io.Reader;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Iterator;
 
 public class JSONHelper {
@@ -43,45 +37,11 @@ public class JSONHelper {
    private static final String INVALID_LOGIN_STRING = "Invalid login";
 
    public static SearchResults parseSearchResults(String json) throws JSONException {
+      return JSONStreamParser.parseSearchResults(json);
+   }
 
-      SearchResults search = new SearchResults();
-      JSONObject response = new JSONObject(json);
-
-      search.mLimit = response.getInt("limit");
-      search.mOffset = response.getInt("offset");
-      search.mTotalResults = response.getInt("totalResults");
-      search.mHasMoreResults = response.getBoolean("moreResults");
-      search.mQuery = response.getString("search");
-
-      if (response.has("results")) {
-         JSONArray resultsArr = response.getJSONArray("results");
-         int count = resultsArr.length();
-
-         for (int i = 0; i < count; i++) {
-            JSONObject result = resultsArr.getJSONObject(i);
-            String resultType = result.getString("dataType");
-            if (resultType.equals("guide")) {
-               Type guidesType = new TypeToken<GuideInfo>() {}.getType();
-               GuideInfo gi = new Gson().fromJson(result.toString(), guidesType);
-
-               GuideSearchResult gsr = new GuideSearchResult(gi);
-               search.mResults.add(gsr);
-            } else if (resultType.equals("wiki")) {
-               TopicSearchResult tsr = new TopicSearchResult();
-               tsr.mDisplayTitle = result.getString("display_title");
-               tsr.mTitle = result.getString("title");
-               tsr.mText = result.getString("text");
-               tsr.mNamespace = result.getString("namespace");
-               tsr.mSummary = result.getString("summary");
-               tsr.mUrl = result.getString("url");
-               tsr.mImage = parseImage(result, "image");
-
-               search.mResults.add(tsr);
-            }
-         }
-      }
-
-      return search;
+   public static SearchResults parseSearchResults(Reader json) throws JSONException {
+      return JSONStreamParser.parseSearchResults(json);
    }
 
    public static ArrayList<Site> parseSites(String json) throws JSONException {
@@ -180,82 +140,23 @@ public class JSONHelper {
    }
 
    /**
-    * Guide parsing
+    * Guide parsing. Guides can be very large so they are parsed straight into the model
+    * without building a JSONObject tree first.
     */
    public static Guide parseGuide(String json) throws JSONException {
-      JSONObject jGuide = new JSONObject(json);
-      JSONArray jSteps = jGuide.getJSONArray("steps");
-      JSONArray jTools = jGuide.getJSONArray("tools");
-      JSONArray jParts = jGuide.getJSONArray("parts");
-      JSONObject jAuthor = jGuide.getJSONObject("author");
-      Guide guide = new Guide(jGuide.getInt("guideid"));
-
-      guide.setTitle(jGuide.getString("title"));
-      guide.setTopic(jGuide.getString("category"));
-      guide.setSubject(jGuide.getString("subject"));
-      guide.setAuthor(jAuthor.getString("username"));
-      guide.setTimeRequired(jGuide.getString("time_required"));
-      guide.setDifficulty(jGuide.getString("difficulty"));
-      guide.setIntroductionRaw(jGuide.getString("introduction_raw"));
-      guide.setIntroductionRendered(jGuide.getString("introduction_rendered"));
-      guide.setIntroImage(parseImage(jGuide, "image"));
-      guide.setSummary(jGuide.isNull("summary") ? "" : jGuide.getString("summary"));
-      guide.setRevisionid(jGuide.getInt("revisionid"));
-      guide.setPublic(jGuide.getBoolean("public"));
-      guide.setType(jGuide.getString("type"));
-      guide.setPatrolThreshold(jGuide.getInt("patrol_threshold"));
-      guide.setConclusion(jGuide.getString("conclusion_rendered"));
-      guide.setCompleted(jGuide.getBoolean("completed"));
-      guide.setComments(parseComments(jGuide.getJSONArray("comments")));
-      guide.setFavorited(jGuide.getBoolean("favorited"));
-      guide.setModifiedDate(jGuide.getDouble("modified_date"));
-      guide.setPrereqModifiedDate(jGuide.getDouble("prereq_modified_date"));
-
-      if (jGuide.has("can_edit")) {
-         guide.setCanEdit(jGuide.getBoolean("can_edit"));
-      }
-
-      for (int i = 0; i < jSteps.length(); i++) {
-         guide.addStep(parseStep(jSteps.getJSONObject(i), i + 1));
-      }
-
-      for (int i = 0; i < jTools.length(); i++) {
-         guide.addTool(parseTool(jTools.getJSONObject(i)));
-      }
-
-      for (int i = 0; i < jParts.length(); i++) {
-         guide.addPart(parsePart(jParts.getJSONObject(i)));
-      }
-
-      return guide;
+      return JSONStreamParser.parseGuide(json);
    }
 
-   private static ArrayList<Comment> parseComments(JSONArray comments) throws JSONException {
-      ArrayList<Comment> result = new ArrayList<Comment>();
-      for (int i = 0; i < comments.length(); i++) {
-         result.add(new Comment(comments.getJSONObject(i)));
-      }
-      return result;
+   public static Guide parseGuide(Reader json) throws JSONException {
+      return JSONStreamParser.parseGuide(json);
    }
 
-   private static Item parsePart(JSONObject jPart) throws JSONException {
-      return new Item(
-       Item.ItemType.PART,
-       jPart.getString("text"),
-       jPart.getString("quantity"),
-       jPart.getString("url"),
-       jPart.getString("thumbnail"),
-       jPart.getString("notes"));
+   public static Comment parseComment(String json) throws JSONException {
+      return JSONStreamParser.parseComment(json);
    }
 
-   private static Item parseTool(JSONObject jTool) throws JSONException {
-      return new Item(
-       Item.ItemType.TOOL,
-       jTool.getString("text"),
-       jTool.getString("quantity"),
-       jTool.getString("url"),
-       jTool.getString("thumbnail"),
-       jTool.getString("notes"));
+   private static ArrayList<Comment> parseComments(JSONArray comments) throws JSONException {
+      return JSONStreamParser.parseComments(comments.toString());
    }
 
    public static GuideStep parseStep(JSONObject jStep, int stepNumber) throws JSONException {
@@ -391,28 +292,11 @@ public class JSONHelper {
     * Topic leaf parsing
     */
    public static TopicLeaf parseTopicLeaf(String json) throws JSONException {
-      JSONObject jTopic = new JSONObject(json);
-      JSONArray jGuides = jTopic.getJSONArray("guides");
-      JSONObject jSolutions = jTopic.getJSONObject("solutions");
-      JSONObject jInfo = jTopic.getJSONObject("topic_info");
-      TopicLeaf topicLeaf = new TopicLeaf(jInfo.getString("name"));
-
-      for (int i = 0; i < jGuides.length(); i++) {
-         String guideJson = jGuides.getJSONObject(i).toString();
-         GuideInfo guide = new Gson().fromJson(guideJson, GuideInfo.class);
-         topicLeaf.addGuide(guide);
-      }
-
-      topicLeaf.setNumSolutions(Integer.parseInt(jSolutions.getString("count")));
-      topicLeaf.setSolutionsUrl(jSolutions.getString("url"));
-      topicLeaf.setDescription(jTopic.getString("description"));
-      topicLeaf.setImage(parseImage(jTopic.getJSONObject("image"), null));
-      topicLeaf.setLocale(jTopic.getString("locale"));
-      topicLeaf.setContentsRaw(jTopic.getString("contents_raw"));
-      topicLeaf.setContentsRendered(jTopic.getString("contents_rendered"));
-      topicLeaf.setTitle(jTopic.getString("display_title"));
+      return JSONStreamParser.parseTopicLeaf(json);
+   }
 
-      return topicLeaf;
+   public static TopicLeaf parseTopicLeaf(Reader json) throws JSONException {
+      return JSONStreamParser.parseTopicLeaf(json);
    }
 
    /**
@@ -528,19 +412,6 @@ public class JSONHelper {
       return user;
    }
 
-   public static User parseUserLight(JSONObject jUser) throws JSONException {
-      User user = new User();
-      user.setUserid(jUser.getInt("userid"));
-      user.setUsername(jUser.getString("username"));
-      user.setAvatar(parseImage(jUser, "image"));
-
-      if (!jUser.isNull("join_date"))
-         user.setJoinDate(jUser.getInt("join_date"));
-
-      user.setReputation(jUser.getInt("reputation"));
-      return user;
-   }
-
    public static Badges parseBadges(JSONObject json) throws JSONException {
 
       int gold = json.getInt("gold");
@@ -613,34 +484,27 @@ public class JSONHelper {
    }
 
    public static ArrayList<GuideInfo> parseUserFavorites(String json) {
-      ArrayList<GuideInfo> result = new ArrayList<GuideInfo>();
-
-      try {
-         JSONArray jFavorites = new JSONArray(json);
-
-         int length = jFavorites.length();
-         for (int i = 0; i < length; i++) {
-            JSONObject jGuide = jFavorites.getJSONObject(i).getJSONObject("guide");
+      return JSONStreamParser.parseUserFavorites(json);
+   }
 
-            GuideInfo guide = new Gson().fromJson(jGuide.toString(), GuideInfo.class);
-            result.add(guide);
-         }
-      } catch (JSONException e) {
-         e.printStackTrace();
-      }
+   public static ArrayList<GuideInfo> parseUserFavorites(Reader json) {
+      return JSONStreamParser.parseUserFavorites(json);
+   }
 
-      return result;
+   public static ArrayList<GuideInfo> parseUserGuides(String json) throws JSONException {
+      return parseGuides(json);
    }
 
-   public static ArrayList<GuideInfo> parseUserGuides(String json) {
+   public static ArrayList<GuideInfo> parseUserGuides(Reader json) throws JSONException {
       return parseGuides(json);
    }
 
-   public static ArrayList<GuideInfo> parseGuides(String json) {
-      Type guidesType = new TypeToken<Collection<GuideInfo>>() {}.getType();
-      Collection<GuideInfo> guideList = new Gson().fromJson(json, guidesType);
+   public static ArrayList<GuideInfo> parseGuides(String json) throws JSONException {
+      return JSONStreamParser.parseGuideInfoList(json);
+   }
 
-      return new ArrayList<GuideInfo>(guideList);
+   public static ArrayList<GuideInfo> parseGuides(Reader json) throws JSONException {
+      return JSONStreamParser.parseGuideInfoList(json);
    }
 
    public static JSONArray createLineArray(ArrayList<StepLine> lines) throws JSONException {
@@ -0,0 +1,1160 @@
+package com.dozuki.ifixit.util;
+
+import android.util.Log;
+
+import com.dozuki.ifixit.model.Badges;
+import com.dozuki.ifixit.model.Comment;
+import com.dozuki.ifixit.model.Embed;
+import com.dozuki.ifixit.model.Image;
+import com.dozuki.ifixit.model.Item;
+import com.dozuki.ifixit.model.Video;
+import com.dozuki.ifixit.model.VideoEncoding;
+import com.dozuki.ifixit.model.VideoThumbnail;
+import com.dozuki.ifixit.model.guide.Guide;
+import com.dozuki.ifixit.model.guide.GuideInfo;
+import com.dozuki.ifixit.model.guide.GuideStep;
+import com.dozuki.ifixit.model.guide.StepLine;
+import com.dozuki.ifixit.model.search.GuideSearchResult;
+import com.dozuki.ifixit.model.search.SearchResult;
+import com.dozuki.ifixit.model.search.SearchResults;
+import com.dozuki.ifixit.model.search.TopicSearchResult;
+import com.dozuki.ifixit.model.topic.TopicLeaf;
+import com.dozuki.ifixit.model.user.User;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Date;
+
+/**
+ * Streaming parsers that build model objects directly from the JSON tokens rather than
+ * going through an intermediate JSONObject tree. Guides are by far the largest responses
+ * we parse so holding both the tree and the model in memory at once is expensive.
+ *
+ * Small leaf objects whose fields must be interpreted together (step media, search
+ * results) are read into a Gson tree which only ever holds that one object.
+ *
+ * The models that are parsed in bulk (GuideInfo, Image, TopicSearchResult and User)
+ * have hand written TypeAdapters which are also registered with the shared Gson
+ * instance returned by getGson().
+ */
+public class JSONStreamParser {
+   private static final String TAG = "JSONStreamParser";
+   private static final int NO_PARENT_ID = -1;
+
+   private static final TypeAdapter<Image> IMAGE_ADAPTER = new ImageAdapter();
+   private static final TypeAdapter<User> USER_ADAPTER = new UserAdapter();
+   private static final TypeAdapter<GuideInfo> GUIDE_INFO_ADAPTER = new GuideInfoAdapter();
+   private static final TypeAdapter<TopicSearchResult> TOPIC_SEARCH_RESULT_ADAPTER =
+    new TopicSearchResultAdapter();
+
+   private static final Gson GSON = new GsonBuilder()
+    .registerTypeAdapter(Image.class, IMAGE_ADAPTER)
+    .registerTypeAdapter(User.class, USER_ADAPTER)
+    .registerTypeAdapter(GuideInfo.class, GUIDE_INFO_ADAPTER)
+    .registerTypeAdapter(TopicSearchResult.class, TOPIC_SEARCH_RESULT_ADAPTER)
+    .create();
+
+   private static final JsonParser JSON_PARSER = new JsonParser();
+
+   /**
+    * Returns the shared Gson instance. It is configured with streaming adapters for the
+    * models we parse in bulk so it should be used rather than creating a new one.
+    */
+   public static Gson getGson() {
+      return GSON;
+   }
+
+   public static Guide parseGuide(String json) throws JSONException {
+      return parseGuide(new StringReader(json));
+   }
+
+   public static Guide parseGuide(Reader in) throws JSONException {
+      JsonReader reader = new JsonReader(in);
+
+      try {
+         return readGuide(reader);
+      } catch (IOException e) {
+         throw toJSONException(e);
+      } catch (IllegalStateException e) {
+         // Thrown when a token is of an unexpected type.
+         throw toJSONException(e);
+      } catch (NumberFormatException e) {
+         throw toJSONException(e);
+      } catch (JsonParseException e) {
+         throw toJSONException(e);
+      }
+   }
+
+   /**
+    * Parses a single comment along with its replies.
+    */
+   public static Comment parseComment(String json) throws JSONException {
+      JsonReader reader = new JsonReader(new StringReader(json));
+
+      try {
+         return readComment(reader);
+      } catch (IOException e) {
+         throw toJSONException(e);
+      } catch (IllegalStateException e) {
+         throw toJSONException(e);
+      } catch (NumberFormatException e) {
+         throw toJSONException(e);
+      } catch (JsonParseException e) {
+         throw toJSONException(e);
+      }
+   }
+
+   /**
+    * Parses a JSON array of comments along with their replies.
+    */
+   public static ArrayList<Comment> parseComments(String json) throws JSONException {
+      JsonReader reader = new JsonReader(new StringReader(json));
+
+      try {
+         return readComments(reader);
+      } catch (IOException e) {
+         throw toJSONException(e);
+      } catch (IllegalStateException e) {
+         throw toJSONException(e);
+      } catch (NumberFormatException e) {
+         throw toJSONException(e);
+      } catch (JsonParseException e) {
+         throw toJSONException(e);
+      }
+   }
+
+   /**
+    * Parses a JSON array of guides.
+    */
+   public static ArrayList<GuideInfo> parseGuideInfoList(String json) throws JSONException {
+      return parseGuideInfoList(new StringReader(json));
+   }
+
+   public static ArrayList<GuideInfo> parseGuideInfoList(Reader in) throws JSONException {
+      JsonReader reader = new JsonReader(in);
+      ArrayList<GuideInfo> guides = new ArrayList<GuideInfo>();
+
+      try {
+         reader.beginArray();
+         while (reader.hasNext()) {
+            guides.add(GUIDE_INFO_ADAPTER.read(reader));
+         }
+         reader.endArray();
+
+         return guides;
+      } catch (IOException e) {
+         throw toJSONException(e);
+      } catch (IllegalStateException e) {
+         throw toJSONException(e);
+      } catch (NumberFormatException e) {
+         throw toJSONException(e);
+      }
+   }
+
+   /**
+    * Parses the user's favorites. Each favorite wraps the guide along with some info
+    * about when it was favorited. Guides parsed before an error are still returned.
+    */
+   public static ArrayList<GuideInfo> parseUserFavorites(String json) {
+      return parseUserFavorites(new StringReader(json));
+   }
+
+   public static ArrayList<GuideInfo> parseUserFavorites(Reader in) {
+      JsonReader reader = new JsonReader(in);
+      ArrayList<GuideInfo> guides = new ArrayList<GuideInfo>();
+
+      try {
+         reader.beginArray();
+         while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+               if (reader.nextName().equals("guide")) {
+                  guides.add(GUIDE_INFO_ADAPTER.read(reader));
+               } else {
+                  reader.skipValue();
+               }
+            }
+            reader.endObject();
+         }
+         reader.endArray();
+      } catch (IOException e) {
+         Log.e(TAG, "Failed to parse favorites", e);
+      } catch (IllegalStateException e) {
+         Log.e(TAG, "Failed to parse favorites", e);
+      } catch (NumberFormatException e) {
+         Log.e(TAG, "Failed to parse favorites", e);
+      }
+
+      return guides;
+   }
+
+   public static SearchResults parseSearchResults(String json) throws JSONException {
+      return parseSearchResults(new StringReader(json));
+   }
+
+   public static SearchResults parseSearchResults(Reader in) throws JSONException {
+      JsonReader reader = new JsonReader(in);
+      SearchResults search = new SearchResults();
+
+      try {
+         reader.beginObject();
+         while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals("limit")) {
+               search.mLimit = reader.nextInt();
+            } else if (name.equals("offset")) {
+               search.mOffset = reader.nextInt();
+            } else if (name.equals("totalResults")) {
+               search.mTotalResults = reader.nextInt();
+            } else if (name.equals("moreResults")) {
+               search.mHasMoreResults = nextBoolean(reader);
+            } else if (name.equals("search")) {
+               search.mQuery = nextString(reader);
+            } else if (name.equals("results")) {
+               reader.beginArray();
+               while (reader.hasNext()) {
+                  SearchResult result = readSearchResult(reader);
+                  if (result != null) {
+                     search.mResults.add(result);
+                  }
+               }
+               reader.endArray();
+            } else {
+               reader.skipValue();
+            }
+         }
+         reader.endObject();
+
+         return search;
+      } catch (IOException e) {
+         throw toJSONException(e);
+      } catch (IllegalStateException e) {
+         throw toJSONException(e);
+      } catch (NumberFormatException e) {
+         throw toJSONException(e);
+      } catch (JsonParseException e) {
+         throw toJSONException(e);
+      }
+   }
+
+   /**
+    * Reads a single search result. The dataType field determines how the rest of the
+    * result is interpreted and it isn't necessarily first so each result is read into a
+    * tree before being handed to the right adapter. Returns null for unknown types.
+    */
+   private static SearchResult readSearchResult(JsonReader reader) throws IOException {
+      JsonObject jResult = readTree(reader).getAsJsonObject();
+      String type = jResult.get("dataType").getAsString();
+
+      if (type.equals("guide")) {
+         return new GuideSearchResult(GUIDE_INFO_ADAPTER.fromJsonTree(jResult));
+      } else if (type.equals("wiki")) {
+         return TOPIC_SEARCH_RESULT_ADAPTER.fromJsonTree(jResult);
+      }
+
+      return null;
+   }
+
+   public static TopicLeaf parseTopicLeaf(String json) throws JSONException {
+      return parseTopicLeaf(new StringReader(json));
+   }
+
+   public static TopicLeaf parseTopicLeaf(Reader in) throws JSONException {
+      JsonReader reader = new JsonReader(in);
+      ArrayList<GuideInfo> guides = new ArrayList<GuideInfo>();
+      String name = null;
+      int numSolutions = 0;
+      String solutionsUrl = "";
+      String description = "";
+      Image image = new Image();
+      String locale = "";
+      String contentsRaw = "";
+      String contentsRendered = "";
+      String title = "";
+
+      try {
+         reader.beginObject();
+         while (reader.hasNext()) {
+            String field = reader.nextName();
+
+            if (field.equals("guides")) {
+               reader.beginArray();
+               while (reader.hasNext()) {
+                  guides.add(GUIDE_INFO_ADAPTER.read(reader));
+               }
+               reader.endArray();
+            } else if (field.equals("solutions")) {
+               reader.beginObject();
+               while (reader.hasNext()) {
+                  String solutionsField = reader.nextName();
+
+                  if (solutionsField.equals("count")) {
+                     numSolutions = nextInt(reader, 0);
+                  } else if (solutionsField.equals("url")) {
+                     solutionsUrl = nextString(reader);
+                  } else {
+                     reader.skipValue();
+                  }
+               }
+               reader.endObject();
+            } else if (field.equals("topic_info")) {
+               reader.beginObject();
+               while (reader.hasNext()) {
+                  if (reader.nextName().equals("name")) {
+                     name = nextString(reader);
+                  } else {
+                     reader.skipValue();
+                  }
+               }
+               reader.endObject();
+            } else if (field.equals("description")) {
+               description = nextString(reader);
+            } else if (field.equals("image")) {
+               image = readImage(reader);
+            } else if (field.equals("locale")) {
+               locale = nextString(reader);
+            } else if (field.equals("contents_raw")) {
+               contentsRaw = nextString(reader);
+            } else if (field.equals("contents_rendered")) {
+               contentsRendered = nextString(reader);
+            } else if (field.equals("display_title")) {
+               title = nextString(reader);
+            } else {
+               reader.skipValue();
+            }
+         }
+         reader.endObject();
+      } catch (IOException e) {
+         throw toJSONException(e);
+      } catch (IllegalStateException e) {
+         throw toJSONException(e);
+      } catch (NumberFormatException e) {
+         throw toJSONException(e);
+      }
+
+      if (name == null) {
+         throw new JSONException("Topic is missing topic_info.name");
+      }
+
+      TopicLeaf topicLeaf = new TopicLeaf(name);
+
+      for (GuideInfo guide : guides) {
+         topicLeaf.addGuide(guide);
+      }
+
+      topicLeaf.setNumSolutions(numSolutions);
+      topicLeaf.setSolutionsUrl(solutionsUrl);
+      topicLeaf.setDescription(description);
+      topicLeaf.setImage(image);
+      topicLeaf.setLocale(locale);
+      topicLeaf.setContentsRaw(contentsRaw);
+      topicLeaf.setContentsRendered(contentsRendered);
+      topicLeaf.setTitle(title);
+
+      return topicLeaf;
+   }
+
+   private static Guide readGuide(JsonReader reader) throws IOException, JSONException {
+      Guide guide = new Guide();
+      int stepNumber = 0;
+      boolean hasSteps = false;
+      boolean hasTools = false;
+      boolean hasParts = false;
+
+      reader.beginObject();
+      while (reader.hasNext()) {
+         String name = reader.nextName();
+
+         if (name.equals("guideid")) {
+            guide.setGuideid(reader.nextInt());
+         } else if (name.equals("title")) {
+            guide.setTitle(nextString(reader));
+         } else if (name.equals("category")) {
+            guide.setTopic(nextString(reader));
+         } else if (name.equals("subject")) {
+            guide.setSubject(nextString(reader));
+         } else if (name.equals("author")) {
+            guide.setAuthor(readAuthorUsername(reader));
+         } else if (name.equals("time_required")) {
+            guide.setTimeRequired(nextString(reader));
+         } else if (name.equals("difficulty")) {
+            guide.setDifficulty(nextString(reader));
+         } else if (name.equals("introduction_raw")) {
+            guide.setIntroductionRaw(nextString(reader));
+         } else if (name.equals("introduction_rendered")) {
+            guide.setIntroductionRendered(nextString(reader));
+         } else if (name.equals("image")) {
+            guide.setIntroImage(readImage(reader));
+         } else if (name.equals("summary")) {
+            guide.setSummary(nextString(reader));
+         } else if (name.equals("revisionid")) {
+            guide.setRevisionid(reader.nextInt());
+         } else if (name.equals("public")) {
+            guide.setPublic(nextBoolean(reader));
+         } else if (name.equals("type")) {
+            guide.setType(nextString(reader));
+         } else if (name.equals("patrol_threshold")) {
+            guide.setPatrolThreshold(nextInt(reader, 0));
+         } else if (name.equals("conclusion_rendered")) {
+            guide.setConclusion(nextString(reader));
+         } else if (name.equals("completed")) {
+            guide.setCompleted(nextBoolean(reader));
+         } else if (name.equals("comments")) {
+            guide.setComments(readComments(reader));
+         } else if (name.equals("favorited")) {
+            guide.setFavorited(nextBoolean(reader));
+         } else if (name.equals("modified_date")) {
+            guide.setModifiedDate(nextDouble(reader));
+         } else if (name.equals("prereq_modified_date")) {
+            guide.setPrereqModifiedDate(nextDouble(reader));
+         } else if (name.equals("can_edit")) {
+            guide.setCanEdit(nextBoolean(reader));
+         } else if (name.equals("steps")) {
+            hasSteps = true;
+            reader.beginArray();
+            while (reader.hasNext()) {
+               guide.addStep(readStep(reader, ++stepNumber));
+            }
+            reader.endArray();
+         } else if (name.equals("tools")) {
+            hasTools = true;
+            reader.beginArray();
+            while (reader.hasNext()) {
+               guide.addTool(readItem(reader, Item.ItemType.TOOL));
+            }
+            reader.endArray();
+         } else if (name.equals("parts")) {
+            hasParts = true;
+            reader.beginArray();
+            while (reader.hasNext()) {
+               guide.addPart(readItem(reader, Item.ItemType.PART));
+            }
+            reader.endArray();
+         } else {
+            reader.skipValue();
+         }
+      }
+      reader.endObject();
+
+      // Anything else, such as an error object, would otherwise parse as an empty guide
+      // that is then cached and saved offline.
+      if (!hasSteps) {
+         throw new JSONException("Guide is missing steps");
+      } else if (!hasTools) {
+         throw new JSONException("Guide is missing tools");
+      } else if (!hasParts) {
+         throw new JSONException("Guide is missing parts");
+      }
+
+      return guide;
+   }
+
+   private static String readAuthorUsername(JsonReader reader) throws IOException {
+      String username = "";
+
+      reader.beginObject();
+      while (reader.hasNext()) {
+         if (reader.nextName().equals("username")) {
+            username = nextString(reader);
+         } else {
+            reader.skipValue();
+         }
+      }
+      reader.endObject();
+
+      return username;
+   }
+
+   private static GuideStep readStep(JsonReader reader, int stepNumber) throws IOException {
+      GuideStep step = new GuideStep(stepNumber);
+      boolean hasMedia = false;
+
+      reader.beginObject();
+      while (reader.hasNext()) {
+         String name = reader.nextName();
+
+         if (name.equals("guideid")) {
+            step.setGuideid(reader.nextInt());
+         } else if (name.equals("stepid")) {
+            step.setStepid(reader.nextInt());
+         } else if (name.equals("revisionid")) {
+            step.setRevisionid(reader.nextInt());
+         } else if (name.equals("orderby")) {
+            step.setOrderby(nextInt(reader, stepNumber));
+         } else if (name.equals("title")) {
+            step.setTitle(nextString(reader));
+         } else if (name.equals("media")) {
+            hasMedia = addMedia(step, readTree(reader));
+         } else if (name.equals("lines")) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+               step.addLine(readLine(reader));
+            }
+            reader.endArray();
+         } else if (name.equals("comments")) {
+            step.setComments(readComments(reader));
+         } else {
+            reader.skipValue();
+         }
+      }
+      reader.endObject();
+
+      if (!hasMedia) {
+         step.addImage(new Image());
+      }
+
+      return step;
+   }
+
+   /**
+    * Adds the media described by the step's media object. The "data" field can only be
+    * interpreted once "type" is known so the whole object is read up front. Returns false
+    * if the media object is malformed.
+    */
+   private static boolean addMedia(GuideStep step, JsonElement media) {
+      try {
+         JsonObject jMedia = media.getAsJsonObject();
+         String type = jMedia.get("type").getAsString();
+         JsonElement data = jMedia.get("data");
+
+         if (type.equals("image")) {
+            for (JsonElement image : data.getAsJsonArray()) {
+               step.addImage(parseImage(image));
+            }
+         } else if (type.equals("video")) {
+            step.addVideo(parseVideo(data.getAsJsonObject()));
+         } else if (type.equals("embed")) {
+            step.addEmbed(new Embed(new JSONObject(data.toString())));
+         }
+
+         return true;
+      } catch (JSONException e) {
+         return false;
+      } catch (RuntimeException e) {
+         // Missing fields or fields of the wrong type.
+         return false;
+      }
+   }
+
+   private static Video parseVideo(JsonObject jVideo) {
+      Video video = new Video();
+
+      try {
+         for (JsonElement encoding : jVideo.getAsJsonArray("encodings")) {
+            JsonObject jEncoding = encoding.getAsJsonObject();
+            video.addEncoding(new VideoEncoding(jEncoding.get("width").getAsInt(),
+             jEncoding.get("height").getAsInt(), jEncoding.get("url").getAsString(),
+             jEncoding.get("format").getAsString()));
+         }
+
+         video.setHeight(jVideo.get("width").getAsInt());
+         video.setWidth(jVideo.get("height").getAsInt());
+         video.setDuration(jVideo.get("duration").getAsInt());
+         video.setFilename(jVideo.get("filename").getAsString());
+
+         JsonObject jThumbnail = jVideo.getAsJsonObject("image");
+         Image image = parseImage(jThumbnail.get("image"));
+         video.setThumbnail(new VideoThumbnail(image.getId(), image.getPath(),
+          jThumbnail.get("width").getAsInt(), jThumbnail.get("height").getAsInt()));
+      } catch (RuntimeException e) {
+         Log.e(TAG, "Error parsing video API response", e);
+      }
+
+      return video;
+   }
+
+   /**
+    * Reads an image, returning a blank one if it is null.
+    */
+   private static Image readImage(JsonReader reader) throws IOException {
+      Image image = IMAGE_ADAPTER.read(reader);
+      return image != null ? image : new Image();
+   }
+
+   private static Image parseImage(JsonElement image) {
+      if (image == null || !image.isJsonObject()) {
+         return new Image();
+      }
+
+      try {
+         JsonObject jImage = image.getAsJsonObject();
+         return new Image(jImage.get("id").getAsInt(), jImage.get("original").getAsString());
+      } catch (RuntimeException e) {
+         Log.w(TAG, "Image parsing", e);
+         return new Image();
+      }
+   }
+
+   private static StepLine readLine(JsonReader reader) throws IOException {
+      int lineid = 0;
+      String bullet = "";
+      int level = 0;
+      String textRaw = "";
+      String textRendered = "";
+
+      reader.beginObject();
+      while (reader.hasNext()) {
+         String name = reader.nextName();
+
+         if (name.equals("lineid")) {
+            lineid = nextInt(reader, 0);
+         } else if (name.equals("bullet")) {
+            bullet = nextString(reader);
+         } else if (name.equals("level")) {
+            level = reader.nextInt();
+         } else if (name.equals("text_raw")) {
+            textRaw = nextString(reader);
+         } else if (name.equals("text_rendered")) {
+            textRendered = nextString(reader);
+         } else {
+            reader.skipValue();
+         }
+      }
+      reader.endObject();
+
+      return new StepLine(lineid, bullet, level, textRaw, textRendered);
+   }
+
+   private static Item readItem(JsonReader reader, Item.ItemType type) throws IOException {
+      String text = "";
+      String quantity = "";
+      String url = "";
+      String thumbnail = "";
+      String notes = "";
+
+      reader.beginObject();
+      while (reader.hasNext()) {
+         String name = reader.nextName();
+
+         if (name.equals("text")) {
+            text = nextString(reader);
+         } else if (name.equals("quantity")) {
+            quantity = nextString(reader);
+         } else if (name.equals("url")) {
+            url = nextString(reader);
+         } else if (name.equals("thumbnail")) {
+            thumbnail = nextString(reader);
+         } else if (name.equals("notes")) {
+            notes = nextString(reader);
+         } else {
+            reader.skipValue();
+         }
+      }
+      reader.endObject();
+
+      return new Item(type, text, quantity, url, thumbnail, notes);
+   }
+
+   private static ArrayList<Comment> readComments(JsonReader reader) throws IOException {
+      ArrayList<Comment> comments = new ArrayList<Comment>();
+
+      if (reader.peek() == JsonToken.NULL) {
+         reader.nextNull();
+         return comments;
+      }
+
+      reader.beginArray();
+      while (reader.hasNext()) {
+         comments.add(readComment(reader));
+      }
+      reader.endArray();
+
+      return comments;
+   }
+
+   private static Comment readComment(JsonReader reader) throws IOException {
+      Comment comment = new Comment();
+      comment.mParentid = NO_PARENT_ID;
+      comment.mReplies = new ArrayList<Comment>();
+
+      reader.beginObject();
+      while (reader.hasNext()) {
+         String name = reader.nextName();
+
+         if (name.equals("commentid")) {
+            comment.mCommentid = reader.nextInt();
+         } else if (name.equals("locale")) {
+            comment.mLocale = nextString(reader);
+         } else if (name.equals("parentid")) {
+            comment.mParentid = nextInt(reader, NO_PARENT_ID);
+         } else if (name.equals("author")) {
+            comment.mUser = readUserLight(reader);
+         } else if (name.equals("title")) {
+            comment.mTitle = nextString(reader);
+         } else if (name.equals("context")) {
+            comment.mContext = nextString(reader);
+         } else if (name.equals("contextid")) {
+            comment.mContextid = reader.nextInt();
+         } else if (name.equals("text_raw")) {
+            comment.mTextRaw = nextString(reader);
+         } else if (name.equals("text_rendered")) {
+            comment.mTextRendered = nextString(reader);
+         } else if (name.equals("rating")) {
+            comment.mRating = nextInt(reader, 0);
+         } else if (name.equals("date")) {
+            comment.mDate = nextDate(reader);
+         } else if (name.equals("modified_date")) {
+            comment.mModifiedDate = nextDate(reader);
+         } else if (name.equals("replied_date")) {
+            comment.mRepliedDate = nextDate(reader);
+         } else if (name.equals("status")) {
+            comment.mStatus = nextString(reader);
+         } else if (name.equals("replies")) {
+            comment.mReplies = readComments(reader);
+         } else {
+            reader.skipValue();
+         }
+      }
+      reader.endObject();
+
+      return comment;
+   }
+
+   private static User readUserLight(JsonReader reader) throws IOException {
+      User user = USER_ADAPTER.read(reader);
+
+      if (user == null) {
+         throw new JsonParseException("Comment author is null");
+      }
+
+      // Comments are always rendered with an avatar.
+      if (user.getAvatar() == null) {
+         user.setAvatar(new Image());
+      }
+
+      return user;
+   }
+
+   /**
+    * Reads the next value into a tree. Only use this for small objects.
+    */
+   private static JsonElement readTree(JsonReader reader) {
+      return JSON_PARSER.parse(reader);
+   }
+
+   /**
+    * Returns the next string or "" if it is null.
+    */
+   private static String nextString(JsonReader reader) throws IOException {
+      if (reader.peek() == JsonToken.NULL) {
+         reader.nextNull();
+         return "";
+      }
+
+      return reader.nextString();
+   }
+
+   /**
+    * Returns the next string or null if it is null.
+    */
+   private static String nextNullableString(JsonReader reader) throws IOException {
+      if (reader.peek() == JsonToken.NULL) {
+         reader.nextNull();
+         return null;
+      }
+
+      return reader.nextString();
+   }
+
+   private static int nextInt(JsonReader reader, int defaultValue) throws IOException {
+      if (reader.peek() == JsonToken.NULL) {
+         reader.nextNull();
+         return defaultValue;
+      }
+
+      return reader.nextInt();
+   }
+
+   private static double nextDouble(JsonReader reader) throws IOException {
+      if (reader.peek() == JsonToken.NULL) {
+         reader.nextNull();
+         return 0;
+      }
+
+      return reader.nextDouble();
+   }
+
+   private static boolean nextBoolean(JsonReader reader) throws IOException {
+      JsonToken token = reader.peek();
+
+      if (token == JsonToken.NULL) {
+         reader.nextNull();
+         return false;
+      } else if (token == JsonToken.STRING) {
+         // Gson's reflective parsing accepts "true" and "false" so we do too.
+         return Boolean.parseBoolean(reader.nextString());
+      }
+
+      return reader.nextBoolean();
+   }
+
+   /**
+    * Reads a timestamp in seconds since the epoch.
+    */
+   private static Date nextDate(JsonReader reader) throws IOException {
+      if (reader.peek() == JsonToken.NULL) {
+         reader.nextNull();
+         return new Date(0);
+      }
+
+      return new Date(reader.nextLong() * 1000);
+   }
+
+   private static JSONException toJSONException(Exception e) {
+      JSONException exception = new JSONException(e.getMessage());
+      exception.initCause(e);
+      return exception;
+   }
+
+   /**
+    * Reads and writes the same fields as Gson's reflective adapter did so stored JSON
+    * is interchangeable.
+    */
+   private static class ImageAdapter extends TypeAdapter<Image> {
+      @Override
+      public Image read(JsonReader reader) throws IOException {
+         if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+         }
+
+         Image image = new Image();
+
+         reader.beginObject();
+         while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals("id")) {
+               image.setId(reader.nextInt());
+            } else if (name.equals("original")) {
+               image.setPath(nextNullableString(reader));
+            } else if (name.equals("mLocalPath")) {
+               image.setLocalPath(nextNullableString(reader));
+            } else {
+               reader.skipValue();
+            }
+         }
+         reader.endObject();
+
+         return image;
+      }
+
+      @Override
+      public void write(JsonWriter writer, Image image) throws IOException {
+         if (image == null) {
+            writer.nullValue();
+            return;
+         }
+
+         writer.beginObject();
+         writer.name("id").value(image.getId());
+         writer.name("original").value(image.getPath());
+         writer.name("mLocalPath").value(image.getLocalPath());
+         writer.endObject();
+      }
+   }
+
+   private static class UserAdapter extends TypeAdapter<User> {
+      @Override
+      public User read(JsonReader reader) throws IOException {
+         if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+         }
+
+         User user = new User();
+
+         reader.beginObject();
+         while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals("userid")) {
+               user.setUserid(reader.nextInt());
+            } else if (name.equals("username")) {
+               user.setUsername(nextNullableString(reader));
+            } else if (name.equals("image")) {
+               user.setAvatar(IMAGE_ADAPTER.read(reader));
+            } else if (name.equals("reputation")) {
+               user.setReputation(nextInt(reader, 0));
+            } else if (name.equals("join_date")) {
+               user.setJoinDate(nextInt(reader, 0));
+            } else if (name.equals("location")) {
+               String location = nextNullableString(reader);
+               if (location != null) {
+                  user.setLocation(location);
+               }
+            } else if (name.equals("certification_count")) {
+               user.setCertificationCount(nextInt(reader, 0));
+            } else if (name.equals("badge_counts")) {
+               user.setBadges(readBadges(reader));
+            } else if (name.equals("summary")) {
+               user.setSummary(nextNullableString(reader));
+            } else if (name.equals("about_raw")) {
+               user.setAboutRaw(nextNullableString(reader));
+            } else if (name.equals("about_rendered")) {
+               user.setAboutRendered(nextNullableString(reader));
+            } else if (name.equals("authToken")) {
+               user.setAuthToken(nextNullableString(reader));
+            } else {
+               reader.skipValue();
+            }
+         }
+         reader.endObject();
+
+         return user;
+      }
+
+      private Badges readBadges(JsonReader reader) throws IOException {
+         if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+         }
+
+         int bronze = 0;
+         int silver = 0;
+         int gold = 0;
+
+         reader.beginObject();
+         while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals("bronze")) {
+               bronze = nextInt(reader, 0);
+            } else if (name.equals("silver")) {
+               silver = nextInt(reader, 0);
+            } else if (name.equals("gold")) {
+               gold = nextInt(reader, 0);
+            } else {
+               reader.skipValue();
+            }
+         }
+         reader.endObject();
+
+         return new Badges(bronze, silver, gold);
+      }
+
+      @Override
+      public void write(JsonWriter writer, User user) throws IOException {
+         if (user == null) {
+            writer.nullValue();
+            return;
+         }
+
+         writer.beginObject();
+         writer.name("userid").value(user.getUserid());
+         writer.name("username").value(user.getUsername());
+         writer.name("image");
+         IMAGE_ADAPTER.write(writer, user.getAvatar());
+         writer.name("reputation").value(user.getReputation());
+         writer.name("join_date").value(user.getJoinDate());
+
+         LatLon location = user.getLocation();
+         if (location != null) {
+            writer.name("location").value(location.getLatitude() + "," +
+             location.getLongitude());
+         }
+
+         writer.name("certification_count").value(user.getCertificationCount());
+
+         Badges badges = user.getBadges();
+         if (badges != null) {
+            writer.name("badge_counts").beginObject();
+            writer.name("bronze").value(badges.getBronze());
+            writer.name("silver").value(badges.getSilver());
+            writer.name("gold").value(badges.getGold());
+            writer.endObject();
+         }
+
+         writer.name("summary").value(user.getSummary());
+         writer.name("about_raw").value(user.getAboutRaw());
+         writer.name("about_rendered").value(user.getAboutRendered());
+         writer.name("authToken").value(user.getAuthToken());
+         writer.endObject();
+      }
+   }
+
+   /**
+    * Reads and writes the same fields as Gson's reflective adapter did so guide info
+    * stored in ApiDatabase is interchangeable.
+    */
+   private static class GuideInfoAdapter extends TypeAdapter<GuideInfo> {
+      @Override
+      public GuideInfo read(JsonReader reader) throws IOException {
+         if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+         }
+
+         GuideInfo guide = new GuideInfo(0);
+
+         reader.beginObject();
+         while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals("guideid")) {
+               guide.mGuideid = reader.nextInt();
+            } else if (name.equals("revisionid")) {
+               guide.mRevisionid = nextInt(reader, 0);
+            } else if (name.equals("modified_date")) {
+               guide.mModifiedDate = nextDouble(reader);
+            } else if (name.equals("prereq_modified_date")) {
+               guide.mPrereqModifiedDate = nextDouble(reader);
+            } else if (name.equals("type")) {
+               guide.mType = nextNullableString(reader);
+            } else if (name.equals("category")) {
+               guide.mTopic = nextNullableString(reader);
+            } else if (name.equals("subject")) {
+               guide.mSubject = nextNullableString(reader);
+            } else if (name.equals("title")) {
+               guide.mTitle = nextNullableString(reader);
+            } else if (name.equals("public")) {
+               guide.mPublic = nextBoolean(reader);
+            } else if (name.equals("flags")) {
+               guide.mFlags = readStringArray(reader);
+            } else if (name.equals("image")) {
+               guide.mImage = IMAGE_ADAPTER.read(reader);
+            } else if (name.equals("url")) {
+               guide.mUrl = nextNullableString(reader);
+            } else if (name.equals("username")) {
+               guide.mAuthorName = nextNullableString(reader);
+            } else if (name.equals("userid")) {
+               guide.mUserid = nextInt(reader, 0);
+            } else if (name.equals("locale")) {
+               guide.mLocale = nextNullableString(reader);
+            } else {
+               reader.skipValue();
+            }
+         }
+         reader.endObject();
+
+         return guide;
+      }
+
+      private String[] readStringArray(JsonReader reader) throws IOException {
+         if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+         }
+
+         ArrayList<String> strings = new ArrayList<String>();
+
+         reader.beginArray();
+         while (reader.hasNext()) {
+            strings.add(nextNullableString(reader));
+         }
+         reader.endArray();
+
+         return strings.toArray(new String[strings.size()]);
+      }
+
+      @Override
+      public void write(JsonWriter writer, GuideInfo guide) throws IOException {
+         if (guide == null) {
+            writer.nullValue();
+            return;
+         }
+
+         writer.beginObject();
+         writer.name("guideid").value(guide.mGuideid);
+         writer.name("revisionid").value(guide.mRevisionid);
+         writer.name("modified_date").value(guide.mModifiedDate);
+         writer.name("prereq_modified_date").value(guide.mPrereqModifiedDate);
+         writer.name("type").value(guide.mType);
+         writer.name("category").value(guide.mTopic);
+         writer.name("subject").value(guide.mSubject);
+         writer.name("title").value(guide.mTitle);
+         writer.name("public").value(guide.mPublic);
+
+         if (guide.mFlags != null) {
+            writer.name("flags").beginArray();
+            for (String flag : guide.mFlags) {
+               writer.value(flag);
+            }
+            writer.endArray();
+         }
+
+         writer.name("image");
+         IMAGE_ADAPTER.write(writer, guide.mImage);
+         writer.name("url").value(guide.mUrl);
+         writer.name("username").value(guide.mAuthorName);
+         writer.name("userid").value(guide.mUserid);
+         writer.name("locale").value(guide.mLocale);
+         writer.endObject();
+      }
+   }
+
+   private static class TopicSearchResultAdapter extends TypeAdapter<TopicSearchResult> {
+      @Override
+      public TopicSearchResult read(JsonReader reader) throws IOException {
+         if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+         }
+
+         TopicSearchResult result = new TopicSearchResult();
+         result.mImage = new Image();
+
+         reader.beginObject();
+         while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals("display_title")) {
+               result.mDisplayTitle = nextString(reader);
+            } else if (name.equals("title")) {
+               result.mTitle = nextString(reader);
+            } else if (name.equals("text")) {
+               result.mText = nextString(reader);
+            } else if (name.equals("namespace")) {
+               result.mNamespace = nextString(reader);
+            } else if (name.equals("summary")) {
+               result.mSummary = nextString(reader);
+            } else if (name.equals("url")) {
+               result.mUrl = nextString(reader);
+            } else if (name.equals("image")) {
+               result.mImage = readImage(reader);
+            } else {
+               reader.skipValue();
+            }
+         }
+         reader.endObject();
+
+         return result;
+      }
+
+      @Override
+      public void write(JsonWriter writer, TopicSearchResult result) throws IOException {
+         if (result == null) {
+            writer.nullValue();
+            return;
+         }
+
+         writer.beginObject();
+         writer.name("dataType").value("wiki");
+         writer.name("display_title").value(result.mDisplayTitle);
+         writer.name("title").value(result.mTitle);
+         writer.name("text").value(result.mText);
+         writer.name("namespace").value(result.mNamespace);
+         writer.name("summary").value(result.mSummary);
+         writer.name("url").value(result.mUrl);
+         writer.name("image");
+         IMAGE_ADAPTER.write(writer, result.mImage);
+         writer.endObject();
+      }
+   }
+}
@@ -18,7 +18,7 @@ public class OkConnectionFactory implements HttpRequest.ConnectionFactory {
    private final OkHttpClient client;
 
    public OkConnectionFactory() {
-      this(Utils.createOkHttpClient());
+      this(HttpTransport.get().getClient());
    }
 
    public OkConnectionFactory(OkHttpClient client) {
@@ -29,7 +29,7 @@ public class OkConnectionFactory implements HttpRequest.ConnectionFactory {
    }
 
    public HttpURLConnection create(URL url) throws IOException {
-      return client.open(url);
+      return HttpTransport.get().open(client, url);
    }
 
    public HttpURLConnection create(URL url, Proxy proxy) throws IOException {
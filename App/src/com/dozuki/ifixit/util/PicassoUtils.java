@@ -1,6 +1,7 @@
 package com.dozuki.ifixit.util;
 
 import android.content.Context;
+import android.net.Uri;
 
 import com.dozuki.ifixit.util.api.ApiSyncAdapter;
 import com.squareup.okhttp.HttpResponseCache;
@@ -13,6 +14,7 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
 
 public class PicassoUtils {
    private static Picasso singleton = null;
@@ -20,14 +22,21 @@ public class PicassoUtils {
    public static Picasso with(Context context) {
       // Mimicking Picasso's new OkHttpLoader(context), but with our custom OkHttpClient
       if (singleton == null) {
-         OkHttpClient client = Utils.createOkHttpClient();
+         OkHttpClient client = HttpTransport.get().newClient();
          try {
             client.setResponseCache(createResponseCache(context));
          } catch (IOException ignored) {
             // Ignored
             // throw new RuntimeException();
          }
-         singleton = new Picasso.Builder(context).downloader(new OkHttpDownloader(client)).build();
+         singleton = new Picasso.Builder(context).downloader(new OkHttpDownloader(client) {
+            @Override
+            protected HttpURLConnection openConnection(Uri uri) throws IOException {
+               HttpTransport.get().recordRequest(uri.getHost());
+
+               return super.openConnection(uri);
+            }
+         }).build();
       }
       return singleton;
    }
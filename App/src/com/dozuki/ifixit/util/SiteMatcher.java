@@ -0,0 +1,207 @@
+package com.dozuki.ifixit.util;
+
+import com.dozuki.ifixit.model.dozuki.Site;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Fuzzy matching of sites for the site picker.
+ *
+ * A site matches a query if its title contains the query or if its name is within an
+ * edit distance of half its length from the query (see Site.search()). Titles are
+ * indexed by trigram so only titles containing every trigram of the query are checked
+ * for containment, and the edit distance is bounded so comparisons with names that
+ * can't match stop early.
+ *
+ * Results are ranked: titles or matching names starting with the query come first,
+ * then titles with a word starting with the query, then titles containing the query
+ * and finally names that are only close to the query, nearest first. Ties keep the
+ * sites' order.
+ *
+ * search() checks for interrupts so a search that is no longer needed can be stopped
+ * by interrupting the thread running it.
+ */
+public class SiteMatcher {
+   private static final int RANK_PREFIX = 0;
+   private static final int RANK_WORD_PREFIX = 1;
+   private static final int RANK_CONTAINS = 2;
+   private static final int RANK_EDIT_DISTANCE = 3;
+   private static final int NO_MATCH = -1;
+
+   private static final int[] NO_SITES = new int[0];
+
+   private final List<Site> mSites;
+   private final String[] mNames;
+   private final String[] mTitles;
+
+   /**
+    * Maps each trigram of a title to the sorted indexes of the sites whose titles
+    * contain it.
+    */
+   private final Map<String, int[]> mTitleTrigrams;
+
+   public SiteMatcher(List<Site> sites) {
+      mSites = new ArrayList<Site>(sites);
+      mNames = new String[mSites.size()];
+      mTitles = new String[mSites.size()];
+
+      Map<String, List<Integer>> trigrams = new HashMap<String, List<Integer>>();
+
+      for (int i = 0; i < mSites.size(); i++) {
+         Site site = mSites.get(i);
+         mNames[i] = site.mName == null ? "" : site.mName;
+         mTitles[i] = site.mTitle == null ? "" : site.mTitle.toLowerCase(Locale.US);
+
+         for (int j = 0; j + 3 <= mTitles[i].length(); j++) {
+            String trigram = mTitles[i].substring(j, j + 3);
+            List<Integer> postings = trigrams.get(trigram);
+
+            if (postings == null) {
+               postings = new ArrayList<Integer>();
+               trigrams.put(trigram, postings);
+            }
+
+            // Sites are added in order so checking the last one avoids duplicates.
+            if (postings.isEmpty() || postings.get(postings.size() - 1) != i) {
+               postings.add(i);
+            }
+         }
+      }
+
+      mTitleTrigrams = new HashMap<String, int[]>(trigrams.size());
+
+      for (Map.Entry<String, List<Integer>> entry : trigrams.entrySet()) {
+         List<Integer> postings = entry.getValue();
+         int[] siteIndexes = new int[postings.size()];
+
+         for (int i = 0; i < siteIndexes.length; i++) {
+            siteIndexes[i] = postings.get(i);
+         }
+
+         mTitleTrigrams.put(entry.getKey(), siteIndexes);
+      }
+   }
+
+   /**
+    * Returns the sites matching the query, best matches first, or null if the thread
+    * was interrupted.
+    */
+   public ArrayList<Site> search(String query) {
+      String lowerQuery = query.toLowerCase(Locale.US);
+      boolean[] titleCandidates = getTitleCandidates(lowerQuery);
+      long[] matches = new long[mSites.size()];
+      int matchCount = 0;
+
+      for (int i = 0; i < mSites.size(); i++) {
+         if (Thread.currentThread().isInterrupted()) {
+            return null;
+         }
+
+         int rank = getTitleRank(i, lowerQuery, titleCandidates);
+
+         if (rank == NO_MATCH) {
+            int maxDistance = mNames[i].length() / 2;
+            int distance = EditDistance.editDistance(mNames[i], lowerQuery, maxDistance);
+
+            if (distance <= maxDistance) {
+               rank = mNames[i].startsWith(lowerQuery) ? RANK_PREFIX :
+                RANK_EDIT_DISTANCE + distance;
+            }
+         }
+
+         if (rank != NO_MATCH) {
+            // Sort by rank and then by position.
+            matches[matchCount++] = ((long)rank << 32) | i;
+         }
+      }
+
+      Arrays.sort(matches, 0, matchCount);
+
+      ArrayList<Site> results = new ArrayList<Site>(matchCount);
+      for (int i = 0; i < matchCount; i++) {
+         results.add(mSites.get((int)matches[i]));
+      }
+
+      return results;
+   }
+
+   private int getTitleRank(int site, String lowerQuery, boolean[] titleCandidates) {
+      String title = mTitles[site];
+
+      if (title.startsWith(lowerQuery)) {
+         return RANK_PREFIX;
+      }
+
+      if (titleCandidates != null && !titleCandidates[site]) {
+         return NO_MATCH;
+      }
+
+      int index = title.indexOf(lowerQuery);
+
+      if (index == -1) {
+         return NO_MATCH;
+      }
+
+      for (; index != -1; index = title.indexOf(lowerQuery, index + 1)) {
+         if (index == 0 || !Character.isLetterOrDigit(title.charAt(index - 1))) {
+            return RANK_WORD_PREFIX;
+         }
+      }
+
+      return RANK_CONTAINS;
+   }
+
+   /**
+    * Returns which sites have titles that contain every trigram of the query or null
+    * if the query is too short to have trigrams.
+    */
+   private boolean[] getTitleCandidates(String lowerQuery) {
+      if (lowerQuery.length() < 3) {
+         return null;
+      }
+
+      int[] candidates = null;
+
+      for (int i = 0; i + 3 <= lowerQuery.length(); i++) {
+         int[] postings = mTitleTrigrams.get(lowerQuery.substring(i, i + 3));
+
+         if (postings == null) {
+            candidates = NO_SITES;
+            break;
+         }
+
+         candidates = candidates == null ? postings : intersect(candidates, postings);
+      }
+
+      boolean[] isCandidate = new boolean[mSites.size()];
+      for (int site : candidates) {
+         isCandidate[site] = true;
+      }
+
+      return isCandidate;
+   }
+
+   private static int[] intersect(int[] a, int[] b) {
+      int[] result = new int[Math.min(a.length, b.length)];
+      int count = 0;
+
+      for (int i = 0, j = 0; i < a.length && j < b.length;) {
+         if (a[i] < b[j]) {
+            i++;
+         } else if (a[i] > b[j]) {
+            j++;
+         } else {
+            result[count++] = a[i];
+            i++;
+            j++;
+         }
+      }
+
+      return Arrays.copyOf(result, count);
+   }
+}
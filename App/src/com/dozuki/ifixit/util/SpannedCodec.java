@@ -0,0 +1,210 @@
+package com.dozuki.ifixit.util;
+
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.QuoteSpan;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StrikethroughSpan;
+import android.text.style.StyleSpan;
+import android.text.style.SubscriptSpan;
+import android.text.style.SuperscriptSpan;
+import android.text.style.TypefaceSpan;
+import android.text.style.URLSpan;
+import android.text.style.UnderlineSpan;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Compact binary form of Spanned text so HTML rendered with Html.fromHtml() can be
+ * stored and restored without parsing the HTML again.
+ *
+ * The format is the text followed by a run for each span: its type, start, end, flags
+ * and any parameters the type needs. Only the spans Html.fromHtml() and
+ * WikiHtmlTagHandler produce for step text are supported. Text with any other span
+ * isn't encoded and has to be rendered from its HTML instead.
+ */
+public class SpannedCodec {
+   private static final String TAG = "SpannedCodec";
+
+   /**
+    * Incremented whenever the format changes. Stored text in an older format is
+    * ignored.
+    */
+   private static final int VERSION = 1;
+
+   private static final int STYLE = 0;
+   private static final int UNDERLINE = 1;
+   private static final int STRIKETHROUGH = 2;
+   private static final int SUBSCRIPT = 3;
+   private static final int SUPERSCRIPT = 4;
+   private static final int URL = 5;
+   private static final int FOREGROUND_COLOR = 6;
+   private static final int RELATIVE_SIZE = 7;
+   private static final int TYPEFACE = 8;
+   private static final int QUOTE = 9;
+
+   /**
+    * Returns the encoded text or null if it has spans that aren't supported.
+    */
+   public static byte[] encode(Spanned text) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(text.length() * 2);
+      DataOutputStream out = new DataOutputStream(bytes);
+
+      try {
+         out.writeInt(VERSION);
+         writeString(out, text.toString());
+
+         Object[] spans = text.getSpans(0, text.length(), Object.class);
+         out.writeInt(spans.length);
+
+         for (Object span : spans) {
+            if (!writeSpan(out, span)) {
+               return null;
+            }
+
+            out.writeInt(text.getSpanStart(span));
+            out.writeInt(text.getSpanEnd(span));
+            out.writeInt(text.getSpanFlags(span));
+         }
+
+         out.close();
+      } catch (IOException e) {
+         // Writing to memory doesn't fail.
+         throw new RuntimeException(e);
+      }
+
+      return bytes.toByteArray();
+   }
+
+   /**
+    * Returns the decoded text or null if it is in an older format or can't be read.
+    */
+   public static SpannableStringBuilder decode(byte[] encoded) {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+
+      try {
+         if (in.readInt() != VERSION) {
+            return null;
+         }
+
+         SpannableStringBuilder text = new SpannableStringBuilder(readString(in));
+         int spanCount = in.readInt();
+
+         for (int i = 0; i < spanCount; i++) {
+            Object span = readSpan(in);
+            int start = in.readInt();
+            int end = in.readInt();
+            int flags = in.readInt();
+
+            text.setSpan(span, start, end, flags);
+         }
+
+         return text;
+      } catch (IOException e) {
+         Log.w(TAG, "Cannot decode text", e);
+         return null;
+      } catch (RuntimeException e) {
+         // Spans outside of the text or unknown span types.
+         Log.w(TAG, "Cannot decode text", e);
+         return null;
+      }
+   }
+
+   /**
+    * Writes the span's type and parameters. Returns false if the span isn't supported.
+    * Exact classes are compared because subclasses may have state that can't be
+    * restored.
+    */
+   private static boolean writeSpan(DataOutputStream out, Object span) throws IOException {
+      Class<?> type = span.getClass();
+
+      if (type == StyleSpan.class) {
+         out.writeByte(STYLE);
+         out.writeInt(((StyleSpan)span).getStyle());
+      } else if (type == UnderlineSpan.class) {
+         out.writeByte(UNDERLINE);
+      } else if (type == StrikethroughSpan.class) {
+         out.writeByte(STRIKETHROUGH);
+      } else if (type == SubscriptSpan.class) {
+         out.writeByte(SUBSCRIPT);
+      } else if (type == SuperscriptSpan.class) {
+         out.writeByte(SUPERSCRIPT);
+      } else if (type == URLSpan.class) {
+         out.writeByte(URL);
+         writeString(out, ((URLSpan)span).getURL());
+      } else if (type == ForegroundColorSpan.class) {
+         out.writeByte(FOREGROUND_COLOR);
+         out.writeInt(((ForegroundColorSpan)span).getForegroundColor());
+      } else if (type == RelativeSizeSpan.class) {
+         out.writeByte(RELATIVE_SIZE);
+         out.writeFloat(((RelativeSizeSpan)span).getSizeChange());
+      } else if (type == TypefaceSpan.class) {
+         out.writeByte(TYPEFACE);
+         writeString(out, ((TypefaceSpan)span).getFamily());
+      } else if (type == QuoteSpan.class) {
+         out.writeByte(QUOTE);
+         out.writeInt(((QuoteSpan)span).getColor());
+      } else {
+         return false;
+      }
+
+      return true;
+   }
+
+   private static Object readSpan(DataInputStream in) throws IOException {
+      int type = in.readByte();
+
+      switch (type) {
+         case STYLE:
+            return new StyleSpan(in.readInt());
+         case UNDERLINE:
+            return new UnderlineSpan();
+         case STRIKETHROUGH:
+            return new StrikethroughSpan();
+         case SUBSCRIPT:
+            return new SubscriptSpan();
+         case SUPERSCRIPT:
+            return new SuperscriptSpan();
+         case URL:
+            return new URLSpan(readString(in));
+         case FOREGROUND_COLOR:
+            return new ForegroundColorSpan(in.readInt());
+         case RELATIVE_SIZE:
+            return new RelativeSizeSpan(in.readFloat());
+         case TYPEFACE:
+            return new TypefaceSpan(readString(in));
+         case QUOTE:
+            return new QuoteSpan(in.readInt());
+         default:
+            throw new IOException("Unknown span type: " + type);
+      }
+   }
+
+   /**
+    * DataOutputStream.writeUTF() is limited to 64KB so strings are written as a length
+    * and UTF-8 bytes.
+    */
+   private static void writeString(DataOutputStream out, String string) throws IOException {
+      byte[] bytes = string.getBytes("UTF-8");
+      out.writeInt(bytes.length);
+      out.write(bytes);
+   }
+
+   private static String readString(DataInputStream in) throws IOException {
+      int length = in.readInt();
+
+      if (length < 0 || length > in.available()) {
+         throw new IOException("Invalid string length: " + length);
+      }
+
+      byte[] bytes = new byte[length];
+      in.readFully(bytes);
+      return new String(bytes, "UTF-8");
+   }
+}
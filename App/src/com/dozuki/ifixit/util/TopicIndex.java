@@ -0,0 +1,616 @@
+package com.dozuki.ifixit.util;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.dozuki.ifixit.BuildConfig;
+import com.dozuki.ifixit.model.dozuki.Site;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Read only index of a site's topic names used to suggest topics as the user types.
+ *
+ * The index is stored in a file per site and memory mapped so it is shared with the
+ * page cache instead of being copied onto the heap. It contains the topic names in
+ * sorted order and a sorted list of keys, one for each word of each name. A key is the
+ * lower case name starting at that word so a query matches every topic that has a word
+ * starting with it. Keys are front coded in blocks: the first key of a block is stored
+ * whole so blocks can be binary searched and every other key only stores what differs
+ * from the key before it.
+ *
+ * Lookups take time proportional to log(keys) plus the number of results rather than
+ * the number of topics.
+ */
+public class TopicIndex {
+   private static final String TAG = "TopicIndex";
+
+   private static final int MAGIC = 0x54504958; // TPIX
+   private static final int VERSION = 1;
+
+   /**
+    * Indexes are refreshed from the API at most this often.
+    */
+   private static final long REFRESH_INTERVAL_MS = 24 * 60 * 60 * 1000;
+
+   private static final int BLOCK_SIZE = 16;
+
+   /**
+    * Keys are truncated to this many code points. Longer queries are checked against
+    * the topic names.
+    */
+   private static final int MAX_KEY_CODE_POINTS = 24;
+
+   private static final int HEADER_SIZE = 36;
+
+   private static TopicIndex sIndex;
+
+   private final int mSiteid;
+   private final long mContentHash;
+   private final ByteBuffer mBuffer;
+   private final int mTopicCount;
+   private final int mKeyCount;
+   private final int mBlockCount;
+   private final int mNameOffsetsStart;
+   private final int mBlockOffsetsStart;
+   private final int mNamesStart;
+   private final int mKeysStart;
+
+   private TopicIndex(int siteid, ByteBuffer buffer) throws IOException {
+      mSiteid = siteid;
+      mBuffer = buffer;
+
+      if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC ||
+       buffer.getInt(4) != VERSION) {
+         throw new IOException("Not a topic index");
+      }
+
+      mContentHash = buffer.getLong(8);
+      mTopicCount = buffer.getInt(16);
+      mKeyCount = buffer.getInt(20);
+      mBlockCount = buffer.getInt(24);
+      mNamesStart = buffer.getInt(28);
+      mKeysStart = buffer.getInt(32);
+      mNameOffsetsStart = HEADER_SIZE;
+      mBlockOffsetsStart = mNameOffsetsStart + mTopicCount * 4;
+   }
+
+   /**
+    * Returns true if the site's index doesn't exist or should be refreshed with the
+    * current list of topics.
+    */
+   public static boolean needsRefresh(Context context, Site site) {
+      File file = getFile(context, site.mSiteid);
+
+      return !file.isFile() ||
+       System.currentTimeMillis() - file.lastModified() > REFRESH_INTERVAL_MS;
+   }
+
+   /**
+    * Returns the site's index or null if it hasn't been built. This reads from disk so
+    * it shouldn't be called on the UI thread.
+    */
+   public static synchronized TopicIndex open(Context context, Site site) {
+      if (sIndex != null && sIndex.mSiteid == site.mSiteid) {
+         return sIndex;
+      }
+
+      File file = getFile(context, site.mSiteid);
+
+      if (!file.isFile()) {
+         return null;
+      }
+
+      try {
+         sIndex = new TopicIndex(site.mSiteid, map(file));
+      } catch (IOException e) {
+         Log.w(TAG, "Failed to open " + file, e);
+
+         file.delete();
+         return null;
+      }
+
+      return sIndex;
+   }
+
+   /**
+    * Builds the site's index from the list of all of its topics and returns it. The
+    * index is only rewritten if the topics changed since it was last built. This
+    * shouldn't be called on the UI thread.
+    */
+   public static synchronized TopicIndex build(Context context, Site site,
+    List<String> topics) {
+      long contentHash = getContentHash(topics);
+      TopicIndex index = open(context, site);
+      File file = getFile(context, site.mSiteid);
+
+      if (index != null && index.mContentHash == contentHash) {
+         // Nothing changed. Only push back the next refresh.
+         file.setLastModified(System.currentTimeMillis());
+         return index;
+      }
+
+      long start = System.currentTimeMillis();
+      File tempFile = new File(file.getPath() + ".tmp");
+
+      try {
+         write(tempFile, topics, contentHash);
+
+         if (!tempFile.renameTo(file)) {
+            throw new IOException("Failed to rename " + tempFile);
+         }
+
+         sIndex = new TopicIndex(site.mSiteid, map(file));
+      } catch (IOException e) {
+         Log.w(TAG, "Failed to build topic index", e);
+
+         tempFile.delete();
+         return index;
+      }
+
+      if (BuildConfig.DEBUG) {
+         Log.d(TAG, "Indexed " + sIndex.mTopicCount + " topics with " + sIndex.mKeyCount +
+          " keys in " + (System.currentTimeMillis() - start) + "ms");
+      }
+
+      return sIndex;
+   }
+
+   /**
+    * Writes an index of the topics to the file and opens it. Unlike build() this doesn't
+    * cache the index or check whether it is current.
+    */
+   static TopicIndex create(File file, int siteid, List<String> topics)
+    throws IOException {
+      write(file, topics, getContentHash(topics));
+
+      return new TopicIndex(siteid, map(file));
+   }
+
+   public int size() {
+      return mTopicCount;
+   }
+
+   /**
+    * Returns up to limit topic names, in sorted order, that have a word starting with
+    * the query ignoring case.
+    */
+   public List<String> find(String query, int limit) {
+      List<String> results = new ArrayList<String>();
+      String lowerQuery = normalize(query);
+
+      if (lowerQuery.length() == 0 || mKeyCount == 0) {
+         return results;
+      }
+
+      boolean truncated = lowerQuery.codePointCount(0, lowerQuery.length()) >
+       MAX_KEY_CODE_POINTS;
+      byte[] prefix = toUtf8(truncate(lowerQuery));
+      TreeSet<Integer> topics = new TreeSet<Integer>();
+
+      // The matching keys are in a single run that starts in the last block whose
+      // first key sorts before the query.
+      int block = findBlock(prefix);
+      int position = mKeysStart + mBuffer.getInt(mBlockOffsetsStart + block * 4);
+      int keysLeft = mKeyCount - block * BLOCK_SIZE;
+      byte[] key = new byte[0];
+      int keyLength = 0;
+      int[] cursor = {position};
+
+      for (; keysLeft > 0 && topics.size() < limit; keysLeft--) {
+         int shared = readVarint(cursor);
+         int suffixLength = readVarint(cursor);
+
+         if (shared + suffixLength > key.length) {
+            key = Arrays.copyOf(key, Math.max(key.length * 2, shared + suffixLength));
+         }
+
+         for (int i = 0; i < suffixLength; i++) {
+            key[shared + i] = mBuffer.get(cursor[0]++);
+         }
+         keyLength = shared + suffixLength;
+
+         int topic = readVarint(cursor);
+         int comparison = comparePrefix(key, keyLength, prefix);
+
+         if (comparison > 0) {
+            break;
+         } else if (comparison < 0) {
+            continue;
+         }
+
+         if (!truncated || hasWordStartingWith(normalize(getName(topic)), lowerQuery)) {
+            topics.add(topic);
+         }
+      }
+
+      for (int topic : topics) {
+         results.add(getName(topic));
+      }
+
+      return results;
+   }
+
+   /**
+    * Returns the index of the last block whose first key sorts before prefix or 0 if
+    * there isn't one.
+    */
+   private int findBlock(byte[] prefix) {
+      int low = 0;
+      int high = mBlockCount - 1;
+
+      while (low < high) {
+         int middle = (low + high + 1) >>> 1;
+         int[] cursor = {mKeysStart + mBuffer.getInt(mBlockOffsetsStart + middle * 4)};
+
+         // The first key of a block doesn't share anything with the previous key.
+         readVarint(cursor);
+         int length = readVarint(cursor);
+
+         if (compareBytes(cursor[0], length, prefix) < 0) {
+            low = middle;
+         } else {
+            high = middle - 1;
+         }
+      }
+
+      return low;
+   }
+
+   /**
+    * Compares the key at position in the buffer with prefix.
+    */
+   private int compareBytes(int position, int length, byte[] prefix) {
+      int count = Math.min(length, prefix.length);
+
+      for (int i = 0; i < count; i++) {
+         int difference = (mBuffer.get(position + i) & 0xff) - (prefix[i] & 0xff);
+
+         if (difference != 0) {
+            return difference;
+         }
+      }
+
+      return length - prefix.length;
+   }
+
+   /**
+    * Returns 0 if the key starts with prefix or the sign of the comparison between
+    * them otherwise.
+    */
+   private static int comparePrefix(byte[] key, int keyLength, byte[] prefix) {
+      int count = Math.min(keyLength, prefix.length);
+
+      for (int i = 0; i < count; i++) {
+         int difference = (key[i] & 0xff) - (prefix[i] & 0xff);
+
+         if (difference != 0) {
+            return difference;
+         }
+      }
+
+      return keyLength >= prefix.length ? 0 : -1;
+   }
+
+   private String getName(int topic) {
+      int[] cursor = {mNamesStart + mBuffer.getInt(mNameOffsetsStart + topic * 4)};
+      int length = readVarint(cursor);
+      byte[] bytes = new byte[length];
+
+      for (int i = 0; i < length; i++) {
+         bytes[i] = mBuffer.get(cursor[0] + i);
+      }
+
+      return fromUtf8(bytes);
+   }
+
+   private int readVarint(int[] cursor) {
+      int value = 0;
+      int shift = 0;
+      byte b;
+
+      do {
+         b = mBuffer.get(cursor[0]++);
+         value |= (b & 0x7f) << shift;
+         shift += 7;
+      } while ((b & 0x80) != 0);
+
+      return value;
+   }
+
+   private static void write(File file, List<String> topics, long contentHash)
+    throws IOException {
+      // Sort and remove duplicates. Names that only differ by case are kept.
+      TreeSet<String> sortedNames = new TreeSet<String>(new Comparator<String>() {
+         @Override
+         public int compare(String lhs, String rhs) {
+            int comparison = lhs.compareToIgnoreCase(rhs);
+            return comparison != 0 ? comparison : lhs.compareTo(rhs);
+         }
+      });
+      sortedNames.addAll(topics);
+
+      final String[] names = sortedNames.toArray(new String[sortedNames.size()]);
+      final String[] lowerNames = new String[names.length];
+      int keyCount = 0;
+
+      for (int i = 0; i < names.length; i++) {
+         lowerNames[i] = normalize(names[i]);
+         keyCount += getWordStarts(lowerNames[i]).size();
+      }
+
+      // Keys are packed as topic << 32 | offset to avoid allocating one per key.
+      long[] keys = new long[keyCount];
+      int k = 0;
+
+      for (int i = 0; i < names.length; i++) {
+         for (int wordStart : getWordStarts(lowerNames[i])) {
+            keys[k++] = ((long)i << 32) | wordStart;
+         }
+      }
+
+      sort(keys, new KeyComparator() {
+         @Override
+         public int compare(long lhs, long rhs) {
+            return compareKeys(lowerNames, lhs, rhs);
+         }
+      });
+
+      ByteArrayOutputStream nameBytes = new ByteArrayOutputStream();
+      int[] nameOffsets = new int[names.length];
+
+      for (int i = 0; i < names.length; i++) {
+         byte[] name = toUtf8(names[i]);
+
+         nameOffsets[i] = nameBytes.size();
+         writeVarint(nameBytes, name.length);
+         nameBytes.write(name, 0, name.length);
+      }
+
+      ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+      int blockCount = (keyCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      int[] blockOffsets = new int[blockCount];
+      byte[] previousKey = new byte[0];
+
+      for (int i = 0; i < keyCount; i++) {
+         int topic = (int)(keys[i] >>> 32);
+         byte[] key = toUtf8(truncate(lowerNames[topic].substring((int)keys[i])));
+         int shared = 0;
+
+         if (i % BLOCK_SIZE == 0) {
+            blockOffsets[i / BLOCK_SIZE] = keyBytes.size();
+         } else {
+            int max = Math.min(key.length, previousKey.length);
+
+            while (shared < max && key[shared] == previousKey[shared]) {
+               shared++;
+            }
+         }
+
+         writeVarint(keyBytes, shared);
+         writeVarint(keyBytes, key.length - shared);
+         keyBytes.write(key, shared, key.length - shared);
+         writeVarint(keyBytes, topic);
+
+         previousKey = key;
+      }
+
+      int namesStart = HEADER_SIZE + names.length * 4 + blockCount * 4;
+      int keysStart = namesStart + nameBytes.size();
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+       new FileOutputStream(file)));
+
+      try {
+         out.writeInt(MAGIC);
+         out.writeInt(VERSION);
+         out.writeLong(contentHash);
+         out.writeInt(names.length);
+         out.writeInt(keyCount);
+         out.writeInt(blockCount);
+         out.writeInt(namesStart);
+         out.writeInt(keysStart);
+
+         for (int offset : nameOffsets) {
+            out.writeInt(offset);
+         }
+
+         for (int offset : blockOffsets) {
+            out.writeInt(offset);
+         }
+
+         nameBytes.writeTo(out);
+         keyBytes.writeTo(out);
+      } finally {
+         out.close();
+      }
+   }
+
+   /**
+    * Compares keys by code point which orders them the same as their UTF-8 bytes.
+    */
+   private static int compareKeys(String[] lowerNames, long lhs, long rhs) {
+      String left = lowerNames[(int)(lhs >>> 32)];
+      String right = lowerNames[(int)(rhs >>> 32)];
+      int i = (int)lhs;
+      int j = (int)rhs;
+      int codePoints = 0;
+
+      while (i < left.length() && j < right.length() && codePoints < MAX_KEY_CODE_POINTS) {
+         int leftCodePoint = left.codePointAt(i);
+         int rightCodePoint = right.codePointAt(j);
+
+         if (leftCodePoint != rightCodePoint) {
+            return leftCodePoint < rightCodePoint ? -1 : 1;
+         }
+
+         i += Character.charCount(leftCodePoint);
+         j += Character.charCount(rightCodePoint);
+         codePoints++;
+      }
+
+      boolean leftEnded = codePoints == MAX_KEY_CODE_POINTS || i == left.length();
+      boolean rightEnded = codePoints == MAX_KEY_CODE_POINTS || j == right.length();
+
+      if (leftEnded == rightEnded) {
+         return 0;
+      }
+
+      return leftEnded ? -1 : 1;
+   }
+
+   private interface KeyComparator {
+      public int compare(long lhs, long rhs);
+   }
+
+   /**
+    * Merge sort for packed keys.
+    */
+   private static void sort(long[] keys, KeyComparator comparator) {
+      long[] source = keys;
+      long[] destination = new long[keys.length];
+
+      for (int width = 1; width < keys.length; width *= 2) {
+         for (int start = 0; start < keys.length; start += width * 2) {
+            int middle = Math.min(start + width, keys.length);
+            int end = Math.min(start + width * 2, keys.length);
+            int left = start;
+            int right = middle;
+
+            for (int i = start; i < end; i++) {
+               if (left < middle && (right >= end ||
+                comparator.compare(source[left], source[right]) <= 0)) {
+                  destination[i] = source[left++];
+               } else {
+                  destination[i] = source[right++];
+               }
+            }
+         }
+
+         long[] swap = source;
+         source = destination;
+         destination = swap;
+      }
+
+      if (source != keys) {
+         System.arraycopy(source, 0, keys, 0, keys.length);
+      }
+   }
+
+   /**
+    * Returns the offsets of the words in the name. A word starts with a letter or digit
+    * that follows anything else.
+    */
+   private static List<Integer> getWordStarts(String name) {
+      List<Integer> starts = new ArrayList<Integer>();
+      boolean inWord = false;
+
+      for (int i = 0; i < name.length(); i++) {
+         boolean wordChar = Character.isLetterOrDigit(name.charAt(i));
+
+         if (wordChar && !inWord) {
+            starts.add(i);
+         }
+
+         inWord = wordChar;
+      }
+
+      if (starts.isEmpty() && name.length() > 0) {
+         starts.add(0);
+      }
+
+      return starts;
+   }
+
+   private static boolean hasWordStartingWith(String lowerName, String lowerQuery) {
+      for (int wordStart : getWordStarts(lowerName)) {
+         if (lowerName.startsWith(lowerQuery, wordStart)) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private static String normalize(String name) {
+      return name.trim().toLowerCase(Locale.US);
+   }
+
+   private static String truncate(String key) {
+      if (key.codePointCount(0, key.length()) <= MAX_KEY_CODE_POINTS) {
+         return key;
+      }
+
+      return key.substring(0, key.offsetByCodePoints(0, MAX_KEY_CODE_POINTS));
+   }
+
+   private static long getContentHash(List<String> topics) {
+      // 64 bit FNV-1a.
+      long hash = 0xcbf29ce484222325L;
+
+      for (String topic : topics) {
+         for (int i = 0; i < topic.length(); i++) {
+            hash = (hash ^ topic.charAt(i)) * 0x100000001b3L;
+         }
+
+         hash = (hash ^ '\n') * 0x100000001b3L;
+      }
+
+      return hash;
+   }
+
+   private static void writeVarint(ByteArrayOutputStream out, int value) {
+      while ((value & ~0x7f) != 0) {
+         out.write((value & 0x7f) | 0x80);
+         value >>>= 7;
+      }
+
+      out.write(value);
+   }
+
+   private static ByteBuffer map(File file) throws IOException {
+      RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+      try {
+         FileChannel channel = randomAccessFile.getChannel();
+
+         // The mapping stays valid after the file is closed.
+         return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      } finally {
+         randomAccessFile.close();
+      }
+   }
+
+   private static File getFile(Context context, int siteid) {
+      return new File(context.getFilesDir(), "topic_index_" + siteid);
+   }
+
+   private static byte[] toUtf8(String string) {
+      try {
+         return string.getBytes("UTF-8");
+      } catch (IOException e) {
+         throw new AssertionError(e);
+      }
+   }
+
+   private static String fromUtf8(byte[] bytes) {
+      try {
+         return new String(bytes, "UTF-8");
+      } catch (IOException e) {
+         throw new AssertionError(e);
+      }
+   }
+}
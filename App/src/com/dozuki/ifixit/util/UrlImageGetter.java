@@ -5,11 +5,12 @@ import android.graphics.BitmapFactory;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Html;
 import android.view.View;
 import android.widget.TextView;
 
-import com.squareup.okhttp.OkHttpClient;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -31,13 +32,24 @@ public class UrlImageGetter implements Html.ImageGetter {
       this.container = container;
    }
 
-   public Drawable getDrawable(String source) {
+   public Drawable getDrawable(final String source) {
       UrlDrawable urlDrawable = new UrlDrawable();
 
       // get the actual source
-      ImageGetterAsyncTask asyncTask = new ImageGetterAsyncTask(urlDrawable);
-
-      asyncTask.execute(source);
+      final ImageGetterAsyncTask asyncTask = new ImageGetterAsyncTask(urlDrawable);
+
+      if (Looper.myLooper() == Looper.getMainLooper()) {
+         asyncTask.execute(source);
+      } else {
+         // The HTML is being rendered in the background but AsyncTasks must be started
+         // from the main thread.
+         new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+               asyncTask.execute(source);
+            }
+         });
+      }
 
       // return reference to URLDrawable where I will change with actual image from
       // the src tag
@@ -109,8 +121,7 @@ public class UrlImageGetter implements Html.ImageGetter {
 
       private InputStream fetch(String source) throws IOException {
          // TODO: This can be simplified by using HttpRequest.
-         OkHttpClient client = Utils.createOkHttpClient();
-         HttpURLConnection connection = client.open(new URL(source));
+         HttpURLConnection connection = HttpTransport.get().open(new URL(source));
          return connection.getInputStream();
       }
    }
@@ -6,8 +6,9 @@ import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.DialogInterface.OnCancelListener;
-import android.os.AsyncTask;
-import android.os.Build;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import com.dozuki.ifixit.App;
@@ -17,16 +18,34 @@ import com.dozuki.ifixit.model.auth.Authenticator;
 import com.dozuki.ifixit.model.user.User;
 import com.dozuki.ifixit.ui.BaseActivity;
 import com.dozuki.ifixit.ui.guide.view.OfflineGuidesActivity;
-import com.dozuki.ifixit.util.FileCache;
 import com.dozuki.ifixit.util.JSONHelper;
 import com.github.kevinsawicki.http.HttpRequest;
 import com.github.kevinsawicki.http.HttpRequest.HttpRequestException;
+import com.google.gson.stream.MalformedJsonException;
 import com.squareup.otto.DeadEvent;
 import com.squareup.otto.Subscribe;
 
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Class that performs asynchronous API calls and posts the results to the
@@ -38,8 +57,11 @@ public class Api {
    }
 
    private static final int INVALID_LOGIN_CODE = 401;
+   private static final int BUFFER_SIZE = 8192;
    private static final String TAG = "Api";
 
+   private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
    /**
     * Pending API call. This is set when an authenticated request is performed
     * but the user is not logged in. This is then performed once the user has
@@ -47,6 +69,19 @@ public class Api {
     */
    private static ApiCall sPendingApiCall;
 
+   /**
+    * GETs that are being performed keyed by site, user and URL. Identical GETs made in
+    * the meantime share the request rather than making their own.
+    */
+   private static final Map<String, ApiRequest> sInFlightRequests =
+    new HashMap<String, ApiRequest>();
+
+   /**
+    * Reauthentications in progress keyed by site and the auth token that was rejected.
+    */
+   private static final Map<String, TokenRefresh> sTokenRefreshes =
+    new HashMap<String, TokenRefresh>();
+
    /**
     * List of events that have been sent but not received by any subscribers.
     */
@@ -89,6 +124,12 @@ public class Api {
       } else {
          performRequest(apiCall, new Responder() {
             public void setResult(ApiEvent<?> result) {
+               if (result instanceof ApiEvent.Unauthorized &&
+                ((ApiEvent.Unauthorized)result).mReported) {
+                  // Only one login dialog is needed.
+                  return;
+               }
+
                if (apiCall.mEndpoint.mPostResults) {
                   /**
                    * Always post the result despite any errors. This actually sends it off
@@ -114,11 +155,18 @@ public class Api {
       // user still has a chance to reauthenticate and salvage the account.
       App.get().shallowLogout(false);
 
+      return createUnauthorizedEvent(apiCall);
+   }
+
+   private static ApiEvent.Unauthorized createUnauthorizedEvent(ApiCall apiCall) {
+      ApiEvent.Unauthorized event = new ApiEvent.Unauthorized();
+
       // The ApiError doesn't matter as long as one exists.
-      return new ApiEvent.Unauthorized().
-         setCode(INVALID_LOGIN_CODE).
+      event.setCode(INVALID_LOGIN_CODE).
          setError(new ApiError("", "", ApiError.Type.UNAUTHORIZED)).
          setApiCall(apiCall);
+
+      return event;
    }
 
    /**
@@ -159,10 +207,7 @@ public class Api {
             event = endpoint.parseResult(response);
 
             // ... and then we can copy over the other values we need.
-            event.mCode = code;
-            event.mApiCall = result.mApiCall;
-            event.mResponse = result.mResponse;
-            event.mStoredResponse = result.mStoredResponse;
+            copyResponseInfo(result, event);
          } catch (Exception e) {
             // This is meant to catch JSON and GSON parse exceptions but enumerating
             // all different types of Exceptions and putting error handling code
@@ -181,6 +226,20 @@ public class Api {
       return event;
    }
 
+   /**
+    * Copies everything but the result from the event the response was read into to the
+    * event returned by the endpoint's parser.
+    */
+   private static void copyResponseInfo(ApiEvent<?> from, ApiEvent<?> to) {
+      to.mCode = from.mCode;
+      to.mApiCall = from.mApiCall;
+      to.mResponse = from.mResponse;
+      to.mStoredResponse = from.mStoredResponse;
+      to.mNotModified = from.mNotModified;
+      to.mETag = from.mETag;
+      to.mLastModified = from.mLastModified;
+   }
+
    private static boolean isSuccess(int code) {
       return code >= 200 && code < 300;
    }
@@ -298,29 +357,383 @@ public class Api {
       }
    }
 
-   private static void performRequest(final ApiCall apiCall, final Responder responder) {
-      AsyncTask<String, Void, ApiEvent<?>> as = new AsyncTask<String, Void, ApiEvent<?>>() {
-         @Override
-         protected ApiEvent<?> doInBackground(String... dummy) {
-            return performAndParseApiCall(apiCall);
+   /**
+    * Cancels the Activity's API calls that haven't finished. Only GETs are canceled
+    * because anything else changes something on the server that the user expects to
+    * happen even if they leave. A GET that is shared with other Activities keeps going
+    * for them.
+    */
+   public static void cancel(int activityid) {
+      List<ApiRequest> canceled = new ArrayList<ApiRequest>();
+
+      synchronized (sInFlightRequests) {
+         Iterator<ApiRequest> iterator = sInFlightRequests.values().iterator();
+
+         while (iterator.hasNext()) {
+            ApiRequest request = iterator.next();
+
+            if (request.removeCallers(activityid)) {
+               iterator.remove();
+               canceled.add(request);
+            }
          }
+      }
 
-         @Override
-         protected void onPostExecute(ApiEvent<?> result) {
-            responder.setResult(result);
+      for (ApiRequest request : canceled) {
+         if (request.mFuture != null) {
+            ApiExecutor.cancel(request.mFuture);
          }
-      };
+      }
 
-      if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.HONEYCOMB_MR1) {
-         as.execute();
-      } else {
-         as.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+      if (App.inDebug() && !canceled.isEmpty()) {
+         Log.i(TAG, "Canceled " + canceled.size() + " requests for activity " + activityid);
+      }
+   }
+
+   private static void performRequest(ApiCall apiCall, Responder responder) {
+      String key = getInFlightKey(apiCall);
+      ApiRequest request;
+
+      synchronized (sInFlightRequests) {
+         request = key == null ? null : sInFlightRequests.get(key);
+
+         if (request != null) {
+            request.addCaller(apiCall, responder);
+
+            if (App.inDebug()) {
+               Log.i(TAG, "Sharing in flight request: " + key);
+            }
+
+            return;
+         }
+
+         request = new ApiRequest(apiCall, responder, key);
+
+         if (key != null) {
+            sInFlightRequests.put(key, request);
+         }
+      }
+
+      submitRequest(request, 1);
+   }
+
+   /**
+    * Queues the request on its call's lane. A full lane is retried after the lane's
+    * RetryPolicy delay so a burst of calls is throttled rather than dropped. The request
+    * never reached the server so this is safe for any call. Once the policy gives up the
+    * request fails with a connection error that can be tried again.
+    */
+   private static void submitRequest(final ApiRequest request, final int attempt) {
+      ApiCall apiCall = request.mApiCall;
+      ApiExecutor.Lane lane = apiCall.getLane();
+
+      if (request.isCanceled()) {
+         return;
+      }
+
+      try {
+         request.mFuture = ApiExecutor.submit(lane, request);
+         return;
+      } catch (RejectedExecutionException e) {
+         Log.w(TAG, "Lane is full on attempt " + attempt + " for " + apiCall.mEndpoint +
+          ": " + lane);
+      }
+
+      RetryPolicy retryPolicy = RetryPolicy.forLane(lane);
+
+      if (retryPolicy.shouldRetry(attempt)) {
+         sMainHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+               submitRequest(request, attempt + 1);
+            }
+         }, retryPolicy.getDelayMs(attempt));
+
+         return;
+      }
+
+      Log.w(TAG, "Too many API calls, failing " + apiCall.mEndpoint);
+
+      // Stops sharing the request so the next identical call gets a new one.
+      ApiEvent<?> event = apiCall.mEndpoint.getEvent();
+      event.setApiCall(apiCall);
+      request.finish(event.setError(new ApiError(ApiError.Type.CONNECTION)), null);
+   }
+
+   /**
+    * Returns the key that identical GETs share or null if the call can't share its
+    * request with others.
+    */
+   private static String getInFlightKey(ApiCall apiCall) {
+      if (!apiCall.mEndpoint.mMethod.equals("GET")) {
+         return null;
+      }
+
+      String url = apiCall.mEndpoint.getUrl(apiCall.mSite, apiCall.mQuery);
+
+      return apiCall.mSite.mName + " " + getCacheKey(url, apiCall.mUser);
+   }
+
+   /**
+    * Performs an ApiCall on an ApiExecutor lane and hands the results to the Responders
+    * of every call that shares the request on the main thread. Each call gets its own
+    * event so it is routed to its own Activity.
+    */
+   private static class ApiRequest implements Callable<Void> {
+      private final ApiCall mApiCall;
+      private final String mKey;
+      private final List<Caller> mCallers = new ArrayList<Caller>();
+      private volatile Future<Void> mFuture;
+
+      private ApiRequest(ApiCall apiCall, Responder responder, String key) {
+         mApiCall = apiCall;
+         mKey = key;
+         mCallers.add(new Caller(apiCall, responder));
+      }
+
+      @Override
+      public Void call() {
+         ApiEvent<?> staleEvent = null;
+
+         if (mApiCall.mEndpoint.mStaleWhileRevalidate && App.get().isConnected()) {
+            staleEvent = getStaleEvent(mApiCall);
+
+            if (staleEvent != null) {
+               postResult(staleEvent, getCallers(false));
+            }
+         }
+
+         ApiEvent<?> result = performAndParseApiCall(mApiCall);
+
+         if (staleEvent != null) {
+            result = getRevalidatedEvent(staleEvent, result);
+         }
+
+         finish(result, staleEvent);
+
+         return null;
+      }
+
+      /**
+       * Stops sharing the request and posts the result to everyone that is waiting on
+       * it. If result is null the stale event is still current so it is only posted to
+       * calls that joined after it was posted.
+       */
+      private void finish(ApiEvent<?> result, ApiEvent<?> staleEvent) {
+         List<Caller> callers;
+
+         synchronized (sInFlightRequests) {
+            if (mKey != null && sInFlightRequests.get(mKey) == this) {
+               sInFlightRequests.remove(mKey);
+            }
+
+            callers = getCallers(result == null);
+         }
+
+         if (result != null) {
+            postResult(result, callers);
+         } else if (staleEvent != null) {
+            postResult(staleEvent, callers);
+         }
+      }
+
+      /**
+       * Returns true if every call sharing the request was canceled before it was
+       * queued.
+       */
+      private boolean isCanceled() {
+         synchronized (sInFlightRequests) {
+            return mKey != null && sInFlightRequests.get(mKey) != this;
+         }
+      }
+
+      private void addCaller(ApiCall apiCall, Responder responder) {
+         mCallers.add(new Caller(apiCall, responder));
+      }
+
+      /**
+       * Removes the Activity's calls. Returns true if no calls are left.
+       */
+      private boolean removeCallers(int activityid) {
+         Iterator<Caller> iterator = mCallers.iterator();
+
+         while (iterator.hasNext()) {
+            Caller caller = iterator.next();
+
+            if (caller.mApiCall.mActivityid == activityid) {
+               caller.mCanceled = true;
+               iterator.remove();
+            }
+         }
+
+         return mCallers.isEmpty();
+      }
+
+      /**
+       * Returns the calls to post to and marks them as posted to. Only calls that haven't
+       * been posted to yet are returned if onlyNew is true.
+       */
+      private List<Caller> getCallers(boolean onlyNew) {
+         List<Caller> callers = new ArrayList<Caller>();
+
+         synchronized (sInFlightRequests) {
+            for (Caller caller : mCallers) {
+               if (!onlyNew || !caller.mPosted) {
+                  caller.mPosted = true;
+                  callers.add(caller);
+               }
+            }
+         }
+
+         return callers;
+      }
+
+      private void postResult(final ApiEvent<?> result, List<Caller> callers) {
+         for (final Caller caller : callers) {
+            final ApiEvent<?> event = caller.mApiCall == result.mApiCall ? result :
+             result.copyFor(caller.mApiCall);
+
+            sMainHandler.post(new Runnable() {
+               @Override
+               public void run() {
+                  // The Activity that made the call is gone.
+                  if (caller.mCanceled) {
+                     return;
+                  }
+
+                  caller.mResponder.setResult(event);
+               }
+            });
+         }
       }
    }
 
+   private static class Caller {
+      private final ApiCall mApiCall;
+      private final Responder mResponder;
+      private volatile boolean mCanceled;
+      private boolean mPosted;
+
+      private Caller(ApiCall apiCall, Responder responder) {
+         mApiCall = apiCall;
+         mResponder = responder;
+      }
+   }
+
+   /**
+    * Returns an event for the stored response of the ApiCall that is flagged as stale,
+    * or null if there isn't a usable stored response.
+    */
+   private static ApiEvent<?> getStaleEvent(ApiCall apiCall) {
+      ApiEndpoint endpoint = apiCall.mEndpoint;
+      String url = endpoint.getUrl(apiCall.mSite, apiCall.mQuery);
+      String response = getStoredResponse(url, apiCall, endpoint.mCacheTtl);
+
+      if (response == null) {
+         return null;
+      }
+
+      ApiEvent<?> event = endpoint.getEvent();
+      event.setApiCall(apiCall);
+      event = parseResult(event.setCode(200).setResponse(response).setStoredResponse(true),
+       endpoint);
+
+      if (event.hasError()) {
+         return null;
+      }
+
+      event.mStale = true;
+
+      return event;
+   }
+
+   /**
+    * Returns the event to post after revalidating a stale event, or null if the stale
+    * event is still current. Errors other than authentication are dropped because the
+    * user already has content to look at.
+    */
+   private static ApiEvent<?> getRevalidatedEvent(ApiEvent<?> staleEvent, ApiEvent<?> result) {
+      if (result.hasError()) {
+         if (result.getError().mType == ApiError.Type.UNAUTHORIZED) {
+            return result;
+         }
+
+         if (App.inDebug()) {
+            Log.w(TAG, "Revalidation failed, keeping stale response: " +
+             result.getError().mType);
+         }
+
+         return null;
+      }
+
+      if (result.mNotModified || staleEvent.hasSameResponse(result)) {
+         if (App.inDebug()) {
+            Log.i(TAG, "Stale response is current");
+         }
+
+         return null;
+      }
+
+      return result;
+   }
+
+   /**
+    * Performs the call, retrying transient failures according to its RetryPolicy. If the
+    * host's CircuitBreaker is open the stored response, or a connection error if there
+    * isn't one, is returned without making a request. The stored response is also
+    * returned if the call still fails to connect after its retries.
+    */
    protected static ApiEvent<?> performAndParseApiCall(ApiCall apiCall) {
       ApiEndpoint endpoint = apiCall.mEndpoint;
       final String url = endpoint.getUrl(apiCall.mSite, apiCall.mQuery);
+      RetryPolicy retryPolicy = apiCall.getRetryPolicy();
+      CircuitBreaker breaker = CircuitBreaker.get(Uri.parse(url).getHost());
+
+      for (int attempt = 1; ; attempt++) {
+         // Requests aren't made while offline so they say nothing about the host.
+         boolean connected = App.get().isConnected();
+
+         if (connected && !breaker.allowRequest()) {
+            if (App.inDebug()) {
+               Log.w(TAG, "Failing fast: " + breaker);
+            }
+
+            return getFailFastEvent(url, apiCall);
+         }
+
+         ApiEvent<?> response = attemptApiCall(url, apiCall);
+
+         // Calls that lost the connection part way through say nothing about the host
+         // either. Interrupted calls were canceled rather than failed.
+         if (!connected || !App.get().isConnected() ||
+          Thread.currentThread().isInterrupted()) {
+            return getStoredFallback(url, apiCall, response);
+         }
+
+         boolean failed = isTransientFailure(response);
+         if (failed) {
+            breaker.recordFailure();
+         } else {
+            breaker.recordSuccess();
+         }
+
+         if (!failed || !retryPolicy.shouldRetry(attempt)) {
+            return getStoredFallback(url, apiCall, response);
+         }
+
+         if (App.inDebug()) {
+            Log.w(TAG, "Attempt " + attempt + " of " + retryPolicy.getMaxAttempts() +
+             " failed: " + endpoint.mMethod + " " + url);
+         }
+
+         if (!retryPolicy.sleep(attempt)) {
+            return getStoredFallback(url, apiCall, response);
+         }
+      }
+   }
+
+   private static ApiEvent<?> attemptApiCall(String url, ApiCall apiCall) {
+      ApiEndpoint endpoint = apiCall.mEndpoint;
       ApiEvent<?> event = endpoint.getEvent();
       event.setApiCall(apiCall);
 
@@ -330,31 +743,101 @@ public class Api {
       }
 
       try {
-         ApiEvent<?> response = getResponse(url, event, apiCall);
+         ApiEvent<?> response = getResponse(url, event, apiCall, false);
 
-         if (!response.hasError()) {
+         // Streamed responses were parsed and stored as they were read.
+         if (!response.hasError() && !response.mStreamed) {
             response = parseResult(response, endpoint);
          }
 
-         if (!response.hasError() && endpoint.mMethod.equals("GET") &&
-          !response.mStoredResponse) {
-            storeResponse(url, apiCall, response.getResponse());
+         if (!response.hasError() && endpoint.isCached() && !response.mStoredResponse &&
+          !response.mStreamed) {
+            if (response.mNotModified) {
+               ApiResponseCache.get(App.get()).touch(getCacheKey(url, apiCall.mUser));
+            } else {
+               storeResponse(url, apiCall, response);
+            }
          }
 
          return response;
       } catch (HttpRequestException e) {
          Log.e(TAG, "API error", e);
 
-         return event.setError(new ApiError(ApiError.Type.PARSE));
+         // The request failed before a response was received.
+         return event.setError(new ApiError(ApiError.Type.CONNECTION));
       }
    }
 
-   private static ApiEvent<?> getResponse(String url, ApiEvent<?> event, ApiCall apiCall) {
+   /**
+    * Returns true if the call failed for a reason that may go away if it is made again,
+    * such as a dropped connection or an overloaded server.
+    */
+   private static boolean isTransientFailure(ApiEvent<?> response) {
+      if (!response.hasError()) {
+         return false;
+      }
+
+      return response.getError().mType == ApiError.Type.CONNECTION ||
+       RetryPolicy.isTransientStatus(response.mCode);
+   }
+
+   /**
+    * Returns the stored response for the call, or a connection error if there isn't one,
+    * without making a request.
+    */
+   private static ApiEvent<?> getFailFastEvent(String url, ApiCall apiCall) {
+      ApiEvent<?> event = apiCall.mEndpoint.getEvent();
+      event.setApiCall(apiCall);
+
+      return getStoredFallback(url, apiCall,
+       event.setError(new ApiError(ApiError.Type.CONNECTION)));
+   }
+
+   /**
+    * Returns the stored response in place of a connection error so anything that was
+    * viewed before can still be viewed, no matter how old it is. Otherwise the response
+    * is returned as is.
+    */
+   private static ApiEvent<?> getStoredFallback(String url, ApiCall apiCall,
+    ApiEvent<?> response) {
+      ApiEndpoint endpoint = apiCall.mEndpoint;
+
+      if (!response.hasError() || response.getError().mType != ApiError.Type.CONNECTION ||
+       !endpoint.isCached()) {
+         return response;
+      }
+
+      String storedResponse = getStoredResponse(url, apiCall, Long.MAX_VALUE);
+
+      if (storedResponse == null) {
+         return response;
+      }
+
+      if (App.inDebug()) {
+         Log.i(TAG, "Using stored API response after connection error");
+      }
+
+      ApiEvent<?> event = endpoint.getEvent();
+      event.setApiCall(apiCall);
+
+      // All GETs will be 200's if they're valid.
+      return parseResult(event.setCode(200).setResponse(storedResponse)
+       .setStoredResponse(true), endpoint);
+   }
+
+   /**
+    * Performs the request. retried is true if the request is being made again with a
+    * new auth token after being rejected.
+    */
+   private static ApiEvent<?> getResponse(String url, ApiEvent<?> event, ApiCall apiCall,
+    boolean retried) {
       long startTime = System.currentTimeMillis();
 
       if (!App.get().isConnected()) {
-         if (apiCall.mEndpoint.mMethod.equals("GET")) {
-            String response = getStoredResponse(url, apiCall);
+         if (apiCall.mEndpoint.isCached()) {
+            // The TTL only limits what is shown while online. Offline anything is better
+            // than nothing.
+            String response = getStoredResponse(url, apiCall, Long.MAX_VALUE);
             if (response != null) {
                if (App.inDebug()) {
                   Log.i(TAG, "Using stored API response");
@@ -400,6 +883,26 @@ public class Api {
       request.header("X-App-Id", BuildConfig.APP_ID);
       request.followRedirects(false);
 
+      /**
+       * Revalidate any stored response regardless of its age. If it is still current
+       * the server responds with an empty 304 and we reuse the stored body.
+       */
+      ApiResponseCache.Entry storedEntry = null;
+      if (apiCall.mEndpoint.isCached()) {
+         storedEntry = getStoredEntry(url, apiCall, Long.MAX_VALUE);
+
+         if (storedEntry != null && storedEntry.hasValidators()) {
+            if (storedEntry.mETag != null) {
+               request.ifNoneMatch(storedEntry.mETag);
+            }
+            if (storedEntry.mLastModified > 0) {
+               request.ifModifiedSince(storedEntry.mLastModified);
+            }
+         } else {
+            storedEntry = null;
+         }
+      }
+
       /**
        * Continue with constructing the request body.
        */
@@ -414,15 +917,29 @@ public class Api {
        * The order is important here. If the code() is called first an IOException
        * is thrown in some cases (invalid login for one, maybe more).
        */
-      String responseBody = request.body();
+      InputStream body = request.stream();
       int code = request.code();
 
       if (App.inDebug()) {
          long endTime = System.currentTimeMillis();
 
          Log.d(TAG, "Response code: " + code);
-         Log.d(TAG, "Response body: " + responseBody);
-         Log.d(TAG, "Request time: " + (endTime - startTime) + "ms");
+         Log.d(TAG, "Response time: " + (endTime - startTime) + "ms");
+      }
+
+      if (code == HttpURLConnection.HTTP_NOT_MODIFIED && storedEntry != null) {
+         closeQuietly(body);
+
+         ApiResponseCache cache = ApiResponseCache.get(App.get());
+         cache.recordNotModified(apiCall.mEndpoint, storedEntry.mSize);
+
+         if (App.inDebug()) {
+            Log.i(TAG, "Stored response not modified, saved " + storedEntry.mSize +
+             " bytes: " + cache);
+         }
+
+         event.mNotModified = true;
+         return event.setCode(200).setResponse(storedEntry.mResponse);
       }
 
       /**
@@ -432,29 +949,279 @@ public class Api {
        * will automatically handle these errors.
        */
       if (code == INVALID_LOGIN_CODE && !App.get().isLoggingIn()) {
-         String newAuthToken = null;
+         closeQuietly(body);
 
          // If mAuthToken is null that means that this is resulting from reauthenticating
          // in which case the user's password has expired. Fall through to presenting
          // a login dialog so the user can reenter credentials. Upon success, the account
          // will be updated. If the user doesn't sign in then it will eventually be
-         // removed.
-         if (apiCall.mAuthToken != null) {
-            newAuthToken = attemptReauthentication(apiCall);
+         // removed. A fresh token that is rejected as well won't get any better.
+         if (apiCall.mAuthToken == null || retried) {
+            return getUnauthorizedEvent(apiCall);
+         }
+
+         // Another call may have reauthenticated since this one was sent.
+         String newAuthToken = getRefreshedAuthToken(apiCall);
+         TokenRefresh refresh = null;
+
+         if (newAuthToken == null) {
+            refresh = refreshAuthToken(apiCall);
+
+            if (refresh == null) {
+               // Interrupted while waiting for another call to reauthenticate, most
+               // likely because this one was canceled. That says nothing about whether
+               // the user is still logged in so don't report it as a failed login.
+               return event.setError(new ApiError(ApiError.Type.CONNECTION));
+            }
+
+            newAuthToken = refresh.mAuthToken;
          }
 
          if (newAuthToken != null) {
             // Try again with the new auth token.
             apiCall.mAuthToken = newAuthToken;
-            return getResponse(url, event, apiCall);
+            return getResponse(url, event, apiCall, true);
+         } else if (refresh != null && !refresh.mFailureReported.compareAndSet(false, true)) {
+            ApiEvent.Unauthorized unauthorized = createUnauthorizedEvent(apiCall);
+            unauthorized.mReported = true;
+
+            return unauthorized;
          } else {
             return getUnauthorizedEvent(apiCall);
          }
       } else {
+         String charset = request.charset();
+         if (charset == null || charset.length() == 0) {
+            charset = HttpRequest.CHARSET_UTF8;
+         }
+
+         if (isSuccess(code)) {
+            event.mETag = request.eTag();
+            event.mLastModified = request.lastModified();
+
+            if (apiCall.mEndpoint.isStreamed()) {
+               return parseStream(url, event.setCode(code), apiCall, body, charset);
+            }
+         }
+
+         String responseBody = readBody(body, charset);
+
+         if (App.inDebug()) {
+            Log.d(TAG, "Response body: " + responseBody);
+         }
+
          return event.setCode(code).setResponse(responseBody);
       }
    }
 
+   /**
+    * Parses a successful response as it is read from the connection. Responses for
+    * cached endpoints are copied into the response cache on the way so the body is
+    * never held in memory as a String.
+    */
+   private static ApiEvent<?> parseStream(String url, ApiEvent<?> result, ApiCall apiCall,
+    InputStream body, String charset) {
+      long startTime = System.currentTimeMillis();
+      ApiEndpoint endpoint = apiCall.mEndpoint;
+      String cacheKey = getCacheKey(url, apiCall.mUser);
+      ApiResponseCache.Editor editor = null;
+      InputStream in = body;
+
+      if (endpoint.isCached()) {
+         try {
+            editor = ApiResponseCache.get(App.get()).edit(cacheKey, result.mETag,
+             result.mLastModified);
+            in = editor.tee(body);
+         } catch (IOException e) {
+            // The response can still be parsed, it just won't be stored.
+            Log.w(TAG, "Failed to store response", e);
+         }
+      }
+
+      // Lets a revalidated response be compared with the stale one without reading it
+      // back from the cache, which may have evicted it by then.
+      MessageDigest digest = null;
+      if (endpoint.mStaleWhileRevalidate) {
+         digest = ApiEvent.newResponseDigest();
+         in = new DigestInputStream(in, digest);
+      }
+
+      ApiEvent<?> event;
+
+      try {
+         event = endpoint.parseResult(new InputStreamReader(in, charset));
+
+         // The parser stops at the end of the JSON. Read the rest so all of the body
+         // makes it into the cache.
+         drain(in);
+      } catch (Exception e) {
+         // Same as parseResult(): JSON, GSON and IO exceptions all end up here.
+         if (editor != null) {
+            editor.abort();
+         }
+
+         if (isReadFailure(e)) {
+            // The connection failed part way through the body so the call can be retried.
+            Log.e(TAG, "API read error", e);
+
+            return result.setError(new ApiError(ApiError.Type.CONNECTION));
+         }
+
+         Log.e(TAG, "API parse error", e);
+
+         return result.setError(new ApiError(ApiError.Type.PARSE));
+      } finally {
+         closeQuietly(body);
+      }
+
+      copyResponseInfo(result, event);
+      event.mStreamed = true;
+
+      if (digest != null) {
+         event.mResponseDigest = digest.digest();
+      }
+
+      int size = editor != null ? editor.commit() : -1;
+      if (size != -1) {
+         event.mResponseCacheKey = cacheKey;
+      }
+
+      if (App.inDebug()) {
+         Log.d(TAG, "Parsed streamed response in " + (System.currentTimeMillis() -
+          startTime) + "ms" + (size != -1 ? ", stored " + size + " bytes" : ""));
+      }
+
+      return event;
+   }
+
+   /**
+    * Returns true if the exception, or one it wraps, is from reading the response
+    * rather than from the response being malformed. The parsers wrap IOExceptions in
+    * JSONExceptions. JsonReader reports malformed JSON with MalformedJsonException and
+    * a body that ends early with EOFException, both of which are IOExceptions.
+    */
+   private static boolean isReadFailure(Throwable e) {
+      for (; e != null; e = e.getCause()) {
+         if (e instanceof MalformedJsonException || e instanceof EOFException) {
+            return false;
+         } else if (e instanceof IOException) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private static String readBody(InputStream body, String charset) {
+      try {
+         Reader reader = new InputStreamReader(body, charset);
+         StringBuilder builder = new StringBuilder();
+         char[] buffer = new char[BUFFER_SIZE];
+         int read;
+
+         while ((read = reader.read(buffer)) != -1) {
+            builder.append(buffer, 0, read);
+         }
+
+         return builder.toString();
+      } catch (IOException e) {
+         throw new HttpRequestException(e);
+      } finally {
+         closeQuietly(body);
+      }
+   }
+
+   private static void drain(InputStream in) throws IOException {
+      byte[] buffer = new byte[BUFFER_SIZE];
+
+      while (in.read(buffer) != -1) {
+         // Keep reading.
+      }
+   }
+
+   private static void closeQuietly(Closeable closeable) {
+      try {
+         closeable.close();
+      } catch (IOException e) {
+         // The response has already been read.
+      }
+   }
+
+   /**
+    * Returns the current user's auth token if it has replaced the one the call was
+    * rejected with, otherwise null.
+    */
+   private static String getRefreshedAuthToken(ApiCall apiCall) {
+      User user = App.get().getUser();
+
+      if (user == null || !apiCall.mSite.mName.equals(App.get().getSite().mName)) {
+         return null;
+      }
+
+      String authToken = user.getAuthToken();
+
+      return authToken != null && !authToken.equals(apiCall.mAuthToken) ? authToken : null;
+   }
+
+   /**
+    * Reauthenticates after the call was rejected and returns the finished refresh. Only
+    * one reauthentication runs for each rejected auth token. Calls rejected with the
+    * same token in the meantime wait for it and share its result rather than each
+    * logging in and invalidating each other's tokens. Returns null if the thread is
+    * interrupted while waiting.
+    */
+   private static TokenRefresh refreshAuthToken(ApiCall apiCall) {
+      String key = apiCall.mSite.mName + " " + apiCall.mAuthToken;
+      TokenRefresh refresh;
+      boolean reauthenticate;
+
+      synchronized (sTokenRefreshes) {
+         refresh = sTokenRefreshes.get(key);
+         reauthenticate = refresh == null;
+
+         if (reauthenticate) {
+            refresh = new TokenRefresh();
+            sTokenRefreshes.put(key, refresh);
+         }
+      }
+
+      if (reauthenticate) {
+         try {
+            refresh.mAuthToken = attemptReauthentication(apiCall);
+         } finally {
+            synchronized (sTokenRefreshes) {
+               sTokenRefreshes.remove(key);
+            }
+
+            refresh.mDone.countDown();
+         }
+      } else {
+         if (App.inDebug()) {
+            Log.i(TAG, "Waiting for reauthentication in progress");
+         }
+
+         try {
+            refresh.mDone.await();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return null;
+         }
+      }
+
+      return refresh;
+   }
+
+   private static class TokenRefresh {
+      private final CountDownLatch mDone = new CountDownLatch(1);
+      private volatile String mAuthToken;
+
+      /**
+       * Set by the first call that reports the user needs to log in again.
+       */
+      private final AtomicBoolean mFailureReported = new AtomicBoolean();
+   }
+
    /**
     * Attempts to reauthenticate the user with the stored credentials. Returns
     * a fresh authToken if successful, null otherwise.
@@ -499,32 +1266,42 @@ public class Api {
       }
    }
 
-   private static String getStoredResponse(String url, ApiCall apiCall) {
+   private static String getStoredResponse(String url, ApiCall apiCall, long maxAge) {
+      ApiResponseCache.Entry entry = getStoredEntry(url, apiCall, maxAge);
+
+      return entry != null ? entry.mResponse : null;
+   }
+
+   private static ApiResponseCache.Entry getStoredEntry(String url, ApiCall apiCall,
+    long maxAge) {
       long startTime = System.currentTimeMillis();
 
-      String response = FileCache.get(getCacheKey(url, apiCall.mUser));
+      ApiResponseCache cache = ApiResponseCache.get(App.get());
+      ApiResponseCache.Entry entry = cache.get(getCacheKey(url, apiCall.mUser), maxAge);
 
       if (App.inDebug()) {
          long endTime = System.currentTimeMillis();
-         Log.i(TAG, "Retrieved response in " + (endTime - startTime) + "ms");
+         Log.i(TAG, "Retrieved response in " + (endTime - startTime) + "ms: " + cache);
       }
 
-      return response;
+      return entry;
    }
 
-   private static void storeResponse(String url, ApiCall apiCall, String response) {
+   private static void storeResponse(String url, ApiCall apiCall, ApiEvent<?> event) {
       long startTime = System.currentTimeMillis();
 
-      FileCache.set(getCacheKey(url, apiCall.mUser), response);
+      ApiResponseCache cache = ApiResponseCache.get(App.get());
+      cache.put(getCacheKey(url, apiCall.mUser), event.getResponse(), event.mETag,
+       event.mLastModified);
 
       if (App.inDebug()) {
          long endTime = System.currentTimeMillis();
-         Log.i(TAG, "Stored response in " + (endTime - startTime) + "ms");
+         Log.i(TAG, "Stored response in " + (endTime - startTime) + "ms: " + cache);
       }
    }
 
    private static String getCacheKey(String url, User user) {
-      String key = "api_responses_" + url;
+      String key = url;
 
       if (user != null) {
          key += "_" + user.getUserid();
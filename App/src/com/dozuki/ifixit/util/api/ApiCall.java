@@ -35,6 +35,8 @@ public class ApiCall {
    protected Site mSite;
    protected User mUser;
    protected int mActivityid = -1;
+   protected ApiExecutor.Lane mLane;
+   protected RetryPolicy mRetryPolicy;
 
    public ApiCall(ApiEndpoint endpoint, String query) {
       this(endpoint, query, null);
@@ -72,6 +74,38 @@ public class ApiCall {
       return mQuery;
    }
 
+   /**
+    * Runs the call in the lane instead of the endpoint's lane. Use
+    * ApiExecutor.Lane.PREFETCH for calls the user isn't waiting on.
+    */
+   public ApiCall setLane(ApiExecutor.Lane lane) {
+      mLane = lane;
+
+      return this;
+   }
+
+   public ApiExecutor.Lane getLane() {
+      return mLane != null ? mLane : mEndpoint.getLane();
+   }
+
+   /**
+    * Retries the call with the policy instead of the default one. The policy is ignored
+    * if the endpoint isn't retryable.
+    */
+   public ApiCall setRetryPolicy(RetryPolicy retryPolicy) {
+      mRetryPolicy = retryPolicy;
+
+      return this;
+   }
+
+   public RetryPolicy getRetryPolicy() {
+      if (!mEndpoint.isRetryable()) {
+         return RetryPolicy.NONE;
+      }
+
+      return mRetryPolicy != null ? mRetryPolicy : RetryPolicy.forLane(getLane());
+   }
+
    /**
     * ApiCall Factory methods.
     */
@@ -3,6 +3,7 @@ package com.dozuki.ifixit.util.api;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.util.Log;
@@ -11,20 +12,25 @@ import com.dozuki.ifixit.App;
 import com.dozuki.ifixit.model.dozuki.Site;
 import com.dozuki.ifixit.model.guide.Guide;
 import com.dozuki.ifixit.model.guide.GuideInfo;
+import com.dozuki.ifixit.model.guide.GuideStep;
 import com.dozuki.ifixit.model.user.User;
 import com.dozuki.ifixit.util.JSONHelper;
-import com.google.gson.Gson;
+import com.dozuki.ifixit.util.JSONStreamParser;
 
 import org.json.JSONException;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class ApiDatabase extends SQLiteOpenHelper {
    public static final String TAG = "ApiDatabase";
-   private static final int DATABASE_VERSION = 1;
+   private static final int DATABASE_VERSION = 6;
    private static final String DATABASE_NAME = "api";
 
    private static ApiDatabase sDatabase;
@@ -48,19 +54,44 @@ public class ApiDatabase extends SQLiteOpenHelper {
    @Override
    public void onCreate(SQLiteDatabase db) {
       db.execSQL(CREATE_OFFLINE_GUIDES_TABLE);
+      OfflineGuideTables.createTables(db);
+      OfflineGuideSearch.createTable(db);
+      createOfflineMediaTables(db);
    }
 
    @Override
    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-      db.execSQL("DROP TABLE IF EXISTS " + TABLE_OFFLINE_GUIDES);
-
-      // Create tables again.
-      // TODO: This isn't a viable solution when the DB is upgraded.
-      onCreate(db);
+      // Each case falls through so all migrations after oldVersion are applied in order.
+      switch (oldVersion) {
+         case 1:
+            db.execSQL("ALTER TABLE " + TABLE_OFFLINE_GUIDES + " ADD COLUMN " +
+             KEY_MEDIA_EVICTED + " INTEGER NOT NULL DEFAULT 0");
+            createOfflineMediaTables(db);
+            indexLegacyMedia(db);
+         case 2:
+            normalizeOfflineGuides(db);
+         case 3:
+            OfflineGuideSearch.createTable(db);
+            indexOfflineGuides(db);
+         case 4:
+            // Lines tables created by normalizeOfflineGuides() already have the column.
+            // Existing lines are rendered when they are viewed until the guide is synced
+            // again.
+            if (oldVersion >= 3) {
+               OfflineGuideTables.addTextSpansColumn(db);
+            }
+         case 5:
+            // Tables created by normalizeOfflineGuides() already have the step indexes.
+            if (oldVersion >= 3) {
+               OfflineGuideTables.createStepRowIndexes(db);
+            }
+      }
    }
 
    /**
-    * Stores the JSON for guides stored offline.
+    * Guides stored offline. The guide's fields are columns defined by
+    * OfflineGuideTables which also stores the guide's steps, tools and parts, and
+    * comments in their own tables.
     */
    private static final String TABLE_OFFLINE_GUIDES = "offline_guides";
    private static final String KEY_ID = "_id";
@@ -70,6 +101,11 @@ public class ApiDatabase extends SQLiteOpenHelper {
    private static final String KEY_MODIFIED_DATE = "modified_date";
    private static final String KEY_MEDIA_TOTAL = "media_total";
    private static final String KEY_MEDIA_DOWNLOADED = "media_downloaded";
+   private static final String KEY_MEDIA_EVICTED = "media_evicted";
+
+   /**
+    * The guide and its GuideInfo were stored as JSON before version 3.
+    */
    private static final String KEY_GUIDE_INFO_JSON = "guide_info_json";
    private static final String KEY_GUIDE_JSON = "guide_json";
 
@@ -82,8 +118,8 @@ public class ApiDatabase extends SQLiteOpenHelper {
        KEY_MODIFIED_DATE + " REAL, " +
        KEY_MEDIA_TOTAL + " INTEGER, " +
        KEY_MEDIA_DOWNLOADED + " INTEGER, " +
-       KEY_GUIDE_JSON + " TEXT, " +
-       KEY_GUIDE_INFO_JSON + " TEXT, " +
+       KEY_MEDIA_EVICTED + " INTEGER NOT NULL DEFAULT 0, " +
+       OfflineGuideTables.GUIDE_COLUMNS +
        "UNIQUE (" +
           KEY_SITEID + ", " +
           KEY_USERID + ", " +
@@ -91,13 +127,235 @@ public class ApiDatabase extends SQLiteOpenHelper {
        ") ON CONFLICT REPLACE " +
     ")";
 
+   /**
+    * Indexes the media stored for offline guides. See OfflineMediaStore.
+    */
+   private static final String TABLE_OFFLINE_MEDIA = "offline_media";
+   private static final String KEY_URL = "url";
+   private static final String KEY_SIZE = "size";
+   private static final String KEY_LAST_ACCESS = "last_access";
+
+   private static final String CREATE_OFFLINE_MEDIA_TABLE =
+    "CREATE TABLE " + TABLE_OFFLINE_MEDIA + "(" +
+       KEY_URL + " TEXT PRIMARY KEY, " +
+       KEY_SIZE + " INTEGER, " +
+       KEY_LAST_ACCESS + " INTEGER" +
+    ")";
+
+   /**
+    * Records which offline guides reference which media. A medium is deleted once it
+    * has no references.
+    */
+   private static final String TABLE_OFFLINE_MEDIA_REFS = "offline_media_refs";
+
+   private static final String CREATE_OFFLINE_MEDIA_REFS_TABLE =
+    "CREATE TABLE " + TABLE_OFFLINE_MEDIA_REFS + "(" +
+       KEY_SITEID + " INTEGER, " +
+       KEY_USERID + " INTEGER, " +
+       KEY_GUIDEID + " INTEGER, " +
+       KEY_URL + " TEXT, " +
+       "UNIQUE (" +
+          KEY_SITEID + ", " +
+          KEY_USERID + ", " +
+          KEY_GUIDEID + ", " +
+          KEY_URL +
+       ") ON CONFLICT IGNORE " +
+    ")";
+
+   private static final String CREATE_OFFLINE_MEDIA_REFS_URL_INDEX =
+    "CREATE INDEX " + TABLE_OFFLINE_MEDIA_REFS + "_" + KEY_URL + " ON " +
+    TABLE_OFFLINE_MEDIA_REFS + "(" + KEY_URL + ")";
+
+   private static final String[] GUIDE_LIST_PROJECTION = concat(
+    OfflineGuideTables.GUIDE_INFO_PROJECTION, KEY_MEDIA_TOTAL, KEY_MEDIA_DOWNLOADED);
+
+   private static final String GUIDE_WHERE =
+    KEY_SITEID + " = ? AND " +
+    KEY_USERID + " = ? AND " +
+    KEY_GUIDEID + " = ?";
+
+   private static void createOfflineMediaTables(SQLiteDatabase db) {
+      db.execSQL(CREATE_OFFLINE_MEDIA_TABLE);
+      db.execSQL(CREATE_OFFLINE_MEDIA_REFS_TABLE);
+      db.execSQL(CREATE_OFFLINE_MEDIA_REFS_URL_INDEX);
+   }
+
+   /**
+    * Builds the media index for guides stored before media were indexed. Their media
+    * are moved to their new paths and anything that is left over is deleted.
+    */
+   private static void indexLegacyMedia(SQLiteDatabase db) {
+      final int SITEID_INDEX = 0;
+      final int USERID_INDEX = 1;
+      final int GUIDEID_INDEX = 2;
+      final int GUIDE_JSON_INDEX = 3;
+      Cursor cursor = db.query(
+       TABLE_OFFLINE_GUIDES,
+       new String[] {KEY_SITEID, KEY_USERID, KEY_GUIDEID, KEY_GUIDE_JSON},
+       null,
+       null,
+       null,
+       null,
+       null
+      );
+
+      while (cursor.moveToNext()) {
+         String[] guideArgs = {
+            cursor.getString(SITEID_INDEX),
+            cursor.getString(USERID_INDEX),
+            cursor.getString(GUIDEID_INDEX)
+         };
+         Guide guide;
+
+         try {
+            guide = JSONHelper.parseGuide(cursor.getString(GUIDE_JSON_INDEX));
+         } catch (JSONException e) {
+            Log.w(TAG, "Cannot parse stored guide " + guideArgs[2], e);
+            continue;
+         }
+
+         Set<String> media = GuideMediaProgress.getMedia(guide);
+         int mediaDownloaded = 0;
+
+         for (String url : media) {
+            insertMediaRef(db, guideArgs, url);
+
+            if (OfflineMediaStore.adoptLegacyMedium(url)) {
+               insertMedia(db, url);
+               mediaDownloaded++;
+            }
+         }
+
+         // The progress is recounted in case media were lost to hashCode() collisions.
+         ContentValues values = new ContentValues();
+         values.put(KEY_MEDIA_TOTAL, media.size());
+         values.put(KEY_MEDIA_DOWNLOADED, mediaDownloaded);
+         db.update(TABLE_OFFLINE_GUIDES, values, GUIDE_WHERE, guideArgs);
+      }
+
+      cursor.close();
+
+      int deleted = OfflineMediaStore.deleteLegacyMedia();
+      if (App.inDebug()) {
+         Log.d(TAG, "Indexed offline media, deleted " + deleted + " unreferenced");
+      }
+   }
+
+   /**
+    * Moves guides from JSON blobs to the normalized tables in OfflineGuideTables.
+    * Guides that can't be parsed are dropped along with media only they reference.
+    */
+   private static void normalizeOfflineGuides(SQLiteDatabase db) {
+      final String OLD_TABLE = TABLE_OFFLINE_GUIDES + "_v2";
+      db.execSQL("ALTER TABLE " + TABLE_OFFLINE_GUIDES + " RENAME TO " + OLD_TABLE);
+      db.execSQL(CREATE_OFFLINE_GUIDES_TABLE);
+      OfflineGuideTables.createTables(db);
+
+      // Copy in _id order so the list of offline guides keeps its order.
+      Cursor cursor = db.query(OLD_TABLE, null, null, null, null, null, KEY_ID + " ASC");
+      int migrated = 0;
+
+      while (cursor.moveToNext()) {
+         int guideid = cursor.getInt(cursor.getColumnIndexOrThrow(KEY_GUIDEID));
+         Guide guide;
+         GuideInfo guideInfo;
+
+         try {
+            guide = JSONHelper.parseGuide(
+             cursor.getString(cursor.getColumnIndexOrThrow(KEY_GUIDE_JSON)));
+            guideInfo = JSONStreamParser.getGson().fromJson(
+             cursor.getString(cursor.getColumnIndexOrThrow(KEY_GUIDE_INFO_JSON)),
+             GuideInfo.class);
+         } catch (Exception e) {
+            Log.w(TAG, "Cannot migrate stored guide " + guideid, e);
+            continue;
+         }
+
+         ContentValues values = new ContentValues();
+         values.put(KEY_SITEID, cursor.getInt(cursor.getColumnIndexOrThrow(KEY_SITEID)));
+         values.put(KEY_USERID, cursor.getInt(cursor.getColumnIndexOrThrow(KEY_USERID)));
+         values.put(KEY_MODIFIED_DATE,
+          cursor.getDouble(cursor.getColumnIndexOrThrow(KEY_MODIFIED_DATE)));
+         values.put(KEY_MEDIA_TOTAL,
+          cursor.getInt(cursor.getColumnIndexOrThrow(KEY_MEDIA_TOTAL)));
+         values.put(KEY_MEDIA_DOWNLOADED,
+          cursor.getInt(cursor.getColumnIndexOrThrow(KEY_MEDIA_DOWNLOADED)));
+         values.put(KEY_MEDIA_EVICTED,
+          cursor.getInt(cursor.getColumnIndexOrThrow(KEY_MEDIA_EVICTED)));
+         insertGuide(db, values, guide, guideInfo);
+         migrated++;
+      }
+
+      cursor.close();
+      db.execSQL("DROP TABLE " + OLD_TABLE);
+
+      // Drop references of guides that couldn't be migrated.
+      db.delete(TABLE_OFFLINE_MEDIA_REFS, "NOT EXISTS (SELECT 1 FROM " +
+       TABLE_OFFLINE_GUIDES + " g WHERE " + joinGuides("g", TABLE_OFFLINE_MEDIA_REFS) + ")",
+       null);
+      OfflineMediaStore.deleteMedia(deleteUnreferencedMedia(db));
+
+      if (App.inDebug()) {
+         Log.d(TAG, "Normalized " + migrated + " offline guides");
+      }
+   }
+
+   /**
+    * Adds every stored guide to the search index.
+    */
+   private static void indexOfflineGuides(SQLiteDatabase db) {
+      Cursor cursor = db.query(TABLE_OFFLINE_GUIDES, OfflineGuideTables.GUIDE_PROJECTION,
+       null, null, null, null, null);
+      int indexed = 0;
+
+      try {
+         while (cursor.moveToNext()) {
+            OfflineGuideSearch.insertGuide(db,
+             cursor.getLong(cursor.getColumnIndexOrThrow(KEY_ID)),
+             OfflineGuideTables.readGuide(db, cursor));
+            indexed++;
+         }
+      } finally {
+         cursor.close();
+      }
+
+      if (App.inDebug()) {
+         Log.d(TAG, "Indexed " + indexed + " offline guides for search");
+      }
+   }
+
+   /**
+    * Inserts the guide row and its contents and returns the row's _id. values must
+    * already contain the columns that track syncing.
+    */
+   private static long insertGuide(SQLiteDatabase db, ContentValues values, Guide guide,
+    GuideInfo guideInfo) {
+      values.put(KEY_GUIDEID, guide.getGuideid());
+      OfflineGuideTables.putGuide(values, guide, guideInfo);
+
+      long guideRow = db.insertOrThrow(TABLE_OFFLINE_GUIDES, null, values);
+      OfflineGuideTables.insertContents(db, guideRow, guide);
+
+      return guideRow;
+   }
+
+   /**
+    * Deletes the guide rows matching where along with their contents and their
+    * documents in the search index.
+    */
+   private static void deleteGuides(SQLiteDatabase db, String where, String[] args) {
+      String guideRowQuery = "SELECT " + KEY_ID + " FROM " + TABLE_OFFLINE_GUIDES +
+       " WHERE " + where;
+
+      OfflineGuideTables.deleteContents(db, guideRowQuery, args);
+      OfflineGuideSearch.deleteGuides(db, guideRowQuery, args);
+      db.delete(TABLE_OFFLINE_GUIDES, where, args);
+   }
+
    public ArrayList<GuideMediaProgress> getOfflineGuides(Site site, User user) {
-      final int GUIDE_JSON_INDEX = 0;
-      final int TOTAL_MEDIA_INDEX = 1;
-      final int MEDIA_DOWNLOADED_INDEX = 2;
       Cursor cursor = getReadableDatabase().query(
        TABLE_OFFLINE_GUIDES,
-       new String[] {KEY_GUIDE_INFO_JSON, KEY_MEDIA_TOTAL, KEY_MEDIA_DOWNLOADED},
+       GUIDE_LIST_PROJECTION,
        KEY_SITEID + " = ? AND " +
        KEY_USERID + " = ?",
        new String[] {site.mSiteid + "", user.getUserid() + ""},
@@ -105,12 +363,14 @@ public class ApiDatabase extends SQLiteOpenHelper {
        null,
        KEY_ID + " DESC"
       );
+      final int TOTAL_MEDIA_INDEX = cursor.getColumnIndexOrThrow(KEY_MEDIA_TOTAL);
+      final int MEDIA_DOWNLOADED_INDEX = cursor.getColumnIndexOrThrow(KEY_MEDIA_DOWNLOADED);
 
       ArrayList<GuideMediaProgress> guideMedia = new ArrayList<GuideMediaProgress>();
 
       while (cursor.moveToNext()) {
          guideMedia.add(new GuideMediaProgress(
-            getGuideInfoFromCursor(cursor, GUIDE_JSON_INDEX, false),
+            OfflineGuideTables.readGuideInfo(cursor),
             cursor.getInt(TOTAL_MEDIA_INDEX),
             cursor.getInt(MEDIA_DOWNLOADED_INDEX)
          ));
@@ -121,119 +381,192 @@ public class ApiDatabase extends SQLiteOpenHelper {
       return guideMedia;
    }
 
-   public Guide getOfflineGuide(Site site, User user, int guideid) {
-      Cursor cursor = getReadableDatabase().query(
-       TABLE_OFFLINE_GUIDES,
-       new String[] {KEY_GUIDE_JSON},
-       KEY_SITEID + " = ? AND " +
-       KEY_USERID + " = ? AND " +
-       KEY_GUIDEID + " = ? ",
-       new String[] {site.mSiteid + "", user.getUserid() + "", guideid + ""},
-       null,
-       null,
-       null
-      );
-      cursor.moveToFirst();
-      return getGuideFromCursor(cursor, 0, true);
-   }
-
    /**
-    * Returns guides that have been downloaded but some of the images are missing.
+    * Returns the offline guide without reading the contents of its steps or null if it
+    * isn't stored. Steps are read with getOfflineGuideStep() as they are viewed.
     */
-   public ArrayList<Guide> getUncompleteGuides(Site site, User user) {
+   public OfflineGuide getOfflineGuide(Site site, User user, int guideid) {
+      String[] guideArgs = getGuideArgs(site, user, guideid);
       SQLiteDatabase db = getReadableDatabase();
+      OfflineGuide guide = null;
 
-      Cursor cursor = db.query(
-       TABLE_OFFLINE_GUIDES,
-       new String[] {KEY_GUIDE_JSON},
-       KEY_SITEID + " = ? AND " +
-       KEY_USERID + " = ? AND " +
-       KEY_MEDIA_DOWNLOADED + " != " + KEY_MEDIA_TOTAL,
-       new String[] {site.mSiteid + "", user.getUserid() + ""},
-       null,
-       null,
-       KEY_ID + " ASC");
+      Cursor cursor = db.query(TABLE_OFFLINE_GUIDES, OfflineGuideTables.GUIDE_PROJECTION,
+       GUIDE_WHERE, guideArgs, null, null, null);
 
-      return getGuidesFromCursor(cursor, 0);
+      try {
+         if (cursor.moveToFirst()) {
+            guide = OfflineGuideTables.readOfflineGuide(db, cursor);
+         }
+      } catch (RuntimeException e) {
+         App.sendException(TAG, "Cannot read stored guide!", e);
+      } finally {
+         cursor.close();
+      }
+
+      if (guide != null) {
+         touchGuideMedia(guideArgs);
+      }
+
+      return guide;
    }
 
    /**
-    * Returns a list of Guides from the cursor with json at the provided index.
+    * Returns the step of the offline guide at the index or null if it can't be read,
+    * which includes the guide having been synced again since it was read.
     */
-   private ArrayList<Guide> getGuidesFromCursor(Cursor cursor, int jsonIndex) {
-      ArrayList<Guide> guides = new ArrayList<Guide>();
-
-      while (cursor.moveToNext()) {
-         guides.add(getGuideFromCursor(cursor, jsonIndex, false));
+   public GuideStep getOfflineGuideStep(OfflineGuide guide, int index) {
+      try {
+         return OfflineGuideTables.readStep(getReadableDatabase(), guide.getStepRow(index));
+      } catch (RuntimeException e) {
+         App.sendException(TAG, "Cannot read stored guide step!", e);
+         return null;
       }
-
-      cursor.close();
-
-      return guides;
    }
 
    /**
-    * Creates a guide from the cursor with JSON found at the provided index.
+    * Marks the guide's media as used now so they are the last to be evicted. The
+    * guide's media are downloaded again by the next sync if they were evicted.
     */
-   private Guide getGuideFromCursor(Cursor cursor, int jsonIndex, boolean closeCursor) {
+   private void touchGuideMedia(String[] guideArgs) {
+      SQLiteDatabase db = getWritableDatabase();
+      ContentValues values = new ContentValues();
+
+      db.beginTransaction();
       try {
-         // Invalid cursor position.
-         if (cursor.isBeforeFirst() || cursor.isAfterLast()) {
-            return null;
-         }
-         String guideJson = cursor.getString(jsonIndex);
-         return JSONHelper.parseGuide(guideJson);
-      } catch (JSONException e) {
-         App.sendException(TAG, "Cannot parse stored guide!", e);
-         return null;
+         values.put(KEY_LAST_ACCESS, System.currentTimeMillis());
+         db.update(TABLE_OFFLINE_MEDIA, values, KEY_URL + " IN (SELECT " + KEY_URL +
+          " FROM " + TABLE_OFFLINE_MEDIA_REFS + " WHERE " + GUIDE_WHERE + ")", guideArgs);
+
+         values.clear();
+         values.put(KEY_MEDIA_EVICTED, 0);
+         db.update(TABLE_OFFLINE_GUIDES, values, GUIDE_WHERE, guideArgs);
+
+         db.setTransactionSuccessful();
       } finally {
-         if (closeCursor) {
+         db.endTransaction();
+      }
+   }
+
+   /**
+    * Returns guides that have been downloaded but some of the images are missing.
+    * Guides whose media were evicted are excluded until they are opened again.
+    */
+   public ArrayList<Guide> getUncompleteGuides(Site site, User user) {
+      return getGuides(
+       KEY_SITEID + " = ? AND " +
+       KEY_USERID + " = ? AND " +
+       KEY_MEDIA_DOWNLOADED + " != " + KEY_MEDIA_TOTAL + " AND " +
+       KEY_MEDIA_EVICTED + " = 0",
+       new String[] {site.mSiteid + "", user.getUserid() + ""});
+   }
+
+   /**
+    * Returns up to limit of the user's offline guides that match the query. Guides with
+    * a title match come first and are otherwise ordered like getOfflineGuides().
+    */
+   public ArrayList<GuideInfo> searchOfflineGuides(Site site, User user, String query,
+    int limit) {
+      ArrayList<GuideInfo> guides = new ArrayList<GuideInfo>();
+      String[] expressions = OfflineGuideSearch.getMatchExpressions(query);
+
+      if (expressions == null) {
+         return guides;
+      }
+
+      SQLiteDatabase db = getReadableDatabase();
+      Set<Integer> guideids = new HashSet<Integer>();
+
+      for (String expression : expressions) {
+         Cursor cursor = db.query(
+          TABLE_OFFLINE_GUIDES,
+          OfflineGuideTables.GUIDE_INFO_PROJECTION,
+          KEY_SITEID + " = ? AND " +
+          KEY_USERID + " = ? AND " +
+          KEY_ID + " IN (" + OfflineGuideSearch.getGuideRowQuery("?") + ")",
+          new String[] {site.mSiteid + "", user.getUserid() + "", expression},
+          null,
+          null,
+          KEY_ID + " DESC",
+          limit + "");
+
+         try {
+            while (cursor.moveToNext() && guides.size() < limit) {
+               GuideInfo guideInfo = OfflineGuideTables.readGuideInfo(cursor);
+
+               if (guideids.add(guideInfo.mGuideid)) {
+                  guides.add(guideInfo);
+               }
+            }
+         } finally {
             cursor.close();
          }
       }
+
+      return guides;
+   }
+
+   public ArrayList<Guide> getCompleteGuides(Site site, User user) {
+      return getGuides(
+       KEY_SITEID + " = ? AND " +
+       KEY_USERID + " = ? AND " +
+       KEY_MEDIA_DOWNLOADED + " = " + KEY_MEDIA_TOTAL,
+       new String[] {site.mSiteid + "", user.getUserid() + ""});
    }
 
    /**
-    * Creates a GuideInfo from the cursor with JSON found at the provided index.
+    * Returns the guides matching where in the order they were stored.
     */
-   private GuideInfo getGuideInfoFromCursor(Cursor cursor, int jsonIndex, boolean closeCursor) {
+   private ArrayList<Guide> getGuides(String where, String[] args) {
+      SQLiteDatabase db = getReadableDatabase();
+      ArrayList<Guide> guides = new ArrayList<Guide>();
+
+      Cursor cursor = db.query(
+       TABLE_OFFLINE_GUIDES,
+       OfflineGuideTables.GUIDE_PROJECTION,
+       where,
+       args,
+       null,
+       null,
+       KEY_ID + " ASC");
+
       try {
-         // Invalid cursor position.
-         if (cursor.isBeforeFirst() || cursor.isAfterLast()) {
-            return null;
+         while (cursor.moveToNext()) {
+            guides.add(OfflineGuideTables.readGuide(db, cursor));
          }
-         String guideJson = cursor.getString(jsonIndex);
-         return new Gson().fromJson(guideJson, GuideInfo.class);
-      } catch (Exception e) {
-         App.sendException(TAG, "Cannot parse stored guide!", e);
-         return null;
+      } catch (RuntimeException e) {
+         App.sendException(TAG, "Cannot read stored guide!", e);
       } finally {
-         if (closeCursor) {
-            cursor.close();
-         }
+         cursor.close();
       }
+
+      return guides;
    }
 
    /**
-    * Returns a map of guideid to modified date for all of the user's offline guides.
+    * Returns a map of guideid to modified date for the given guides that are stored
+    * offline.
     */
-   public Map<Integer, Double> getGuideModifiedDates(Site site, User user) {
+   public Map<Integer, Double> getGuideModifiedDates(Site site, User user,
+    Collection<Integer> guideids) {
       final int GUIDEID_INDEX = 0;
       final int MODIFIED_DATE_INDEX = 1;
+      Map<Integer, Double> modifiedDates = new HashMap<Integer, Double>();
+
+      if (guideids.isEmpty()) {
+         return modifiedDates;
+      }
+
       SQLiteDatabase db = getReadableDatabase();
 
       Cursor cursor = db.query(
        TABLE_OFFLINE_GUIDES,
        new String[] {KEY_GUIDEID, KEY_MODIFIED_DATE},
-       KEY_SITEID + " = ? AND " +
-       KEY_USERID + " = ?",
-       new String[] {site.mSiteid + "", user.getUserid() + ""},
+       getGuideListWhere(guideids.size()),
+       getGuideListArgs(site, user, guideids),
        null,
        null,
        null);
 
-      Map<Integer, Double> modifiedDates = new HashMap<Integer, Double>();
-
       while (cursor.moveToNext()) {
          modifiedDates.put(
             cursor.getInt(GUIDEID_INDEX),
@@ -246,15 +579,76 @@ public class ApiDatabase extends SQLiteOpenHelper {
       return modifiedDates;
    }
 
+   /**
+    * Returns the guideids of all of the user's offline guides.
+    */
+   public Set<Integer> getGuideids(Site site, User user) {
+      SQLiteDatabase db = getReadableDatabase();
+
+      Cursor cursor = db.query(
+       TABLE_OFFLINE_GUIDES,
+       new String[] {KEY_GUIDEID},
+       KEY_SITEID + " = ? AND " +
+       KEY_USERID + " = ?",
+       new String[] {site.mSiteid + "", user.getUserid() + ""},
+       null,
+       null,
+       null);
+
+      Set<Integer> guideids = new HashSet<Integer>();
+
+      while (cursor.moveToNext()) {
+         guideids.add(cursor.getInt(0));
+      }
+
+      cursor.close();
+
+      return guideids;
+   }
+
+   /**
+    * Deletes the guides along with any media that no other guide references.
+    */
    public void deleteGuides(Site site, User user, Set<Integer> guideids) {
       if (guideids.isEmpty()) {
          return;
       }
 
+      String where = getGuideListWhere(guideids.size());
+      String[] params = getGuideListArgs(site, user, guideids);
+      SQLiteDatabase db = getWritableDatabase();
+      List<String> unreferencedMedia;
+
+      db.beginTransaction();
+      try {
+         deleteGuides(db, where, params);
+         db.delete(TABLE_OFFLINE_MEDIA_REFS, where, params);
+         unreferencedMedia = deleteUnreferencedMedia(db);
+
+         db.setTransactionSuccessful();
+      } finally {
+         db.endTransaction();
+      }
+
+      OfflineMediaStore.deleteMedia(unreferencedMedia);
+   }
+
+   private static String getGuideListWhere(int numGuides) {
       StringBuilder where = new StringBuilder(
        KEY_SITEID + " = ? AND " +
        KEY_USERID + " = ? AND " +
        KEY_GUIDEID + " IN (");
+
+      for (int i = 0; i < numGuides; i++) {
+         where.append(i == 0 ? "?" : ",?");
+      }
+      where.append(")");
+
+      return where.toString();
+   }
+
+   private static String[] getGuideListArgs(Site site, User user,
+    Collection<Integer> guideids) {
       final int NUM_NON_GUIDE_PARAMS = 2;
       int i = NUM_NON_GUIDE_PARAMS;
       String[] params = new String[guideids.size() + NUM_NON_GUIDE_PARAMS];
@@ -264,41 +658,296 @@ public class ApiDatabase extends SQLiteOpenHelper {
 
       for (Integer guideid : guideids) {
          params[i] = guideid.toString();
-         where.append("?,");
          i++;
       }
-      where.deleteCharAt(where.length() - 1); // Delete trailing comma.
-      where.append(")");
 
-      getWritableDatabase().delete(
-       TABLE_OFFLINE_GUIDES,
-       where.toString(),
-       params
-      );
+      return params;
    }
 
-   public void saveGuide(Site site, User user, ApiEvent<Guide> guideEvent,
-    GuideInfo guideInfo, int imagesTotal, int imagesDownloaded) {
-      if (guideEvent == null) {
-         throw new IllegalArgumentException("ApiEvent<Guide> guideEvent");
-      }
+   /**
+    * Saves the guides and the sets of media they reference in a single transaction.
+    * guideInfos holds the GuideInfo of each guide in guideMedia in the same order.
+    * Media the guides no longer reference are deleted if no other guide references
+    * them.
+    */
+   public void saveGuides(Site site, User user, List<GuideMediaProgress> guideMedia,
+    List<GuideInfo> guideInfos) {
       SQLiteDatabase db = getWritableDatabase();
+      List<String> unreferencedMedia;
+
+      db.beginTransaction();
+      try {
+         for (int i = 0; i < guideMedia.size(); i++) {
+            saveGuide(db, site, user, guideMedia.get(i), guideInfos.get(i));
+         }
+         unreferencedMedia = deleteUnreferencedMedia(db);
+
+         db.setTransactionSuccessful();
+      } finally {
+         db.endTransaction();
+      }
+
+      OfflineMediaStore.deleteMedia(unreferencedMedia);
+   }
+
+   private static void saveGuide(SQLiteDatabase db, Site site, User user,
+    GuideMediaProgress guideMedia, GuideInfo guideInfo) {
       ContentValues values = new ContentValues();
-      Guide guide = guideEvent.getResult();
+      Guide guide = guideMedia.mGuide;
+      String[] guideArgs = getGuideArgs(site, user, guide.getGuideid());
 
       values.put(KEY_SITEID, site.mSiteid);
       values.put(KEY_USERID, user.getUserid());
-      values.put(KEY_GUIDEID, guide.getGuideid());
       values.put(KEY_MODIFIED_DATE, guide.getAbsoluteModifiedDate());
-      values.put(KEY_MEDIA_TOTAL, imagesTotal);
-      values.put(KEY_MEDIA_DOWNLOADED, imagesDownloaded);
-      values.put(KEY_GUIDE_INFO_JSON, new Gson().toJson(guideInfo));
-      values.put(KEY_GUIDE_JSON, guideEvent.getResponse());
+      values.put(KEY_MEDIA_TOTAL, guideMedia.mTotalMedia);
+      values.put(KEY_MEDIA_DOWNLOADED, guideMedia.mMediaProgress);
+
+      // Updating a guide doesn't bring back media that were evicted.
+      values.put(KEY_MEDIA_EVICTED, isMediaEvicted(db, guideArgs) ? 1 : 0);
+
+      // The old version is deleted rather than updated so the guide moves to the top
+      // of the list of offline guides.
+      deleteGuides(db, GUIDE_WHERE, guideArgs);
+      long guideRow = insertGuide(db, values, guide, guideInfo);
+      OfflineGuideSearch.insertGuide(db, guideRow, guide);
+
+      db.delete(TABLE_OFFLINE_MEDIA_REFS, GUIDE_WHERE, guideArgs);
+      for (String url : guideMedia.mMedia) {
+         insertMediaRef(db, guideArgs, url);
+      }
+   }
+
+   /**
+    * Returns true if the guide's media were evicted to stay within the storage budget
+    * and shouldn't be downloaded again until the guide is opened.
+    */
+   public boolean isMediaEvicted(Site site, User user, int guideid) {
+      return isMediaEvicted(getReadableDatabase(), getGuideArgs(site, user, guideid));
+   }
+
+   private static boolean isMediaEvicted(SQLiteDatabase db, String[] guideArgs) {
+      return DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + TABLE_OFFLINE_GUIDES +
+       " WHERE " + GUIDE_WHERE + " AND " + KEY_MEDIA_EVICTED + " != 0", guideArgs) > 0;
+   }
+
+   /**
+    * Adds a medium to the index once it is downloaded.
+    */
+   public void addMedia(String url) {
+      insertMedia(getWritableDatabase(), url);
+   }
+
+   /**
+    * Adds a reference from the guide to a medium in addition to the ones saved with
+    * the guide. This is used when a medium is stored under a different URL than the
+    * guide uses.
+    */
+   public void addMediaRef(Site site, User user, int guideid, String url) {
+      insertMediaRef(getWritableDatabase(), getGuideArgs(site, user, guideid), url);
+   }
+
+   /**
+    * Removes media from the index whose files no longer exist.
+    */
+   public void removeMissingMedia() {
+      SQLiteDatabase db = getWritableDatabase();
+      List<String> missingMedia = new ArrayList<String>();
+      Cursor cursor = db.query(TABLE_OFFLINE_MEDIA, new String[] {KEY_URL},
+       null, null, null, null, null);
+
+      while (cursor.moveToNext()) {
+         String url = cursor.getString(0);
+
+         if (!new File(OfflineMediaStore.getPath(url)).exists()) {
+            missingMedia.add(url);
+         }
+      }
+
+      cursor.close();
+
+      db.beginTransaction();
+      try {
+         for (String url : missingMedia) {
+            db.delete(TABLE_OFFLINE_MEDIA, KEY_URL + " = ?", new String[] {url});
+         }
+
+         db.setTransactionSuccessful();
+      } finally {
+         db.endTransaction();
+      }
+   }
+
+   /**
+    * Evicts the media of the least recently used guides until the media fit in
+    * OfflineMediaStore.getBudget(). Returns the number of guides whose media were
+    * evicted.
+    */
+   public int trimMedia() {
+      final int SITEID_INDEX = 0;
+      final int USERID_INDEX = 1;
+      final int GUIDEID_INDEX = 2;
+      SQLiteDatabase db = getWritableDatabase();
+      List<String> evictedMedia = new ArrayList<String>();
+      int evictedGuides = 0;
+      long size = DatabaseUtils.longForQuery(db, "SELECT TOTAL(" + KEY_SIZE + ") FROM " +
+       TABLE_OFFLINE_MEDIA, null);
+      long budget = OfflineMediaStore.getBudget(size);
+
+      db.beginTransaction();
+      try {
+         while (size > budget) {
+            Cursor cursor = db.rawQuery(
+             "SELECT r." + KEY_SITEID + ", r." + KEY_USERID + ", r." + KEY_GUIDEID +
+             " FROM " + TABLE_OFFLINE_MEDIA_REFS + " r" +
+             " JOIN " + TABLE_OFFLINE_MEDIA + " m ON m." + KEY_URL + " = r." + KEY_URL +
+             " JOIN " + TABLE_OFFLINE_GUIDES + " g ON " + joinGuides("g", "r") +
+             " WHERE g." + KEY_MEDIA_EVICTED + " = 0" +
+             " GROUP BY r." + KEY_SITEID + ", r." + KEY_USERID + ", r." + KEY_GUIDEID +
+             " ORDER BY MAX(m." + KEY_LAST_ACCESS + ") ASC" +
+             " LIMIT 1", null);
+
+            if (!cursor.moveToFirst()) {
+               cursor.close();
+               break;
+            }
+
+            String[] guideArgs = {
+               cursor.getString(SITEID_INDEX),
+               cursor.getString(USERID_INDEX),
+               cursor.getString(GUIDEID_INDEX)
+            };
+            cursor.close();
+
+            size -= evictGuideMedia(db, guideArgs, evictedMedia);
+            evictedGuides++;
+         }
 
-      db.insertWithOnConflict(TABLE_OFFLINE_GUIDES, null, values,
+         db.setTransactionSuccessful();
+      } finally {
+         db.endTransaction();
+      }
+
+      OfflineMediaStore.deleteMedia(evictedMedia);
+
+      if (App.inDebug()) {
+         Log.d(TAG, "Evicted " + evictedMedia.size() + " media of " + evictedGuides +
+          " guides, " + size + "/" + budget + " bytes used");
+      }
+
+      return evictedGuides;
+   }
+
+   /**
+    * Marks the guide as evicted and removes its media that aren't used by guides that
+    * are still stored. The URLs of removed media are added to evictedMedia. Returns
+    * the number of bytes freed.
+    */
+   private static long evictGuideMedia(SQLiteDatabase db, String[] guideArgs,
+    List<String> evictedMedia) {
+      ContentValues values = new ContentValues();
+      values.put(KEY_MEDIA_EVICTED, 1);
+      db.update(TABLE_OFFLINE_GUIDES, values, GUIDE_WHERE, guideArgs);
+
+      Cursor cursor = db.rawQuery(
+       "SELECT m." + KEY_URL + ", m." + KEY_SIZE +
+       " FROM " + TABLE_OFFLINE_MEDIA_REFS + " r" +
+       " JOIN " + TABLE_OFFLINE_MEDIA + " m ON m." + KEY_URL + " = r." + KEY_URL +
+       " WHERE r." + KEY_SITEID + " = ? AND r." + KEY_USERID + " = ? AND r." +
+       KEY_GUIDEID + " = ?" +
+       " AND NOT EXISTS (SELECT 1 FROM " + TABLE_OFFLINE_MEDIA_REFS + " o" +
+       " JOIN " + TABLE_OFFLINE_GUIDES + " g ON " + joinGuides("g", "o") +
+       " WHERE o." + KEY_URL + " = r." + KEY_URL +
+       " AND g." + KEY_MEDIA_EVICTED + " = 0)", guideArgs);
+      List<String> urls = new ArrayList<String>();
+      long freed = 0;
+
+      while (cursor.moveToNext()) {
+         urls.add(cursor.getString(0));
+         freed += cursor.getLong(1);
+      }
+
+      cursor.close();
+
+      for (String url : urls) {
+         db.delete(TABLE_OFFLINE_MEDIA, KEY_URL + " = ?", new String[] {url});
+      }
+      evictedMedia.addAll(urls);
+
+      db.execSQL("UPDATE " + TABLE_OFFLINE_GUIDES + " SET " + KEY_MEDIA_DOWNLOADED +
+       " = MAX(0, " + KEY_MEDIA_DOWNLOADED + " - " + urls.size() + ") WHERE " + GUIDE_WHERE,
+       guideArgs);
+
+      return freed;
+   }
+
+   private static String joinGuides(String guides, String refs) {
+      return guides + "." + KEY_SITEID + " = " + refs + "." + KEY_SITEID + " AND " +
+       guides + "." + KEY_USERID + " = " + refs + "." + KEY_USERID + " AND " +
+       guides + "." + KEY_GUIDEID + " = " + refs + "." + KEY_GUIDEID;
+   }
+
+   private static void insertMedia(SQLiteDatabase db, String url) {
+      File file = new File(OfflineMediaStore.getPath(url));
+
+      if (!file.exists()) {
+         return;
+      }
+
+      ContentValues values = new ContentValues();
+      values.put(KEY_URL, url);
+      values.put(KEY_SIZE, file.length());
+      values.put(KEY_LAST_ACCESS, System.currentTimeMillis());
+
+      db.insertWithOnConflict(TABLE_OFFLINE_MEDIA, null, values,
        SQLiteDatabase.CONFLICT_REPLACE);
    }
 
+   private static void insertMediaRef(SQLiteDatabase db, String[] guideArgs, String url) {
+      ContentValues values = new ContentValues();
+      values.put(KEY_SITEID, guideArgs[0]);
+      values.put(KEY_USERID, guideArgs[1]);
+      values.put(KEY_GUIDEID, guideArgs[2]);
+      values.put(KEY_URL, url);
+
+      db.insert(TABLE_OFFLINE_MEDIA_REFS, null, values);
+   }
+
+   /**
+    * Removes media from the index that no guide references and returns their URLs
+    * so their files can be deleted once the transaction is committed.
+    */
+   private static List<String> deleteUnreferencedMedia(SQLiteDatabase db) {
+      final String UNREFERENCED = "NOT EXISTS (SELECT 1 FROM " + TABLE_OFFLINE_MEDIA_REFS +
+       " r WHERE r." + KEY_URL + " = " + TABLE_OFFLINE_MEDIA + "." + KEY_URL + ")";
+      List<String> urls = new ArrayList<String>();
+      Cursor cursor = db.query(TABLE_OFFLINE_MEDIA, new String[] {KEY_URL}, UNREFERENCED,
+       null, null, null, null);
+
+      while (cursor.moveToNext()) {
+         urls.add(cursor.getString(0));
+      }
+
+      cursor.close();
+
+      if (!urls.isEmpty()) {
+         db.delete(TABLE_OFFLINE_MEDIA, UNREFERENCED, null);
+      }
+
+      return urls;
+   }
+
+   private static String[] concat(String[] columns, String... moreColumns) {
+      String[] all = new String[columns.length + moreColumns.length];
+      System.arraycopy(columns, 0, all, 0, columns.length);
+      System.arraycopy(moreColumns, 0, all, columns.length, moreColumns.length);
+
+      return all;
+   }
+
+   private static String[] getGuideArgs(Site site, User user, int guideid) {
+      return new String[] {site.mSiteid + "", user.getUserid() + "", guideid + ""};
+   }
+
    public void updateGuideProgress(Site site, User user, int guideid, int imagesTotal,
     int imagesDownloaded) {
       ContentValues values = new ContentValues();
@@ -1,26 +1,28 @@
 package com.dozuki.ifixit.util.api;
 
 import android.util.Log;
-import com.dozuki.ifixit.model.Comment;
 import com.dozuki.ifixit.model.dozuki.Site;
 import com.dozuki.ifixit.util.JSONHelper;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Defines all APIEndpoints.
  */
 public enum ApiEndpoint {
    SEARCH(
-      new Endpoint() {
+      new StreamingEndpoint() {
          public String createUrl(String query) {
             return "search/" + query;
          }
 
-         public ApiEvent<?> parse(String json) throws JSONException {
+         public ApiEvent<?> parse(Reader json) throws JSONException {
             return new ApiEvent.Search().setResult(JSONHelper.parseSearchResults(json));
          }
 
@@ -29,7 +31,10 @@ public enum ApiEndpoint {
          }
       },
       false,
-      "GET"
+      "GET",
+      false,
+      true,
+      cache(TimeUnit.HOURS.toMillis(1))
    ),
 
    CATEGORIES(
@@ -47,16 +52,19 @@ public enum ApiEndpoint {
          }
       },
       false,
-      "GET"
+      "GET",
+      false,
+      true,
+      cache(TimeUnit.DAYS.toMillis(7)).staleWhileRevalidate()
    ),
 
    GUIDE(
-      new Endpoint() {
+      new StreamingEndpoint() {
          public String createUrl(String query) {
             return "guides/" + query;
          }
 
-         public ApiEvent<?> parse(String json) throws JSONException {
+         public ApiEvent<?> parse(Reader json) throws JSONException {
             return new ApiEvent.ViewGuide().setResult(JSONHelper.parseGuide(json));
          }
 
@@ -65,16 +73,19 @@ public enum ApiEndpoint {
          }
       },
       false,
-      "GET"
+      "GET",
+      false,
+      true,
+      cache(TimeUnit.DAYS.toMillis(30)).staleWhileRevalidate()
    ),
 
    GUIDES(
-      new Endpoint() {
+      new StreamingEndpoint() {
          public String createUrl(String query) {
             return "guides" + query;
          }
 
-         public ApiEvent<?> parse(String json) throws JSONException {
+         public ApiEvent<?> parse(Reader json) throws JSONException {
             return new ApiEvent.Guides().setResult(JSONHelper.parseGuides(json));
          }
 
@@ -83,7 +94,10 @@ public enum ApiEndpoint {
          }
       },
       false,
-      "GET"
+      "GET",
+      false,
+      true,
+      cache(TimeUnit.DAYS.toMillis(1))
    ),
 
    ADD_COMMENT(
@@ -93,7 +107,7 @@ public enum ApiEndpoint {
          }
 
          public ApiEvent<?> parse(String json) throws JSONException {
-            return new ApiEvent.AddComment().setResult(new Comment(json));
+            return new ApiEvent.AddComment().setResult(JSONHelper.parseComment(json));
          }
 
          public ApiEvent<?> getEvent() {
@@ -111,7 +125,7 @@ public enum ApiEndpoint {
          }
 
          public ApiEvent<?> parse(String json) throws JSONException {
-            return new ApiEvent.EditComment().setResult(new Comment(json));
+            return new ApiEvent.EditComment().setResult(JSONHelper.parseComment(json));
          }
 
          public ApiEvent<?> getEvent() {
@@ -141,7 +155,7 @@ public enum ApiEndpoint {
    ),
 
    TOPIC(
-      new Endpoint() {
+      new StreamingEndpoint() {
          public String createUrl(String query) {
             try {
                return "categories/" + URLEncoder.encode(query, "UTF-8");
@@ -151,7 +165,7 @@ public enum ApiEndpoint {
             }
          }
 
-         public ApiEvent<?> parse(String json) throws JSONException {
+         public ApiEvent<?> parse(Reader json) throws JSONException {
             return new ApiEvent.Topic().setResult(JSONHelper.parseTopicLeaf(json));
          }
 
@@ -160,7 +174,10 @@ public enum ApiEndpoint {
          }
       },
       false,
-      "GET"
+      "GET",
+      false,
+      true,
+      cache(TimeUnit.DAYS.toMillis(30)).staleWhileRevalidate()
    ),
 
    ALL_TOPICS(
@@ -178,7 +195,10 @@ public enum ApiEndpoint {
          }
       },
       false,
-      "GET"
+      "GET",
+      false,
+      true,
+      cache(TimeUnit.DAYS.toMillis(7))
    ),
 
    LOGIN(
@@ -254,7 +274,10 @@ public enum ApiEndpoint {
          }
       },
       true,
-      "GET"
+      "GET",
+      false,
+      true,
+      cache(TimeUnit.DAYS.toMillis(1))
    ),
 
    USER_VIDEOS(
@@ -272,16 +295,19 @@ public enum ApiEndpoint {
          }
       },
       true,
-      "GET"
+      "GET",
+      false,
+      true,
+      cache(TimeUnit.DAYS.toMillis(1))
    ),
 
    USER_FAVORITES(
-      new Endpoint() {
+      new StreamingEndpoint() {
          public String createUrl(String query) {
-            return "user/favorites/guides";
+            return "user/favorites/guides" + query;
          }
 
-         public ApiEvent<?> parse(String json) throws JSONException {
+         public ApiEvent<?> parse(Reader json) throws JSONException {
             return new ApiEvent.UserFavorites().setResult(JSONHelper.parseUserFavorites(json));
          }
 
@@ -290,7 +316,10 @@ public enum ApiEndpoint {
          }
       },
       true,
-      "GET"
+      "GET",
+      false,
+      true,
+      cache(TimeUnit.DAYS.toMillis(7))
    ),
 
    USER_EMBEDS(
@@ -308,7 +337,10 @@ public enum ApiEndpoint {
          }
       },
       true,
-      "GET"
+      "GET",
+      false,
+      true,
+      cache(TimeUnit.DAYS.toMillis(1))
    ),
 
    UPLOAD_IMAGE(
@@ -430,12 +462,12 @@ public enum ApiEndpoint {
    ),
 
    USER_GUIDES(
-      new Endpoint() {
+      new StreamingEndpoint() {
          public String createUrl(String query) {
             return "user/guides?limit=10000";
          }
 
-         public ApiEvent<?> parse(String json) throws JSONException {
+         public ApiEvent<?> parse(Reader json) throws JSONException {
             return new ApiEvent.UserGuides().setResult(JSONHelper.parseUserGuides(json));
          }
 
@@ -444,16 +476,19 @@ public enum ApiEndpoint {
          }
       },
       true,
-      "GET"
+      "GET",
+      false,
+      true,
+      cache(TimeUnit.DAYS.toMillis(7))
    ),
 
    GUIDE_FOR_EDIT(
-      new Endpoint() {
+      new StreamingEndpoint() {
          public String createUrl(String query) {
             return "guides/" + query + "?unpatrolled&excludePrerequisiteSteps";
          }
 
-         public ApiEvent<?> parse(String json) throws JSONException {
+         public ApiEvent<?> parse(Reader json) throws JSONException {
             return new ApiEvent.GuideForEdit().setResult(JSONHelper.parseGuide(json));
          }
 
@@ -462,7 +497,10 @@ public enum ApiEndpoint {
          }
       },
       true,
-      "GET"
+      "GET",
+      false,
+      true,
+      cache(TimeUnit.DAYS.toMillis(1))
    ),
 
    FAVORITE_GUIDE(
@@ -502,12 +540,12 @@ public enum ApiEndpoint {
    ),
 
    CREATE_GUIDE(
-      new Endpoint() {
+      new StreamingEndpoint() {
          public String createUrl(String query) {
             return "guides";
          }
 
-         public ApiEvent<?> parse(String json) throws JSONException {
+         public ApiEvent<?> parse(Reader json) throws JSONException {
             return new ApiEvent.CreateGuide().setResult(JSONHelper.parseGuide(json));
          }
 
@@ -520,12 +558,12 @@ public enum ApiEndpoint {
    ),
 
    EDIT_GUIDE(
-      new Endpoint() {
+      new StreamingEndpoint() {
          public String createUrl(String query) {
             return "guides/" + query;
          }
 
-         public ApiEvent<?> parse(String json) throws JSONException {
+         public ApiEvent<?> parse(Reader json) throws JSONException {
             return new ApiEvent.EditGuide().setResult(JSONHelper.parseGuide(json));
          }
 
@@ -597,12 +635,12 @@ public enum ApiEndpoint {
     ***/
 
    PUBLISH_GUIDE(
-      new Endpoint() {
+      new StreamingEndpoint() {
          public String createUrl(String query) {
             return "guides/" + query;
          }
 
-         public ApiEvent<?> parse(String json) throws JSONException {
+         public ApiEvent<?> parse(Reader json) throws JSONException {
             return new ApiEvent.PublishStatus().setResult(JSONHelper.parseGuide(json));
          }
 
@@ -615,12 +653,12 @@ public enum ApiEndpoint {
    ),
 
    UNPUBLISH_GUIDE(
-      new Endpoint() {
+      new StreamingEndpoint() {
          public String createUrl(String query) {
             return "guides/" + query;
          }
 
-         public ApiEvent<?> parse(String json) throws JSONException {
+         public ApiEvent<?> parse(Reader json) throws JSONException {
             return new ApiEvent.PublishStatus().setResult(JSONHelper.parseGuide(json));
          }
 
@@ -633,12 +671,12 @@ public enum ApiEndpoint {
    ),
 
    REORDER_GUIDE_STEPS(
-      new Endpoint() {
+      new StreamingEndpoint() {
          public String createUrl(String query) {
             return "guides/" +  query;
          }
 
-         public ApiEvent<?> parse(String json) throws JSONException {
+         public ApiEvent<?> parse(Reader json) throws JSONException {
             return new ApiEvent.StepReorder().setResult(JSONHelper.parseGuide(json));
          }
 
@@ -651,12 +689,12 @@ public enum ApiEndpoint {
    ),
 
    ADD_GUIDE_STEP(
-      new Endpoint() {
+      new StreamingEndpoint() {
          public String createUrl(String query) {
             return "guides/" + query;
          }
 
-         public ApiEvent<?> parse(String json) throws JSONException {
+         public ApiEvent<?> parse(Reader json) throws JSONException {
             return new ApiEvent.StepAdd().setResult(JSONHelper.parseGuide(json));
          }
 
@@ -687,12 +725,12 @@ public enum ApiEndpoint {
    ),
 
    DELETE_GUIDE_STEP(
-      new Endpoint() {
+      new StreamingEndpoint() {
          public String createUrl(String query) {
             return "guides/" + query;
          }
 
-         public ApiEvent<?> parse(String json) throws JSONException {
+         public ApiEvent<?> parse(Reader json) throws JSONException {
             return new ApiEvent.StepRemove().setResult(JSONHelper.parseGuide(json));
          }
 
@@ -719,7 +757,10 @@ public enum ApiEndpoint {
          }
       },
       false,
-      "GET"
+      "GET",
+      false,
+      true,
+      cache(TimeUnit.DAYS.toMillis(30))
    ),
 
    SITE_INFO(
@@ -737,7 +778,10 @@ public enum ApiEndpoint {
          }
       },
       false,
-      "GET"
+      "GET",
+      false,
+      true,
+      cache(TimeUnit.DAYS.toMillis(30))
    ),
 
    USER_INFO(
@@ -756,7 +800,9 @@ public enum ApiEndpoint {
       },
       false,
       "GET",
-      true
+      true,
+      true,
+      cache(TimeUnit.DAYS.toMillis(7))
    );
 
    /**
@@ -788,6 +834,18 @@ public enum ApiEndpoint {
       public ApiEvent<?> getEvent();
    }
 
+   /**
+    * Endpoint whose responses can be parsed as they are read from the connection rather
+    * than being read into a String first.
+    */
+   private static abstract class StreamingEndpoint implements Endpoint {
+      public abstract ApiEvent<?> parse(Reader json) throws JSONException;
+
+      public ApiEvent<?> parse(String json) throws JSONException {
+         return parse(new StringReader(json));
+      }
+   }
+
    /**
     * Endpoint's functionality.
     */
@@ -815,6 +873,46 @@ public enum ApiEndpoint {
     */
    public final boolean mPostResults;
 
+   /**
+    * How long, in ms, a stored response for this endpoint is fresh enough to be posted
+    * while it is revalidated. Stored responses of any age are used when the request
+    * can't be made. Endpoints that aren't cached have a TTL of NO_CACHE.
+    */
+   public final long mCacheTtl;
+
+   /**
+    * True to immediately post the stored response, if there is one, while the request
+    * is performed in the background. A second event is only posted if the response
+    * changed.
+    */
+   public final boolean mStaleWhileRevalidate;
+
+   private static final long NO_CACHE = 0;
+
+   /**
+    * How responses for an endpoint are stored. Created with cache(ttl).
+    */
+   private static class Cache {
+      private final long mTtl;
+      private boolean mStaleWhileRevalidate;
+
+      private Cache(long ttl) {
+         mTtl = ttl;
+      }
+
+      /**
+       * Posts the stored response while the request is made. See mStaleWhileRevalidate.
+       */
+      private Cache staleWhileRevalidate() {
+         mStaleWhileRevalidate = true;
+         return this;
+      }
+   }
+
+   private static Cache cache(long ttl) {
+      return new Cache(ttl);
+   }
+
    private ApiEndpoint(Endpoint endpoint, boolean authenticated, String method) {
       this(endpoint, authenticated, method, false);
    }
@@ -823,13 +921,21 @@ public enum ApiEndpoint {
                        String method, boolean forcePublic) {
       this(endpoint, authenticated, method, forcePublic, true);
    }
+
    private ApiEndpoint(Endpoint endpoint, boolean authenticated,
                        String method, boolean forcePublic, boolean postResults) {
+      this(endpoint, authenticated, method, forcePublic, postResults, null);
+   }
+
+   private ApiEndpoint(Endpoint endpoint, boolean authenticated, String method,
+    boolean forcePublic, boolean postResults, Cache cache) {
       mEndpoint = endpoint;
       mAuthenticated = authenticated;
       mMethod = method;
       mForcePublic = forcePublic;
       mPostResults = postResults;
+      mCacheTtl = cache != null ? cache.mTtl : NO_CACHE;
+      mStaleWhileRevalidate = cache != null && cache.mStaleWhileRevalidate && isCached();
    }
 
    /**
@@ -866,10 +972,54 @@ public enum ApiEndpoint {
       return url;
    }
 
+   /**
+    * Returns the ApiExecutor lane that calls to this endpoint are performed in.
+    */
+   public ApiExecutor.Lane getLane() {
+      switch (this) {
+         case UPLOAD_IMAGE:
+         case UPLOAD_STEP_IMAGE:
+            return ApiExecutor.Lane.UPLOAD;
+         default:
+            return ApiExecutor.Lane.INTERACTIVE;
+      }
+   }
+
+   /**
+    * Returns true if failed calls to this endpoint can be made again. Only GETs are
+    * retried because a request that changes something may have been applied even though
+    * its response was lost.
+    */
+   public boolean isRetryable() {
+      return mMethod.equals("GET");
+   }
+
+   /**
+    * Returns true if responses for this endpoint are stored for offline use.
+    */
+   public boolean isCached() {
+      return mMethod.equals("GET") && mCacheTtl != NO_CACHE;
+   }
+
    public ApiEvent<?> parseResult(String json) throws JSONException {
       return mEndpoint.parse(json).setResponse(json);
    }
 
+   /**
+    * Returns true if responses for this endpoint can be parsed with
+    * parseResult(Reader).
+    */
+   public boolean isStreamed() {
+      return mEndpoint instanceof StreamingEndpoint;
+   }
+
+   /**
+    * Parses the response as it is read. Only valid if isStreamed() returns true.
+    */
+   public ApiEvent<?> parseResult(Reader json) throws JSONException {
+      return ((StreamingEndpoint)mEndpoint).parse(json);
+   }
+
    /**
     * Returns a "plain" event that is the correct type for this endpoint.
     */
@@ -1,5 +1,6 @@
 package com.dozuki.ifixit.util.api;
 
+import com.dozuki.ifixit.App;
 import com.dozuki.ifixit.model.Comment;
 import com.dozuki.ifixit.model.Image;
 import com.dozuki.ifixit.model.dozuki.Site;
@@ -14,12 +15,15 @@ import com.dozuki.ifixit.model.topic.TopicNode;
 import com.dozuki.ifixit.model.user.User;
 import com.dozuki.ifixit.model.user.UserImage;
 
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 
 /**
  * Base class for API events that are posted to the otto bus.
  */
-public abstract class ApiEvent<T> {
+public abstract class ApiEvent<T> implements Cloneable {
    /**
     * Proxy for APIEvents. Api posts these to the bus, BaseActivity
     * listens for them and posts the underlying ApiEvent to the bus if the
@@ -41,7 +45,13 @@ public abstract class ApiEvent<T> {
       }
    }
 
-   public static class Unauthorized extends ApiEvent<String> {}
+   public static class Unauthorized extends ApiEvent<String> {
+      /**
+       * True if another call that was rejected with the same auth token already
+       * reported that the user needs to log in again.
+       */
+      protected boolean mReported;
+   }
 
    public static class Search extends ApiEvent<SearchResults> {}
 
@@ -85,7 +95,11 @@ public abstract class ApiEvent<T> {
    public static class Sites extends ApiEvent<ArrayList<Site>> {}
    public static class SiteInfo extends ApiEvent<Site> {}
 
-   public String mResponse;
+   /**
+    * Raw JSON of the response. Null for streamed responses until getResponse() reads
+    * them back.
+    */
+   protected String mResponse;
    public T mResult;
    public ApiCall mApiCall;
    public ApiError mError;
@@ -96,6 +110,42 @@ public abstract class ApiEvent<T> {
     */
    public boolean mStoredResponse;
 
+   /**
+    * True iff this is a stored response that was posted while the request is being
+    * revalidated. If the live response differs, another event follows.
+    */
+   public boolean mStale;
+
+   /**
+    * True iff the server responded 304 Not Modified and the stored response was
+    * reused.
+    */
+   protected boolean mNotModified;
+
+   /**
+    * Validators the server sent with the response. Stored with cached responses so
+    * they can be revalidated with a conditional request.
+    */
+   protected String mETag;
+   protected long mLastModified = -1;
+
+   /**
+    * True iff the response was parsed as it was read from the connection rather than
+    * being read into mResponse first.
+    */
+   protected boolean mStreamed;
+
+   /**
+    * Key of the streamed response in ApiResponseCache or null if it wasn't stored.
+    */
+   protected String mResponseCacheKey;
+
+   /**
+    * SHA-1 of the response body. Set as streamed responses are read so they can be
+    * compared after their cache entry is evicted. Computed from mResponse otherwise.
+    */
+   protected byte[] mResponseDigest;
+
    public ApiEvent<T> setResult(T result) {
       mResult = result;
       return this;
@@ -118,10 +168,56 @@ public abstract class ApiEvent<T> {
       return this;
    }
 
+   /**
+    * Returns the raw JSON of the response. Streamed responses are read back from the
+    * response cache the first time this is called so it may hit the disk. Returns null
+    * for streamed responses that weren't cached or have since been evicted, so use
+    * hasSameResponse() to compare responses.
+    */
    public String getResponse() {
+      if (mResponse == null && mResponseCacheKey != null) {
+         mResponse = ApiResponseCache.get(App.get()).getResponse(mResponseCacheKey);
+      }
+
       return mResponse;
    }
 
+   /**
+    * Returns true if both events are known to have the same response body. Streamed
+    * responses are compared by digest so this never reads them back from the response
+    * cache. Returns false if either body is unknown.
+    */
+   public boolean hasSameResponse(ApiEvent<?> other) {
+      byte[] digest = getResponseDigest();
+      byte[] otherDigest = other.getResponseDigest();
+
+      return digest != null && otherDigest != null &&
+       MessageDigest.isEqual(digest, otherDigest);
+   }
+
+   private byte[] getResponseDigest() {
+      if (mResponseDigest == null && mResponse != null) {
+         try {
+            mResponseDigest = newResponseDigest().digest(mResponse.getBytes("UTF-8"));
+         } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+         }
+      }
+
+      return mResponseDigest;
+   }
+
+   /**
+    * Returns the digest used for mResponseDigest.
+    */
+   protected static MessageDigest newResponseDigest() {
+      try {
+         return MessageDigest.getInstance("SHA-1");
+      } catch (NoSuchAlgorithmException e) {
+         throw new AssertionError(e);
+      }
+   }
+
    public ApiEvent<T> setCode(int code) {
       mCode = code;
       return this;
@@ -145,4 +241,25 @@ public abstract class ApiEvent<T> {
       mStoredResponse = stored;
       return this;
    }
+
+   public boolean isStale() {
+      return mStale;
+   }
+
+   /**
+    * Returns a copy of this event for an ApiCall that shared this event's request. The
+    * copy has its own ApiCall so it is routed to the right Activity but the result
+    * itself is shared.
+    */
+   @SuppressWarnings("unchecked")
+   protected ApiEvent<T> copyFor(ApiCall apiCall) {
+      try {
+         ApiEvent<T> copy = (ApiEvent<T>)clone();
+         copy.mApiCall = apiCall;
+
+         return copy;
+      } catch (CloneNotSupportedException e) {
+         throw new AssertionError(e);
+      }
+   }
 }
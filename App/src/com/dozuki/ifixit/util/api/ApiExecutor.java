@@ -0,0 +1,224 @@
+package com.dozuki.ifixit.util.api;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.dozuki.ifixit.App;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs API requests in separate lanes so slow work can't hold up requests the user is
+ * waiting on. Each lane has its own threads and a bounded queue. Work is rejected with
+ * a RejectedExecutionException once a lane's queue is full rather than queueing up
+ * without limit.
+ *
+ * Each lane keeps its queue depth and how long work waited and ran, which can be read
+ * with the Lane getters.
+ */
+public class ApiExecutor {
+   private static final String TAG = "ApiExecutor";
+
+   /**
+    * Work that waits longer than this for a thread is logged in debug builds.
+    */
+   private static final long SLOW_WAIT_MS = 500;
+
+   private static final long KEEP_ALIVE_SECONDS = 30;
+
+   public enum Lane {
+      /**
+       * Requests the user is waiting on.
+       */
+      INTERACTIVE(4, 32, Process.THREAD_PRIORITY_DEFAULT),
+
+      /**
+       * Requests for content the user may want soon or already has a copy of.
+       */
+      PREFETCH(2, 16, Process.THREAD_PRIORITY_BACKGROUND),
+
+      /**
+       * Media uploads. These can take minutes on slow connections.
+       */
+      UPLOAD(1, 16, Process.THREAD_PRIORITY_BACKGROUND),
+
+      /**
+       * Requests made by ApiSyncAdapter while syncing offline guides.
+       */
+      SYNC(4, 16, Process.THREAD_PRIORITY_BACKGROUND);
+
+      private final int mThreads;
+      private final int mQueueSize;
+      private final int mThreadPriority;
+      private ThreadPoolExecutor mExecutor;
+
+      private final AtomicLong mCompleted = new AtomicLong();
+      private final AtomicLong mTotalWaitMs = new AtomicLong();
+      private final AtomicLong mTotalRunMs = new AtomicLong();
+      private volatile long mMaxWaitMs;
+
+      private Lane(int threads, int queueSize, int threadPriority) {
+         mThreads = threads;
+         mQueueSize = queueSize;
+         mThreadPriority = threadPriority;
+      }
+
+      /**
+       * Returns the number of tasks waiting for a thread.
+       */
+      public int getQueueDepth() {
+         return getExecutor().getQueue().size();
+      }
+
+      /**
+       * Returns the number of tasks that are running.
+       */
+      public int getActiveCount() {
+         return getExecutor().getActiveCount();
+      }
+
+      public long getCompletedCount() {
+         return mCompleted.get();
+      }
+
+      /**
+       * Returns the average time tasks waited for a thread.
+       */
+      public long getAverageWaitMs() {
+         long completed = mCompleted.get();
+         return completed == 0 ? 0 : mTotalWaitMs.get() / completed;
+      }
+
+      public long getMaxWaitMs() {
+         return mMaxWaitMs;
+      }
+
+      /**
+       * Returns the average time tasks took once they had a thread.
+       */
+      public long getAverageRunMs() {
+         long completed = mCompleted.get();
+         return completed == 0 ? 0 : mTotalRunMs.get() / completed;
+      }
+
+      @Override
+      public String toString() {
+         return name() + " {queued: " + getQueueDepth() + ", active: " + getActiveCount() +
+          ", completed: " + getCompletedCount() + ", avg wait: " + getAverageWaitMs() +
+          "ms, max wait: " + getMaxWaitMs() + "ms, avg run: " + getAverageRunMs() + "ms}";
+      }
+
+      private synchronized ThreadPoolExecutor getExecutor() {
+         if (mExecutor == null) {
+            mExecutor = new ThreadPoolExecutor(mThreads, mThreads, KEEP_ALIVE_SECONDS,
+             TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(mQueueSize),
+             new LaneThreadFactory(this));
+            // Idle lanes don't need to keep their threads around.
+            mExecutor.allowCoreThreadTimeOut(true);
+         }
+
+         return mExecutor;
+      }
+
+      private void record(long waitMs, long runMs) {
+         mCompleted.incrementAndGet();
+         mTotalWaitMs.addAndGet(waitMs);
+         mTotalRunMs.addAndGet(runMs);
+
+         if (waitMs > mMaxWaitMs) {
+            mMaxWaitMs = waitMs;
+         }
+
+         if (App.inDebug() && waitMs > SLOW_WAIT_MS) {
+            Log.w(TAG, "Waited " + waitMs + "ms for a thread: " + this);
+         }
+      }
+   }
+
+   /**
+    * Runs the callable in the lane. Throws RejectedExecutionException if the lane's queue
+    * is full.
+    */
+   public static <T> Future<T> submit(Lane lane, Callable<T> callable) {
+      Task<T> task = new Task<T>(lane, callable);
+
+      try {
+         lane.getExecutor().execute(task);
+      } catch (RejectedExecutionException e) {
+         task.cancel(false);
+
+         if (App.inDebug()) {
+            Log.w(TAG, "Lane is full: " + lane);
+         }
+
+         throw e;
+      }
+
+      return task;
+   }
+
+   /**
+    * Cancels a task returned by submit(). It is removed from its lane if it hasn't
+    * started. A running task isn't interrupted but is marked as canceled.
+    */
+   public static void cancel(Future<?> future) {
+      future.cancel(false);
+
+      if (future instanceof Task<?>) {
+         ((Task<?>)future).mLane.getExecutor().remove((Task<?>)future);
+      }
+   }
+
+   private static class Task<T> extends FutureTask<T> {
+      private final Lane mLane;
+      private final long mQueuedAt;
+
+      private Task(Lane lane, Callable<T> callable) {
+         super(callable);
+
+         mLane = lane;
+         mQueuedAt = SystemClock.elapsedRealtime();
+      }
+
+      @Override
+      public void run() {
+         long startedAt = SystemClock.elapsedRealtime();
+
+         try {
+            super.run();
+         } finally {
+            mLane.record(startedAt - mQueuedAt, SystemClock.elapsedRealtime() - startedAt);
+         }
+      }
+   }
+
+   private static class LaneThreadFactory implements ThreadFactory {
+      private final Lane mLane;
+      private final AtomicInteger mThreadCount = new AtomicInteger();
+
+      private LaneThreadFactory(Lane lane) {
+         mLane = lane;
+      }
+
+      @Override
+      public Thread newThread(final Runnable runnable) {
+         return new Thread(new Runnable() {
+            @Override
+            public void run() {
+               Process.setThreadPriority(mLane.mThreadPriority);
+               runnable.run();
+            }
+         }, TAG + " " + mLane.name() + " #" + mThreadCount.incrementAndGet());
+      }
+   }
+}
@@ -0,0 +1,812 @@
+package com.dozuki.ifixit.util.api;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.dozuki.ifixit.App;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded disk cache for API responses.
+ *
+ * Each entry is stored in its own file named by the SHA-1 of its key. The full key is
+ * written at the start of the file and compared on read so a hash collision results in
+ * a miss rather than the wrong response. A journal records the order that entries are
+ * written and read so the least recently used entries can be evicted once the cache
+ * grows past its byte budget.
+ *
+ * Entries also keep the ETag and Last-Modified validators the server sent with the
+ * response so expired entries can be revalidated with a conditional request rather than
+ * downloaded again.
+ *
+ * Responses can be written with an Editor as they are read from the connection so the
+ * body never has to be held in memory just to be stored.
+ */
+public class ApiResponseCache {
+   private static final String TAG = "ApiResponseCache";
+
+   private static final String DIRECTORY = "api_responses";
+   private static final String JOURNAL_FILE = "journal";
+   private static final String JOURNAL_FILE_TMP = "journal.tmp";
+   private static final String ENTRY_FILE_TMP_SUFFIX = ".tmp";
+   private static final long MAX_SIZE = 10 * 1024 * 1024;
+   private static final int ENTRY_VERSION = 2;
+
+   /**
+    * Rebuild the journal once it contains this many lines that don't describe the
+    * current state of the cache.
+    */
+   private static final int MAX_REDUNDANT_OPS = 2000;
+
+   private static final String CLEAN = "CLEAN";
+   private static final String READ = "READ";
+   private static final String REMOVE = "REMOVE";
+
+   /**
+    * A single cached response.
+    */
+   public static class Entry {
+      public final String mKey;
+      public final String mResponse;
+      /**
+       * Time that the response was stored in ms since the epoch.
+       */
+      public final long mStoredAt;
+      /**
+       * Validators sent with the response. mETag is null and mLastModified is -1 if
+       * the server didn't send them.
+       */
+      public final String mETag;
+      public final long mLastModified;
+      /**
+       * Size of the response body in bytes.
+       */
+      public final int mSize;
+
+      public Entry(String key, String response, long storedAt, String eTag,
+       long lastModified, int size) {
+         mKey = key;
+         mResponse = response;
+         mStoredAt = storedAt;
+         mETag = eTag;
+         mLastModified = lastModified;
+         mSize = size;
+      }
+
+      public long getAge() {
+         return System.currentTimeMillis() - mStoredAt;
+      }
+
+      public boolean hasValidators() {
+         return mETag != null || mLastModified > 0;
+      }
+   }
+
+   private static ApiResponseCache sCache;
+
+   public static synchronized ApiResponseCache get(Context context) {
+      if (sCache == null) {
+         sCache = new ApiResponseCache(new File(context.getCacheDir(), DIRECTORY), MAX_SIZE);
+      }
+
+      return sCache;
+   }
+
+   private final File mDirectory;
+   private final long mMaxSize;
+
+   /**
+    * Maps file names to entry sizes in access order so the eldest entry is the least
+    * recently used one.
+    */
+   private final LinkedHashMap<String, Long> mEntries =
+    new LinkedHashMap<String, Long>(0, 0.75f, true);
+   private long mSize;
+   private Writer mJournal;
+   private int mRedundantOps;
+
+   private int mHitCount;
+   private int mMissCount;
+   private int mExpiredCount;
+   private int mCollisionCount;
+   private int mPutCount;
+   private int mEvictionCount;
+   private int mNotModifiedCount;
+   private int mEditCount;
+   private final EnumMap<ApiEndpoint, Long> mBytesSaved =
+    new EnumMap<ApiEndpoint, Long>(ApiEndpoint.class);
+
+   private ApiResponseCache(File directory, long maxSize) {
+      mDirectory = directory;
+      mMaxSize = maxSize;
+   }
+
+   /**
+    * Returns the stored entry for the key or null if there isn't one or it is older
+    * than maxAge ms. The entry is read without holding the cache's lock so large
+    * responses don't hold up other requests.
+    */
+   public Entry get(String key, long maxAge) {
+      String name = getFileName(key);
+
+      synchronized (this) {
+         open();
+
+         // get() rather than containsKey() so the entry moves to the end of the access
+         // order.
+         if (mEntries.get(name) == null) {
+            mMissCount++;
+            return null;
+         }
+      }
+
+      // Entries are replaced by renaming a new file over them so this reads either the
+      // old or the new one in full.
+      Entry entry = readEntry(name);
+
+      synchronized (this) {
+         if (entry == null) {
+            mMissCount++;
+            removeIfPresent(name);
+            return null;
+         } else if (!entry.mKey.equals(key)) {
+            // Another key hashed to the same file. Leave it alone and report a miss.
+            mCollisionCount++;
+            mMissCount++;
+            return null;
+         } else if (entry.getAge() > maxAge) {
+            mExpiredCount++;
+            mMissCount++;
+            removeIfPresent(name);
+            return null;
+         }
+
+         mHitCount++;
+         journal(READ + " " + name);
+      }
+
+      return entry;
+   }
+
+   /**
+    * Stores the response and its validators for the key, evicting the least recently
+    * used entries if the cache is over budget. eTag may be null and lastModified -1 if
+    * the server didn't send them.
+    */
+   public void put(String key, String response, String eTag, long lastModified) {
+      Editor editor = null;
+
+      try {
+         editor = edit(key, eTag, lastModified);
+         editor.write(response.getBytes("UTF-8"));
+         editor.commit();
+      } catch (IOException e) {
+         Log.e(TAG, "Failed to store response", e);
+
+         if (editor != null) {
+            editor.abort();
+         }
+      }
+   }
+
+   /**
+    * Starts a new entry for the key that is written as the response is read. The entry
+    * only replaces the stored one for the key once it is committed. eTag may be null and
+    * lastModified -1 if the server didn't send them.
+    */
+   public synchronized Editor edit(String key, String eTag, long lastModified)
+    throws IOException {
+      open();
+
+      String name = getFileName(key);
+      File tmpFile = new File(mDirectory, name + "." + (++mEditCount) +
+       ENTRY_FILE_TMP_SUFFIX);
+
+      return new Editor(key, name, tmpFile, eTag, lastModified);
+   }
+
+   /**
+    * Returns the stored response for the key regardless of its age or null if there
+    * isn't one. Unlike get() this doesn't count as a hit or a use of the entry.
+    */
+   public synchronized String getResponse(String key) {
+      open();
+
+      String name = getFileName(key);
+      if (!mEntries.containsKey(name)) {
+         return null;
+      }
+
+      Entry entry = readEntry(name);
+
+      return entry != null && entry.mKey.equals(key) ? entry.mResponse : null;
+   }
+
+   /**
+    * Resets the stored time of the entry for the key to now. This is used when the
+    * server confirms that the stored response is still current so the body doesn't
+    * need to be written out again.
+    */
+   public synchronized void touch(String key) {
+      open();
+
+      String name = getFileName(key);
+      if (mEntries.get(name) == null) {
+         return;
+      }
+
+      RandomAccessFile file = null;
+
+      try {
+         file = new RandomAccessFile(new File(mDirectory, name), "rw");
+
+         // The stored time immediately follows the version and the key.
+         if (file.readInt() != ENTRY_VERSION || !file.readUTF().equals(key)) {
+            return;
+         }
+
+         file.writeLong(System.currentTimeMillis());
+         journal(READ + " " + name);
+      } catch (IOException e) {
+         Log.w(TAG, "Failed to touch entry " + name, e);
+      } finally {
+         closeQuietly(file);
+      }
+   }
+
+   /**
+    * Records that the server responded 304 Not Modified for the endpoint so the stored
+    * body of the given size didn't need to be downloaded.
+    */
+   public synchronized void recordNotModified(ApiEndpoint endpoint, long bytes) {
+      Long saved = mBytesSaved.get(endpoint);
+      mBytesSaved.put(endpoint, (saved == null ? 0 : saved) + bytes);
+      mNotModifiedCount++;
+   }
+
+   /**
+    * Returns the number of response bytes that weren't downloaded because the stored
+    * response for the endpoint was still current.
+    */
+   public synchronized long getBytesSaved(ApiEndpoint endpoint) {
+      Long saved = mBytesSaved.get(endpoint);
+      return saved == null ? 0 : saved;
+   }
+
+   public synchronized long getBytesSaved() {
+      long total = 0;
+
+      for (Long saved : mBytesSaved.values()) {
+         total += saved;
+      }
+
+      return total;
+   }
+
+   /**
+    * Removes all entries.
+    */
+   public synchronized void clear() {
+      open();
+
+      for (String name : mEntries.keySet()) {
+         new File(mDirectory, name).delete();
+      }
+
+      mEntries.clear();
+      mSize = 0;
+      rebuildJournal();
+   }
+
+   public synchronized long getSize() {
+      return mSize;
+   }
+
+   public synchronized int getHitCount() {
+      return mHitCount;
+   }
+
+   public synchronized int getMissCount() {
+      return mMissCount;
+   }
+
+   public synchronized int getExpiredCount() {
+      return mExpiredCount;
+   }
+
+   public synchronized int getCollisionCount() {
+      return mCollisionCount;
+   }
+
+   public synchronized int getPutCount() {
+      return mPutCount;
+   }
+
+   public synchronized int getEvictionCount() {
+      return mEvictionCount;
+   }
+
+   public synchronized int getNotModifiedCount() {
+      return mNotModifiedCount;
+   }
+
+   @Override
+   public synchronized String toString() {
+      return "ApiResponseCache[size=" + mSize + ", entries=" + mEntries.size() +
+       ", hits=" + mHitCount + ", misses=" + mMissCount + ", expired=" + mExpiredCount +
+       ", collisions=" + mCollisionCount + ", puts=" + mPutCount +
+       ", evictions=" + mEvictionCount + ", notModified=" + mNotModifiedCount +
+       ", bytesSaved=" + mBytesSaved + "]";
+   }
+
+   /**
+    * Removes the entry unless it was already removed while it was being read.
+    */
+   private void removeIfPresent(String name) {
+      if (mEntries.containsKey(name)) {
+         remove(name);
+      }
+   }
+
+   private void remove(String name) {
+      Long size = mEntries.remove(name);
+
+      if (size != null) {
+         mSize -= size;
+         mRedundantOps++;
+         journal(REMOVE + " " + name);
+      }
+
+      new File(mDirectory, name).delete();
+   }
+
+   private void trimToSize() {
+      Iterator<Map.Entry<String, Long>> iterator = mEntries.entrySet().iterator();
+
+      while (mSize > mMaxSize && iterator.hasNext()) {
+         Map.Entry<String, Long> eldest = iterator.next();
+         iterator.remove();
+
+         mSize -= eldest.getValue();
+         mEvictionCount++;
+         mRedundantOps++;
+         new File(mDirectory, eldest.getKey()).delete();
+         journal(REMOVE + " " + eldest.getKey());
+      }
+   }
+
+   private Entry readEntry(String name) {
+      DataInputStream in = null;
+
+      try {
+         in = new DataInputStream(new BufferedInputStream(
+          new FileInputStream(new File(mDirectory, name))));
+
+         if (in.readInt() != ENTRY_VERSION) {
+            return null;
+         }
+
+         String key = in.readUTF();
+         long storedAt = in.readLong();
+         String eTag = in.readBoolean() ? in.readUTF() : null;
+         long lastModified = in.readLong();
+         byte[] body = new byte[in.readInt()];
+         in.readFully(body);
+
+         return new Entry(key, new String(body, "UTF-8"), storedAt, eTag, lastModified,
+          body.length);
+      } catch (IOException e) {
+         Log.w(TAG, "Failed to read entry " + name, e);
+         return null;
+      } finally {
+         closeQuietly(in);
+      }
+   }
+
+   /**
+    * Lazily reads the journal so the disk isn't touched until the cache is first used.
+    */
+   private void open() {
+      if (mJournal != null) {
+         return;
+      }
+
+      long startTime = System.currentTimeMillis();
+      File journalFile = new File(mDirectory, JOURNAL_FILE);
+
+      if (!journalFile.exists() || !readJournal(journalFile)) {
+         // Without a journal we have no idea what is in the directory so start over.
+         deleteContents(mDirectory);
+         deleteLegacyFileCache();
+         mEntries.clear();
+         mSize = 0;
+      } else {
+         deleteTmpFiles(mDirectory);
+      }
+
+      rebuildJournal();
+      trimToSize();
+
+      if (App.inDebug()) {
+         Log.i(TAG, "Opened cache in " + (System.currentTimeMillis() - startTime) + "ms: " +
+          this);
+      }
+   }
+
+   /**
+    * Replays the journal into mEntries. Returns false if the journal is corrupt.
+    */
+   private boolean readJournal(File journalFile) {
+      BufferedReader reader = null;
+
+      try {
+         reader = new BufferedReader(new FileReader(journalFile));
+         String line;
+
+         while ((line = reader.readLine()) != null) {
+            String[] parts = line.split(" ");
+
+            if (parts[0].equals(CLEAN) && parts.length == 3) {
+               Long previousSize = mEntries.put(parts[1], Long.parseLong(parts[2]));
+               if (previousSize != null) {
+                  mSize -= previousSize;
+               }
+               mSize += Long.parseLong(parts[2]);
+            } else if (parts[0].equals(READ) && parts.length == 2) {
+               // Bump the entry to the front of the access order.
+               mEntries.get(parts[1]);
+            } else if (parts[0].equals(REMOVE) && parts.length == 2) {
+               Long size = mEntries.remove(parts[1]);
+               if (size != null) {
+                  mSize -= size;
+               }
+            } else {
+               Log.w(TAG, "Corrupt journal line: " + line);
+               return false;
+            }
+         }
+
+         return true;
+      } catch (IOException e) {
+         Log.w(TAG, "Failed to read journal", e);
+         return false;
+      } catch (NumberFormatException e) {
+         Log.w(TAG, "Failed to read journal", e);
+         return false;
+      } finally {
+         closeQuietly(reader);
+      }
+   }
+
+   /**
+    * Writes a new journal that contains only the current entries in access order.
+    */
+   private void rebuildJournal() {
+      closeQuietly(mJournal);
+      mJournal = null;
+      mDirectory.mkdirs();
+
+      File journalFile = new File(mDirectory, JOURNAL_FILE);
+      File tmpFile = new File(mDirectory, JOURNAL_FILE_TMP);
+      Writer writer = null;
+
+      try {
+         writer = new BufferedWriter(new FileWriter(tmpFile));
+
+         for (Map.Entry<String, Long> entry : mEntries.entrySet()) {
+            writer.write(CLEAN + " " + entry.getKey() + " " + entry.getValue() + "\n");
+         }
+
+         writer.close();
+         writer = null;
+
+         if (!tmpFile.renameTo(journalFile)) {
+            throw new IOException("Failed to rename " + tmpFile);
+         }
+
+         mJournal = new BufferedWriter(new FileWriter(journalFile, true));
+         mRedundantOps = 0;
+      } catch (IOException e) {
+         Log.e(TAG, "Failed to rebuild journal", e);
+         // Keep going with an in-memory index. The journal will be discarded next time.
+         journalFile.delete();
+         mJournal = new NullWriter();
+      } finally {
+         closeQuietly(writer);
+      }
+   }
+
+   private void journal(String line) {
+      try {
+         mJournal.write(line + "\n");
+         mJournal.flush();
+      } catch (IOException e) {
+         Log.w(TAG, "Failed to write journal", e);
+      }
+
+      if (mRedundantOps >= MAX_REDUNDANT_OPS && mRedundantOps >= mEntries.size()) {
+         rebuildJournal();
+      }
+   }
+
+   /**
+    * The previous cache stored files named by String.hashCode() directly in the cache
+    * directory. Remove them so they don't leak once this cache takes over.
+    */
+   private void deleteLegacyFileCache() {
+      File[] files = mDirectory.getParentFile().listFiles();
+      if (files == null) {
+         return;
+      }
+
+      for (File file : files) {
+         if (file.isFile() && file.getName().matches("-?\\d+")) {
+            file.delete();
+         }
+      }
+   }
+
+   private static void deleteContents(File directory) {
+      File[] files = directory.listFiles();
+      if (files == null) {
+         return;
+      }
+
+      for (File file : files) {
+         file.delete();
+      }
+   }
+
+   /**
+    * Deletes entries that were still being written when the process died.
+    */
+   private static void deleteTmpFiles(File directory) {
+      File[] files = directory.listFiles();
+      if (files == null) {
+         return;
+      }
+
+      for (File file : files) {
+         if (file.getName().endsWith(ENTRY_FILE_TMP_SUFFIX)) {
+            file.delete();
+         }
+      }
+   }
+
+   private static String getFileName(String key) {
+      try {
+         MessageDigest digest = MessageDigest.getInstance("SHA-1");
+         byte[] hash = digest.digest(key.getBytes("UTF-8"));
+         StringBuilder name = new StringBuilder(hash.length * 2);
+
+         for (byte b : hash) {
+            name.append(Character.forDigit((b >> 4) & 0xf, 16));
+            name.append(Character.forDigit(b & 0xf, 16));
+         }
+
+         return name.toString();
+      } catch (NoSuchAlgorithmException e) {
+         throw new AssertionError(e);
+      } catch (IOException e) {
+         throw new AssertionError(e);
+      }
+   }
+
+   private static void closeQuietly(Closeable closeable) {
+      if (closeable == null) {
+         return;
+      }
+
+      try {
+         closeable.close();
+      } catch (IOException e) {
+         Log.w(TAG, "Failed to close", e);
+      }
+   }
+
+   /**
+    * An entry that is being written. Each editor writes its own temporary file so the
+    * cache isn't locked while the body downloads.
+    */
+   public class Editor {
+      private final String mKey;
+      private final String mName;
+      private final File mTmpFile;
+      private final DataOutputStream mOut;
+
+      /**
+       * Offset of the body in the file. The body size is written just before it once
+       * the size is known.
+       */
+      private final int mBodyOffset;
+
+      private boolean mFailed;
+      private boolean mDone;
+
+      private Editor(String key, String name, File tmpFile, String eTag, long lastModified)
+       throws IOException {
+         mKey = key;
+         mName = name;
+         mTmpFile = tmpFile;
+         mOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+
+         try {
+            mOut.writeInt(ENTRY_VERSION);
+            mOut.writeUTF(key);
+            mOut.writeLong(System.currentTimeMillis());
+            mOut.writeBoolean(eTag != null);
+            if (eTag != null) {
+               mOut.writeUTF(eTag);
+            }
+            mOut.writeLong(lastModified);
+            mOut.writeInt(0);
+         } catch (IOException e) {
+            abort();
+            throw e;
+         }
+
+         mBodyOffset = mOut.size();
+      }
+
+      public void write(byte[] body) throws IOException {
+         mOut.write(body);
+      }
+
+      /**
+       * Returns a stream that reads from in and writes everything it reads to the entry.
+       * Reading carries on if writing fails but the entry won't be committed.
+       */
+      public InputStream tee(InputStream in) {
+         return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+               int b = super.read();
+
+               if (b != -1) {
+                  copy(new byte[] {(byte)b}, 0, 1);
+               }
+
+               return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int count) throws IOException {
+               int read = super.read(buffer, offset, count);
+
+               if (read > 0) {
+                  copy(buffer, offset, read);
+               }
+
+               return read;
+            }
+
+            @Override
+            public long skip(long count) throws IOException {
+               // Skipped bytes still need to end up in the entry.
+               byte[] buffer = new byte[(int)Math.min(count, 8192)];
+               int read = read(buffer, 0, buffer.length);
+
+               return Math.max(read, 0);
+            }
+
+            @Override
+            public boolean markSupported() {
+               return false;
+            }
+         };
+      }
+
+      /**
+       * Stores the entry in place of any previous one for the key, evicting the least
+       * recently used entries if the cache is over budget. Returns the size of the body
+       * in bytes or -1 if the entry couldn't be stored.
+       */
+      public int commit() {
+         if (mDone) {
+            return -1;
+         }
+
+         mDone = true;
+         RandomAccessFile tmpFile = null;
+
+         try {
+            mOut.close();
+
+            if (mFailed) {
+               throw new IOException("Failed to write body");
+            }
+
+            int size = mOut.size() - mBodyOffset;
+            tmpFile = new RandomAccessFile(mTmpFile, "rw");
+            tmpFile.seek(mBodyOffset - 4);
+            tmpFile.writeInt(size);
+            tmpFile.close();
+            tmpFile = null;
+
+            synchronized (ApiResponseCache.this) {
+               File file = new File(mDirectory, mName);
+
+               if (!mTmpFile.renameTo(file)) {
+                  throw new IOException("Failed to rename " + mTmpFile);
+               }
+
+               Long previousSize = mEntries.put(mName, file.length());
+               if (previousSize != null) {
+                  mSize -= previousSize;
+                  mRedundantOps++;
+               }
+               mSize += file.length();
+               mPutCount++;
+
+               journal(CLEAN + " " + mName + " " + file.length());
+               trimToSize();
+            }
+
+            return size;
+         } catch (IOException e) {
+            Log.e(TAG, "Failed to store response for " + mKey, e);
+            mTmpFile.delete();
+
+            return -1;
+         } finally {
+            closeQuietly(tmpFile);
+         }
+      }
+
+      /**
+       * Discards the entry.
+       */
+      public void abort() {
+         mDone = true;
+         closeQuietly(mOut);
+         mTmpFile.delete();
+      }
+
+      private void copy(byte[] buffer, int offset, int count) {
+         if (mFailed || mDone) {
+            return;
+         }
+
+         try {
+            mOut.write(buffer, offset, count);
+         } catch (IOException e) {
+            Log.w(TAG, "Failed to write response for " + mKey, e);
+            mFailed = true;
+         }
+      }
+   }
+
+   private static class NullWriter extends Writer {
+      @Override
+      public void write(char[] buf, int offset, int count) {}
+
+      @Override
+      public void flush() {}
+
+      @Override
+      public void close() {}
+   }
+}
@@ -12,6 +12,7 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SyncResult;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.support.v4.app.NotificationCompat;
 import android.util.Log;
 
@@ -25,15 +26,19 @@ import com.dozuki.ifixit.model.guide.GuideInfo;
 import com.dozuki.ifixit.model.user.User;
 import com.dozuki.ifixit.ui.BaseActivity;
 import com.dozuki.ifixit.ui.guide.view.OfflineGuidesActivity;
-import com.github.kevinsawicki.http.HttpRequest;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 public class ApiSyncAdapter extends AbstractThreadedSyncAdapter {
    private static final String TAG = "ApiSyncAdapter";
@@ -296,19 +301,12 @@ public class ApiSyncAdapter extends AbstractThreadedSyncAdapter {
       mNotificationManager.cancel(R.id.guide_sync_notificationid);
    }
 
-   private static String sBaseAppDirectory;
-   private static String getBaseAppDirectory() {
-      if (sBaseAppDirectory == null) {
-         sBaseAppDirectory = App.get().getFilesDir().getAbsolutePath();
-      }
-
-      return sBaseAppDirectory;
+   public static String getOfflineMediaDirectory() {
+      return OfflineMediaStore.getDirectory();
    }
 
    public static String getOfflineMediaPath(String mediaUrl) {
-      String path = getBaseAppDirectory() + "/offline_guides/media/" + mediaUrl.hashCode();
-
-      return path;
+      return OfflineMediaStore.getPath(mediaUrl);
    }
 
    /**
@@ -318,6 +316,8 @@ public class ApiSyncAdapter extends AbstractThreadedSyncAdapter {
    protected <T> T performApiCall(ApiCall apiCall, Site site, User user, Class<T> type) {
       apiCall.updateUser(user);
       apiCall.mSite = site;
+      // Nobody is waiting on the sync so give flaky connections more time to recover.
+      apiCall.setRetryPolicy(RetryPolicy.BACKGROUND);
 
       ApiEvent<?> result = Api.performAndParseApiCall(apiCall);
 
@@ -330,6 +330,9 @@ public class ApiSyncAdapter extends AbstractThreadedSyncAdapter {
       } else if (result.mCode == 401) {
          // We are no longer authenticated and must ask the user to reauthenticate.
          throw new ApiSyncException(ApiSyncException.AUTH_EXCEPTION);
+      } else if (result.hasError() && result.getError().mType == ApiError.Type.CONNECTION) {
+         // Retries are exhausted or the host is down.
+         throw new ApiSyncException(ApiSyncException.CONNECTION_EXCEPTION);
       } else if (result.mCode == 404 || result.mCode == 403) {
          // Return null to indicate that the content is no longer available.
          return null;
@@ -342,12 +345,28 @@ public class ApiSyncAdapter extends AbstractThreadedSyncAdapter {
       // Update at most every 10 seconds so we don't spend all of our time updating
       // values in the DB.
       private static final int GUIDE_PROGRESS_INTERVAL_MS = 10000;
+      // How often to check if the sync is canceled while waiting on media downloads.
+      private static final long CANCEL_CHECK_INTERVAL_MS = 500;
+      // Every favorite is checked at least this often so removed favorites and changes
+      // to favorites past the first unchanged page are noticed.
+      private static final long FULL_SYNC_INTERVAL_MS = 24 * 60 * 60 * 1000;
+      private static final int FAVORITES_PAGE_SIZE = 50;
+      // Consecutive pages overlap so favorites aren't skipped if some are removed
+      // while paging.
+      private static final int FAVORITES_PAGE_OVERLAP = 5;
+      // Stale guides are fetched concurrently in the ApiExecutor's SYNC lane in batches
+      // and each batch is saved in a single transaction.
+      private static final int GUIDE_BATCH_SIZE = 8;
+      private static final String TIMING_CATEGORY = "offline_sync";
 
       private final Site mSite;
       private final User mUser;
       private final ApiDatabase mDb;
       private long mLastProgressUpdate;
       private boolean mNewGuide;
+      private boolean mFullSync;
+      private double mModifiedMark;
+      private long mPhaseStart;
 
       public OfflineGuideSyncer(Site site, User user) {
          mSite = site;
@@ -359,22 +378,79 @@ public class ApiSyncAdapter extends AbstractThreadedSyncAdapter {
       /**
        * Does the heavy lifting for finding stale guides, updating their contents,
        * and downloading media.
-       *
-       * TODO: It would be nice to delete media that are no longer referenced.
        */
       protected boolean syncOfflineGuides() {
+         App app = App.get();
+         mModifiedMark = app.getFavoritesModifiedMark(mSite, mUser);
+         mFullSync = mModifiedMark == App.NEVER_SYNCED_VALUE ||
+          System.currentTimeMillis() - app.getLastFullSyncTime(mSite, mUser) >
+          FULL_SYNC_INTERVAL_MS;
+         mPhaseStart = SystemClock.elapsedRealtime();
+
+         repairMedia();
+         recordPhase("repair_media");
+
          ArrayList<GuideMediaProgress> uncompletedGuides = getUncompletedGuides();
          ArrayList<GuideInfo> staleGuides = getStaleGuides();
+         recordPhase("favorites");
+
          ArrayList<GuideMediaProgress> updatedGuides = updateGuides(staleGuides);
+         recordPhase("update_guides");
+
+         // The stale guides are saved so later syncs can stop at the same point even
+         // if their media aren't downloaded.
+         app.setFavoritesSynced(mSite, mUser, mModifiedMark, mFullSync);
 
          // Merge updated guides with guides with missing media and fetch all of
          // their media.
          uncompletedGuides.addAll(updatedGuides);
          downloadMissingMedia(uncompletedGuides);
+         recordPhase("download_media");
+
+         trimMedia();
+         recordPhase("trim_media");
 
          return mNewGuide;
       }
 
+      /**
+       * Records how long the phase of the sync that just finished took.
+       */
+      private void recordPhase(String phase) {
+         long now = SystemClock.elapsedRealtime();
+         long elapsed = now - mPhaseStart;
+         String label = mFullSync ? "full" : "incremental";
+
+         if (BuildConfig.DEBUG) {
+            Log.d(TAG, "Sync phase " + phase + " (" + label + ") took " + elapsed + "ms");
+         }
+
+         App.sendTiming(TIMING_CATEGORY, elapsed, phase, label);
+         mPhaseStart = now;
+      }
+
+      /**
+       * Deletes corrupt media left behind by interrupted downloads and marks the guides
+       * that used them as incomplete so they are downloaded again below.
+       */
+      private void repairMedia() {
+         int deleted = MediaDownloader.repairMedia(new File(getOfflineMediaDirectory()));
+
+         if (deleted == 0) {
+            return;
+         }
+
+         mDb.removeMissingMedia();
+
+         for (Guide guide : mDb.getCompleteGuides(mSite, mUser)) {
+            GuideMediaProgress guideMedia = new GuideMediaProgress(guide);
+
+            if (!guideMedia.isComplete()) {
+               updateGuideProgress(guideMedia, false);
+            }
+         }
+      }
+
       private ArrayList<GuideMediaProgress> getUncompletedGuides() {
          ArrayList<GuideMediaProgress> guideMedia = new ArrayList<GuideMediaProgress>();
 
@@ -387,39 +463,106 @@ public class ApiSyncAdapter extends AbstractThreadedSyncAdapter {
 
       /**
        * Returns all guides that need syncing due to being brand new or having changes.
-       * This also deletes all of the user's offline guides that are no longer favorited.
+       *
+       * Favorites are fetched a page at a time. Incremental syncs stop at the first
+       * page that has neither new nor changed guides and whose guides are no newer
+       * than the newest modified date seen by the last sync. Full syncs fetch every
+       * page and also delete all of the user's offline guides that are no longer
+       * favorited. Nothing is deleted unless paging reached a short last page because
+       * otherwise the favorites that were seen may not be all of them.
        */
       private ArrayList<GuideInfo> getStaleGuides() {
-         ApiCall apiCall = ApiCall.userFavorites(10000, 0);
-         ApiEvent.UserFavorites favoritesEvent = apiCall(apiCall,
-          ApiEvent.UserFavorites.class);
-         ArrayList<GuideInfo> favorites = favoritesEvent.getResult();
+         Map<Integer, GuideInfo> staleGuides = new LinkedHashMap<Integer, GuideInfo>();
+         Set<Integer> favorites = new HashSet<Integer>();
+         // Full syncs start over so guides that are no longer favorited don't hold the
+         // mark up.
+         double modifiedMark = mFullSync ? 0 : mModifiedMark;
+         int pages = 0;
+         boolean sawAllFavorites = false;
+
+         for (int offset = 0; ; offset += FAVORITES_PAGE_SIZE - FAVORITES_PAGE_OVERLAP) {
+            finishSyncIfCanceled();
 
-         Map<Integer, Double> modifiedDates = mDb.getGuideModifiedDates(mSite, mUser);
-         ArrayList<GuideInfo> staleGuides = new ArrayList<GuideInfo>();
+            ApiCall apiCall = ApiCall.userFavorites(FAVORITES_PAGE_SIZE, offset);
+            ApiEvent.UserFavorites favoritesEvent = apiCall(apiCall,
+             ApiEvent.UserFavorites.class);
+            ArrayList<GuideInfo> page = favoritesEvent.getResult();
+            pages++;
+
+            Map<Integer, Double> modifiedDates = mDb.getGuideModifiedDates(mSite, mUser,
+             getGuideids(page));
+            boolean pageChanged = false;
+            boolean pageHasNewFavorites = false;
+
+            for (GuideInfo guide : page) {
+               Double modifiedDate = modifiedDates.get(guide.mGuideid);
+               double favoriteModifiedDate = guide.getAbsoluteModifiedDate();
+               pageHasNewFavorites |= favorites.add(guide.mGuideid);
+
+               // Set mNewGuide as a flag to the caller that there was a new guide.
+               if (modifiedDate == null) {
+                  mNewGuide = true;
+               }
 
-         for (GuideInfo guide : favorites) {
-            Double modifiedDate = modifiedDates.get(guide.mGuideid);
-            modifiedDates.remove(guide.mGuideid);
+               if (hasNewerModifiedDate(modifiedDate, favoriteModifiedDate)) {
+                  staleGuides.put(guide.mGuideid, guide);
+                  pageChanged = true;
+               }
 
-            // Set mNewGuide as a flag to the caller that there was a new guide.
-            if (modifiedDate == null) {
-               mNewGuide = true;
+               if (hasNewerModifiedDate(mModifiedMark, favoriteModifiedDate)) {
+                  pageChanged = true;
+               }
+
+               modifiedMark = Math.max(modifiedMark, favoriteModifiedDate);
+            }
+
+            if (page.size() < FAVORITES_PAGE_SIZE) {
+               sawAllFavorites = true;
+               break;
             }
 
-            if (hasNewerModifiedDate(modifiedDate, guide.getAbsoluteModifiedDate())) {
-               staleGuides.add(guide);
+            if (!pageHasNewFavorites) {
+               // The page only repeats favorites we've already seen so the server isn't
+               // paging. Stop rather than requesting the same page forever.
+               Log.w(TAG, "Favorites page at offset " + offset + " has no new guides");
+               break;
+            }
+
+            if (!mFullSync && !pageChanged) {
+               break;
             }
          }
 
-         // Delete any guides that are currently in the DB but are no longer favorited.
-         if (!modifiedDates.isEmpty()) {
-            mDb.deleteGuides(mSite, mUser, modifiedDates.keySet());
-            // Although not technically a "new guide", this triggers a UI refresh.
-            sendNewGuideBroadcast();
+         if (BuildConfig.DEBUG) {
+            Log.d(TAG, "Fetched " + pages + " pages of favorites, " + staleGuides.size() +
+             " stale guides");
+         }
+
+         if (mFullSync && sawAllFavorites) {
+            // Delete any guides that are currently in the DB but are no longer favorited.
+            Set<Integer> unfavorited = mDb.getGuideids(mSite, mUser);
+            unfavorited.removeAll(favorites);
+
+            if (!unfavorited.isEmpty()) {
+               mDb.deleteGuides(mSite, mUser, unfavorited);
+               // Although not technically a "new guide", this triggers a UI refresh.
+               sendNewGuideBroadcast();
+            }
+         }
+
+         mModifiedMark = modifiedMark;
+
+         return new ArrayList<GuideInfo>(staleGuides.values());
+      }
+
+      private List<Integer> getGuideids(List<GuideInfo> guides) {
+         List<Integer> guideids = new ArrayList<Integer>(guides.size());
+
+         for (GuideInfo guide : guides) {
+            guideids.add(guide.mGuideid);
          }
 
-         return staleGuides;
+         return guideids;
       }
 
       private boolean hasNewerModifiedDate(Double existing, double updated) {
@@ -435,39 +578,83 @@ public class ApiSyncAdapter extends AbstractThreadedSyncAdapter {
 
       /**
        * Updates the provided guides by downloading the full guide and adding/updating
-       * the value stored in the DB.
+       * the value stored in the DB. Guides are downloaded concurrently in batches and
+       * each batch is saved in a single transaction.
        */
       private ArrayList<GuideMediaProgress> updateGuides(ArrayList<GuideInfo> staleGuides) {
          ArrayList<GuideMediaProgress> guides = new ArrayList<GuideMediaProgress>();
          Set<Integer> guidesToDelete = null;
 
-         for (GuideInfo staleGuide : staleGuides) {
-            finishSyncIfCanceled();
-            ApiEvent.ViewGuide fullGuide = apiCall(ApiCall.guide(staleGuide.mGuideid),
-             ApiEvent.ViewGuide.class);
+         if (staleGuides.isEmpty()) {
+            return guides;
+         }
 
-            if (fullGuide == null) {
-               if (BuildConfig.DEBUG) {
-                  Log.d(TAG, "Guide not found! Deleting..." + staleGuide.mGuideid);
-               }
+         List<Future<ApiEvent.ViewGuide>> requests = null;
+
+         try {
+            for (int start = 0; start < staleGuides.size(); start += GUIDE_BATCH_SIZE) {
+               finishSyncIfCanceled();
 
-               if (guidesToDelete == null) {
-                  // Lazy initialization.
-                  guidesToDelete = new HashSet<Integer>();
+               List<GuideInfo> batch = staleGuides.subList(start,
+                Math.min(start + GUIDE_BATCH_SIZE, staleGuides.size()));
+               requests = new ArrayList<Future<ApiEvent.ViewGuide>>(batch.size());
+
+               for (final GuideInfo staleGuide : batch) {
+                  requests.add(submitGuideRequest(new Callable<ApiEvent.ViewGuide>() {
+                     @Override
+                     public ApiEvent.ViewGuide call() {
+                        return apiCall(ApiCall.guide(staleGuide.mGuideid),
+                         ApiEvent.ViewGuide.class);
+                     }
+                  }));
                }
 
-               // Guide is now inaccessible so we need to remove it from the DB.
-               guidesToDelete.add(staleGuide.mGuideid);
-               continue;
-            }
+               List<GuideMediaProgress> fetchedGuides = new ArrayList<GuideMediaProgress>();
+               List<GuideInfo> fetchedGuideInfos = new ArrayList<GuideInfo>();
 
-            GuideMediaProgress guideMedia = new GuideMediaProgress(fullGuide);
+               for (int i = 0; i < batch.size(); i++) {
+                  GuideInfo staleGuide = batch.get(i);
+                  ApiEvent.ViewGuide fullGuide = getResult(requests.get(i));
 
-            mDb.saveGuide(mSite, mUser, guideMedia.mGuideEvent, staleGuide,
-             guideMedia.mTotalMedia, guideMedia.mMediaProgress);
-            sendNewGuideBroadcast();
+                  if (fullGuide == null) {
+                     if (BuildConfig.DEBUG) {
+                        Log.d(TAG, "Guide not found! Deleting..." + staleGuide.mGuideid);
+                     }
+
+                     if (guidesToDelete == null) {
+                        // Lazy initialization.
+                        guidesToDelete = new HashSet<Integer>();
+                     }
+
+                     // Guide is now inaccessible so we need to remove it from the DB.
+                     guidesToDelete.add(staleGuide.mGuideid);
+                     continue;
+                  }
+
+                  fetchedGuides.add(new GuideMediaProgress(fullGuide));
+                  fetchedGuideInfos.add(staleGuide);
+               }
 
-            guides.add(guideMedia);
+               if (fetchedGuides.isEmpty()) {
+                  continue;
+               }
+
+               mDb.saveGuides(mSite, mUser, fetchedGuides, fetchedGuideInfos);
+               sendNewGuideBroadcast();
+
+               for (GuideMediaProgress guideMedia : fetchedGuides) {
+                  if (!mDb.isMediaEvicted(mSite, mUser, guideMedia.mGuide.getGuideid())) {
+                     guides.add(guideMedia);
+                  }
+               }
+            }
+         } finally {
+            if (requests != null) {
+               // Stop the rest of the batch if the sync failed or was canceled.
+               for (Future<ApiEvent.ViewGuide> request : requests) {
+                  request.cancel(true);
+               }
+            }
          }
 
          if (guidesToDelete != null) {
@@ -479,6 +666,52 @@ public class ApiSyncAdapter extends AbstractThreadedSyncAdapter {
          return guides;
       }
 
+      /**
+       * Queues a guide request on the SYNC lane. The lane is shared with other syncs so
+       * a full lane is tried again after a backoff. If it is still full the sync fails
+       * with a connection error so the system reschedules it.
+       */
+      private Future<ApiEvent.ViewGuide> submitGuideRequest(
+       Callable<ApiEvent.ViewGuide> request) {
+         RetryPolicy retryPolicy = RetryPolicy.BACKGROUND;
+
+         for (int attempt = 1; ; attempt++) {
+            try {
+               return ApiExecutor.submit(ApiExecutor.Lane.SYNC, request);
+            } catch (RejectedExecutionException e) {
+               Log.w(TAG, "Lane is full on attempt " + attempt + ": " +
+                ApiExecutor.Lane.SYNC);
+
+               if (!retryPolicy.shouldRetry(attempt)) {
+                  throw new ApiSyncException(ApiSyncException.CONNECTION_EXCEPTION, e);
+               } else if (!retryPolicy.sleep(attempt)) {
+                  // The sync thread is interrupted when the sync is canceled.
+                  throw new ApiSyncException(ApiSyncException.CANCELED_EXCEPTION, e);
+               }
+            }
+
+            finishSyncIfCanceled();
+         }
+      }
+
+      /**
+       * Waits for a guide request and rethrows its ApiSyncException on this thread.
+       */
+      private ApiEvent.ViewGuide getResult(Future<ApiEvent.ViewGuide> request) {
+         try {
+            return request.get();
+         } catch (InterruptedException e) {
+            // The sync thread is interrupted when the sync is canceled.
+            throw new ApiSyncException(ApiSyncException.CANCELED_EXCEPTION, e);
+         } catch (ExecutionException e) {
+            if (e.getCause() instanceof ApiSyncException) {
+               throw (ApiSyncException)e.getCause();
+            }
+
+            throw new ApiSyncException(ApiSyncException.GENERAL_EXCEPTION, e);
+         }
+      }
+
       /**
        * Notifies receivers that there was a new offline guide added.
        */
@@ -489,7 +722,9 @@ public class ApiSyncAdapter extends AbstractThreadedSyncAdapter {
       }
 
       /**
-       * Downloads all new images contained in the guides.
+       * Downloads all new images contained in the guides. Media are downloaded in
+       * parallel by a MediaDownloader while this thread applies the results to the
+       * guides' progress as they complete.
        */
       private void downloadMissingMedia(List<GuideMediaProgress> missingGuideMedia) {
          int totalMissingMedia = getTotalMissingMedia(missingGuideMedia);
@@ -497,87 +732,103 @@ public class ApiSyncAdapter extends AbstractThreadedSyncAdapter {
 
          createMediaDirectories();
 
-         for (GuideMediaProgress guideMedia : missingGuideMedia) {
-            for (String mediaUrl : guideMedia.mMissingMedia) {
-               finishSyncIfCanceled();
+         // Guides can share media so each medium is downloaded once and the result is
+         // applied to every guide waiting on it.
+         Map<String, List<GuideMediaProgress>> waitingGuides =
+          new HashMap<String, List<GuideMediaProgress>>();
+         Map<GuideMediaProgress, Integer> remainingMedia =
+          new HashMap<GuideMediaProgress, Integer>();
+         MediaDownloader downloader = new MediaDownloader();
+
+         try {
+            for (GuideMediaProgress guideMedia : missingGuideMedia) {
+               if (guideMedia.mMissingMedia.isEmpty()) {
+                  // Make sure the guide is marked as complete.
+                  updateGuideProgress(guideMedia, false);
+                  continue;
+               }
 
-               if (downloadMedium(mediaUrl)) {
-                  mediaDownloaded++;
-                  guideMedia.mMediaProgress++;
-               } else if (mediaUrl.contains(".huge")) {
-                  // Download the original image instead because FullScreenImageView will
-                  // default to that one.
-                  String originalUrl = mediaUrl.replace(".huge", "");
-                  if (downloadMedium(originalUrl)) {
-                     mediaDownloaded++;
-                     guideMedia.mMediaProgress++;
-                  } else {
-                     // Continue on with the next medium. The progress won't be updated
-                     // because the medium wasn't successfully retrieved. Note that other
-                     // failures such as missing internet will throw an exception which
-                     // will cause the sync process to exit immediately.
-                     continue;
+               remainingMedia.put(guideMedia, guideMedia.mMissingMedia.size());
+
+               for (String mediaUrl : guideMedia.mMissingMedia) {
+                  List<GuideMediaProgress> guides = waitingGuides.get(mediaUrl);
+
+                  if (guides == null) {
+                     guides = new ArrayList<GuideMediaProgress>();
+                     waitingGuides.put(mediaUrl, guides);
+                     downloader.enqueue(mediaUrl);
                   }
-               }
 
-               updateTotalProgress(guideMedia, totalMissingMedia, mediaDownloaded);
-               updateNotificationProgress(totalMissingMedia, mediaDownloaded, false);
-               updateGuideProgress(guideMedia, true);
+                  guides.add(guideMedia);
+               }
             }
 
-            // Make sure the guide is marked as complete.
-            updateGuideProgress(guideMedia, false);
-         }
+            while (!waitingGuides.isEmpty()) {
+               finishSyncIfCanceled();
 
-         if (BuildConfig.DEBUG) {
-            Log.d(TAG, mediaDownloaded + "/" + totalMissingMedia + " media downloaded.");
-         }
-      }
+               MediaDownloader.Download download;
+               try {
+                  download = downloader.poll(CANCEL_CHECK_INTERVAL_MS);
+               } catch (InterruptedException e) {
+                  // The sync thread is interrupted when the sync is canceled.
+                  throw new ApiSyncException(ApiSyncException.CANCELED_EXCEPTION, e);
+               }
 
-      /**
-       * Downloads the medium to the persistent location. Returns true if the medium is
-       * persisted, false otherwise.
-       */
-      private boolean downloadMedium(String mediaUrl) {
-         File file = new File(getOfflineMediaPath(mediaUrl));
+               if (download == null) {
+                  continue;
+               } else if (download.mError != null) {
+                  // Most likely lost internet. Exit the sync immediately.
+                  throw new ApiSyncException(ApiSyncException.CONNECTION_EXCEPTION,
+                   download.mError);
+               }
 
-         if (!file.exists()) {
-            try {
-               if (BuildConfig.DEBUG) {
-                  Log.i(TAG, "Downloading: " + mediaUrl);
+               if (download.mSuccess) {
+                  mDb.addMedia(download.mStoredUrl);
                }
 
-               file.createNewFile();
-               HttpRequest request = HttpRequest.get(mediaUrl);
+               for (GuideMediaProgress guideMedia : waitingGuides.remove(download.mUrl)) {
+                  // Progress isn't updated if the medium wasn't successfully retrieved.
+                  if (download.mSuccess) {
+                     if (!download.mStoredUrl.equals(download.mUrl)) {
+                        mDb.addMediaRef(mSite, mUser, guideMedia.mGuide.getGuideid(),
+                         download.mStoredUrl);
+                     }
+
+                     mediaDownloaded++;
+                     guideMedia.mMediaProgress++;
+
+                     updateTotalProgress(guideMedia, totalMissingMedia, mediaDownloaded);
+                     updateNotificationProgress(totalMissingMedia, mediaDownloaded, false);
+                     updateGuideProgress(guideMedia, true);
+                  }
 
-               request.receive(file);
+                  int remaining = remainingMedia.get(guideMedia) - 1;
+                  remainingMedia.put(guideMedia, remaining);
 
-               if (request.code() < 200 || request.code() >= 300) {
-                  // This happens occasionally when downloading the .huge size for
-                  // images that don't have that size. The original is retried in
-                  // its place.
-                  if (BuildConfig.DEBUG) {
-                     Log.w(TAG, "MEDIA FAIL! " + mediaUrl);
+                  if (remaining == 0) {
+                     // Make sure the guide is marked as complete.
+                     updateGuideProgress(guideMedia, false);
                   }
-                  return false;
-               }
-            } catch (IOException e) {
-               if (BuildConfig.DEBUG) {
-                  Log.e(TAG, "Failed to download medium", e);
-               }
-               throw new ApiSyncException(ApiSyncException.CONNECTION_EXCEPTION, e);
-            } catch (HttpRequest.HttpRequestException e) {
-               if (BuildConfig.DEBUG) {
-                  Log.e(TAG, "Failed to download medium", e);
                }
-               throw new ApiSyncException(ApiSyncException.CONNECTION_EXCEPTION, e);
             }
-         } else if (BuildConfig.DEBUG) {
-            // Happens if guides share media.
-            Log.d(TAG, "Skipping: " + mediaUrl);
+         } finally {
+            downloader.shutdown();
+         }
+
+         if (BuildConfig.DEBUG) {
+            Log.d(TAG, mediaDownloaded + "/" + totalMissingMedia + " media downloaded.");
          }
+      }
 
-         return true;
+      /**
+       * Evicts media of the least recently used guides if media use more than their
+       * storage budget.
+       */
+      private void trimMedia() {
+         if (mDb.trimMedia() > 0) {
+            // Evicted guides show their reduced progress.
+            sendNewGuideBroadcast();
+         }
       }
 
       /**
@@ -617,10 +868,7 @@ public class ApiSyncAdapter extends AbstractThreadedSyncAdapter {
        * it is called at most once per sync.
        */
       private void createMediaDirectories() {
-         // The ending file name doesn't matter as long as the parents are the same
-         // as a valid media path.
-         File testFile = new File(getOfflineMediaPath("test"));
-         testFile.mkdirs();
+         new File(getOfflineMediaDirectory()).mkdirs();
       }
 
       private int getTotalMissingMedia(List<GuideMediaProgress> guideMedia) {
@@ -0,0 +1,187 @@
+package com.dozuki.ifixit.util.api;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.dozuki.ifixit.App;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks failed requests to a host so requests can fail fast while the host is down
+ * instead of each one waiting for its own timeouts and retries.
+ *
+ * The breaker opens after FAILURE_THRESHOLD consecutive failures. While it is open
+ * allowRequest() returns false. Once OPEN_MS has passed a single trial request is let
+ * through. The breaker closes again if it succeeds and stays open if it fails.
+ *
+ * Breakers are kept per host for the life of the process. getAll() returns them for
+ * diagnostics.
+ */
+public class CircuitBreaker {
+   private static final String TAG = "CircuitBreaker";
+
+   private static final int FAILURE_THRESHOLD = 5;
+   private static final long OPEN_MS = 30 * 1000;
+
+   public enum State {
+      /**
+       * Requests are made normally.
+       */
+      CLOSED,
+
+      /**
+       * The host is considered down and requests fail immediately.
+       */
+      OPEN,
+
+      /**
+       * A trial request is being made to see if the host is back.
+       */
+      HALF_OPEN
+   }
+
+   private static final Map<String, CircuitBreaker> sBreakers =
+    new HashMap<String, CircuitBreaker>();
+
+   private final String mHost;
+   private final int mFailureThreshold;
+   private final long mOpenMs;
+   private State mState = State.CLOSED;
+   private int mConsecutiveFailures;
+   private long mOpenedAt;
+   private long mFailureCount;
+   private long mRejectedCount;
+   private int mTripCount;
+
+   CircuitBreaker(String host, int failureThreshold, long openMs) {
+      mHost = host;
+      mFailureThreshold = failureThreshold;
+      mOpenMs = openMs;
+   }
+
+   public static CircuitBreaker get(String host) {
+      synchronized (sBreakers) {
+         CircuitBreaker breaker = sBreakers.get(host);
+
+         if (breaker == null) {
+            breaker = new CircuitBreaker(host, FAILURE_THRESHOLD, OPEN_MS);
+            sBreakers.put(host, breaker);
+         }
+
+         return breaker;
+      }
+   }
+
+   /**
+    * Returns the breakers of all hosts that requests have been made to.
+    */
+   public static List<CircuitBreaker> getAll() {
+      synchronized (sBreakers) {
+         return new ArrayList<CircuitBreaker>(sBreakers.values());
+      }
+   }
+
+   /**
+    * Returns true if a request to the host should be made. Every request that is allowed
+    * must be followed by a call to recordSuccess() or recordFailure().
+    */
+   public synchronized boolean allowRequest() {
+      if (mState == State.CLOSED) {
+         return true;
+      }
+
+      // A trial that never reported back doesn't keep the breaker open forever.
+      if (now() - mOpenedAt >= mOpenMs) {
+         mState = State.HALF_OPEN;
+         mOpenedAt = now();
+
+         return true;
+      }
+
+      mRejectedCount++;
+
+      return false;
+   }
+
+   public synchronized void recordSuccess() {
+      mConsecutiveFailures = 0;
+
+      if (mState != State.CLOSED) {
+         mState = State.CLOSED;
+
+         if (App.inDebug()) {
+            Log.i(TAG, "Closed: " + this);
+         }
+      }
+   }
+
+   public synchronized void recordFailure() {
+      mConsecutiveFailures++;
+      mFailureCount++;
+
+      if (mState == State.HALF_OPEN ||
+       (mState == State.CLOSED && mConsecutiveFailures >= mFailureThreshold)) {
+         if (mState == State.CLOSED) {
+            mTripCount++;
+         }
+
+         mState = State.OPEN;
+         mOpenedAt = now();
+
+         if (App.inDebug()) {
+            Log.w(TAG, "Opened: " + this);
+         }
+      }
+   }
+
+   /**
+    * Returns the current time in ms. Overridden by tests.
+    */
+   long now() {
+      return SystemClock.elapsedRealtime();
+   }
+
+   public String getHost() {
+      return mHost;
+   }
+
+   public synchronized State getState() {
+      return mState;
+   }
+
+   public synchronized int getConsecutiveFailures() {
+      return mConsecutiveFailures;
+   }
+
+   /**
+    * Returns the number of failed requests to the host.
+    */
+   public synchronized long getFailureCount() {
+      return mFailureCount;
+   }
+
+   /**
+    * Returns the number of requests that failed fast because the breaker was open.
+    */
+   public synchronized long getRejectedCount() {
+      return mRejectedCount;
+   }
+
+   /**
+    * Returns the number of times the breaker has opened.
+    */
+   public synchronized int getTripCount() {
+      return mTripCount;
+   }
+
+   @Override
+   public synchronized String toString() {
+      return mHost + " {state: " + mState + ", consecutive failures: " +
+       mConsecutiveFailures + ", failures: " + mFailureCount + ", rejected: " +
+       mRejectedCount + ", trips: " + mTripCount + "}";
+   }
+}
@@ -9,6 +9,7 @@ import com.dozuki.ifixit.util.ImageSizes;
 
 import java.io.File;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
@@ -18,6 +19,7 @@ public class GuideMediaProgress {
    public ApiEvent.ViewGuide mGuideEvent;
    public Guide mGuide;
    public GuideInfo mGuideInfo;
+   public Set<String> mMedia;
    public Set<String> mMissingMedia;
    public int mTotalMedia;
    public int mMediaProgress;
@@ -30,25 +32,14 @@ public class GuideMediaProgress {
 
    public GuideMediaProgress(Guide guide) {
       mGuide = guide;
+      mMedia = getMedia(guide);
       mMissingMedia = new HashSet<String>();
-      mTotalMedia = 0;
+      mTotalMedia = mMedia.size();
 
-      Image introImage = mGuide.getIntroImage();
-      if (introImage.isValid()) {
-         addMediaIfMissing(introImage.getPath(ImageSizes.guideList));
-      }
-
-      for (GuideStep step : mGuide.getSteps()) {
-         for (Image image : step.getImages()) {
-            addMediaIfMissing(image.getPath(ImageSizes.stepThumb));
-            addMediaIfMissing(image.getPath(ImageSizes.stepMain));
-            addMediaIfMissing(image.getPath(ImageSizes.stepFull));
-         }
-
-         if (step.hasVideo()) {
-            Video video = step.getVideo();
-            addMediaIfMissing(video.getThumbnail().getPath(ImageSizes.stepMain));
-            addMediaIfMissing(video.getVideoUrl());
+      for (String mediaUrl : mMedia) {
+         File file = new File(ApiSyncAdapter.getOfflineMediaPath(mediaUrl));
+         if (!file.exists()) {
+            mMissingMedia.add(mediaUrl);
          }
       }
 
@@ -61,18 +52,32 @@ public class GuideMediaProgress {
       mMediaProgress = mediaProgress;
    }
 
-   private void addMediaIfMissing(String imageUrl) {
-      if (mMissingMedia.contains(imageUrl)) {
-         // Don't acknowledge duplicates in the total.
-         return;
+   /**
+    * Returns the URLs of all media that are stored offline for the guide.
+    */
+   public static Set<String> getMedia(Guide guide) {
+      Set<String> media = new LinkedHashSet<String>();
+
+      Image introImage = guide.getIntroImage();
+      if (introImage.isValid()) {
+         media.add(introImage.getPath(ImageSizes.guideList));
       }
 
-      mTotalMedia++;
+      for (GuideStep step : guide.getSteps()) {
+         for (Image image : step.getImages()) {
+            media.add(image.getPath(ImageSizes.stepThumb));
+            media.add(image.getPath(ImageSizes.stepMain));
+            media.add(image.getPath(ImageSizes.stepFull));
+         }
 
-      File file = new File(ApiSyncAdapter.getOfflineMediaPath(imageUrl));
-      if (!file.exists()) {
-         mMissingMedia.add(imageUrl);
+         if (step.hasVideo()) {
+            Video video = step.getVideo();
+            media.add(video.getThumbnail().getPath(ImageSizes.stepMain));
+            media.add(video.getVideoUrl());
+         }
       }
+
+      return media;
    }
 
    public boolean isComplete() {
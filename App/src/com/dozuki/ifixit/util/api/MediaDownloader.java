@@ -0,0 +1,691 @@
+package com.dozuki.ifixit.util.api;
+
+import android.util.Log;
+
+import com.dozuki.ifixit.App;
+import com.dozuki.ifixit.BuildConfig;
+import com.github.kevinsawicki.http.HttpRequest;
+import com.github.kevinsawicki.http.HttpRequest.HttpRequestException;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads offline media on a bounded pool of worker threads so sync time is bound by
+ * bandwidth rather than by the latency of each request.
+ *
+ * Downloads are queued per host and at most MAX_DOWNLOADS_PER_HOST run against a single
+ * host at once. Requests go through HttpRequest and therefore share the OkHttp client
+ * and connection pool installed in App so connections are reused between media.
+ *
+ * Connection problems are retried with backoff. Failures are tracked per host with a
+ * CircuitBreaker so the remaining media fail fast once a host is down.
+ *
+ * Completed downloads are handed back through poll() so the caller can update progress
+ * on its own thread.
+ *
+ * Media are written to a partial file and only renamed to their final path once their
+ * length, and MD5 when the server provides one, check out. This means a medium that
+ * exists at its final path is always complete.
+ */
+class MediaDownloader {
+   private static final String TAG = "MediaDownloader";
+
+   private static final int MAX_DOWNLOADS = 6;
+   private static final int MAX_DOWNLOADS_PER_HOST = 4;
+   private static final int BUFFER_SIZE = 8192;
+   private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+   private static final RetryPolicy RETRY_POLICY = RetryPolicy.BACKGROUND;
+
+   private static final String PARTIAL_SUFFIX = ".part";
+   private static final String REPAIR_MARKER = ".repaired";
+   private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+   private static final Pattern CONTENT_RANGE =
+    Pattern.compile("bytes (\\d+)-\\d+/(?:(\\d+)|\\*)");
+
+   /**
+    * Partial downloads that haven't been resumed in this long are most likely for
+    * guides that are no longer favorited.
+    */
+   private static final long MAX_PARTIAL_AGE_MS = TimeUnit.DAYS.toMillis(7);
+
+   private static final int MIN_MEDIUM_LENGTH = 8;
+   private static final int JPEG_TAIL_LENGTH = 1024;
+   private static final byte[] JPEG_SIGNATURE = {(byte)0xFF, (byte)0xD8};
+   private static final byte[] PNG_SIGNATURE =
+    {(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+   private static final byte[] PNG_END =
+    {'I', 'E', 'N', 'D', (byte)0xAE, 0x42, 0x60, (byte)0x82};
+   private static final byte[] GIF_SIGNATURE = {'G', 'I', 'F'};
+   private static final byte GIF_TRAILER = 0x3B;
+
+   public static class Download {
+      public final String mUrl;
+      private final String mHost;
+
+      /**
+       * The URL the medium is stored under. This differs from mUrl if a fallback was
+       * downloaded instead.
+       */
+      public String mStoredUrl;
+
+      /**
+       * True iff the medium is persisted. Set once the download is complete.
+       */
+      public boolean mSuccess;
+
+      /**
+       * The exception that stopped the download, if any. This indicates a connection
+       * problem rather than the server not having the medium.
+       */
+      public Exception mError;
+
+      private Download(String url) {
+         mUrl = url;
+         mHost = getHost(url);
+      }
+   }
+
+   private final ExecutorService mExecutor;
+   private final BlockingQueue<Download> mCompleted = new LinkedBlockingQueue<Download>();
+
+   /**
+    * Downloads that haven't started yet keyed by host.
+    */
+   private final Map<String, LinkedList<Download>> mReady =
+    new HashMap<String, LinkedList<Download>>();
+   private final Map<String, Integer> mRunningPerHost = new HashMap<String, Integer>();
+   private int mRunning;
+   private volatile boolean mCanceled;
+
+   public MediaDownloader() {
+      mExecutor = Executors.newFixedThreadPool(MAX_DOWNLOADS, new ThreadFactory() {
+         private int mThreadCount;
+
+         @Override
+         public synchronized Thread newThread(Runnable runnable) {
+            return new Thread(runnable, TAG + " #" + ++mThreadCount);
+         }
+      });
+   }
+
+   /**
+    * Queues the medium for download.
+    */
+   public synchronized void enqueue(String url) {
+      Download download = new Download(url);
+      LinkedList<Download> hostQueue = mReady.get(download.mHost);
+
+      if (hostQueue == null) {
+         hostQueue = new LinkedList<Download>();
+         mReady.put(download.mHost, hostQueue);
+      }
+
+      hostQueue.add(download);
+      promote();
+   }
+
+   /**
+    * Returns the next completed download, waiting up to timeoutMs for one to finish.
+    * Returns null if none finished in time.
+    */
+   public Download poll(long timeoutMs) throws InterruptedException {
+      return mCompleted.poll(timeoutMs, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * Drops all queued downloads and stops the ones in progress. Partially downloaded
+    * media are kept so they can be resumed by the next sync.
+    */
+   public void shutdown() {
+      synchronized (this) {
+         mCanceled = true;
+         mReady.clear();
+      }
+
+      // Interrupts downloads waiting to retry.
+      mExecutor.shutdownNow();
+
+      try {
+         if (!mExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            Log.w(TAG, "Downloads didn't stop in time");
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * Starts as many ready downloads as the limits allow.
+    */
+   private synchronized void promote() {
+      Iterator<Map.Entry<String, LinkedList<Download>>> hosts = mReady.entrySet().iterator();
+
+      while (!mCanceled && mRunning < MAX_DOWNLOADS && hosts.hasNext()) {
+         Map.Entry<String, LinkedList<Download>> host = hosts.next();
+         LinkedList<Download> hostQueue = host.getValue();
+         Integer hostRunning = mRunningPerHost.get(host.getKey());
+         int running = hostRunning == null ? 0 : hostRunning;
+
+         while (mRunning < MAX_DOWNLOADS && running < MAX_DOWNLOADS_PER_HOST &&
+          !hostQueue.isEmpty()) {
+            execute(hostQueue.removeFirst());
+            running++;
+            mRunning++;
+         }
+
+         if (running > 0) {
+            mRunningPerHost.put(host.getKey(), running);
+         }
+
+         if (hostQueue.isEmpty()) {
+            hosts.remove();
+         }
+      }
+   }
+
+   private void execute(final Download download) {
+      mExecutor.execute(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               download(download);
+            } finally {
+               finished(download);
+            }
+         }
+      });
+   }
+
+   private void finished(Download download) {
+      synchronized (this) {
+         mRunning--;
+
+         int hostRunning = mRunningPerHost.get(download.mHost) - 1;
+         if (hostRunning == 0) {
+            mRunningPerHost.remove(download.mHost);
+         } else {
+            mRunningPerHost.put(download.mHost, hostRunning);
+         }
+
+         promote();
+      }
+
+      mCompleted.add(download);
+   }
+
+   /**
+    * Downloads the medium, retrying connection problems with RETRY_POLICY. Fails
+    * immediately if the host's CircuitBreaker is open. Failures while the device is
+    * offline aren't retried or counted against the host.
+    */
+   private void download(Download download) {
+      CircuitBreaker breaker = CircuitBreaker.get(download.mHost);
+
+      for (int attempt = 1; !mCanceled; attempt++) {
+         if (App.get().isConnected() && !breaker.allowRequest()) {
+            download.mError = new IOException("Host is down: " + breaker);
+            return;
+         }
+
+         download.mError = attemptDownload(download);
+
+         if (download.mError == null) {
+            breaker.recordSuccess();
+            return;
+         } else if (!App.get().isConnected() || Thread.currentThread().isInterrupted()) {
+            return;
+         }
+
+         breaker.recordFailure();
+
+         if (!RETRY_POLICY.shouldRetry(attempt) || !RETRY_POLICY.sleep(attempt)) {
+            return;
+         }
+      }
+   }
+
+   /**
+    * Returns the exception that stopped the download or null if it finished.
+    */
+   private Exception attemptDownload(Download download) {
+      try {
+         download.mStoredUrl = download.mUrl;
+         download.mSuccess = downloadMedium(download.mUrl);
+
+         if (!download.mSuccess && download.mUrl.contains(".huge")) {
+            // Download the original image instead because FullScreenImageView will
+            // default to that one.
+            download.mStoredUrl = download.mUrl.replace(".huge", "");
+            download.mSuccess = downloadMedium(download.mStoredUrl);
+         }
+
+         return null;
+      } catch (IOException e) {
+         if (BuildConfig.DEBUG) {
+            Log.e(TAG, "Failed to download medium", e);
+         }
+         return e;
+      } catch (HttpRequestException e) {
+         if (BuildConfig.DEBUG) {
+            Log.e(TAG, "Failed to download medium", e);
+         }
+         return e;
+      }
+   }
+
+   /**
+    * Downloads the medium to the persistent location. Returns true if the medium is
+    * persisted, false otherwise.
+    *
+    * The medium is downloaded to a partial file which is only renamed into place once
+    * it is verified. If a partial file is left over from an interrupted download the
+    * rest of it is requested with a Range header rather than starting over.
+    */
+   private boolean downloadMedium(String mediaUrl) throws IOException {
+      File file = new File(ApiSyncAdapter.getOfflineMediaPath(mediaUrl));
+
+      if (file.exists()) {
+         if (BuildConfig.DEBUG) {
+            // Happens if guides share media.
+            Log.d(TAG, "Skipping: " + mediaUrl);
+         }
+
+         return true;
+      }
+
+      if (mCanceled) {
+         return false;
+      }
+
+      File partialFile = new File(file.getPath() + PARTIAL_SUFFIX);
+      long offset = partialFile.length();
+
+      if (BuildConfig.DEBUG) {
+         Log.i(TAG, "Downloading: " + mediaUrl + (offset > 0 ? " from " + offset : ""));
+      }
+
+      HttpRequest request = HttpRequest.get(mediaUrl);
+      // Ranges refer to the encoded bytes so don't let OkHttp transparently gzip.
+      request.acceptEncoding("identity");
+
+      if (offset > 0) {
+         request.header("Range", "bytes=" + offset + "-");
+      }
+
+      int code = request.code();
+
+      if (code == HTTP_RANGE_NOT_SATISFIABLE) {
+         // The partial file is no shorter than the medium so it can't be right.
+         request.body();
+         partialFile.delete();
+
+         return downloadMedium(mediaUrl);
+      } else if (RetryPolicy.isTransientStatus(code)) {
+         request.body();
+
+         throw new IOException("Server error " + code + " for " + mediaUrl);
+      } else if (code != HttpURLConnection.HTTP_OK &&
+       code != HttpURLConnection.HTTP_PARTIAL) {
+         // This happens occasionally when downloading the .huge size for images that
+         // don't have that size. The original is retried in its place.
+         if (BuildConfig.DEBUG) {
+            Log.w(TAG, "MEDIA FAIL! " + mediaUrl);
+         }
+
+         // Read the error so the connection can be reused.
+         request.body();
+         return false;
+      }
+
+      long expectedLength;
+      if (code == HttpURLConnection.HTTP_PARTIAL) {
+         if (getRangeStart(request.header("Content-Range")) != offset) {
+            // The range doesn't continue the partial file. Writing it from the start
+            // would produce a file of the right length with the wrong contents.
+            request.body();
+
+            if (offset == 0) {
+               throw new IOException("Unexpected range " +
+                request.header("Content-Range") + " for " + mediaUrl);
+            }
+
+            partialFile.delete();
+
+            return downloadMedium(mediaUrl);
+         }
+
+         expectedLength = getRangeTotal(request.header("Content-Range"));
+      } else {
+         // The server sent the whole medium so start from the beginning.
+         offset = 0;
+         expectedLength = request.contentLength();
+      }
+
+      MessageDigest digest = null;
+      String expectedMd5 = getExpectedMd5(request.eTag());
+      if (expectedMd5 != null) {
+         digest = createMd5Digest(partialFile, offset);
+      }
+
+      if (!receive(request, partialFile, offset, digest)) {
+         // Canceled. The partial file is kept so the download can be resumed.
+         return false;
+      }
+
+      long length = partialFile.length();
+
+      if (expectedLength >= 0 && length != expectedLength) {
+         if (length > expectedLength) {
+            partialFile.delete();
+         }
+
+         // Most likely the connection dropped. Whatever was received is kept so the
+         // download can be resumed next time.
+         throw new IOException("Expected " + expectedLength + " bytes but received " +
+          length + " for " + mediaUrl);
+      }
+
+      if (digest != null && !expectedMd5.equals(toHex(digest.digest()))) {
+         partialFile.delete();
+
+         // The medium was corrupted on the way so it is downloaded again rather than
+         // treated as missing.
+         throw new IOException("Checksum mismatch for " + mediaUrl);
+      }
+
+      if (!partialFile.renameTo(file)) {
+         throw new IOException("Failed to rename " + partialFile);
+      }
+
+      return true;
+   }
+
+   /**
+    * Appends the response body to the file starting at offset. Returns false if the
+    * download was canceled.
+    */
+   private boolean receive(HttpRequest request, File file, long offset,
+    MessageDigest digest) throws IOException {
+      InputStream in = null;
+      OutputStream out = null;
+
+      try {
+         in = request.stream();
+         out = new BufferedOutputStream(new FileOutputStream(file, offset > 0), BUFFER_SIZE);
+         byte[] buffer = new byte[BUFFER_SIZE];
+         int read;
+
+         while ((read = in.read(buffer)) != -1) {
+            if (mCanceled) {
+               return false;
+            }
+
+            out.write(buffer, 0, read);
+
+            if (digest != null) {
+               digest.update(buffer, 0, read);
+            }
+         }
+
+         out.close();
+         out = null;
+
+         return true;
+      } finally {
+         closeQuietly(in);
+         closeQuietly(out);
+      }
+   }
+
+   /**
+    * Returns the MD5 the medium should have if the ETag is a plain MD5 of the content,
+    * as it is for media served from S3, or null otherwise.
+    */
+   private static String getExpectedMd5(String eTag) {
+      if (eTag == null) {
+         return null;
+      }
+
+      String md5 = eTag.replace("\"", "").toLowerCase(Locale.US);
+
+      return md5.matches("[0-9a-f]{32}") ? md5 : null;
+   }
+
+   /**
+    * Returns an MD5 digest that has already been fed the first length bytes of the file.
+    */
+   private static MessageDigest createMd5Digest(File file, long length) throws IOException {
+      MessageDigest digest;
+
+      try {
+         digest = MessageDigest.getInstance("MD5");
+      } catch (NoSuchAlgorithmException e) {
+         return null;
+      }
+
+      if (length == 0) {
+         return digest;
+      }
+
+      InputStream in = null;
+
+      try {
+         in = new FileInputStream(file);
+         byte[] buffer = new byte[BUFFER_SIZE];
+         long remaining = length;
+         int read;
+
+         while (remaining > 0 &&
+          (read = in.read(buffer, 0, (int)Math.min(buffer.length, remaining))) != -1) {
+            digest.update(buffer, 0, read);
+            remaining -= read;
+         }
+      } finally {
+         closeQuietly(in);
+      }
+
+      return digest;
+   }
+
+   /**
+    * Returns the first byte position of a Content-Range header e.g. 100 for
+    * "bytes 100-999/1000", or -1 if it can't be parsed.
+    */
+   private static long getRangeStart(String contentRange) {
+      Matcher matcher = parseContentRange(contentRange);
+      return matcher != null ? Long.parseLong(matcher.group(1)) : -1;
+   }
+
+   /**
+    * Returns the complete length of a Content-Range header e.g. 1000 for
+    * "bytes 100-999/1000", or -1 if it is unknown.
+    */
+   private static long getRangeTotal(String contentRange) {
+      Matcher matcher = parseContentRange(contentRange);
+      return matcher != null && matcher.group(2) != null ?
+       Long.parseLong(matcher.group(2)) : -1;
+   }
+
+   private static Matcher parseContentRange(String contentRange) {
+      if (contentRange == null) {
+         return null;
+      }
+
+      Matcher matcher = CONTENT_RANGE.matcher(contentRange);
+      return matcher.matches() ? matcher : null;
+   }
+
+   /**
+    * Deletes media in the directory that are obviously incomplete so they are
+    * downloaded again, as well as abandoned partial downloads. Returns the number of
+    * media deleted.
+    *
+    * Media are verified before they are moved into place so only files written since
+    * the last repair need to be checked. In practice this catches media truncated by
+    * earlier versions which wrote directly to the final location.
+    */
+   public static int repairMedia(File directory) {
+      File marker = new File(directory, REPAIR_MARKER);
+      long lastRepair = marker.lastModified();
+      long startTime = System.currentTimeMillis();
+      File[] files = directory.listFiles();
+      int deleted = 0;
+
+      if (files == null) {
+         return 0;
+      }
+
+      for (File file : files) {
+         String name = file.getName();
+
+         if (!file.isFile() || name.equals(REPAIR_MARKER)) {
+            continue;
+         } else if (name.endsWith(PARTIAL_SUFFIX)) {
+            if (startTime - file.lastModified() > MAX_PARTIAL_AGE_MS) {
+               file.delete();
+            }
+         } else if (file.lastModified() >= lastRepair && isCorrupt(file)) {
+            if (BuildConfig.DEBUG) {
+               Log.w(TAG, "Deleting corrupt medium " + file);
+            }
+
+            file.delete();
+            deleted++;
+         }
+      }
+
+      try {
+         marker.createNewFile();
+         marker.setLastModified(startTime);
+      } catch (IOException e) {
+         Log.w(TAG, "Failed to write repair marker", e);
+      }
+
+      if (BuildConfig.DEBUG) {
+         Log.d(TAG, "Repaired media in " + (System.currentTimeMillis() - startTime) +
+          "ms, deleted " + deleted);
+      }
+
+      return deleted;
+   }
+
+   /**
+    * Returns true if the file is empty or is an image that is missing its end marker.
+    * Other types of media can't be checked without reading the whole file.
+    */
+   private static boolean isCorrupt(File file) {
+      long length = file.length();
+      if (length < MIN_MEDIUM_LENGTH) {
+         return true;
+      }
+
+      RandomAccessFile in = null;
+
+      try {
+         in = new RandomAccessFile(file, "r");
+         byte[] header = new byte[PNG_SIGNATURE.length];
+         in.readFully(header);
+
+         if (startsWith(header, JPEG_SIGNATURE)) {
+            // Some encoders pad the end of the file so look for the end of image marker
+            // near the end rather than only at the very end.
+            int tailLength = (int)Math.min(length, JPEG_TAIL_LENGTH);
+            byte[] tail = new byte[tailLength];
+            in.seek(length - tailLength);
+            in.readFully(tail);
+
+            for (int i = tailLength - 2; i >= 0; i--) {
+               if (tail[i] == (byte)0xFF && tail[i + 1] == (byte)0xD9) {
+                  return false;
+               }
+            }
+
+            return true;
+         } else if (startsWith(header, PNG_SIGNATURE)) {
+            byte[] tail = new byte[PNG_END.length];
+            in.seek(length - PNG_END.length);
+            in.readFully(tail);
+
+            return !Arrays.equals(tail, PNG_END);
+         } else if (startsWith(header, GIF_SIGNATURE)) {
+            in.seek(length - 1);
+
+            return in.readByte() != GIF_TRAILER;
+         }
+
+         return false;
+      } catch (IOException e) {
+         Log.w(TAG, "Failed to check " + file, e);
+         return false;
+      } finally {
+         closeQuietly(in);
+      }
+   }
+
+   private static boolean startsWith(byte[] bytes, byte[] prefix) {
+      for (int i = 0; i < prefix.length; i++) {
+         if (bytes[i] != prefix[i]) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private static String toHex(byte[] bytes) {
+      StringBuilder hex = new StringBuilder(bytes.length * 2);
+
+      for (byte b : bytes) {
+         hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+         hex.append(Character.forDigit(b & 0xf, 16));
+      }
+
+      return hex.toString();
+   }
+
+   private static String getHost(String url) {
+      try {
+         return new URL(url).getHost();
+      } catch (IOException e) {
+         return "";
+      }
+   }
+
+   private static void closeQuietly(Closeable closeable) {
+      if (closeable == null) {
+         return;
+      }
+
+      try {
+         closeable.close();
+      } catch (IOException e) {
+         Log.w(TAG, "Failed to close", e);
+      }
+   }
+}
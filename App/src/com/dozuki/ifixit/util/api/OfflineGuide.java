@@ -0,0 +1,42 @@
+package com.dozuki.ifixit.util.api;
+
+import com.dozuki.ifixit.model.guide.Guide;
+
+/**
+ * An offline guide whose steps are read one at a time with
+ * ApiDatabase.getOfflineGuideStep(). Opening it only reads the guide's row, its tools
+ * and parts, its own comments and the rows of its steps.
+ */
+public class OfflineGuide {
+   private final Guide mGuide;
+   private final long[] mStepRows;
+   private final int[] mStepids;
+
+   OfflineGuide(Guide guide, long[] stepRows, int[] stepids) {
+      mGuide = guide;
+      mStepRows = stepRows;
+      mStepids = stepids;
+   }
+
+   /**
+    * Returns the guide without any steps.
+    */
+   public Guide getGuide() {
+      return mGuide;
+   }
+
+   public int getNumSteps() {
+      return mStepRows.length;
+   }
+
+   /**
+    * Returns the stepids of the guide's steps in order.
+    */
+   public int[] getStepids() {
+      return mStepids.clone();
+   }
+
+   long getStepRow(int index) {
+      return mStepRows[index];
+   }
+}
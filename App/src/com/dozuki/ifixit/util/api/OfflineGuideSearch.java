@@ -0,0 +1,161 @@
+package com.dozuki.ifixit.util.api;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.dozuki.ifixit.model.Item;
+import com.dozuki.ifixit.model.guide.Guide;
+import com.dozuki.ifixit.model.guide.GuideStep;
+import com.dozuki.ifixit.model.guide.StepLine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Full text index of offline guides so they can be searched without a connection.
+ *
+ * An FTS3 table holds one document per row of ApiDatabase's offline guides table using
+ * the row's _id as the docid. A document has the guide's title, the titles and lines
+ * of its steps, and its tools and parts in separate columns so title matches can be
+ * ranked first. Documents are added and removed in the same transactions as their
+ * guides.
+ */
+class OfflineGuideSearch {
+   private static final String TABLE_SEARCH = "offline_guides_search";
+   private static final String KEY_DOCID = "docid";
+   private static final String KEY_GUIDE_TITLE = "guide_title";
+   private static final String KEY_STEP_TEXT = "step_text";
+   private static final String KEY_ITEM_TEXT = "item_text";
+
+   /**
+    * At most this many words of a query are matched.
+    */
+   private static final int MAX_QUERY_TERMS = 10;
+
+   // FTS4 isn't available before API 11. The porter tokenizer matches "batteries"
+   // when searching for "battery".
+   private static final String CREATE_SEARCH_TABLE =
+    "CREATE VIRTUAL TABLE " + TABLE_SEARCH + " USING fts3(" +
+       KEY_GUIDE_TITLE + ", " +
+       KEY_STEP_TEXT + ", " +
+       KEY_ITEM_TEXT + ", " +
+       "tokenize=porter" +
+    ")";
+
+   static void createTable(SQLiteDatabase db) {
+      db.execSQL(CREATE_SEARCH_TABLE);
+   }
+
+   /**
+    * Indexes the guide stored in guideRow.
+    */
+   static void insertGuide(SQLiteDatabase db, long guideRow, Guide guide) {
+      StringBuilder title = new StringBuilder();
+      StringBuilder steps = new StringBuilder();
+      StringBuilder items = new StringBuilder();
+
+      append(title, guide.getTitle());
+      append(title, guide.getTopic());
+      append(title, guide.getSubject());
+
+      for (GuideStep step : guide.getSteps()) {
+         append(steps, step.getTitle());
+
+         for (StepLine line : step.getLines()) {
+            append(steps, line.getTextRaw());
+         }
+      }
+
+      for (Item item : guide.getTools()) {
+         append(items, item.getTitle());
+      }
+      for (Item item : guide.getParts()) {
+         append(items, item.getTitle());
+      }
+
+      ContentValues values = new ContentValues();
+      values.put(KEY_DOCID, guideRow);
+      values.put(KEY_GUIDE_TITLE, title.toString());
+      values.put(KEY_STEP_TEXT, steps.toString());
+      values.put(KEY_ITEM_TEXT, items.toString());
+
+      db.insertOrThrow(TABLE_SEARCH, null, values);
+   }
+
+   /**
+    * Removes the documents of the guide rows selected by guideRowQuery.
+    */
+   static void deleteGuides(SQLiteDatabase db, String guideRowQuery, String[] args) {
+      db.delete(TABLE_SEARCH, KEY_DOCID + " IN (" + guideRowQuery + ")", args);
+   }
+
+   /**
+    * Returns a query that selects the guide rows matching expression.
+    */
+   static String getGuideRowQuery(String expression) {
+      return "SELECT " + KEY_DOCID + " FROM " + TABLE_SEARCH + " WHERE " + TABLE_SEARCH +
+       " MATCH " + expression;
+   }
+
+   /**
+    * Returns MATCH expressions for the query or null if it has no words. The first only
+    * matches guide titles and the second matches anything. Every word of the query must
+    * match the start of a word in the document.
+    */
+   static String[] getMatchExpressions(String query) {
+      List<String> terms = getTerms(query);
+
+      if (terms.isEmpty()) {
+         return null;
+      }
+
+      StringBuilder titleExpression = new StringBuilder();
+      StringBuilder expression = new StringBuilder();
+
+      for (String term : terms) {
+         if (expression.length() > 0) {
+            titleExpression.append(' ');
+            expression.append(' ');
+         }
+
+         titleExpression.append(KEY_GUIDE_TITLE).append(':').append(term).append('*');
+         expression.append(term).append('*');
+      }
+
+      return new String[] {titleExpression.toString(), expression.toString()};
+   }
+
+   /**
+    * Splits the query into words. Everything but letters and digits is dropped so the
+    * query can't use FTS operators.
+    */
+   private static List<String> getTerms(String query) {
+      List<String> terms = new ArrayList<String>();
+      StringBuilder term = new StringBuilder();
+      String lowerQuery = query.toLowerCase(Locale.US);
+
+      for (int i = 0; i <= lowerQuery.length() && terms.size() < MAX_QUERY_TERMS; i++) {
+         if (i < lowerQuery.length() && Character.isLetterOrDigit(lowerQuery.charAt(i))) {
+            term.append(lowerQuery.charAt(i));
+         } else if (term.length() > 0) {
+            terms.add(term.toString());
+            term.setLength(0);
+         }
+      }
+
+      return terms;
+   }
+
+   private static void append(StringBuilder text, String value) {
+      if (value == null || value.length() == 0) {
+         return;
+      }
+
+      if (text.length() > 0) {
+         text.append('\n');
+      }
+
+      text.append(value);
+   }
+}
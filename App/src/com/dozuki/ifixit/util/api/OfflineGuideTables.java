@@ -0,0 +1,939 @@
+package com.dozuki.ifixit.util.api;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.dozuki.ifixit.model.Comment;
+import com.dozuki.ifixit.model.Embed;
+import com.dozuki.ifixit.model.Image;
+import com.dozuki.ifixit.model.Item;
+import com.dozuki.ifixit.model.Video;
+import com.dozuki.ifixit.model.VideoEncoding;
+import com.dozuki.ifixit.model.VideoThumbnail;
+import com.dozuki.ifixit.model.guide.Guide;
+import com.dozuki.ifixit.model.guide.GuideInfo;
+import com.dozuki.ifixit.model.guide.GuideStep;
+import com.dozuki.ifixit.model.guide.StepLine;
+import com.dozuki.ifixit.model.user.User;
+import com.dozuki.ifixit.util.HtmlRenderer;
+import com.dozuki.ifixit.util.JSONStreamParser;
+import com.dozuki.ifixit.util.SpannedCodec;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Normalized storage for the contents of offline guides.
+ *
+ * The guide's own fields are columns of ApiDatabase's offline guides table (see
+ * GUIDE_COLUMNS) while steps, lines, media, tools and parts, and comments are rows in
+ * their own tables. Every child row carries the _id of its guide row so a guide is read
+ * with one indexed query per table and deleted with one statement per table. Rows that
+ * belong to a step also carry the step's _id so a single step can be read on its own.
+ */
+class OfflineGuideTables {
+   private static final String TAG = "OfflineGuideTables";
+
+   private static final String KEY_ID = "_id";
+   private static final String KEY_GUIDEID = "guideid";
+   private static final String KEY_GUIDE_ROW = "guide_row";
+   private static final String KEY_STEP_ROW = "step_row";
+   private static final String KEY_POSITION = "position";
+
+   /**
+    * Guide columns. The guide's modified dates are stored separately from the sync's
+    * modified date which includes prerequisites.
+    */
+   private static final String KEY_REVISIONID = "revisionid";
+   private static final String KEY_TITLE = "title";
+   private static final String KEY_PUBLIC = "public";
+   private static final String KEY_TOPIC = "topic";
+   private static final String KEY_AUTHOR = "author";
+   private static final String KEY_TYPE = "type";
+   private static final String KEY_TIME_REQUIRED = "time_required";
+   private static final String KEY_DIFFICULTY = "difficulty";
+   private static final String KEY_INTRODUCTION_RENDERED = "introduction_rendered";
+   private static final String KEY_INTRODUCTION_RAW = "introduction_raw";
+   private static final String KEY_SUBJECT = "subject";
+   private static final String KEY_IMAGEID = "imageid";
+   private static final String KEY_IMAGE_PATH = "image_path";
+   private static final String KEY_SUMMARY = "summary";
+   private static final String KEY_COMPLETED = "completed";
+   private static final String KEY_CONCLUSION = "conclusion";
+   private static final String KEY_CAN_EDIT = "can_edit";
+   private static final String KEY_PATROL_THRESHOLD = "patrol_threshold";
+   private static final String KEY_FAVORITED = "favorited";
+   private static final String KEY_GUIDE_MODIFIED_DATE = "guide_modified_date";
+   private static final String KEY_PREREQ_MODIFIED_DATE = "prereq_modified_date";
+   /**
+    * GuideInfo fields that aren't part of the guide.
+    */
+   private static final String KEY_INFO_URL = "info_url";
+   private static final String KEY_INFO_AUTHOR = "info_author";
+   private static final String KEY_INFO_USERID = "info_userid";
+   private static final String KEY_INFO_LOCALE = "info_locale";
+   private static final String KEY_INFO_FLAGS = "info_flags";
+
+   static final String GUIDE_COLUMNS =
+      KEY_REVISIONID + " INTEGER, " +
+      KEY_TITLE + " TEXT, " +
+      KEY_PUBLIC + " INTEGER, " +
+      KEY_TOPIC + " TEXT, " +
+      KEY_AUTHOR + " TEXT, " +
+      KEY_TYPE + " TEXT, " +
+      KEY_TIME_REQUIRED + " TEXT, " +
+      KEY_DIFFICULTY + " TEXT, " +
+      KEY_INTRODUCTION_RENDERED + " TEXT, " +
+      KEY_INTRODUCTION_RAW + " TEXT, " +
+      KEY_SUBJECT + " TEXT, " +
+      KEY_IMAGEID + " INTEGER, " +
+      KEY_IMAGE_PATH + " TEXT, " +
+      KEY_SUMMARY + " TEXT, " +
+      KEY_COMPLETED + " INTEGER, " +
+      KEY_CONCLUSION + " TEXT, " +
+      KEY_CAN_EDIT + " INTEGER, " +
+      KEY_PATROL_THRESHOLD + " INTEGER, " +
+      KEY_FAVORITED + " INTEGER, " +
+      KEY_GUIDE_MODIFIED_DATE + " REAL, " +
+      KEY_PREREQ_MODIFIED_DATE + " REAL, " +
+      KEY_INFO_URL + " TEXT, " +
+      KEY_INFO_AUTHOR + " TEXT, " +
+      KEY_INFO_USERID + " INTEGER, " +
+      KEY_INFO_LOCALE + " TEXT, " +
+      KEY_INFO_FLAGS + " TEXT, ";
+
+   /**
+    * Columns needed to build a Guide with readGuide().
+    */
+   static final String[] GUIDE_PROJECTION = {
+      KEY_ID, KEY_GUIDEID, KEY_REVISIONID, KEY_TITLE, KEY_PUBLIC, KEY_TOPIC,
+      KEY_AUTHOR, KEY_TYPE, KEY_TIME_REQUIRED, KEY_DIFFICULTY, KEY_INTRODUCTION_RENDERED,
+      KEY_INTRODUCTION_RAW, KEY_SUBJECT, KEY_IMAGEID, KEY_IMAGE_PATH, KEY_SUMMARY,
+      KEY_COMPLETED, KEY_CONCLUSION, KEY_CAN_EDIT, KEY_PATROL_THRESHOLD, KEY_FAVORITED,
+      KEY_GUIDE_MODIFIED_DATE, KEY_PREREQ_MODIFIED_DATE
+   };
+
+   /**
+    * Columns needed to build a GuideInfo with readGuideInfo().
+    */
+   static final String[] GUIDE_INFO_PROJECTION = {
+      KEY_GUIDEID, KEY_REVISIONID, KEY_GUIDE_MODIFIED_DATE,
+      KEY_PREREQ_MODIFIED_DATE, KEY_TYPE, KEY_TOPIC, KEY_SUBJECT, KEY_TITLE, KEY_PUBLIC,
+      KEY_INFO_FLAGS, KEY_IMAGEID, KEY_IMAGE_PATH, KEY_INFO_URL, KEY_INFO_AUTHOR,
+      KEY_INFO_USERID, KEY_INFO_LOCALE
+   };
+
+   private static final String TABLE_STEPS = "offline_guide_steps";
+   private static final String KEY_STEPID = "stepid";
+   private static final String KEY_ORDERBY = "orderby";
+   private static final String KEY_STEP_NUM = "step_num";
+
+   private static final String CREATE_STEPS_TABLE =
+    "CREATE TABLE " + TABLE_STEPS + "(" +
+       KEY_ID + " INTEGER PRIMARY KEY, " +
+       KEY_GUIDE_ROW + " INTEGER NOT NULL, " +
+       KEY_POSITION + " INTEGER, " +
+       KEY_GUIDEID + " INTEGER, " +
+       KEY_STEPID + " INTEGER, " +
+       KEY_REVISIONID + " INTEGER, " +
+       KEY_ORDERBY + " INTEGER, " +
+       KEY_STEP_NUM + " INTEGER, " +
+       KEY_TITLE + " TEXT" +
+    ")";
+
+   private static final String TABLE_LINES = "offline_guide_lines";
+   private static final String KEY_LINEID = "lineid";
+   private static final String KEY_COLOR = "color";
+   private static final String KEY_LEVEL = "level";
+   private static final String KEY_TEXT_RAW = "text_raw";
+   private static final String KEY_TEXT_RENDERED = "text_rendered";
+
+   /**
+    * KEY_TEXT_RENDERED converted to Spanned text when the guide is saved and encoded by
+    * SpannedCodec so opening the guide doesn't have to parse the HTML. Null if the text
+    * has spans SpannedCodec doesn't support.
+    */
+   private static final String KEY_TEXT_SPANS = "text_spans";
+
+   private static final String CREATE_LINES_TABLE =
+    "CREATE TABLE " + TABLE_LINES + "(" +
+       KEY_GUIDE_ROW + " INTEGER NOT NULL, " +
+       KEY_STEP_ROW + " INTEGER NOT NULL, " +
+       KEY_POSITION + " INTEGER, " +
+       KEY_LINEID + " INTEGER, " +
+       KEY_COLOR + " TEXT, " +
+       KEY_LEVEL + " INTEGER, " +
+       KEY_TEXT_RAW + " TEXT, " +
+       KEY_TEXT_RENDERED + " TEXT, " +
+       KEY_TEXT_SPANS + " BLOB" +
+    ")";
+
+   /**
+    * Step media. A video is a MEDIA_VIDEO row followed by its thumbnail and encodings.
+    * Embeds keep the oEmbed JSON they are constructed from in KEY_DATA.
+    */
+   private static final String TABLE_MEDIA = "offline_guide_media";
+   private static final String KEY_MEDIA_TYPE = "media_type";
+   private static final String KEY_MEDIAID = "mediaid";
+   private static final String KEY_URL = "url";
+   private static final String KEY_WIDTH = "width";
+   private static final String KEY_HEIGHT = "height";
+   private static final String KEY_DURATION = "duration";
+   private static final String KEY_FORMAT = "format";
+   private static final String KEY_DATA = "data";
+
+   private static final int MEDIA_IMAGE = 0;
+   private static final int MEDIA_VIDEO = 1;
+   private static final int MEDIA_VIDEO_THUMBNAIL = 2;
+   private static final int MEDIA_VIDEO_ENCODING = 3;
+   private static final int MEDIA_EMBED = 4;
+
+   private static final String CREATE_MEDIA_TABLE =
+    "CREATE TABLE " + TABLE_MEDIA + "(" +
+       KEY_GUIDE_ROW + " INTEGER NOT NULL, " +
+       KEY_STEP_ROW + " INTEGER NOT NULL, " +
+       KEY_POSITION + " INTEGER, " +
+       KEY_MEDIA_TYPE + " INTEGER, " +
+       KEY_MEDIAID + " INTEGER, " +
+       KEY_URL + " TEXT, " +
+       KEY_WIDTH + " INTEGER, " +
+       KEY_HEIGHT + " INTEGER, " +
+       KEY_DURATION + " INTEGER, " +
+       KEY_FORMAT + " TEXT, " +
+       KEY_DATA + " TEXT" +
+    ")";
+
+   private static final String TABLE_ITEMS = "offline_guide_items";
+   private static final String KEY_ITEM_TYPE = "item_type";
+   private static final String KEY_QUANTITY = "quantity";
+   private static final String KEY_THUMB = "thumb";
+   private static final String KEY_NOTE = "note";
+
+   private static final String CREATE_ITEMS_TABLE =
+    "CREATE TABLE " + TABLE_ITEMS + "(" +
+       KEY_GUIDE_ROW + " INTEGER NOT NULL, " +
+       KEY_POSITION + " INTEGER, " +
+       KEY_ITEM_TYPE + " TEXT, " +
+       KEY_TITLE + " TEXT, " +
+       KEY_QUANTITY + " TEXT, " +
+       KEY_URL + " TEXT, " +
+       KEY_THUMB + " TEXT, " +
+       KEY_NOTE + " TEXT" +
+    ")";
+
+   /**
+    * Guide and step comments. Step comments have the step's row in KEY_STEP_ROW and
+    * replies have their parent's row in KEY_PARENT_ROW.
+    */
+   private static final String TABLE_COMMENTS = "offline_guide_comments";
+   private static final String KEY_PARENT_ROW = "parent_row";
+   private static final String KEY_COMMENTID = "commentid";
+   private static final String KEY_PARENTID = "parentid";
+   private static final String KEY_CONTEXT = "context";
+   private static final String KEY_CONTEXTID = "contextid";
+   private static final String KEY_LOCALE = "locale";
+   private static final String KEY_USERID = "userid";
+   private static final String KEY_USERNAME = "username";
+   private static final String KEY_REPUTATION = "reputation";
+   private static final String KEY_RATING = "rating";
+   private static final String KEY_DATE = "date";
+   private static final String KEY_MODIFIED_DATE = "modified_date";
+   private static final String KEY_REPLIED_DATE = "replied_date";
+   private static final String KEY_STATUS = "status";
+
+   private static final String CREATE_COMMENTS_TABLE =
+    "CREATE TABLE " + TABLE_COMMENTS + "(" +
+       KEY_ID + " INTEGER PRIMARY KEY, " +
+       KEY_GUIDE_ROW + " INTEGER NOT NULL, " +
+       KEY_STEP_ROW + " INTEGER, " +
+       KEY_PARENT_ROW + " INTEGER, " +
+       KEY_POSITION + " INTEGER, " +
+       KEY_COMMENTID + " INTEGER, " +
+       KEY_PARENTID + " INTEGER, " +
+       KEY_CONTEXT + " TEXT, " +
+       KEY_CONTEXTID + " INTEGER, " +
+       KEY_LOCALE + " TEXT, " +
+       KEY_TITLE + " TEXT, " +
+       KEY_TEXT_RAW + " TEXT, " +
+       KEY_TEXT_RENDERED + " TEXT, " +
+       KEY_USERID + " INTEGER, " +
+       KEY_USERNAME + " TEXT, " +
+       KEY_IMAGEID + " INTEGER, " +
+       KEY_IMAGE_PATH + " TEXT, " +
+       KEY_REPUTATION + " INTEGER, " +
+       KEY_RATING + " INTEGER, " +
+       KEY_DATE + " INTEGER, " +
+       KEY_MODIFIED_DATE + " INTEGER, " +
+       KEY_REPLIED_DATE + " INTEGER, " +
+       KEY_STATUS + " TEXT" +
+    ")";
+
+   private static final String[] CHILD_TABLES =
+    {TABLE_STEPS, TABLE_LINES, TABLE_MEDIA, TABLE_ITEMS, TABLE_COMMENTS};
+
+   private static final String[] STEP_CHILD_TABLES = {TABLE_LINES, TABLE_MEDIA, TABLE_COMMENTS};
+
+   private static final String GUIDE_ROW_WHERE = KEY_GUIDE_ROW + " = ?";
+   private static final String STEP_ROW_WHERE = KEY_STEP_ROW + " = ?";
+
+   /**
+    * Position columns order child rows the way they appear in the guide.
+    */
+   private static final String ORDER_BY_POSITION = KEY_POSITION + " ASC";
+
+   static void createTables(SQLiteDatabase db) {
+      db.execSQL(CREATE_STEPS_TABLE);
+      db.execSQL(CREATE_LINES_TABLE);
+      db.execSQL(CREATE_MEDIA_TABLE);
+      db.execSQL(CREATE_ITEMS_TABLE);
+      db.execSQL(CREATE_COMMENTS_TABLE);
+
+      for (String table : CHILD_TABLES) {
+         db.execSQL("CREATE INDEX " + table + "_" + KEY_GUIDE_ROW + " ON " + table +
+          "(" + KEY_GUIDE_ROW + ", " + KEY_POSITION + ")");
+      }
+
+      createStepRowIndexes(db);
+   }
+
+   /**
+    * Indexes the rows that belong to steps by their step so steps can be read one at a
+    * time.
+    */
+   static void createStepRowIndexes(SQLiteDatabase db) {
+      for (String table : STEP_CHILD_TABLES) {
+         db.execSQL("CREATE INDEX " + table + "_" + KEY_STEP_ROW + " ON " + table +
+          "(" + KEY_STEP_ROW + ", " + KEY_POSITION + ")");
+      }
+   }
+
+   /**
+    * Adds the pre-rendered text column to a lines table created before it existed.
+    */
+   static void addTextSpansColumn(SQLiteDatabase db) {
+      db.execSQL("ALTER TABLE " + TABLE_LINES + " ADD COLUMN " + KEY_TEXT_SPANS + " BLOB");
+   }
+
+   /**
+    * Adds the guide's own fields to values which is used to insert the guide's row.
+    */
+   static void putGuide(ContentValues values, Guide guide, GuideInfo guideInfo) {
+      values.put(KEY_REVISIONID, guide.getRevisionid());
+      values.put(KEY_TITLE, guide.getTitle());
+      values.put(KEY_PUBLIC, guide.isPublic());
+      values.put(KEY_TOPIC, guide.getTopic());
+      values.put(KEY_AUTHOR, guide.getAuthor());
+      values.put(KEY_TYPE, guide.getType());
+      values.put(KEY_TIME_REQUIRED, guide.getTimeRequired());
+      values.put(KEY_DIFFICULTY, guide.getDifficulty());
+      values.put(KEY_INTRODUCTION_RENDERED, guide.getIntroductionRendered());
+      values.put(KEY_INTRODUCTION_RAW, guide.getIntroductionRaw());
+      values.put(KEY_SUBJECT, guide.getSubject());
+      putImage(values, guide.getIntroImage());
+      values.put(KEY_SUMMARY, guide.getSummary());
+      values.put(KEY_COMPLETED, guide.getCompleted());
+      values.put(KEY_CONCLUSION, guide.getConclusion());
+      values.put(KEY_CAN_EDIT, guide.canEdit());
+      values.put(KEY_PATROL_THRESHOLD, guide.getPatrolThreshold());
+      values.put(KEY_FAVORITED, guide.isFavorited());
+      values.put(KEY_GUIDE_MODIFIED_DATE, guide.getModifiedDate());
+      values.put(KEY_PREREQ_MODIFIED_DATE, guide.getPrereqModifiedDate());
+
+      values.put(KEY_INFO_URL, guideInfo.mUrl);
+      values.put(KEY_INFO_AUTHOR, guideInfo.mAuthorName);
+      values.put(KEY_INFO_USERID, guideInfo.mUserid);
+      values.put(KEY_INFO_LOCALE, guideInfo.mLocale);
+      values.put(KEY_INFO_FLAGS, guideInfo.mFlags == null ? null :
+       JSONStreamParser.getGson().toJson(guideInfo.mFlags));
+   }
+
+   /**
+    * Inserts the guide's steps, tools and parts, and comments for the guide row.
+    */
+   static void insertContents(SQLiteDatabase db, long guideRow, Guide guide) {
+      ContentValues values = new ContentValues();
+      int position = 0;
+
+      for (GuideStep step : guide.getSteps()) {
+         values.clear();
+         values.put(KEY_GUIDE_ROW, guideRow);
+         values.put(KEY_POSITION, position++);
+         values.put(KEY_GUIDEID, step.getGuideid());
+         values.put(KEY_STEPID, step.getStepid());
+         values.put(KEY_REVISIONID, step.getRevisionid());
+         values.put(KEY_ORDERBY, step.getOrderby());
+         values.put(KEY_STEP_NUM, step.getStepNum());
+         values.put(KEY_TITLE, step.getTitle());
+         long stepRow = db.insertOrThrow(TABLE_STEPS, null, values);
+
+         insertLines(db, values, guideRow, stepRow, step);
+         insertMedia(db, values, guideRow, stepRow, step);
+         insertComments(db, values, guideRow, stepRow, null, step.getComments());
+      }
+
+      position = 0;
+      for (Item item : guide.getTools()) {
+         insertItem(db, values, guideRow, position++, item);
+      }
+      for (Item item : guide.getParts()) {
+         insertItem(db, values, guideRow, position++, item);
+      }
+
+      insertComments(db, values, guideRow, null, null, guide.getComments());
+   }
+
+   private static void insertLines(SQLiteDatabase db, ContentValues values, long guideRow,
+    long stepRow, GuideStep step) {
+      int position = 0;
+
+      for (StepLine line : step.getLines()) {
+         values.clear();
+         values.put(KEY_GUIDE_ROW, guideRow);
+         values.put(KEY_STEP_ROW, stepRow);
+         values.put(KEY_POSITION, position++);
+         values.put(KEY_LINEID, line.getLineId());
+         values.put(KEY_COLOR, line.getColor());
+         values.put(KEY_LEVEL, line.getLevel());
+         values.put(KEY_TEXT_RAW, line.getTextRaw());
+         values.put(KEY_TEXT_RENDERED, line.getTextRendered());
+         values.put(KEY_TEXT_SPANS, getTextSpans(line));
+         db.insertOrThrow(TABLE_LINES, null, values);
+      }
+   }
+
+   private static byte[] getTextSpans(StepLine line) {
+      if (line.getTextSpans() != null) {
+         return line.getTextSpans();
+      }
+
+      if (line.getTextRendered() == null) {
+         return null;
+      }
+
+      return SpannedCodec.encode(HtmlRenderer.fromHtml(line.getTextRendered()));
+   }
+
+   private static void insertMedia(SQLiteDatabase db, ContentValues values, long guideRow,
+    long stepRow, GuideStep step) {
+      int position = 0;
+
+      for (Image image : step.getImages()) {
+         values.clear();
+         putMediaRow(values, guideRow, stepRow, position++, MEDIA_IMAGE);
+         values.put(KEY_MEDIAID, image.getId());
+         values.put(KEY_URL, image.getPath());
+         db.insertOrThrow(TABLE_MEDIA, null, values);
+      }
+
+      if (step.hasVideo()) {
+         Video video = step.getVideo();
+
+         values.clear();
+         putMediaRow(values, guideRow, stepRow, position++, MEDIA_VIDEO);
+         values.put(KEY_MEDIAID, video.getId());
+         values.put(KEY_WIDTH, video.getWidth());
+         values.put(KEY_HEIGHT, video.getHeight());
+         values.put(KEY_DURATION, video.getDuration());
+         values.put(KEY_DATA, video.getFilename());
+         db.insertOrThrow(TABLE_MEDIA, null, values);
+
+         VideoThumbnail thumbnail = video.getThumbnail();
+         if (thumbnail != null) {
+            values.clear();
+            putMediaRow(values, guideRow, stepRow, position++, MEDIA_VIDEO_THUMBNAIL);
+            values.put(KEY_MEDIAID, thumbnail.getId());
+            values.put(KEY_URL, thumbnail.getPath());
+            values.put(KEY_WIDTH, thumbnail.getWidth());
+            values.put(KEY_HEIGHT, thumbnail.getHeight());
+            db.insertOrThrow(TABLE_MEDIA, null, values);
+         }
+
+         for (VideoEncoding encoding : video.getEncodings()) {
+            values.clear();
+            putMediaRow(values, guideRow, stepRow, position++, MEDIA_VIDEO_ENCODING);
+            values.put(KEY_URL, encoding.getURL());
+            values.put(KEY_WIDTH, encoding.getWidth());
+            values.put(KEY_HEIGHT, encoding.getHeight());
+            values.put(KEY_FORMAT, encoding.getFormat());
+            db.insertOrThrow(TABLE_MEDIA, null, values);
+         }
+      }
+
+      if (step.hasEmbed()) {
+         values.clear();
+         putMediaRow(values, guideRow, stepRow, position, MEDIA_EMBED);
+         values.put(KEY_DATA, getEmbedJson(step.getEmbed()));
+         db.insertOrThrow(TABLE_MEDIA, null, values);
+      }
+   }
+
+   private static void putMediaRow(ContentValues values, long guideRow, long stepRow,
+    int position, int type) {
+      values.put(KEY_GUIDE_ROW, guideRow);
+      values.put(KEY_STEP_ROW, stepRow);
+      values.put(KEY_POSITION, position);
+      values.put(KEY_MEDIA_TYPE, type);
+   }
+
+   private static void insertItem(SQLiteDatabase db, ContentValues values, long guideRow,
+    int position, Item item) {
+      values.clear();
+      values.put(KEY_GUIDE_ROW, guideRow);
+      values.put(KEY_POSITION, position);
+      values.put(KEY_ITEM_TYPE, item.getType().name());
+      values.put(KEY_TITLE, item.getTitle());
+      values.put(KEY_QUANTITY, item.getQuantity());
+      values.put(KEY_URL, item.getUrl());
+      values.put(KEY_THUMB, item.getThumb());
+      values.put(KEY_NOTE, item.getNote());
+      db.insertOrThrow(TABLE_ITEMS, null, values);
+   }
+
+   private static void insertComments(SQLiteDatabase db, ContentValues values,
+    long guideRow, Long stepRow, Long parentRow, ArrayList<Comment> comments) {
+      if (comments == null) {
+         return;
+      }
+
+      int position = 0;
+
+      for (Comment comment : comments) {
+         values.clear();
+         values.put(KEY_GUIDE_ROW, guideRow);
+         values.put(KEY_STEP_ROW, stepRow);
+         values.put(KEY_PARENT_ROW, parentRow);
+         values.put(KEY_POSITION, position++);
+         values.put(KEY_COMMENTID, comment.mCommentid);
+         values.put(KEY_PARENTID, comment.mParentid);
+         values.put(KEY_CONTEXT, comment.mContext);
+         values.put(KEY_CONTEXTID, comment.mContextid);
+         values.put(KEY_LOCALE, comment.mLocale);
+         values.put(KEY_TITLE, comment.mTitle);
+         values.put(KEY_TEXT_RAW, comment.mTextRaw);
+         values.put(KEY_TEXT_RENDERED, comment.mTextRendered);
+         values.put(KEY_RATING, comment.mRating);
+         values.put(KEY_DATE, getTime(comment.mDate));
+         values.put(KEY_MODIFIED_DATE, getTime(comment.mModifiedDate));
+         values.put(KEY_REPLIED_DATE, getTime(comment.mRepliedDate));
+         values.put(KEY_STATUS, comment.mStatus);
+
+         if (comment.mUser != null) {
+            values.put(KEY_USERID, comment.mUser.getUserid());
+            values.put(KEY_USERNAME, comment.mUser.getUsername());
+            values.put(KEY_REPUTATION, comment.mUser.getReputation());
+            putImage(values, comment.mUser.getAvatar());
+         }
+
+         long commentRow = db.insertOrThrow(TABLE_COMMENTS, null, values);
+         insertComments(db, values, guideRow, stepRow, commentRow, comment.mReplies);
+      }
+   }
+
+   /**
+    * Deletes the contents of guide rows matching the subquery which selects _ids from
+    * the offline guides table.
+    */
+   static void deleteContents(SQLiteDatabase db, String guideRowQuery, String[] args) {
+      for (String table : CHILD_TABLES) {
+         db.delete(table, KEY_GUIDE_ROW + " IN (" + guideRowQuery + ")", args);
+      }
+   }
+
+   /**
+    * Builds the guide at the cursor's position which must include GUIDE_PROJECTION.
+    */
+   static Guide readGuide(SQLiteDatabase db, Cursor cursor) {
+      Guide guide = readGuideColumns(cursor);
+
+      String[] guideArgs = {String.valueOf(getLong(cursor, KEY_ID))};
+      Map<Long, GuideStep> steps = readSteps(db, guideArgs, guide);
+      readLines(db, GUIDE_ROW_WHERE, guideArgs, steps);
+      readMedia(db, GUIDE_ROW_WHERE, guideArgs, steps);
+      readItems(db, guideArgs, guide);
+      readComments(db, GUIDE_ROW_WHERE, guideArgs, guide, steps);
+
+      return guide;
+   }
+
+   /**
+    * Builds the guide at the cursor's position like readGuide() but only reads the rows
+    * of its steps. Their contents are read by readStep().
+    */
+   static OfflineGuide readOfflineGuide(SQLiteDatabase db, Cursor cursor) {
+      Guide guide = readGuideColumns(cursor);
+
+      String[] guideArgs = {String.valueOf(getLong(cursor, KEY_ID))};
+      readItems(db, guideArgs, guide);
+      readComments(db, GUIDE_ROW_WHERE + " AND " + KEY_STEP_ROW + " IS NULL", guideArgs,
+       guide, new HashMap<Long, GuideStep>());
+
+      Cursor steps = db.query(TABLE_STEPS, new String[] {KEY_ID, KEY_STEPID},
+       GUIDE_ROW_WHERE, guideArgs, null, null, ORDER_BY_POSITION);
+
+      try {
+         long[] stepRows = new long[steps.getCount()];
+         int[] stepids = new int[steps.getCount()];
+
+         for (int i = 0; steps.moveToNext(); i++) {
+            stepRows[i] = getLong(steps, KEY_ID);
+            stepids[i] = getInt(steps, KEY_STEPID);
+         }
+
+         return new OfflineGuide(guide, stepRows, stepids);
+      } finally {
+         steps.close();
+      }
+   }
+
+   /**
+    * Returns the step with its lines, media and comments or null if the step's row no
+    * longer exists.
+    */
+   static GuideStep readStep(SQLiteDatabase db, long stepRow) {
+      String[] stepArgs = {String.valueOf(stepRow)};
+      Cursor cursor = db.query(TABLE_STEPS, null, KEY_ID + " = ?", stepArgs, null, null,
+       null);
+      GuideStep step;
+
+      try {
+         if (!cursor.moveToFirst()) {
+            return null;
+         }
+
+         step = readStepColumns(cursor);
+      } finally {
+         cursor.close();
+      }
+
+      Map<Long, GuideStep> steps = new HashMap<Long, GuideStep>();
+      steps.put(stepRow, step);
+
+      readLines(db, STEP_ROW_WHERE, stepArgs, steps);
+      readMedia(db, STEP_ROW_WHERE, stepArgs, steps);
+      readComments(db, STEP_ROW_WHERE, stepArgs, null, steps);
+
+      return step;
+   }
+
+   private static Guide readGuideColumns(Cursor cursor) {
+      Guide guide = new Guide(getInt(cursor, KEY_GUIDEID));
+
+      int revisionid = cursor.getColumnIndexOrThrow(KEY_REVISIONID);
+      guide.setRevisionid(cursor.isNull(revisionid) ? null : cursor.getInt(revisionid));
+      guide.setTitle(getString(cursor, KEY_TITLE));
+      guide.setPublic(getBoolean(cursor, KEY_PUBLIC));
+      guide.setTopic(getString(cursor, KEY_TOPIC));
+      guide.setAuthor(getString(cursor, KEY_AUTHOR));
+      guide.setType(getString(cursor, KEY_TYPE));
+      guide.setTimeRequired(getString(cursor, KEY_TIME_REQUIRED));
+      guide.setDifficulty(getString(cursor, KEY_DIFFICULTY));
+      guide.setIntroductionRendered(getString(cursor, KEY_INTRODUCTION_RENDERED));
+      guide.setIntroductionRaw(getString(cursor, KEY_INTRODUCTION_RAW));
+      guide.setSubject(getString(cursor, KEY_SUBJECT));
+      guide.setIntroImage(getImage(cursor));
+      guide.setSummary(getString(cursor, KEY_SUMMARY));
+      guide.setCompleted(getBoolean(cursor, KEY_COMPLETED));
+      guide.setConclusion(getString(cursor, KEY_CONCLUSION));
+      guide.setCanEdit(getBoolean(cursor, KEY_CAN_EDIT));
+      guide.setPatrolThreshold(getInt(cursor, KEY_PATROL_THRESHOLD));
+      guide.setFavorited(getBoolean(cursor, KEY_FAVORITED));
+      guide.setModifiedDate(getDouble(cursor, KEY_GUIDE_MODIFIED_DATE));
+      guide.setPrereqModifiedDate(getDouble(cursor, KEY_PREREQ_MODIFIED_DATE));
+
+      return guide;
+   }
+
+   /**
+    * Builds the GuideInfo at the cursor's position which must include
+    * GUIDE_INFO_PROJECTION.
+    */
+   static GuideInfo readGuideInfo(Cursor cursor) {
+      GuideInfo guideInfo = new GuideInfo(getInt(cursor, KEY_GUIDEID));
+      guideInfo.mRevisionid = getInt(cursor, KEY_REVISIONID);
+      guideInfo.mModifiedDate = getDouble(cursor, KEY_GUIDE_MODIFIED_DATE);
+      guideInfo.mPrereqModifiedDate = getDouble(cursor, KEY_PREREQ_MODIFIED_DATE);
+      guideInfo.mType = getString(cursor, KEY_TYPE);
+      guideInfo.mTopic = getString(cursor, KEY_TOPIC);
+      guideInfo.mSubject = getString(cursor, KEY_SUBJECT);
+      guideInfo.mTitle = getString(cursor, KEY_TITLE);
+      guideInfo.mPublic = getBoolean(cursor, KEY_PUBLIC);
+      guideInfo.mUrl = getString(cursor, KEY_INFO_URL);
+      guideInfo.mAuthorName = getString(cursor, KEY_INFO_AUTHOR);
+      guideInfo.mUserid = getInt(cursor, KEY_INFO_USERID);
+      guideInfo.mLocale = getString(cursor, KEY_INFO_LOCALE);
+
+      String flags = getString(cursor, KEY_INFO_FLAGS);
+      if (flags != null) {
+         guideInfo.mFlags = JSONStreamParser.getGson().fromJson(flags, String[].class);
+      }
+
+      Image image = getImage(cursor);
+      if (image.isValid()) {
+         guideInfo.mImage = image;
+      }
+
+      return guideInfo;
+   }
+
+   private static Map<Long, GuideStep> readSteps(SQLiteDatabase db, String[] guideArgs,
+    Guide guide) {
+      Map<Long, GuideStep> steps = new HashMap<Long, GuideStep>();
+      Cursor cursor = queryChildren(db, TABLE_STEPS, GUIDE_ROW_WHERE, guideArgs);
+
+      while (cursor.moveToNext()) {
+         GuideStep step = readStepColumns(cursor);
+
+         guide.addStep(step);
+         steps.put(cursor.getLong(cursor.getColumnIndexOrThrow(KEY_ID)), step);
+      }
+
+      cursor.close();
+
+      return steps;
+   }
+
+   private static GuideStep readStepColumns(Cursor cursor) {
+      GuideStep step = new GuideStep(getInt(cursor, KEY_STEP_NUM));
+      step.setGuideid(getInt(cursor, KEY_GUIDEID));
+      step.setStepid(getInt(cursor, KEY_STEPID));
+      int revisionid = cursor.getColumnIndexOrThrow(KEY_REVISIONID);
+      step.setRevisionid(cursor.isNull(revisionid) ? null : cursor.getInt(revisionid));
+      step.setOrderby(getInt(cursor, KEY_ORDERBY));
+      step.setTitle(getString(cursor, KEY_TITLE));
+
+      return step;
+   }
+
+   /**
+    * Reads the lines matching where into the steps they belong to. The same goes for
+    * readMedia() and readComments().
+    */
+   private static void readLines(SQLiteDatabase db, String where, String[] args,
+    Map<Long, GuideStep> steps) {
+      Cursor cursor = queryChildren(db, TABLE_LINES, where, args);
+      // Guides are read by migrations that run before the column is added.
+      int textSpans = cursor.getColumnIndex(KEY_TEXT_SPANS);
+
+      while (cursor.moveToNext()) {
+         GuideStep step = steps.get(getLong(cursor, KEY_STEP_ROW));
+         int lineid = cursor.getColumnIndexOrThrow(KEY_LINEID);
+
+         StepLine line = new StepLine(
+          cursor.isNull(lineid) ? null : cursor.getInt(lineid),
+          getString(cursor, KEY_COLOR),
+          getInt(cursor, KEY_LEVEL),
+          getString(cursor, KEY_TEXT_RAW),
+          getString(cursor, KEY_TEXT_RENDERED));
+
+         if (textSpans != -1 && !cursor.isNull(textSpans)) {
+            line.setTextSpans(cursor.getBlob(textSpans));
+         }
+
+         step.addLine(line);
+      }
+
+      cursor.close();
+   }
+
+   private static void readMedia(SQLiteDatabase db, String where, String[] args,
+    Map<Long, GuideStep> steps) {
+      Cursor cursor = queryChildren(db, TABLE_MEDIA, where, args);
+
+      while (cursor.moveToNext()) {
+         GuideStep step = steps.get(getLong(cursor, KEY_STEP_ROW));
+
+         switch (getInt(cursor, KEY_MEDIA_TYPE)) {
+            case MEDIA_IMAGE:
+               step.addImage(new Image(getInt(cursor, KEY_MEDIAID),
+                getString(cursor, KEY_URL)));
+               break;
+            case MEDIA_VIDEO:
+               Video video = new Video();
+               video.setId(getInt(cursor, KEY_MEDIAID));
+               video.setWidth(getInt(cursor, KEY_WIDTH));
+               video.setHeight(getInt(cursor, KEY_HEIGHT));
+               video.setDuration(getInt(cursor, KEY_DURATION));
+               video.setFilename(getString(cursor, KEY_DATA));
+               step.addVideo(video);
+               break;
+            case MEDIA_VIDEO_THUMBNAIL:
+               step.getVideo().setThumbnail(new VideoThumbnail(getInt(cursor, KEY_MEDIAID),
+                getString(cursor, KEY_URL), getInt(cursor, KEY_WIDTH),
+                getInt(cursor, KEY_HEIGHT)));
+               break;
+            case MEDIA_VIDEO_ENCODING:
+               step.getVideo().addEncoding(new VideoEncoding(getInt(cursor, KEY_WIDTH),
+                getInt(cursor, KEY_HEIGHT), getString(cursor, KEY_URL),
+                getString(cursor, KEY_FORMAT)));
+               break;
+            case MEDIA_EMBED:
+               try {
+                  step.addEmbed(new Embed(new JSONObject(getString(cursor, KEY_DATA))));
+               } catch (JSONException e) {
+                  Log.w(TAG, "Cannot parse stored embed", e);
+               }
+               break;
+         }
+      }
+
+      cursor.close();
+   }
+
+   private static void readItems(SQLiteDatabase db, String[] guideArgs, Guide guide) {
+      Cursor cursor = queryChildren(db, TABLE_ITEMS, GUIDE_ROW_WHERE, guideArgs);
+
+      while (cursor.moveToNext()) {
+         Item item = new Item(
+          Item.ItemType.valueOf(getString(cursor, KEY_ITEM_TYPE)),
+          getString(cursor, KEY_TITLE),
+          getString(cursor, KEY_QUANTITY),
+          getString(cursor, KEY_URL),
+          getString(cursor, KEY_THUMB),
+          getString(cursor, KEY_NOTE));
+
+         if (item.getType() == Item.ItemType.TOOL) {
+            guide.addTool(item);
+         } else {
+            guide.addPart(item);
+         }
+      }
+
+      cursor.close();
+   }
+
+   private static void readComments(SQLiteDatabase db, String where, String[] args,
+    Guide guide, Map<Long, GuideStep> steps) {
+      Map<Long, Comment> comments = new HashMap<Long, Comment>();
+      // Replies are positioned relative to their siblings so they are ordered by parent
+      // first. Parents always have a lower _id than their replies.
+      Cursor cursor = db.query(TABLE_COMMENTS, null, where, args, null, null,
+       KEY_PARENT_ROW + " ASC, " + ORDER_BY_POSITION);
+
+      while (cursor.moveToNext()) {
+         Comment comment = new Comment();
+         comment.mCommentid = getInt(cursor, KEY_COMMENTID);
+         comment.mParentid = getInt(cursor, KEY_PARENTID);
+         comment.mContext = getString(cursor, KEY_CONTEXT);
+         comment.mContextid = getInt(cursor, KEY_CONTEXTID);
+         comment.mLocale = getString(cursor, KEY_LOCALE);
+         comment.mTitle = getString(cursor, KEY_TITLE);
+         comment.mTextRaw = getString(cursor, KEY_TEXT_RAW);
+         comment.mTextRendered = getString(cursor, KEY_TEXT_RENDERED);
+         comment.mRating = getInt(cursor, KEY_RATING);
+         comment.mDate = getDate(cursor, KEY_DATE);
+         comment.mModifiedDate = getDate(cursor, KEY_MODIFIED_DATE);
+         comment.mRepliedDate = getDate(cursor, KEY_REPLIED_DATE);
+         comment.mStatus = getString(cursor, KEY_STATUS);
+         comment.mReplies = new ArrayList<Comment>();
+
+         if (!cursor.isNull(cursor.getColumnIndexOrThrow(KEY_USERID))) {
+            User user = new User();
+            user.setUserid(getInt(cursor, KEY_USERID));
+            user.setUsername(getString(cursor, KEY_USERNAME));
+            user.setReputation(getInt(cursor, KEY_REPUTATION));
+            user.setAvatar(getImage(cursor));
+            comment.mUser = user;
+         }
+
+         int parentRow = cursor.getColumnIndexOrThrow(KEY_PARENT_ROW);
+         int stepRow = cursor.getColumnIndexOrThrow(KEY_STEP_ROW);
+
+         if (!cursor.isNull(parentRow)) {
+            comments.get(cursor.getLong(parentRow)).mReplies.add(comment);
+         } else if (!cursor.isNull(stepRow)) {
+            steps.get(cursor.getLong(stepRow)).getComments().add(comment);
+         } else {
+            guide.getComments().add(comment);
+         }
+
+         comments.put(cursor.getLong(cursor.getColumnIndexOrThrow(KEY_ID)), comment);
+      }
+
+      cursor.close();
+   }
+
+   private static Cursor queryChildren(SQLiteDatabase db, String table, String where,
+    String[] args) {
+      return db.query(table, null, where, args, null, null, ORDER_BY_POSITION);
+   }
+
+   private static String getEmbedJson(Embed embed) {
+      try {
+         JSONObject json = new JSONObject();
+         json.put("url", embed.mUrl);
+         json.put("width", embed.mWidth);
+         json.put("height", embed.mHeight);
+         json.put("author_name", embed.mAuthorName);
+         json.put("author_url", embed.mAuthorUrl);
+         json.put("cache_age", embed.mCacheAge);
+         json.put("provider_name", embed.mProviderName);
+         json.put("version", embed.mVersion);
+         json.put("html", embed.mHtml);
+         json.put("provider_url", embed.mProviderUrl);
+         json.put("type", embed.mType);
+         json.put("embedid", embed.mEmbedid);
+         json.put("title", embed.mTitle);
+
+         return json.toString();
+      } catch (JSONException e) {
+         throw new IllegalArgumentException("Cannot store embed", e);
+      }
+   }
+
+   private static void putImage(ContentValues values, Image image) {
+      if (image != null) {
+         values.put(KEY_IMAGEID, image.getId());
+         values.put(KEY_IMAGE_PATH, image.getPath());
+      }
+   }
+
+   /**
+    * Returns the image in KEY_IMAGEID and KEY_IMAGE_PATH or a blank one if there isn't
+    * one.
+    */
+   private static Image getImage(Cursor cursor) {
+      int imageid = cursor.getColumnIndexOrThrow(KEY_IMAGEID);
+
+      if (cursor.isNull(imageid)) {
+         return new Image();
+      }
+
+      return new Image(cursor.getInt(imageid), getString(cursor, KEY_IMAGE_PATH));
+   }
+
+   private static Long getTime(Date date) {
+      return date == null ? null : date.getTime();
+   }
+
+   private static Date getDate(Cursor cursor, String column) {
+      int index = cursor.getColumnIndexOrThrow(column);
+      return cursor.isNull(index) ? null : new Date(cursor.getLong(index));
+   }
+
+   private static String getString(Cursor cursor, String column) {
+      return cursor.getString(cursor.getColumnIndexOrThrow(column));
+   }
+
+   private static int getInt(Cursor cursor, String column) {
+      return cursor.getInt(cursor.getColumnIndexOrThrow(column));
+   }
+
+   private static long getLong(Cursor cursor, String column) {
+      return cursor.getLong(cursor.getColumnIndexOrThrow(column));
+   }
+
+   private static double getDouble(Cursor cursor, String column) {
+      return cursor.getDouble(cursor.getColumnIndexOrThrow(column));
+   }
+
+   private static boolean getBoolean(Cursor cursor, String column) {
+      return getInt(cursor, column) != 0;
+   }
+}
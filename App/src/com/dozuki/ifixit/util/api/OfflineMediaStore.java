@@ -0,0 +1,163 @@
+package com.dozuki.ifixit.util.api;
+
+import android.os.StatFs;
+import android.util.Log;
+
+import com.dozuki.ifixit.App;
+import com.dozuki.ifixit.BuildConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.regex.Pattern;
+
+/**
+ * Files backing offline guide media.
+ *
+ * Each medium is stored in a file named by the SHA-1 of its URL so paths can be computed
+ * without a lookup and distinct URLs never share a file. Media URLs are immutable so
+ * the URL identifies the content as well as a hash of the content would.
+ *
+ * The files are indexed in ApiDatabase which records their size, when they were last
+ * used and which guides reference them. That index is used to delete media once no
+ * guide references them and to evict the media of the least recently used guides when
+ * the store grows past getBudget().
+ */
+public class OfflineMediaStore {
+   private static final String TAG = "OfflineMediaStore";
+
+   private static final String MEDIA_DIRECTORY = "/offline_guides/media";
+
+   /**
+    * The most media that are stored regardless of how much space is available.
+    */
+   private static final long MAX_SIZE_BYTES = 1024L * 1024 * 1024;
+
+   /**
+    * The largest fraction of the space that media can use out of the space they use
+    * now and what is still available.
+    */
+   private static final double MAX_DISK_FRACTION = 0.5;
+
+   private static final Pattern FILE_NAME = Pattern.compile("[0-9a-f]{40}");
+
+   private static String sDirectory;
+
+   public static String getDirectory() {
+      if (sDirectory == null) {
+         sDirectory = App.get().getFilesDir().getAbsolutePath() + MEDIA_DIRECTORY;
+      }
+
+      return sDirectory;
+   }
+
+   public static String getPath(String url) {
+      return getDirectory() + "/" + getFileName(url);
+   }
+
+   /**
+    * Returns the number of bytes media may use given that they currently use
+    * usedBytes.
+    */
+   public static long getBudget(long usedBytes) {
+      long availableBytes;
+
+      try {
+         StatFs stat = new StatFs(getDirectory());
+         availableBytes = (long)stat.getAvailableBlocks() * stat.getBlockSize();
+      } catch (IllegalArgumentException e) {
+         Log.w(TAG, "Failed to stat " + getDirectory(), e);
+         return MAX_SIZE_BYTES;
+      }
+
+      return Math.min(MAX_SIZE_BYTES,
+       (long)((usedBytes + availableBytes) * MAX_DISK_FRACTION));
+   }
+
+   /**
+    * Deletes the files of media that are no longer indexed.
+    */
+   static void deleteMedia(Collection<String> urls) {
+      for (String url : urls) {
+         File file = new File(getPath(url));
+
+         if (file.delete() && BuildConfig.DEBUG) {
+            Log.d(TAG, "Deleted " + url);
+         }
+      }
+   }
+
+   /**
+    * Moves a medium stored under the name used before media were indexed, the URL's
+    * hashCode(), to its current path. Returns true if the medium exists at its current
+    * path afterwards.
+    */
+   static boolean adoptLegacyMedium(String url) {
+      File file = new File(getPath(url));
+      File legacyFile = new File(getDirectory(), String.valueOf(url.hashCode()));
+
+      if (legacyFile.isFile() && !file.exists() && !legacyFile.renameTo(file)) {
+         Log.w(TAG, "Failed to move " + legacyFile);
+      }
+
+      return file.exists();
+   }
+
+   /**
+    * Deletes media left under legacy names. These are either unreferenced or lost a
+    * hashCode() collision to another URL and will be downloaded again.
+    */
+   static int deleteLegacyMedia() {
+      File[] files = new File(getDirectory()).listFiles();
+      int deleted = 0;
+
+      if (files == null) {
+         return 0;
+      }
+
+      for (File file : files) {
+         String name = file.getName();
+
+         if (file.isDirectory()) {
+            // Earlier versions created the directory by calling mkdirs() on the path of
+            // a medium named "test". delete() only removes it if it is empty.
+            file.delete();
+         } else if (isLegacyName(name) && file.delete()) {
+            deleted++;
+         }
+      }
+
+      return deleted;
+   }
+
+   private static boolean isLegacyName(String name) {
+      if (FILE_NAME.matcher(name).matches() || name.startsWith(".")) {
+         return false;
+      }
+
+      // Partial downloads are named after the medium they belong to.
+      int extension = name.indexOf('.');
+      return extension == -1 || !FILE_NAME.matcher(name.substring(0, extension)).matches();
+   }
+
+   private static String getFileName(String url) {
+      try {
+         MessageDigest digest = MessageDigest.getInstance("SHA-1");
+         byte[] hash = digest.digest(url.getBytes("UTF-8"));
+         StringBuilder name = new StringBuilder(hash.length * 2);
+
+         for (byte b : hash) {
+            name.append(Character.forDigit((b >> 4) & 0xf, 16));
+            name.append(Character.forDigit(b & 0xf, 16));
+         }
+
+         return name.toString();
+      } catch (NoSuchAlgorithmException e) {
+         throw new AssertionError(e);
+      } catch (IOException e) {
+         throw new AssertionError(e);
+      }
+   }
+}
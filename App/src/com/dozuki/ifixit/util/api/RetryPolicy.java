@@ -0,0 +1,106 @@
+package com.dozuki.ifixit.util.api;
+
+import java.net.HttpURLConnection;
+import java.util.Random;
+
+/**
+ * How many times and how soon a request that failed for a transient reason is tried
+ * again. Delays grow exponentially with each attempt and are jittered so clients that
+ * failed at the same time don't all retry at the same time.
+ *
+ * Only requests that are safe to repeat should be retried. Calls to endpoints that
+ * aren't ApiEndpoint.isRetryable() use NONE.
+ */
+public class RetryPolicy {
+   /**
+    * Makes a single attempt.
+    */
+   public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+   /**
+    * For requests the user is waiting on. Gives up after a few seconds.
+    */
+   public static final RetryPolicy INTERACTIVE = new RetryPolicy(3, 500, 2000);
+
+   /**
+    * For requests made in the background, such as syncing offline guides.
+    */
+   public static final RetryPolicy BACKGROUND = new RetryPolicy(5, 1000, 16000);
+
+   private static final Random sRandom = new Random();
+
+   private final int mMaxAttempts;
+   private final long mBaseDelayMs;
+   private final long mMaxDelayMs;
+
+   public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+      mMaxAttempts = maxAttempts;
+      mBaseDelayMs = baseDelayMs;
+      mMaxDelayMs = maxDelayMs;
+   }
+
+   /**
+    * Returns the policy for calls made in the lane.
+    */
+   public static RetryPolicy forLane(ApiExecutor.Lane lane) {
+      return lane == ApiExecutor.Lane.INTERACTIVE ? INTERACTIVE : BACKGROUND;
+   }
+
+   /**
+    * Returns true if the status code means the server or something in front of it is
+    * temporarily unable to handle the request.
+    */
+   public static boolean isTransientStatus(int code) {
+      return code == HttpURLConnection.HTTP_BAD_GATEWAY ||
+       code == HttpURLConnection.HTTP_UNAVAILABLE ||
+       code == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+   }
+
+   public int getMaxAttempts() {
+      return mMaxAttempts;
+   }
+
+   /**
+    * Returns true if another attempt should be made after the given attempt failed.
+    * Attempts are counted from 1.
+    */
+   public boolean shouldRetry(int attempt) {
+      return attempt < mMaxAttempts;
+   }
+
+   /**
+    * Returns how long to wait after the given attempt failed. This is a random delay
+    * between half and all of the exponential backoff.
+    */
+   public long getDelayMs(int attempt) {
+      long backoff = Math.min(mMaxDelayMs, mBaseDelayMs << Math.min(attempt - 1, 16));
+
+      if (backoff <= 0) {
+         return 0;
+      }
+
+      return backoff / 2 + (long)(sRandom.nextDouble() * (backoff / 2));
+   }
+
+   /**
+    * Waits before the attempt after the given one. Returns false if the thread was
+    * interrupted, in which case no more attempts should be made.
+    */
+   public boolean sleep(int attempt) {
+      try {
+         Thread.sleep(getDelayMs(attempt));
+
+         return true;
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+
+         return false;
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "{attempts: " + mMaxAttempts + ", base delay: " + mBaseDelayMs +
+       "ms, max delay: " + mMaxDelayMs + "ms}";
+   }
+}
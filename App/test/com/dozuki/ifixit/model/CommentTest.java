@@ -0,0 +1,119 @@
+package com.dozuki.ifixit.model;
+
+import com.dozuki.ifixit.util.GuideFixture;
+import com.dozuki.ifixit.util.JSONStreamParser;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class CommentTest {
+   /**
+    * Roughly the number of comments on the most discussed guides.
+    */
+   private static final int COMMENT_COUNT = 1000;
+
+   /**
+    * Comments used to keep their JSON source and any copy of it contains this.
+    */
+   private static final String SOURCE_MARKER = "\"commentid\"";
+
+   @Test
+   public void keepsNoCopyOfTheSource() throws Exception {
+      String json = new GuideFixture(42).comments(COMMENT_COUNT);
+      List<Comment> comments = JSONStreamParser.parseComments(json);
+      List<String> strings = new ArrayList<String>();
+
+      collectStrings(comments, strings);
+
+      assertEquals(COMMENT_COUNT, comments.size());
+
+      for (String string : strings) {
+         assertFalse(string, string.contains(SOURCE_MARKER));
+      }
+   }
+
+   /**
+    * Reports how much the dropped sources held compared to the fields that are kept.
+    * Run on its own with
+    * ./gradlew testIfixitDebugUnitTest --tests '*CommentTest.benchmark*'
+    */
+   @Test
+   public void benchmarkSourceSize() throws Exception {
+      String json = new GuideFixture(42).comments(COMMENT_COUNT);
+      List<Comment> comments = JSONStreamParser.parseComments(json);
+      List<String> strings = new ArrayList<String>();
+      long keptChars = 0;
+
+      collectStrings(comments, strings);
+
+      for (String string : strings) {
+         keptChars += string.length();
+      }
+
+      long[] sources = new long[2];
+      addSourceSizes(new JSONArray(json), sources);
+
+      System.out.println(String.format(Locale.US,
+       "%d comments and %d replies: sources %d chars (%.1f MB), fields %d chars " +
+       "(%.1f MB)", COMMENT_COUNT, sources[0] - COMMENT_COUNT, sources[1],
+       sources[1] * 2 / 1e6, keptChars, keptChars * 2 / 1e6));
+   }
+
+   /**
+    * Adds the number of comments and the length of the source each of them used to
+    * keep to sizes.
+    */
+   private static void addSourceSizes(JSONArray comments, long[] sizes) throws Exception {
+      for (int i = 0; i < comments.length(); i++) {
+         JSONObject comment = comments.getJSONObject(i);
+
+         sizes[0]++;
+         sizes[1] += comment.toString(4).length();
+
+         JSONArray replies = comment.optJSONArray("replies");
+         if (replies != null) {
+            addSourceSizes(replies, sizes);
+         }
+      }
+   }
+
+   /**
+    * Adds every String reachable from the object through model fields and lists.
+    */
+   private static void collectStrings(Object object, List<String> strings)
+    throws IllegalAccessException {
+      if (object == null) {
+         return;
+      } else if (object instanceof String) {
+         strings.add((String)object);
+         return;
+      } else if (object instanceof List) {
+         for (Object item : (List<?>)object) {
+            collectStrings(item, strings);
+         }
+         return;
+      } else if (!object.getClass().getName().startsWith("com.dozuki.ifixit.model")) {
+         return;
+      }
+
+      for (Class<?> type = object.getClass(); type != Object.class;
+       type = type.getSuperclass()) {
+         for (Field field : type.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+               field.setAccessible(true);
+               collectStrings(field.get(object), strings);
+            }
+         }
+      }
+   }
+}
@@ -0,0 +1,332 @@
+package com.dozuki.ifixit.model;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.dozuki.ifixit.model.dozuki.Site;
+import com.dozuki.ifixit.model.gallery.GalleryImage;
+import com.dozuki.ifixit.model.guide.Guide;
+import com.dozuki.ifixit.model.guide.GuideInfo;
+import com.dozuki.ifixit.model.guide.GuideStep;
+import com.dozuki.ifixit.model.guide.GuideType;
+import com.dozuki.ifixit.model.topic.TopicLeaf;
+import com.dozuki.ifixit.model.topic.TopicNode;
+import com.dozuki.ifixit.model.user.UserImage;
+import com.dozuki.ifixit.util.GuideFixture;
+import com.dozuki.ifixit.util.JSONStreamParser;
+import com.google.gson.Gson;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Parcel is native code so these run on Robolectric. Nothing here uses resources so
+ * there is no manifest.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class ParcelableModelTest {
+   private static final int WARMUP_RUNS = 200;
+   private static final int TIMED_RUNS = 1000;
+
+   /**
+    * Roughly the size of the larger topics on the site.
+    */
+   private static final int TOPIC_GUIDES = 40;
+   private static final int TOPIC_CATEGORIES = 20;
+   private static final int GUIDE_STEPS = 20;
+   private static final int GUIDE_COMMENTS = 10;
+
+   @Test
+   public void imagesKeepTheirType() {
+      GalleryImage galleryImage = new GalleryImage(userImage(3));
+      galleryImage.setSelected(true);
+
+      for (Image image : Arrays.asList(image(1), userImage(2),
+       new VideoThumbnail(4, "https://example.com/4", 592, 444), galleryImage)) {
+         Image copy = parcel(image);
+
+         assertEquals(image.getClass(), copy.getClass());
+         assertSame(image, copy);
+      }
+   }
+
+   @Test
+   public void localImagesKeepTheirPath() {
+      Image image = new Image();
+      image.setLocalImage("/sdcard/DCIM/1.jpg");
+
+      assertSame(image, parcel(image));
+   }
+
+   @Test
+   public void siteRoundTrips() {
+      Site site = site();
+
+      assertSame(site, parcel(site));
+   }
+
+   @Test
+   public void siteWithoutOptionalFieldsRoundTrips() {
+      Site site = new Site(1);
+      site.hasSubject = null;
+
+      assertSame(site, parcel(site));
+   }
+
+   @Test
+   public void guideInfoRoundTrips() {
+      GuideInfo guideInfo = guideInfo(1);
+
+      assertSame(guideInfo, parcel(guideInfo));
+   }
+
+   @Test
+   public void topicLeafRoundTrips() {
+      TopicLeaf topic = topicLeaf();
+      topic.addFlag(new Flag(1, "Stub", "This topic needs more information."));
+
+      assertSame(topic, parcel(topic));
+   }
+
+   @Test
+   public void topicTreeRoundTrips() {
+      TopicNode root = topicTree();
+      TopicNode copy = parcel(root);
+
+      assertSame(root, copy);
+      // Leaves come back as leaves.
+      assertEquals(null, copy.getChildren().get(0).getChildren().get(0).getChildren());
+   }
+
+   /**
+    * The fixture's steps have images, videos, embeds and comments with replies.
+    */
+   @Test
+   public void guideStepsRoundTrip() throws Exception {
+      for (GuideStep step : guide().getSteps()) {
+         assertSame(step, parcel(step));
+      }
+   }
+
+   @Test
+   public void guideRoundTrips() throws Exception {
+      Guide guide = guide();
+      Parcel parcel = Parcel.obtain();
+
+      try {
+         guide.writeToParcel(parcel, 0);
+         parcel.setDataPosition(0);
+
+         assertSame(guide, Guide.readFromParcel(parcel));
+      } finally {
+         parcel.recycle();
+      }
+   }
+
+   /**
+    * Reports the size and the time to write and read back each model with Parcel and
+    * with Java serialization. Run on its own with
+    * ./gradlew testIfixitDebugUnitTest --tests '*ParcelableModelTest.benchmark*'
+    *
+    * Robolectric's Parcel keeps values in a Java list and counts a string as its length
+    * where the platform writes UTF-16, so its numbers compare the models' own code and
+    * not the platform's Parcel.
+    */
+   @Test
+   public void benchmarkParcelAndSerializable() throws Exception {
+      benchmark("Site", site());
+      benchmark("GuideInfo", guideInfo(1));
+      benchmark("GalleryImage", new GalleryImage(userImage(1)));
+      benchmark("TopicLeaf", topicLeaf());
+      benchmark("TopicNode", topicTree());
+      benchmark("GuideStep", guide().getStep(0));
+   }
+
+   private static <T extends Parcelable & Serializable> void benchmark(String name,
+    T object) throws Exception {
+      for (int i = 0; i < WARMUP_RUNS; i++) {
+         parcel(object);
+         deserialize(serialize(object));
+      }
+
+      long parcelNs = 0;
+      long serializableNs = 0;
+
+      for (int i = 0; i < TIMED_RUNS; i++) {
+         long start = System.nanoTime();
+         parcel(object);
+         parcelNs += System.nanoTime() - start;
+
+         start = System.nanoTime();
+         deserialize(serialize(object));
+         serializableNs += System.nanoTime() - start;
+      }
+
+      Parcel parcel = Parcel.obtain();
+      parcel.writeParcelable(object, 0);
+      int parcelSize = parcel.dataSize();
+      parcel.recycle();
+
+      System.out.println(String.format(Locale.US,
+       "%s: Parcel %d bytes %.1f us, Serializable %d bytes %.1f us", name, parcelSize,
+       parcelNs / 1e3 / TIMED_RUNS, serialize(object).length,
+       serializableNs / 1e3 / TIMED_RUNS));
+   }
+
+   private static <T extends Parcelable> T parcel(T object) {
+      Parcel parcel = Parcel.obtain();
+
+      try {
+         parcel.writeParcelable(object, 0);
+         parcel.setDataPosition(0);
+
+         return parcel.readParcelable(object.getClass().getClassLoader());
+      } finally {
+         parcel.recycle();
+      }
+   }
+
+   private static byte[] serialize(Serializable object) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream out = new ObjectOutputStream(bytes);
+      out.writeObject(object);
+      out.close();
+
+      return bytes.toByteArray();
+   }
+
+   private static Object deserialize(byte[] bytes) throws Exception {
+      return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+   }
+
+   /**
+    * Compares every field including those of nested objects.
+    */
+   private static void assertSame(Object expected, Object actual) {
+      Gson gson = new Gson();
+
+      assertEquals(gson.toJson(expected), gson.toJson(actual));
+   }
+
+   private static Site site() {
+      Site site = new Site(2);
+      site.mName = "ifixit";
+      site.mDomain = "www.ifixit.com";
+      site.mTitle = "iFixit";
+      site.mTheme = "custom";
+      site.mPublic = true;
+      site.mAnswers = true;
+      site.mDescription = "The free repair manual";
+      site.mStandardAuth = true;
+      site.mSsoUrl = null;
+      site.mPublicRegistration = true;
+      site.mStoreUrl = "https://www.ifixit.com/Store";
+      site.mLogo = image(10);
+      site.mObjectNameSingular = "Device";
+      site.mObjectNamePlural = "Devices";
+      site.mGoogleOAuth2Clientid = "1234.apps.googleusercontent.com";
+      site.mGuideTypes = new ArrayList<GuideType>();
+
+      for (String type : new String[] {"replacement", "repair", "teardown", "technique",
+       "disassembly", "installation"}) {
+         site.mGuideTypes.add(new GuideType(type, type.toUpperCase(Locale.US),
+          "Describe the " + type));
+      }
+
+      return site;
+   }
+
+   private static GuideInfo guideInfo(int guideid) {
+      GuideInfo guideInfo = new GuideInfo(guideid);
+      guideInfo.mRevisionid = guideid * 10;
+      guideInfo.mModifiedDate = 1400000000.5 + guideid;
+      guideInfo.mPrereqModifiedDate = 1300000000 + guideid;
+      guideInfo.mType = "replacement";
+      guideInfo.mTopic = "iPhone 5";
+      guideInfo.mSubject = "Battery";
+      guideInfo.mTitle = "iPhone 5 Battery Replacement " + guideid;
+      guideInfo.mPublic = true;
+      guideInfo.mFlags = new String[] {"GUIDE_STARRED"};
+      guideInfo.mImage = image(guideid);
+      guideInfo.mUrl = "https://www.ifixit.com/Guide/" + guideid;
+      guideInfo.mAuthorName = "Walter Galan";
+      guideInfo.mUserid = 3;
+      guideInfo.mLocale = "en";
+
+      return guideInfo;
+   }
+
+   private static Guide guide() throws Exception {
+      return JSONStreamParser.parseGuide(new GuideFixture(1).guide(1, GUIDE_STEPS,
+       GUIDE_COMMENTS));
+   }
+
+   private static TopicLeaf topicLeaf() {
+      TopicLeaf topic = new TopicLeaf("iPhone 5");
+      topic.setTitle("iPhone 5 Repair");
+      topic.setLocale("en");
+      topic.setImage(image(5));
+      topic.setDescription("Repair guides for the sixth generation iPhone.");
+      topic.setNumSolutions(1200);
+      topic.setSolutionsUrl("https://www.ifixit.com/Answers/Device/iPhone_5");
+      topic.setContentsRaw("== Background ==\nReleased in 2012.");
+      topic.setContentsRendered("<h2>Background</h2><p>Released in 2012.</p>");
+
+      for (int i = 0; i < TOPIC_GUIDES; i++) {
+         topic.addGuide(guideInfo(100 + i));
+      }
+
+      for (int i = 0; i < 5; i++) {
+         topic.addPart(new Item(Item.ItemType.PART, "Part " + i, "1", "/Item/" + i,
+          "https://example.com/item/" + i + ".thumbnail", ""));
+         topic.addTool(new Item(Item.ItemType.TOOL, "Tool " + i, "1", "/Item/" + i,
+          "https://example.com/tool/" + i + ".thumbnail", "Optional"));
+      }
+
+      return topic;
+   }
+
+   private static TopicNode topicTree() {
+      TopicNode root = new TopicNode();
+      root.setChildren(new ArrayList<TopicNode>());
+
+      for (int i = 0; i < TOPIC_CATEGORIES; i++) {
+         TopicNode category = new TopicNode("Category " + i);
+         category.setChildren(new ArrayList<TopicNode>());
+
+         for (int j = 0; j < TOPIC_CATEGORIES; j++) {
+            TopicNode device = new TopicNode("Device " + i + "-" + j);
+            device.setDisplayName("Device " + j);
+            category.getChildren().add(device);
+         }
+
+         root.getChildren().add(category);
+      }
+
+      return root;
+   }
+
+   private static Image image(int id) {
+      return new Image(id, "https://d3nevzfk7ii3be.cloudfront.net/igi/" + id);
+   }
+
+   private static UserImage userImage(int id) {
+      return new UserImage(id, "https://d3nevzfk7ii3be.cloudfront.net/igi/" + id, 800,
+       600, "FOUR_THREE", null, "{\"Make\": \"Canon\"}");
+   }
+}
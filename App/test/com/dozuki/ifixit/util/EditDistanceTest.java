@@ -0,0 +1,89 @@
+package com.dozuki.ifixit.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class EditDistanceTest {
+   @Test
+   public void computesTheDistance() {
+      assertEquals(0, EditDistance.editDistance("ifixit", "ifixit"));
+      assertEquals(3, EditDistance.editDistance("kitten", "sitting"));
+      assertEquals(1, EditDistance.editDistance("dozuki", "dozuky"));
+      assertEquals(1, EditDistance.editDistance("dozuki", "dozki"));
+      assertEquals(1, EditDistance.editDistance("dozuki", "dozuuki"));
+   }
+
+   @Test
+   public void distanceToAnEmptyStringIsTheLength() {
+      assertEquals(0, EditDistance.editDistance("", ""));
+      assertEquals(6, EditDistance.editDistance("ifixit", ""));
+      assertEquals(6, EditDistance.editDistance("", "ifixit"));
+   }
+
+   @Test
+   public void returnsMaxPlusOneWhenTheDistanceIsLarger() {
+      assertEquals(3, EditDistance.editDistance("kitten", "sitting", 3));
+      assertEquals(3, EditDistance.editDistance("kitten", "sitting", 2));
+      assertEquals(1, EditDistance.editDistance("kitten", "sitting", 0));
+      assertEquals(4, EditDistance.editDistance("a", "abcdefgh", 3));
+   }
+
+   /**
+    * Compares the bounded distance with the full dynamic programming solution.
+    */
+   @Test
+   public void matchesTheFullMatrix() {
+      Random random = new Random(42);
+
+      for (int i = 0; i < 2000; i++) {
+         String s = randomString(random);
+         String t = randomString(random);
+         int expected = fullEditDistance(s, t);
+
+         assertEquals(s + " " + t, expected, EditDistance.editDistance(s, t));
+         assertEquals(s + " " + t, expected, EditDistance.editDistance(t, s));
+
+         for (int max = 0; max <= 8; max++) {
+            assertEquals(s + " " + t + " " + max, Math.min(expected, max + 1),
+             EditDistance.editDistance(s, t, max));
+         }
+      }
+   }
+
+   private static String randomString(Random random) {
+      // A small alphabet so strings share characters.
+      char[] chars = new char[random.nextInt(10)];
+
+      for (int i = 0; i < chars.length; i++) {
+         chars[i] = (char)('a' + random.nextInt(4));
+      }
+
+      return new String(chars);
+   }
+
+   private static int fullEditDistance(String s, String t) {
+      int[][] distances = new int[s.length() + 1][t.length() + 1];
+
+      for (int i = 0; i <= s.length(); i++) {
+         distances[i][0] = i;
+      }
+
+      for (int j = 0; j <= t.length(); j++) {
+         distances[0][j] = j;
+      }
+
+      for (int i = 1; i <= s.length(); i++) {
+         for (int j = 1; j <= t.length(); j++) {
+            int substitution = s.charAt(i - 1) == t.charAt(j - 1) ? 0 : 1;
+
+            distances[i][j] = Math.min(Math.min(distances[i - 1][j] + 1,
+             distances[i][j - 1] + 1), distances[i - 1][j - 1] + substitution);
+         }
+      }
+
+      return distances[s.length()][t.length()];
+   }
+}
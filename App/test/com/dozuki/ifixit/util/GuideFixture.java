@@ -0,0 +1,284 @@
+package com.dozuki.ifixit.util;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+/**
+ * Writes synthetic API responses shaped like the ones the site returns. The same seed
+ * always produces the same JSON so results can be compared between runs.
+ */
+public class GuideFixture {
+   private static final String[] WORDS = {"remove", "the", "battery", "connector",
+    "using", "a", "spudger", "gently", "pry", "up", "logic", "board", "screw", "phillips",
+    "display", "assembly", "cable", "bracket", "heat", "opening", "pick", "adhesive"};
+   private static final String[] BULLETS = {"black", "red", "orange", "yellow", "icon_note",
+    "icon_caution", "icon_reminder"};
+
+   private final Random mRandom;
+
+   public GuideFixture(long seed) {
+      mRandom = new Random(seed);
+   }
+
+   /**
+    * Returns a guide with the given number of steps and guide comments. Every fourth
+    * step has comments of its own.
+    */
+   public String guide(int guideid, int stepCount, int commentCount) throws IOException {
+      StringWriter out = new StringWriter();
+      JsonWriter writer = new JsonWriter(out);
+
+      writer.beginObject();
+      writer.name("guideid").value(guideid);
+      writer.name("title").value("Replacing the " + sentence(3));
+      writer.name("category").value("iPhone 5");
+      writer.name("subject").value(sentence(2));
+      writer.name("author");
+      writeUser(writer, 1000 + guideid);
+      writer.name("time_required").value("15 - 45 min");
+      writer.name("difficulty").value("Moderate");
+      writer.name("introduction_raw").value(sentence(40));
+      writer.name("introduction_rendered").value("<p>" + sentence(40) + "</p>");
+      writer.name("image");
+      writeImage(writer, guideid);
+      writer.name("summary").nullValue();
+      writer.name("revisionid").value(guideid * 10 + 1);
+      writer.name("public").value(true);
+      writer.name("type").value("replacement");
+      writer.name("patrol_threshold").value(0);
+      writer.name("conclusion_rendered").value("<p>" + sentence(20) + "</p>");
+      writer.name("completed").value(false);
+      writer.name("favorited").value(mRandom.nextBoolean());
+      writer.name("modified_date").value(1400000000 + guideid);
+      writer.name("prereq_modified_date").value(1300000000 + guideid);
+      writer.name("can_edit").value(false);
+      writer.name("comments");
+      writeComments(writer, commentCount, "guide", guideid);
+
+      writer.name("steps").beginArray();
+      for (int i = 0; i < stepCount; i++) {
+         writeStep(writer, guideid, i);
+      }
+      writer.endArray();
+
+      writer.name("tools");
+      writeItems(writer, 4);
+      writer.name("parts");
+      writeItems(writer, 2);
+      writer.endObject();
+      writer.close();
+
+      return out.toString();
+   }
+
+   /**
+    * Returns a JSON array of comments as the comments endpoints return them. Every third
+    * comment has replies.
+    */
+   public String comments(int count) throws IOException {
+      StringWriter out = new StringWriter();
+      JsonWriter writer = new JsonWriter(out);
+
+      writeComments(writer, count, "guide", 1);
+      writer.close();
+
+      return out.toString();
+   }
+
+   private void writeStep(JsonWriter writer, int guideid, int index) throws IOException {
+      int stepid = guideid * 1000 + index;
+
+      writer.beginObject();
+      writer.name("guideid").value(guideid);
+      writer.name("stepid").value(stepid);
+      writer.name("revisionid").value(stepid * 10);
+      writer.name("orderby").value(index + 1);
+      writer.name("title").value(index % 5 == 0 ? "" : sentence(3));
+      writer.name("media");
+
+      if (index % 20 == 7) {
+         writeVideo(writer, stepid);
+      } else if (index % 20 == 13) {
+         writeEmbed(writer, stepid);
+      } else {
+         writer.beginObject();
+         writer.name("type").value("image");
+         writer.name("data").beginArray();
+         for (int i = 0, count = 1 + mRandom.nextInt(3); i < count; i++) {
+            writeImage(writer, stepid * 10 + i);
+         }
+         writer.endArray();
+         writer.endObject();
+      }
+
+      writer.name("lines").beginArray();
+      for (int i = 0, count = 2 + mRandom.nextInt(6); i < count; i++) {
+         String text = sentence(8 + mRandom.nextInt(20));
+
+         writer.beginObject();
+         writer.name("lineid").value(stepid * 10 + i);
+         writer.name("bullet").value(BULLETS[mRandom.nextInt(BULLETS.length)]);
+         writer.name("level").value(mRandom.nextInt(3));
+         writer.name("text_raw").value(text);
+         writer.name("text_rendered").value(text.replace("battery",
+          "<strong>battery</strong>").replace("spudger", "<a href=\"/Tools/Spudger\">" +
+          "spudger</a>"));
+         writer.endObject();
+      }
+      writer.endArray();
+
+      if (index % 4 == 0) {
+         writer.name("comments");
+         writeComments(writer, 2, "step", stepid);
+      }
+
+      writer.endObject();
+   }
+
+   private void writeVideo(JsonWriter writer, int id) throws IOException {
+      writer.beginObject();
+      writer.name("type").value("video");
+      writer.name("data").beginObject();
+      writer.name("filename").value("video_" + id + ".mp4");
+      writer.name("width").value(592);
+      writer.name("height").value(444);
+      writer.name("duration").value(30 + id % 60);
+      writer.name("encodings").beginArray();
+      for (String format : new String[] {"mp4", "ogv", "webm"}) {
+         writer.beginObject();
+         writer.name("width").value(592);
+         writer.name("height").value(444);
+         writer.name("url").value("https://d3nevzfk7ii3be.cloudfront.net/video/" + id +
+          "." + format);
+         writer.name("format").value(format);
+         writer.endObject();
+      }
+      writer.endArray();
+      writer.name("image").beginObject();
+      writer.name("image");
+      writeImage(writer, id);
+      writer.name("ratio").value("4:3");
+      writer.name("width").value(592);
+      writer.name("height").value(444);
+      writer.endObject();
+      writer.endObject();
+      writer.endObject();
+   }
+
+   private void writeEmbed(JsonWriter writer, int id) throws IOException {
+      writer.beginObject();
+      writer.name("type").value("embed");
+      writer.name("data").beginObject();
+      writer.name("url").value("https://www.youtube.com/watch?v=" + id);
+      writer.name("width").value(640);
+      writer.name("height").value(360);
+      writer.name("author_name").value("iFixit");
+      writer.name("author_url").nullValue();
+      writer.name("cache_age").nullValue();
+      writer.name("provider_name").value("YouTube");
+      writer.name("version").value("1.0");
+      writer.name("html").value("<iframe width=\"640\" height=\"360\" " +
+       "src=\"https://www.youtube.com/embed/" + id + "\"></iframe>");
+      writer.name("provider_url").value("https://www.youtube.com/");
+      writer.name("type").value("video");
+      writer.name("embedid").value(id);
+      writer.name("title").value(sentence(4));
+      writer.endObject();
+      writer.endObject();
+   }
+
+   private void writeItems(JsonWriter writer, int count) throws IOException {
+      writer.beginArray();
+      for (int i = 0; i < count; i++) {
+         writer.beginObject();
+         writer.name("text").value(sentence(2));
+         writer.name("quantity").value(String.valueOf(1 + i));
+         writer.name("url").value("/Item/" + i);
+         writer.name("thumbnail").value("https://d3nevzfk7ii3be.cloudfront.net/item/" + i +
+          ".thumbnail.jpg");
+         writer.name("notes").value(i % 2 == 0 ? "" : sentence(5));
+         writer.endObject();
+      }
+      writer.endArray();
+   }
+
+   private void writeComments(JsonWriter writer, int count, String context, int contextid)
+    throws IOException {
+      writer.beginArray();
+      for (int i = 0; i < count; i++) {
+         int commentid = contextid * 10000 + i * 10;
+
+         writeComment(writer, commentid, null, context, contextid, i % 3 == 0 ? 2 : 0);
+      }
+      writer.endArray();
+   }
+
+   private void writeComment(JsonWriter writer, int commentid, Integer parentid,
+    String context, int contextid, int replyCount) throws IOException {
+      String text = sentence(10 + mRandom.nextInt(40));
+
+      writer.beginObject();
+      writer.name("commentid").value(commentid);
+      writer.name("locale").value("en");
+      writer.name("parentid").value(parentid);
+      writer.name("author");
+      writeUser(writer, commentid % 997);
+      writer.name("title").value(sentence(4));
+      writer.name("context").value(context);
+      writer.name("contextid").value(contextid);
+      writer.name("text_raw").value(text);
+      writer.name("text_rendered").value("<p>" + text + "</p>");
+      writer.name("rating").value(mRandom.nextInt(5));
+      writer.name("date").value(1400000000L + commentid);
+      writer.name("modified_date").value(1400000000L + commentid);
+      writer.name("replied_date").value(1400000000L + commentid);
+      writer.name("status").value("public");
+      writer.name("replies").beginArray();
+      for (int i = 1; i <= replyCount; i++) {
+         writeComment(writer, commentid + i, commentid, context, contextid, 0);
+      }
+      writer.endArray();
+      writer.endObject();
+   }
+
+   private void writeUser(JsonWriter writer, int userid) throws IOException {
+      writer.beginObject();
+      writer.name("userid").value(userid);
+      writer.name("username").value("user" + userid);
+      writer.name("unique_username").value("user" + userid);
+      writer.name("join_date").value(1200000000 + userid);
+      writer.name("image");
+      writeImage(writer, userid);
+      writer.name("reputation").value(userid * 3);
+      writer.name("url").value("https://www.ifixit.com/User/" + userid);
+      writer.endObject();
+   }
+
+   private void writeImage(JsonWriter writer, int id) throws IOException {
+      String url = "https://d3nevzfk7ii3be.cloudfront.net/igi/" + id;
+
+      writer.beginObject();
+      writer.name("id").value(id);
+      writer.name("guid").value("guid" + id);
+      writer.name("mini").value(url + ".mini");
+      writer.name("thumbnail").value(url + ".thumbnail");
+      writer.name("standard").value(url + ".standard");
+      writer.name("medium").value(url + ".medium");
+      writer.name("large").value(url + ".large");
+      writer.name("original").value(url);
+      writer.endObject();
+   }
+
+   private String sentence(int wordCount) {
+      StringBuilder sentence = new StringBuilder();
+
+      for (int i = 0; i < wordCount; i++) {
+         sentence.append(i == 0 ? "" : " ").append(WORDS[mRandom.nextInt(WORDS.length)]);
+      }
+
+      return sentence.toString();
+   }
+}
@@ -0,0 +1,96 @@
+package com.dozuki.ifixit.util;
+
+import com.dozuki.ifixit.model.guide.Guide;
+import com.google.gson.Gson;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+public class JSONStreamParserTest {
+   /**
+    * Roughly the size of the largest guides on the site.
+    */
+   private static final int LARGE_GUIDE_STEPS = 150;
+   private static final int LARGE_GUIDE_COMMENTS = 200;
+
+   private static final int WARMUP_RUNS = 20;
+   private static final int TIMED_RUNS = 50;
+
+   @Test
+   public void parsesTheSameGuideAsTheTreeParser() throws IOException, JSONException {
+      for (int seed = 0; seed < 5; seed++) {
+         String json = new GuideFixture(seed).guide(100 + seed, 1 + seed * 10, seed * 3);
+
+         assertSameGuide(TreeGuideParser.parseGuide(json), JSONStreamParser.parseGuide(json));
+      }
+   }
+
+   @Test
+   public void parsesTheSameLargeGuideAsTheTreeParser() throws IOException, JSONException {
+      String json = largeGuide();
+
+      assertSameGuide(TreeGuideParser.parseGuide(json), JSONStreamParser.parseGuide(json));
+   }
+
+   @Test(expected = JSONException.class)
+   public void rejectsAnErrorResponse() throws JSONException {
+      JSONStreamParser.parseGuide("{\"error\": true, \"msg\": \"Guide not found\"}");
+   }
+
+   @Test(expected = JSONException.class)
+   public void rejectsATruncatedGuide() throws IOException, JSONException {
+      String json = largeGuide();
+
+      JSONStreamParser.parseGuide(json.substring(0, json.length() / 2));
+   }
+
+   /**
+    * Reports how long each parser takes on the large guide. Run on its own with
+    * ./gradlew testIfixitDebugUnitTest --tests '*JSONStreamParserTest.benchmark*'
+    */
+   @Test
+   public void benchmarkLargeGuide() throws IOException, JSONException {
+      String json = largeGuide();
+
+      for (int i = 0; i < WARMUP_RUNS; i++) {
+         TreeGuideParser.parseGuide(json);
+         JSONStreamParser.parseGuide(json);
+      }
+
+      long treeNs = 0;
+      long streamNs = 0;
+
+      for (int i = 0; i < TIMED_RUNS; i++) {
+         long start = System.nanoTime();
+         TreeGuideParser.parseGuide(json);
+         treeNs += System.nanoTime() - start;
+
+         start = System.nanoTime();
+         JSONStreamParser.parseGuide(json);
+         streamNs += System.nanoTime() - start;
+      }
+
+      System.out.println(String.format(Locale.US,
+       "Parsed a %d KB guide with %d steps: JSONObject %.2f ms, JsonReader %.2f ms",
+       json.length() / 1024, LARGE_GUIDE_STEPS, treeNs / 1e6 / TIMED_RUNS,
+       streamNs / 1e6 / TIMED_RUNS));
+   }
+
+   private static String largeGuide() throws IOException {
+      return new GuideFixture(42).guide(1, LARGE_GUIDE_STEPS, LARGE_GUIDE_COMMENTS);
+   }
+
+   /**
+    * Compares every field of the guides, including those of steps and comments.
+    */
+   private static void assertSameGuide(Guide expected, Guide actual) {
+      Gson gson = new Gson();
+
+      assertEquals(gson.toJson(expected), gson.toJson(actual));
+   }
+}
@@ -0,0 +1,296 @@
+package com.dozuki.ifixit.util;
+
+import com.dozuki.ifixit.model.dozuki.Site;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SiteMatcherTest {
+   private static final String[] WORDS = {"repair", "fix", "guide", "manual", "service",
+    "auto", "medical", "bike", "apple", "camera", "shop", "tech", "support", "the", "my",
+    "aviation", "marine", "tools", "electronics", "home", "garden", "parts", "pro"};
+
+   /**
+    * About as many sites as a Dozuki user sees in the site picker.
+    */
+   private static final int SITE_COUNT = 1500;
+   private static final int QUERY_COUNT = 500;
+   private static final int TIMED_RUNS = 10;
+
+   private static final Site IFIXIT = site(1, "ifixit", "iFixit");
+   private static final Site DOZUKI = site(2, "dozuki", "Dozuki");
+   private static final Site APPLE = site(3, "apple", "Fix My Apple");
+   private static final Site REPAIR = site(4, "repair", "The Repair Shop");
+   private static final Site PAIRS = site(5, "pairs", "Spare Pairs");
+   private static final Site UNTITLED = site(6, "untitled", null);
+
+   private final SiteMatcher mMatcher = new SiteMatcher(Arrays.asList(IFIXIT, DOZUKI,
+    APPLE, REPAIR, PAIRS, UNTITLED));
+
+   @After
+   public void tearDown() {
+      // Clear the interrupt in case a test failed before clearing it.
+      Thread.interrupted();
+   }
+
+   @Test
+   public void ranksTitlePrefixesBeforeContainedQueries() {
+      // "Fix My Apple" starts with the query while "iFixit" only contains it.
+      assertEquals(Arrays.asList(APPLE, IFIXIT), mMatcher.search("fix"));
+   }
+
+   @Test
+   public void ranksWordPrefixesBeforeContainedQueries() {
+      assertEquals(Arrays.asList(PAIRS, REPAIR), mMatcher.search("pair"));
+   }
+
+   @Test
+   public void ignoresCase() {
+      assertEquals(Arrays.asList(DOZUKI), mMatcher.search("DOZ"));
+   }
+
+   @Test
+   public void matchesNamesWithinTheEditDistance() {
+      assertEquals(Arrays.asList(DOZUKI), mMatcher.search("dozuky"));
+      assertEquals(Arrays.asList(UNTITLED), mMatcher.search("untitle"));
+   }
+
+   @Test
+   public void ranksCloserNamesFirst() {
+      Site near = site(7, "abcdefgh", "");
+      Site far = site(8, "abcdefxy", "");
+      SiteMatcher matcher = new SiteMatcher(Arrays.asList(far, near));
+
+      assertEquals(Arrays.asList(near, far), matcher.search("abcdefgz"));
+   }
+
+   @Test
+   public void tiesKeepTheSitesOrder() {
+      Site first = site(7, "first", "Guide Site One");
+      Site second = site(8, "second", "Guide Site Two");
+      SiteMatcher matcher = new SiteMatcher(Arrays.asList(first, second));
+
+      assertEquals(Arrays.asList(first, second), matcher.search("guide"));
+      assertEquals(Arrays.asList(first, second), matcher.search("site"));
+   }
+
+   @Test
+   public void findsNothingForUnrelatedQueries() {
+      assertEquals(new ArrayList<Site>(), mMatcher.search("zzzzzzzz"));
+   }
+
+   @Test
+   public void shortQueriesSkipTheTrigramIndex() {
+      assertEquals(Arrays.asList(APPLE, IFIXIT), mMatcher.search("fi"));
+   }
+
+   /**
+    * Every site whose title contains the query must be found even though the trigram
+    * index is used to pick which titles to check.
+    */
+   @Test
+   public void findsEveryTitleContainingTheQuery() {
+      List<Site> sites = new ArrayList<Site>();
+      String[] titles = {"Repair Guides", "Guide Repairs", "Paired Devices",
+       "Airplane Repair", "Despair", "Rep", "Air Pair"};
+
+      for (int i = 0; i < titles.length; i++) {
+         // Long names so they don't match by edit distance.
+         sites.add(site(i, "site-with-a-long-name-" + i, titles[i]));
+      }
+
+      SiteMatcher matcher = new SiteMatcher(sites);
+
+      for (String query : new String[] {"pair", "repair", "air", "ire", "guide"}) {
+         List<Site> results = matcher.search(query);
+
+         for (Site site : sites) {
+            boolean contains = site.mTitle.toLowerCase().contains(query);
+
+            assertEquals(site.mTitle + " " + query, contains, results.contains(site));
+         }
+      }
+   }
+
+   @Test
+   public void returnsNullWhenInterrupted() {
+      Thread.currentThread().interrupt();
+
+      assertNull(mMatcher.search("fix"));
+   }
+
+   /**
+    * SiteMatcher must match exactly the sites the old Site.search() loop matched.
+    */
+   @Test
+   public void matchesTheSameSitesAsTheOldLoop() {
+      Random random = new Random(42);
+      List<Site> sites = randomSites(random);
+      SiteMatcher matcher = new SiteMatcher(sites);
+
+      for (String query : randomQueries(random, sites)) {
+         List<Site> expected = oldSearch(sites, query);
+         List<Site> actual = matcher.search(query);
+
+         assertEquals(query, expected.size(), actual.size());
+         assertEquals(query, new HashSet<Site>(expected), new HashSet<Site>(actual));
+      }
+   }
+
+   /**
+    * Reports how long the old loop and SiteMatcher take per query. Run on its own with
+    * ./gradlew testDozukiDebugUnitTest --tests '*SiteMatcherTest.benchmark*'
+    */
+   @Test
+   public void benchmarkSearch() {
+      Random random = new Random(42);
+      List<Site> sites = randomSites(random);
+      List<String> queries = randomQueries(random, sites);
+      SiteMatcher matcher = new SiteMatcher(sites);
+
+      // Warm up.
+      for (String query : queries) {
+         oldSearch(sites, query);
+         matcher.search(query);
+      }
+
+      long oldNs = 0;
+      long matcherNs = 0;
+
+      for (int run = 0; run < TIMED_RUNS; run++) {
+         long start = System.nanoTime();
+         for (String query : queries) {
+            oldSearch(sites, query);
+         }
+         oldNs += System.nanoTime() - start;
+
+         start = System.nanoTime();
+         for (String query : queries) {
+            matcher.search(query);
+         }
+         matcherNs += System.nanoTime() - start;
+      }
+
+      int searches = TIMED_RUNS * queries.size();
+      System.out.println(String.format(Locale.US,
+       "Searched %d sites: Site.search() loop %.3f ms, SiteMatcher %.3f ms per query",
+       sites.size(), oldNs / 1e6 / searches, matcherNs / 1e6 / searches));
+   }
+
+   private static List<Site> randomSites(Random random) {
+      List<Site> sites = new ArrayList<Site>();
+
+      for (int i = 0; i < SITE_COUNT; i++) {
+         StringBuilder title = new StringBuilder();
+         StringBuilder name = new StringBuilder();
+
+         for (int j = 0, words = 1 + random.nextInt(4); j < words; j++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+
+            title.append(j == 0 ? "" : " ")
+             .append(word.substring(0, 1).toUpperCase(Locale.US)).append(word.substring(1));
+            name.append(word);
+         }
+
+         sites.add(site(i, name.toString() + i, title.toString()));
+      }
+
+      return sites;
+   }
+
+   /**
+    * Returns what people type into the site picker: parts of titles, names with typos
+    * and things that don't match anything.
+    */
+   private static List<String> randomQueries(Random random, List<Site> sites) {
+      List<String> queries = new ArrayList<String>();
+
+      for (int i = 0; i < QUERY_COUNT; i++) {
+         Site site = sites.get(random.nextInt(sites.size()));
+
+         switch (i % 3) {
+            case 0:
+               String title = site.mTitle.toLowerCase(Locale.US);
+               int start = random.nextInt(title.length());
+               int end = Math.min(title.length(), start + 1 + random.nextInt(8));
+               queries.add(title.substring(start, end));
+               break;
+            case 1:
+               char[] name = site.mName.toCharArray();
+               name[random.nextInt(name.length)] = (char)('a' + random.nextInt(26));
+               queries.add(new String(name));
+               break;
+            default:
+               char[] garbage = new char[1 + random.nextInt(10)];
+               for (int j = 0; j < garbage.length; j++) {
+                  garbage[j] = (char)('a' + random.nextInt(26));
+               }
+               queries.add(new String(garbage));
+         }
+      }
+
+      return queries;
+   }
+
+   /**
+    * The site picker's search before SiteMatcher: Site.search() on every site with the
+    * full edit distance matrix.
+    */
+   private static List<Site> oldSearch(List<Site> sites, String query) {
+      String lowerQuery = query.toLowerCase();
+      List<Site> matchedSites = new ArrayList<Site>();
+
+      for (Site site : sites) {
+         if (site.mTitle.toLowerCase().contains(lowerQuery) ||
+          oldEditDistance(site.mName, lowerQuery) <= site.mName.length() / 2) {
+            matchedSites.add(site);
+         }
+      }
+
+      return matchedSites;
+   }
+
+   private static int oldEditDistance(String s, String t) {
+      int m = s.length();
+      int n = t.length();
+      int[][] d = new int[m + 1][n + 1];
+
+      for (int i = 0; i <= m; i++) {
+         d[i][0] = i;
+      }
+
+      for (int j = 0; j <= n; j++) {
+         d[0][j] = j;
+      }
+
+      for (int j = 1; j <= n; j++) {
+         for (int i = 1; i <= m; i++) {
+            if (s.charAt(i - 1) == t.charAt(j - 1)) {
+               d[i][j] = d[i - 1][j - 1];
+            } else {
+               d[i][j] = Math.min(Math.min(d[i - 1][j], d[i][j - 1]), d[i - 1][j - 1]) + 1;
+            }
+         }
+      }
+
+      return d[m][n];
+   }
+
+   private static Site site(int siteid, String name, String title) {
+      Site site = new Site(siteid);
+      site.mName = name;
+      site.mTitle = title;
+
+      return site;
+   }
+}
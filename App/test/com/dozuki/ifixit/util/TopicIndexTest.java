@@ -0,0 +1,191 @@
+package com.dozuki.ifixit.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+
+public class TopicIndexTest {
+   private static final int SITEID = 1;
+
+   private File mFile;
+
+   @Before
+   public void setUp() throws IOException {
+      mFile = File.createTempFile("topic_index", null);
+   }
+
+   @After
+   public void tearDown() {
+      mFile.delete();
+   }
+
+   @Test
+   public void findsTopicsWithAWordStartingWithTheQuery() throws IOException {
+      TopicIndex index = create("iPhone 4", "iPhone 4S", "Samsung Galaxy S4",
+       "Galaxy Nexus", "Nintendo DS");
+
+      assertEquals(Arrays.asList("Galaxy Nexus", "Samsung Galaxy S4"),
+       index.find("galaxy", 10));
+      assertEquals(Arrays.asList("Samsung Galaxy S4"), index.find("s4", 10));
+      assertEquals(Arrays.asList("iPhone 4", "iPhone 4S"), index.find("iphone 4", 10));
+      assertEquals(Arrays.asList("Samsung Galaxy S4"), index.find("galaxy s", 10));
+   }
+
+   @Test
+   public void ignoresCaseAndSurroundingWhitespace() throws IOException {
+      TopicIndex index = create("MacBook Pro", "Mac mini");
+
+      assertEquals(Arrays.asList("Mac mini", "MacBook Pro"), index.find("  MAC ", 10));
+   }
+
+   @Test
+   public void doesNotMatchTheMiddleOfAWord() throws IOException {
+      TopicIndex index = create("Samsung Galaxy S4");
+
+      assertEquals(Collections.<String>emptyList(), index.find("alaxy", 10));
+   }
+
+   @Test
+   public void emptyQueryFindsNothing() throws IOException {
+      TopicIndex index = create("iPhone 4");
+
+      assertEquals(Collections.<String>emptyList(), index.find("", 10));
+      assertEquals(Collections.<String>emptyList(), index.find("   ", 10));
+   }
+
+   @Test
+   public void emptyIndexFindsNothing() throws IOException {
+      TopicIndex index = create();
+
+      assertEquals(0, index.size());
+      assertEquals(Collections.<String>emptyList(), index.find("iphone", 10));
+   }
+
+   @Test
+   public void removesDuplicatesButKeepsNamesThatDifferByCase() throws IOException {
+      TopicIndex index = create("iPod", "iPod", "IPOD");
+
+      assertEquals(2, index.size());
+      assertEquals(Arrays.asList("IPOD", "iPod"), index.find("ipod", 10));
+   }
+
+   @Test
+   public void returnsAtMostLimitResults() throws IOException {
+      TopicIndex index = create("iPhone", "iPhone 3G", "iPhone 4", "iPhone 4S", "iPhone 5");
+
+      assertEquals(2, index.find("iphone", 2).size());
+   }
+
+   @Test
+   public void matchesQueriesLongerThanTheKeys() throws IOException {
+      TopicIndex index = create("Apple Thunderbolt Display 27\" Teardown",
+       "Apple Thunderbolt Display 27\" Repair");
+
+      assertEquals(Arrays.asList("Apple Thunderbolt Display 27\" Teardown"),
+       index.find("apple thunderbolt display 27\" tear", 10));
+   }
+
+   @Test
+   public void matchesNonAsciiNames() throws IOException {
+      TopicIndex index = create("Téléphone Portable", "Écran", "Telephone");
+
+      assertEquals(Arrays.asList("Écran"), index.find("écran", 10));
+      assertEquals(Arrays.asList("Téléphone Portable"), index.find("tél", 10));
+      assertEquals(Arrays.asList("Telephone"), index.find("tel", 10));
+   }
+
+   /**
+    * Compares lookups in an index spanning many blocks with a scan of the names.
+    */
+   @Test
+   public void matchesAScanOfTheNames() throws IOException {
+      String[] words = {"iphone", "ipad", "galaxy", "nexus", "macbook", "pro", "air", "s4",
+       "mini", "battery", "screen", "logic", "board", "2013", "a1278"};
+      Random random = new Random(42);
+      List<String> topics = new ArrayList<String>();
+
+      for (int i = 0; i < 500; i++) {
+         StringBuilder name = new StringBuilder();
+         int wordCount = 1 + random.nextInt(4);
+
+         for (int j = 0; j < wordCount; j++) {
+            String word = words[random.nextInt(words.length)];
+
+            if (random.nextBoolean()) {
+               word = word.substring(0, 1).toUpperCase(Locale.US) + word.substring(1);
+            }
+
+            name.append(j == 0 ? "" : " ").append(word);
+         }
+
+         topics.add(name.toString());
+      }
+
+      TopicIndex index = TopicIndex.create(mFile, SITEID, topics);
+      String[] queries = {"i", "ip", "iphone", "ipad m", "galaxy s4", "pro", "a1", "2013 ",
+       "logic board", "z", "mini battery screen"};
+
+      for (String query : queries) {
+         List<String> expected = scan(topics, query);
+
+         assertEquals(query, expected, index.find(query, Integer.MAX_VALUE));
+      }
+   }
+
+   @Test
+   public void rewritingTheFileReplacesTheIndex() throws IOException {
+      create("iPhone 4", "Galaxy Nexus");
+      TopicIndex index = create("Nexus 7");
+
+      assertEquals(1, index.size());
+      assertEquals(Arrays.asList("Nexus 7"), index.find("nex", 10));
+   }
+
+   private TopicIndex create(String... topics) throws IOException {
+      return TopicIndex.create(mFile, SITEID, Arrays.asList(topics));
+   }
+
+   /**
+    * Returns the names with a word starting with the query in the order the index
+    * returns them.
+    */
+   private static List<String> scan(List<String> topics, String query) {
+      String lowerQuery = query.trim().toLowerCase(Locale.US);
+      TreeSet<String> matches = new TreeSet<String>(new Comparator<String>() {
+         @Override
+         public int compare(String lhs, String rhs) {
+            int comparison = lhs.compareToIgnoreCase(rhs);
+            return comparison != 0 ? comparison : lhs.compareTo(rhs);
+         }
+      });
+
+      for (String topic : topics) {
+         String lowerTopic = topic.toLowerCase(Locale.US);
+
+         for (int i = 0; i < lowerTopic.length(); i++) {
+            boolean wordStart = Character.isLetterOrDigit(lowerTopic.charAt(i)) &&
+             (i == 0 || !Character.isLetterOrDigit(lowerTopic.charAt(i - 1)));
+
+            if (wordStart && lowerTopic.startsWith(lowerQuery, i)) {
+               matches.add(topic);
+               break;
+            }
+         }
+      }
+
+      return new ArrayList<String>(matches);
+   }
+}
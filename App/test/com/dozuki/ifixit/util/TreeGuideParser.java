@@ -0,0 +1,212 @@
+package com.dozuki.ifixit.util;
+
+import com.dozuki.ifixit.model.Comment;
+import com.dozuki.ifixit.model.Embed;
+import com.dozuki.ifixit.model.Image;
+import com.dozuki.ifixit.model.Item;
+import com.dozuki.ifixit.model.Video;
+import com.dozuki.ifixit.model.VideoEncoding;
+import com.dozuki.ifixit.model.VideoThumbnail;
+import com.dozuki.ifixit.model.guide.Guide;
+import com.dozuki.ifixit.model.guide.GuideStep;
+import com.dozuki.ifixit.model.guide.StepLine;
+import com.dozuki.ifixit.model.user.User;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+/**
+ * The JSONObject based guide parsing that JSONStreamParser replaced. Kept to check that
+ * both build the same Guide and to compare their speed. Comments no longer keep their
+ * source but are otherwise parsed as before.
+ */
+public class TreeGuideParser {
+   private static final int NO_PARENT_ID = -1;
+
+   public static Guide parseGuide(String json) throws JSONException {
+      JSONObject jGuide = new JSONObject(json);
+      JSONArray jSteps = jGuide.getJSONArray("steps");
+      JSONArray jTools = jGuide.getJSONArray("tools");
+      JSONArray jParts = jGuide.getJSONArray("parts");
+      JSONObject jAuthor = jGuide.getJSONObject("author");
+      Guide guide = new Guide(jGuide.getInt("guideid"));
+
+      guide.setTitle(jGuide.getString("title"));
+      guide.setTopic(jGuide.getString("category"));
+      guide.setSubject(jGuide.getString("subject"));
+      guide.setAuthor(jAuthor.getString("username"));
+      guide.setTimeRequired(jGuide.getString("time_required"));
+      guide.setDifficulty(jGuide.getString("difficulty"));
+      guide.setIntroductionRaw(jGuide.getString("introduction_raw"));
+      guide.setIntroductionRendered(jGuide.getString("introduction_rendered"));
+      guide.setIntroImage(JSONHelper.parseImage(jGuide, "image"));
+      guide.setSummary(jGuide.isNull("summary") ? "" : jGuide.getString("summary"));
+      guide.setRevisionid(jGuide.getInt("revisionid"));
+      guide.setPublic(jGuide.getBoolean("public"));
+      guide.setType(jGuide.getString("type"));
+      guide.setPatrolThreshold(jGuide.getInt("patrol_threshold"));
+      guide.setConclusion(jGuide.getString("conclusion_rendered"));
+      guide.setCompleted(jGuide.getBoolean("completed"));
+      guide.setComments(parseComments(jGuide.getJSONArray("comments")));
+      guide.setFavorited(jGuide.getBoolean("favorited"));
+      guide.setModifiedDate(jGuide.getDouble("modified_date"));
+      guide.setPrereqModifiedDate(jGuide.getDouble("prereq_modified_date"));
+
+      if (jGuide.has("can_edit")) {
+         guide.setCanEdit(jGuide.getBoolean("can_edit"));
+      }
+
+      for (int i = 0; i < jSteps.length(); i++) {
+         guide.addStep(parseStep(jSteps.getJSONObject(i), i + 1));
+      }
+
+      for (int i = 0; i < jTools.length(); i++) {
+         guide.addTool(parseItem(jTools.getJSONObject(i), Item.ItemType.TOOL));
+      }
+
+      for (int i = 0; i < jParts.length(); i++) {
+         guide.addPart(parseItem(jParts.getJSONObject(i), Item.ItemType.PART));
+      }
+
+      return guide;
+   }
+
+   public static ArrayList<Comment> parseComments(JSONArray comments) throws JSONException {
+      ArrayList<Comment> result = new ArrayList<Comment>();
+      for (int i = 0; i < comments.length(); i++) {
+         result.add(parseComment(comments.getJSONObject(i)));
+      }
+      return result;
+   }
+
+   private static Comment parseComment(JSONObject object) throws JSONException {
+      Comment comment = new Comment();
+
+      comment.mCommentid = object.getInt("commentid");
+      comment.mLocale = object.getString("locale");
+      comment.mParentid = object.isNull("parentid") ? NO_PARENT_ID :
+       object.getInt("parentid");
+      comment.mUser = parseUserLight(object.getJSONObject("author"));
+      comment.mTitle = object.getString("title");
+      comment.mContext = object.getString("context");
+      comment.mContextid = object.getInt("contextid");
+      comment.mTextRaw = object.getString("text_raw");
+      comment.mTextRendered = object.getString("text_rendered");
+      comment.mRating = object.getInt("rating");
+      comment.mDate = new Date(object.getLong("date") * 1000);
+      comment.mModifiedDate = new Date(object.getLong("modified_date") * 1000);
+      comment.mRepliedDate = new Date(object.getLong("replied_date") * 1000);
+      comment.mStatus = object.getString("status");
+      comment.mReplies = new ArrayList<Comment>();
+      JSONArray replies = object.optJSONArray("replies");
+
+      if (replies != null) {
+         comment.mReplies = parseComments(replies);
+      }
+
+      return comment;
+   }
+
+   private static User parseUserLight(JSONObject jUser) throws JSONException {
+      User user = new User();
+      user.setUserid(jUser.getInt("userid"));
+      user.setUsername(jUser.getString("username"));
+      user.setAvatar(JSONHelper.parseImage(jUser, "image"));
+
+      if (!jUser.isNull("join_date"))
+         user.setJoinDate(jUser.getInt("join_date"));
+
+      user.setReputation(jUser.getInt("reputation"));
+      return user;
+   }
+
+   private static Item parseItem(JSONObject jItem, Item.ItemType type)
+    throws JSONException {
+      return new Item(
+       type,
+       jItem.getString("text"),
+       jItem.getString("quantity"),
+       jItem.getString("url"),
+       jItem.getString("thumbnail"),
+       jItem.getString("notes"));
+   }
+
+   private static GuideStep parseStep(JSONObject jStep, int stepNumber)
+    throws JSONException {
+      GuideStep step = new GuideStep(stepNumber);
+
+      step.setGuideid(jStep.getInt("guideid"));
+      step.setStepid(jStep.getInt("stepid"));
+      step.setRevisionid(jStep.getInt("revisionid"));
+      step.setOrderby(jStep.isNull("orderby") ? stepNumber : jStep.getInt("orderby"));
+      step.setTitle(jStep.getString("title"));
+
+      try {
+         JSONObject jMedia = jStep.getJSONObject("media");
+         String type = jMedia.getString("type");
+
+         if (type.equals("image")) {
+            JSONArray jImages = jMedia.getJSONArray("data");
+            for (int i = 0; i < jImages.length(); i++) {
+               step.addImage(JSONHelper.parseImage(jImages.getJSONObject(i), null));
+            }
+         } else if (type.equals("video")) {
+            JSONObject jVideo = jMedia.getJSONObject("data");
+            step.addVideo(parseVideo(jVideo));
+         } else if (type.equals("embed")) {
+            JSONObject jEmbed = jMedia.getJSONObject("data");
+            step.addEmbed(new Embed(jEmbed));
+         }
+
+      } catch (JSONException e) {
+         Image image = new Image();
+         step.addImage(image);
+      }
+
+      JSONArray jLines = jStep.getJSONArray("lines");
+      for (int i = 0; i < jLines.length(); i++) {
+         step.addLine(parseLine(jLines.getJSONObject(i)));
+      }
+
+      if (jStep.has("comments")) {
+         step.setComments(parseComments(jStep.getJSONArray("comments")));
+      }
+
+      return step;
+   }
+
+   private static Video parseVideo(JSONObject jVideo) throws JSONException {
+      Video video = new Video();
+      JSONArray jEncodings = jVideo.getJSONArray("encodings");
+
+      for (int i = 0; i < jEncodings.length(); i++) {
+         JSONObject jEncoding = jEncodings.getJSONObject(i);
+         video.addEncoding(new VideoEncoding(jEncoding.getInt("width"),
+          jEncoding.getInt("height"), jEncoding.getString("url"),
+          jEncoding.getString("format")));
+      }
+
+      video.setHeight(jVideo.getInt("width"));
+      video.setWidth(jVideo.getInt("height"));
+      video.setDuration(jVideo.getInt("duration"));
+      video.setFilename(jVideo.getString("filename"));
+
+      JSONObject jThumbnail = jVideo.getJSONObject("image");
+      Image image = JSONHelper.parseImage(jThumbnail.getJSONObject("image"), null);
+      video.setThumbnail(new VideoThumbnail(image.getId(), image.getPath(),
+       jThumbnail.getInt("width"), jThumbnail.getInt("height")));
+
+      return video;
+   }
+
+   private static StepLine parseLine(JSONObject jLine) throws JSONException {
+      int lineid = jLine.isNull("lineid") ? 0 : jLine.getInt("lineid");
+
+      return new StepLine(lineid, jLine.getString("bullet"),
+       jLine.getInt("level"), jLine.getString("text_raw"), jLine.getString("text_rendered"));
+   }
+}
@@ -0,0 +1,59 @@
+package com.dozuki.ifixit.util.api;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ApiEventTest {
+   private static final String RESPONSE = "{\"guideid\": 1, \"title\": \"Café — iPhone\"}";
+
+   @Test
+   public void streamedResponseMatchesStoredResponse() throws Exception {
+      ApiEvent<?> stored = new ApiEvent.ViewGuide().setResponse(RESPONSE);
+
+      assertTrue(stored.hasSameResponse(streamed(RESPONSE)));
+      assertTrue(streamed(RESPONSE).hasSameResponse(stored));
+   }
+
+   @Test
+   public void changedResponseDoesNotMatch() throws Exception {
+      ApiEvent<?> stored = new ApiEvent.ViewGuide().setResponse(RESPONSE);
+
+      assertFalse(stored.hasSameResponse(streamed(RESPONSE + " ")));
+   }
+
+   @Test
+   public void unknownResponseDoesNotMatch() throws Exception {
+      ApiEvent<?> stored = new ApiEvent.ViewGuide().setResponse(RESPONSE);
+
+      assertFalse(stored.hasSameResponse(new ApiEvent.ViewGuide()));
+      assertFalse(new ApiEvent.ViewGuide().hasSameResponse(new ApiEvent.ViewGuide()));
+   }
+
+   /**
+    * Returns an event for a streamed response whose cache entry was evicted. Reading the
+    * entry back would need the App so the comparison can only use the digest.
+    */
+   private static ApiEvent<?> streamed(String response) throws Exception {
+      MessageDigest digest = ApiEvent.newResponseDigest();
+      InputStream in = new DigestInputStream(
+       new ByteArrayInputStream(response.getBytes("UTF-8")), digest);
+
+      while (in.read(new byte[7]) != -1) {
+         // Keep reading.
+      }
+
+      ApiEvent<?> event = new ApiEvent.ViewGuide();
+      event.mStreamed = true;
+      event.mResponseCacheKey = "evicted";
+      event.mResponseDigest = digest.digest();
+
+      return event;
+   }
+}
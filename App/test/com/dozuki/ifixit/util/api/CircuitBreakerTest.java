@@ -0,0 +1,142 @@
+package com.dozuki.ifixit.util.api;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+   private static final int FAILURE_THRESHOLD = 3;
+   private static final long OPEN_MS = 1000;
+
+   private final TestBreaker mBreaker = new TestBreaker();
+
+   @Test
+   public void staysClosedBelowTheThreshold() {
+      fail(FAILURE_THRESHOLD - 1);
+
+      assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+      assertTrue(mBreaker.allowRequest());
+   }
+
+   @Test
+   public void successResetsTheConsecutiveFailures() {
+      fail(FAILURE_THRESHOLD - 1);
+      mBreaker.recordSuccess();
+      fail(FAILURE_THRESHOLD - 1);
+
+      assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+      assertEquals(FAILURE_THRESHOLD - 1, mBreaker.getConsecutiveFailures());
+      assertEquals((FAILURE_THRESHOLD - 1) * 2, mBreaker.getFailureCount());
+   }
+
+   @Test
+   public void opensAtTheThresholdAndRejectsRequests() {
+      fail(FAILURE_THRESHOLD);
+
+      assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState());
+      assertEquals(1, mBreaker.getTripCount());
+      assertFalse(mBreaker.allowRequest());
+      assertFalse(mBreaker.allowRequest());
+      assertEquals(2, mBreaker.getRejectedCount());
+   }
+
+   @Test
+   public void letsOneTrialThroughAfterTheOpenPeriod() {
+      fail(FAILURE_THRESHOLD);
+
+      mBreaker.mNow += OPEN_MS - 1;
+      assertFalse(mBreaker.allowRequest());
+
+      mBreaker.mNow += 1;
+      assertTrue(mBreaker.allowRequest());
+      assertEquals(CircuitBreaker.State.HALF_OPEN, mBreaker.getState());
+
+      // Only the trial is let through.
+      assertFalse(mBreaker.allowRequest());
+   }
+
+   @Test
+   public void closesWhenTheTrialSucceeds() {
+      fail(FAILURE_THRESHOLD);
+      mBreaker.mNow += OPEN_MS;
+      mBreaker.allowRequest();
+
+      mBreaker.recordSuccess();
+
+      assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+      assertEquals(0, mBreaker.getConsecutiveFailures());
+      assertTrue(mBreaker.allowRequest());
+   }
+
+   @Test
+   public void reopensWhenTheTrialFails() {
+      fail(FAILURE_THRESHOLD);
+      mBreaker.mNow += OPEN_MS;
+      mBreaker.allowRequest();
+
+      mBreaker.recordFailure();
+
+      assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState());
+      // Still the same outage.
+      assertEquals(1, mBreaker.getTripCount());
+      assertFalse(mBreaker.allowRequest());
+
+      mBreaker.mNow += OPEN_MS;
+      assertTrue(mBreaker.allowRequest());
+   }
+
+   @Test
+   public void aTrialThatNeverReportsBackDoesNotBlockForever() {
+      fail(FAILURE_THRESHOLD);
+      mBreaker.mNow += OPEN_MS;
+      assertTrue(mBreaker.allowRequest());
+
+      mBreaker.mNow += OPEN_MS;
+      assertTrue(mBreaker.allowRequest());
+   }
+
+   @Test
+   public void countsEachOutageAsATrip() {
+      fail(FAILURE_THRESHOLD);
+      mBreaker.mNow += OPEN_MS;
+      mBreaker.allowRequest();
+      mBreaker.recordSuccess();
+
+      fail(FAILURE_THRESHOLD);
+
+      assertEquals(2, mBreaker.getTripCount());
+   }
+
+   @Test
+   public void keepsOneBreakerPerHost() {
+      CircuitBreaker breaker = CircuitBreaker.get("test.example.com");
+
+      assertSame(breaker, CircuitBreaker.get("test.example.com"));
+      assertEquals("test.example.com", breaker.getHost());
+      assertTrue(CircuitBreaker.getAll().contains(breaker));
+      assertFalse(breaker == CircuitBreaker.get("other.example.com"));
+   }
+
+   private void fail(int failures) {
+      for (int i = 0; i < failures; i++) {
+         assertTrue(mBreaker.allowRequest());
+         mBreaker.recordFailure();
+      }
+   }
+
+   private static class TestBreaker extends CircuitBreaker {
+      private long mNow = 1000000;
+
+      private TestBreaker() {
+         super("example.com", FAILURE_THRESHOLD, OPEN_MS);
+      }
+
+      @Override
+      long now() {
+         return mNow;
+      }
+   }
+}
@@ -0,0 +1,180 @@
+package com.dozuki.ifixit.util.api;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.dozuki.ifixit.model.guide.Guide;
+import com.dozuki.ifixit.model.guide.GuideInfo;
+import com.dozuki.ifixit.model.guide.GuideStep;
+import com.dozuki.ifixit.util.GuideFixture;
+import com.dozuki.ifixit.util.JSONStreamParser;
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * SQLite is native code so these run on Robolectric.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class OfflineGuideTablesTest {
+   /**
+    * Roughly the size of the largest guides on the site.
+    */
+   private static final int LARGE_GUIDE_STEPS = 150;
+   private static final int LARGE_GUIDE_COMMENTS = 200;
+
+   private static final int WARMUP_RUNS = 5;
+   private static final int TIMED_RUNS = 20;
+
+   /**
+    * Stands in for ApiDatabase's offline guides table.
+    */
+   private static final String TABLE_GUIDES = "guides";
+
+   private SQLiteDatabase mDb;
+
+   @Before
+   public void setUp() {
+      mDb = SQLiteDatabase.create(null);
+      mDb.execSQL("CREATE TABLE " + TABLE_GUIDES + "(_id INTEGER PRIMARY KEY, " +
+       OfflineGuideTables.GUIDE_COLUMNS + "guideid INTEGER)");
+      OfflineGuideTables.createTables(mDb);
+   }
+
+   @After
+   public void tearDown() {
+      mDb.close();
+   }
+
+   @Test
+   public void readsTheSameStepsOneAtATime() throws Exception {
+      insertGuide(new GuideFixture(1).guide(1, 20, 10));
+
+      Guide guide = readGuide();
+      OfflineGuide offlineGuide = readOfflineGuide();
+
+      assertEquals(guide.getNumSteps(), offlineGuide.getNumSteps());
+
+      for (int i = 0; i < guide.getNumSteps(); i++) {
+         assertEquals(guide.getStep(i).getStepid(), offlineGuide.getStepids()[i]);
+         assertSame(guide.getStep(i),
+          OfflineGuideTables.readStep(mDb, offlineGuide.getStepRow(i)));
+      }
+
+      guide.setStepList(new ArrayList<GuideStep>());
+      assertSame(guide, offlineGuide.getGuide());
+   }
+
+   @Test
+   public void returnsNullForStepsThatWereDeleted() throws Exception {
+      long guideRow = insertGuide(new GuideFixture(1).guide(1, 5, 0));
+      OfflineGuide offlineGuide = readOfflineGuide();
+
+      OfflineGuideTables.deleteContents(mDb, "SELECT " + guideRow, null);
+
+      assertNull(OfflineGuideTables.readStep(mDb, offlineGuide.getStepRow(0)));
+   }
+
+   /**
+    * Reports how long opening the large guide takes when every step is read and when
+    * only the first step is. Run on its own with
+    * ./gradlew testIfixitDebugUnitTest --tests '*OfflineGuideTablesTest.benchmark*'
+    *
+    * Robolectric runs SQLite on the JVM so the numbers compare the two reads rather
+    * than predict the time on a device.
+    */
+   @Test
+   public void benchmarkOpenLargeGuide() throws Exception {
+      insertGuide(new GuideFixture(42).guide(1, LARGE_GUIDE_STEPS, LARGE_GUIDE_COMMENTS));
+
+      for (int i = 0; i < WARMUP_RUNS; i++) {
+         readGuide();
+         openFirstStep();
+      }
+
+      long allStepsNs = 0;
+      long firstStepNs = 0;
+
+      for (int i = 0; i < TIMED_RUNS; i++) {
+         long start = System.nanoTime();
+         readGuide();
+         allStepsNs += System.nanoTime() - start;
+
+         start = System.nanoTime();
+         openFirstStep();
+         firstStepNs += System.nanoTime() - start;
+      }
+
+      System.out.println(String.format(Locale.US,
+       "Opened a guide with %d steps: every step %.2f ms, first step only %.2f ms",
+       LARGE_GUIDE_STEPS, allStepsNs / 1e6 / TIMED_RUNS, firstStepNs / 1e6 / TIMED_RUNS));
+   }
+
+   private void openFirstStep() {
+      OfflineGuide offlineGuide = readOfflineGuide();
+      OfflineGuideTables.readStep(mDb, offlineGuide.getStepRow(0));
+   }
+
+   private long insertGuide(String json) throws Exception {
+      Guide guide = JSONStreamParser.parseGuide(json);
+      ContentValues values = new ContentValues();
+
+      values.put("guideid", guide.getGuideid());
+      OfflineGuideTables.putGuide(values, guide, new GuideInfo(guide.getGuideid()));
+
+      long guideRow = mDb.insertOrThrow(TABLE_GUIDES, null, values);
+      OfflineGuideTables.insertContents(mDb, guideRow, guide);
+
+      return guideRow;
+   }
+
+   private Guide readGuide() {
+      Cursor cursor = queryGuide();
+
+      try {
+         return OfflineGuideTables.readGuide(mDb, cursor);
+      } finally {
+         cursor.close();
+      }
+   }
+
+   private OfflineGuide readOfflineGuide() {
+      Cursor cursor = queryGuide();
+
+      try {
+         return OfflineGuideTables.readOfflineGuide(mDb, cursor);
+      } finally {
+         cursor.close();
+      }
+   }
+
+   private Cursor queryGuide() {
+      Cursor cursor = mDb.query(TABLE_GUIDES, OfflineGuideTables.GUIDE_PROJECTION, null,
+       null, null, null, null);
+      cursor.moveToFirst();
+
+      return cursor;
+   }
+
+   /**
+    * Compares every field including those of nested objects.
+    */
+   private static void assertSame(Object expected, Object actual) {
+      Gson gson = new Gson();
+
+      assertEquals(gson.toJson(expected), gson.toJson(actual));
+   }
+}
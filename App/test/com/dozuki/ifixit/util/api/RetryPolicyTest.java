@@ -0,0 +1,112 @@
+package com.dozuki.ifixit.util.api;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+   @After
+   public void tearDown() {
+      Thread.interrupted();
+   }
+
+   @Test
+   public void retriesUntilTheLastAttempt() {
+      RetryPolicy policy = new RetryPolicy(3, 100, 1000);
+
+      assertTrue(policy.shouldRetry(1));
+      assertTrue(policy.shouldRetry(2));
+      assertFalse(policy.shouldRetry(3));
+   }
+
+   @Test
+   public void noneMakesASingleAttempt() {
+      assertEquals(1, RetryPolicy.NONE.getMaxAttempts());
+      assertFalse(RetryPolicy.NONE.shouldRetry(1));
+      assertEquals(0, RetryPolicy.NONE.getDelayMs(1));
+   }
+
+   @Test
+   public void delaysGrowExponentiallyWithJitter() {
+      RetryPolicy policy = new RetryPolicy(10, 100, 1000);
+      long[] backoffs = {100, 200, 400, 800, 1000, 1000};
+
+      for (int i = 0; i < backoffs.length; i++) {
+         for (int sample = 0; sample < 100; sample++) {
+            long delay = policy.getDelayMs(i + 1);
+
+            assertTrue("attempt " + (i + 1) + ": " + delay,
+             delay >= backoffs[i] / 2 && delay <= backoffs[i]);
+         }
+      }
+   }
+
+   @Test
+   public void delaysAreCappedForLateAttempts() {
+      RetryPolicy policy = new RetryPolicy(100, 1000, 16000);
+
+      for (int attempt = 1; attempt <= 100; attempt++) {
+         long delay = policy.getDelayMs(attempt);
+
+         assertTrue("attempt " + attempt + ": " + delay, delay >= 0 && delay <= 16000);
+      }
+   }
+
+   @Test
+   public void delaysAreJittered() {
+      RetryPolicy policy = new RetryPolicy(5, 1000, 16000);
+      Set<Long> delays = new HashSet<Long>();
+
+      for (int sample = 0; sample < 100; sample++) {
+         delays.add(policy.getDelayMs(3));
+      }
+
+      assertTrue(delays.size() > 1);
+   }
+
+   @Test
+   public void onlyGatewayAndUnavailableErrorsAreTransient() {
+      assertTrue(RetryPolicy.isTransientStatus(502));
+      assertTrue(RetryPolicy.isTransientStatus(503));
+      assertTrue(RetryPolicy.isTransientStatus(504));
+
+      assertFalse(RetryPolicy.isTransientStatus(200));
+      assertFalse(RetryPolicy.isTransientStatus(401));
+      assertFalse(RetryPolicy.isTransientStatus(404));
+      assertFalse(RetryPolicy.isTransientStatus(500));
+   }
+
+   @Test
+   public void backgroundLanesUseTheBackgroundPolicy() {
+      assertSame(RetryPolicy.INTERACTIVE,
+       RetryPolicy.forLane(ApiExecutor.Lane.INTERACTIVE));
+      assertSame(RetryPolicy.BACKGROUND, RetryPolicy.forLane(ApiExecutor.Lane.PREFETCH));
+      assertSame(RetryPolicy.BACKGROUND, RetryPolicy.forLane(ApiExecutor.Lane.SYNC));
+   }
+
+   @Test
+   public void sleepStopsWhenInterrupted() {
+      RetryPolicy policy = new RetryPolicy(3, 60000, 60000);
+      Thread.currentThread().interrupt();
+
+      assertFalse(policy.sleep(1));
+      // The interrupt is kept so the caller can see it.
+      assertTrue(Thread.currentThread().isInterrupted());
+   }
+
+   @Test
+   public void sleepWaitsForTheDelay() {
+      RetryPolicy policy = new RetryPolicy(3, 20, 20);
+      long start = System.nanoTime();
+
+      assertTrue(policy.sleep(1));
+      assertTrue(System.nanoTime() - start >= 10 * 1000 * 1000);
+   }
+}